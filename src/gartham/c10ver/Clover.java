@@ -3,6 +3,7 @@ package gartham.c10ver;
 import static gartham.c10ver.events.InfoPopup.tip;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -11,6 +12,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import javax.security.auth.login.LoginException;
@@ -20,13 +22,19 @@ import org.alixia.javalibrary.strings.matching.Matching;
 import gartham.c10ver.changelog.Changelog;
 import gartham.c10ver.commands.CommandParser;
 import gartham.c10ver.commands.CommandProcessor;
+import gartham.c10ver.data.autosave.WriteBehindSaver;
+import gartham.c10ver.data.storage.PackedFileBackend;
 import gartham.c10ver.economy.Economy;
 import gartham.c10ver.events.EventHandler;
 import gartham.c10ver.events.InfoPopup;
+import gartham.c10ver.games.rpg.fighting.battles.ai.SearchPool;
+import gartham.c10ver.rest.RestPipeline;
+import gartham.c10ver.scheduling.Scheduler;
 import gartham.c10ver.transactions.Transaction;
 import gartham.c10ver.transactions.Transaction.Entry;
 import gartham.c10ver.transactions.TransactionHandler;
 import gartham.c10ver.transactions.sockets.SocketTransactionHandler;
+import gartham.c10ver.utils.Utilities;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.User;
@@ -78,11 +86,40 @@ public class Clover {
 	}
 
 	private final File root = new File("data");
+	/**
+	 * Takes disk writes off of the event thread. Saves of the same object within
+	 * one flush window are coalesced into a single write.
+	 */
+	private final WriteBehindSaver saver = new WriteBehindSaver(5, TimeUnit.SECONDS, 512);
+	/**
+	 * Runs timed jobs (e.g. vote reminders and game timers). Durable jobs are kept
+	 * in a journal and restored when Clover starts.
+	 */
+	private final Scheduler scheduler = new Scheduler(new File(root, "scheduler/jobs.txt"), 4);
+	/**
+	 * Runs Discord REST calls that Clover needs the results of, without parking a
+	 * thread on them. Set <code>-Dclover.rest-concurrency=&lt;n&gt;</code> to change
+	 * how many may be in flight at once.
+	 */
+	private final RestPipeline rest = new RestPipeline("REST", Integer.getInteger("clover.rest-concurrency", 16));
+	/**
+	 * The threads that battle opponents think on. Set
+	 * <code>-Dclover.ai-threads=&lt;n&gt;</code> to change how many there are (half
+	 * of the available processors, by default).
+	 */
+	private final SearchPool searchPool = new SearchPool("Battle AI",
+			Integer.getInteger("clover.ai-threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
 	private final JDA bot;
 	private final CommandParser commandParser;
 	private final CommandProcessor commandProcessor = new CloverCommandProcessor(this);
 	private final EventHandler eventHandler = new EventHandler(this);
-	private final Economy economy = new Economy(new File(root, "economy"), this);
+	/**
+	 * Set <code>-Dclover.max-loaded-users=&lt;n&gt;</code> to load users lazily,
+	 * keeping at most <code>n</code> of them loaded. Created once the saver and
+	 * atomic saves are installed, since loading it replays (and compacts) the
+	 * economy's journal.
+	 */
+	private final Economy economy;
 	private final Changelog changelog;
 	private final Set<String> devlist;
 	private final List<String> wordlist;
@@ -113,13 +150,14 @@ public class Clover {
 
 			@Override
 			public void accept(Transaction t) {
-				try {
-					bot.getUserById(t.getUserID()).openPrivateChannel().complete().sendMessage(
-							"Thank you for purchasing multipliers on the Clover store. :heart:\n\nMultiplier tickets have been added to your inventory (check your inventory with `~inv`).\nYou can use them in any server you want to with `~use mult [item-number]`")
-							.queue();
-				} catch (Exception e) {
-					System.err.println("Failed to msg a user about rewards.");
-				}
+				rest.submit(bot.retrieveUserById(t.getUserID()).flatMap(u -> u.openPrivateChannel()))
+						.thenAccept(pc -> pc.sendMessage(
+								"Thank you for purchasing multipliers on the Clover store. :heart:\n\nMultiplier tickets have been added to your inventory (check your inventory with `~inv`).\nYou can use them in any server you want to with `~use mult [item-number]`")
+								.queue())
+						.exceptionally(e -> {
+							System.err.println("Failed to msg a user about rewards.");
+							return null;
+						});
 
 				var i = economy.getInventory(t.getUserID());
 				for (Entry e : t.getItems())
@@ -200,10 +238,26 @@ public class Clover {
 		return eventHandler;
 	}
 
+	public WriteBehindSaver getSaver() {
+		return saver;
+	}
+
 	public Economy getEconomy() {
 		return economy;
 	}
 
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+
+	public RestPipeline getRest() {
+		return rest;
+	}
+
+	public SearchPool getSearchPool() {
+		return searchPool;
+	}
+
 	public Clover(String token) throws LoginException {
 		this(JDABuilder.create(token, EnumSet.allOf(GatewayIntent.class)).build());
 	}
@@ -218,21 +272,40 @@ public class Clover {
 
 	public Clover(JDA jda, boolean devmode) {
 		bot = jda;
+		Utilities.setAtomicSaves(true);
+		WriteBehindSaver.setGlobal(saver);
+		RestPipeline.setGlobal(rest);
+		economy = new Economy(new File(root, "economy"), this, Integer.getInteger("clover.max-loaded-users", 0));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			eventHandler.close();
+			scheduler.close();
+			rest.shutdown();
+			searchPool.shutdown();
+			economy.getJournal().close();
+			saver.close();
+			Utilities.getStorage().close();
+		}));
 		if (devmode)
 			System.out.println("Dev mode enabled!");
 		commandParser = new CommandParser(Matching.build(devmode ? "$" : "~").or(
 				Matching.build("<@").possibly("!").then(bot.getSelfUser().getId() + ">").then(Matching.whitespace())));
 		bot.addEventListener(eventHandler);
 		eventHandler.initialize();
+		scheduler.restore();
 
 		transactionHandler.enable();
 	}
 
-	public static void main(String[] args) throws LoginException {
+	public static void main(String[] args) throws LoginException, IOException {
 		boolean devmode = false;
 		for (var s : args)
 			if (s.equalsIgnoreCase("dev"))
 				devmode = true;
+			else if (s.equalsIgnoreCase("packed")) {
+				// Everything under data/ is stored in data/store.pack instead of in individual files. Saves are
+				// forced to the device, like atomic saves to individual files are.
+				Utilities.setStorage(new PackedFileBackend(new File("data"), new File("data/store.pack"), true));
+			}
 		try (var s = new Scanner(Clover.class.getResourceAsStream(devmode ? "dev-token.txt" : "token.txt"))) {
 			new Clover(s.nextLine(), devmode);
 		}
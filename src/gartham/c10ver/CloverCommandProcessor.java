@@ -12,16 +12,15 @@ import java.text.NumberFormat;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -43,7 +42,6 @@ import gartham.c10ver.commands.subcommands.ParentCommand;
 import gartham.c10ver.commands.subcommands.SubcommandInvocation;
 import gartham.c10ver.data.PropertyObject.Property;
 import gartham.c10ver.economy.Multiplier;
-import gartham.c10ver.economy.Rewards;
 import gartham.c10ver.economy.Server;
 import gartham.c10ver.economy.items.UserInventory.UserEntry;
 import gartham.c10ver.economy.items.utility.crates.DailyCrate;
@@ -73,7 +71,6 @@ import gartham.c10ver.processing.trading.TradeManager;
 import gartham.c10ver.utils.Utilities;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Category;
-import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
@@ -106,7 +103,6 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 
 			@Override
 			public void exec(CommandInvocation inv) {
-				net.dv8tion.jda.api.entities.User u;
 				if (inv.args.length > 0) {
 					String id = Utilities.parseMention(inv.args[0]);
 					if (id == null) {
@@ -114,31 +110,34 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 								inv.event.getAuthor().getAsMention() + " ping who you want to see the stats of.")
 								.queue();
 						return;
-					} else {
-						try {
-							u = clover.getBot().retrieveUserById(id).complete();
-						} catch (NumberFormatException e) {
-							inv.event.getChannel()
-									.sendMessage(inv.event.getAuthor().getAsMention() + " that's not a valid mention.")
-									.queue();
-							return;
-						}
-						if (u == null) {
-							inv.event.getChannel()
-									.sendMessage(inv.event.getAuthor().getAsMention() + " that user couldn't be found.")
-									.queue();
-							return;
-						} else if (!clover.getEconomy().hasUser(u.getId())) {
-							inv.event.getChannel().sendMessage(u.getAsMention() + " doesn't have an account.").queue();
-							return;
-						}
 					}
-				} else if (!clover.getEconomy().hasUser(inv.event.getAuthor().getId())) {
+					CompletableFuture<net.dv8tion.jda.api.entities.User> user;
+					try {
+						user = clover.getRest().submit(clover.getBot().retrieveUserById(id));
+					} catch (NumberFormatException e) {
+						inv.event.getChannel()
+								.sendMessage(inv.event.getAuthor().getAsMention() + " that's not a valid mention.")
+								.queue();
+						return;
+					}
+					user.thenAccept(u -> {
+						if (!clover.getEconomy().hasUser(u.getId()))
+							inv.event.getChannel().sendMessage(u.getAsMention() + " doesn't have an account.").queue();
+						else
+							showStats(inv, u);
+					}).exceptionally(e -> {
+						inv.event.getChannel()
+								.sendMessage(inv.event.getAuthor().getAsMention() + " that user couldn't be found.")
+								.queue();
+						return null;
+					});
+				} else if (!clover.getEconomy().hasUser(inv.event.getAuthor().getId()))
 					inv.event.getChannel().sendMessage("You don't have an account.").queue();
-					return;
-				} else
-					u = inv.event.getAuthor();
+				else
+					showStats(inv, inv.event.getAuthor());
+			}
 
+			private void showStats(CommandInvocation inv, net.dv8tion.jda.api.entities.User u) {
 				EmbedBuilder eb = new EmbedBuilder();
 				eb.setAuthor(u.getAsTag() + "'s Stats!", null, u.getEffectiveAvatarUrl()).setColor(Color.blue);
 				StringBuilder sb = new StringBuilder();
@@ -244,19 +243,22 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 				String userid = inv.event.getAuthor().getId();
 
 				User u = clover.getEconomy().getUser(userid);
-				if (u.timeSinceLastDaily().toDays() < 1)
+				var rewards = of(new DailyCrate());
+				// Checked and claimed under the user's lock, so it can't be claimed twice at once.
+				if (!clover.getEconomy().atomically(() -> {
+					if (u.timeSinceLastDaily().toDays() < 1)
+						return false;
+					u.dailyInvoked();
+					clover.getEconomy().getInventory(userid).add(rewards).save();
+					u.save();
+					return true;
+				}, userid))
 					inv.event.getChannel()
 							.sendMessage(inv.event.getAuthor().getAsMention() + ", you must wait `"
 									+ Utilities.formatLargest(Duration.ofDays(1).minus(u.timeSinceLastDaily()), 3)
 									+ "` before running that command.")
 							.queue();
 				else {
-					u.dailyInvoked();
-
-					var rewards = of(new DailyCrate());
-					clover.getEconomy().getInventory(inv.event.getAuthor().getId()).add(rewards).save();
-					u.save();
-
 					inv.event.getChannel()
 							.sendMessage(inv.event.getAuthor().getAsMention()
 									+ " is getting their daily rewards!\n\n**Rewards:**\n"
@@ -272,19 +274,21 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 			public void exec(CommandInvocation inv) {
 				String userid = inv.event.getAuthor().getId();
 				User u = clover.getEconomy().getUser(userid);
-				if (u.timeSinceLastWeekly().toDays() < 7) {
+				var rewards = of(new WeeklyCrate());
+				if (!clover.getEconomy().atomically(() -> {
+					if (u.timeSinceLastWeekly().toDays() < 7)
+						return false;
+					u.weeklyInvoked();
+					clover.getEconomy().getInventory(userid).add(rewards).save();
+					u.save();
+					return true;
+				}, userid)) {
 					inv.event.getChannel()
 							.sendMessage(inv.event.getAuthor().getAsMention() + ", you must wait `"
 									+ Utilities.formatLargest(Duration.ofDays(7).minus(u.timeSinceLastWeekly()), 3)
 									+ "` before running that command.")
 							.queue();
 				} else {
-					u.weeklyInvoked();
-
-					var rewards = of(new WeeklyCrate());
-					clover.getEconomy().getInventory(inv.event.getAuthor().getId()).add(rewards).save();
-					u.save();
-
 					inv.event.getChannel()
 							.sendMessage(inv.event.getAuthor().getAsMention()
 									+ " is getting their weekly rewards!\n\n**Rewards:**\n"
@@ -299,19 +303,21 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 			public void exec(CommandInvocation inv) {
 				String userid = inv.event.getAuthor().getId();
 				User u = clover.getEconomy().getUser(userid);
-				if (u.timeSinceLastMonthly().toDays() < 30) {
+				var rewards = of(new MonthlyCrate());
+				if (!clover.getEconomy().atomically(() -> {
+					if (u.timeSinceLastMonthly().toDays() < 30)
+						return false;
+					u.monthlyInvoked();
+					clover.getEconomy().getInventory(userid).add(rewards).save();
+					u.save();
+					return true;
+				}, userid)) {
 					inv.event.getChannel()
 							.sendMessage(inv.event.getAuthor().getAsMention() + ", you must wait `"
 									+ Utilities.formatLargest(Duration.ofDays(30).minus(u.timeSinceLastMonthly()), 3)
 									+ "` before running that command.")
 							.queue();
 				} else {
-					u.monthlyInvoked();
-
-					var rewards = of(new MonthlyCrate());
-					clover.getEconomy().getInventory(inv.event.getAuthor().getId()).add(rewards).save();
-					u.save();
-
 					inv.event.getChannel()
 							.sendMessage(inv.event.getAuthor().getAsMention()
 									+ " is getting their monthly rewards!!!\n\n**Rewards:**\n"
@@ -325,6 +331,10 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 		register(new ParentCommand("open", "use") {
 
 			private boolean openCrate(String cratetype, CommandInvocation inv, BigInteger count) {
+				if (count.signum() <= 0) {
+					inv.event.getChannel().sendMessage("You have to open at least one crate.").queue();
+					return true;
+				}
 				if (clover.getEconomy().hasUser(inv.event.getAuthor().getId())) {
 					var u = clover.getEconomy().getUser(inv.event.getAuthor().getId());
 					@SuppressWarnings("unchecked")
@@ -342,14 +352,15 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 								}
 
 								LootCrateItem lci = is.getItem();
-								;
-								Rewards rew = new Rewards();
-								for (var i = BigInteger.ZERO; i.compareTo(count) < 0; i = i.add(BigInteger.ONE))
-									rew = rew.with(lci.open());
-
-								var rec = u.rewardAndSave(rew, inv.event.getGuild());
-
-								is.remove(count);
+								// Work out the loot first, so the crates aren't used up if opening them fails.
+								var loot = lci.open(count);
+								var rec = clover.getEconomy().atomically(
+										() -> is.take(count) ? u.rewardAndSave(loot, inv.event.getGuild()) : null,
+										u.getUserID());
+								if (rec == null) {
+									inv.event.getChannel().sendMessage("You don't have that many anymore! :(").queue();
+									return true;
+								}
 
 								inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention() + " opened "
 										+ NumberFormat.getIntegerInstance().format(count) + " **" + lci.getCustomName()
@@ -372,10 +383,11 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 								@SuppressWarnings("unchecked")
 								var crateEntry = (UserEntry<Bomb>) u.getInventory().get("bomb");
 								if (crateEntry != null) {
-									crateEntry.get(0).getItem().consume(inv.event, clover);// Has to do the messaging on
-																							// its own.
-									crateEntry.get(0).removeAndSave(BigInteger.ONE);
-									return;
+									var is = crateEntry.get(0);
+									if (is.take(BigInteger.ONE)) {
+										is.getItem().consume(inv.event, clover);// Has to do the messaging on its own.
+										return;
+									}
 								}
 							}
 							inv.event.getChannel()
@@ -486,6 +498,11 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 
 										var is = multEntry.get(ind - 1);
 										var mti = is.getItem();
+										if (!is.take(BigInteger.ONE)) {
+											inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
+													+ " you don't have any of that multiplier ticket anymore.").queue();
+											return;
+										}
 										Server serv = clover.getEconomy().getServer(inv.event.getGuild().getId());
 										mti.use(clover, inv.event.getGuild(),
 												clover.getEconomy().getUser(inv.event.getAuthor().getId()));
@@ -495,7 +512,6 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 												+ Utilities.multiplier(mti.getAmount())
 												+ "x** multiplier that lasts for **"
 												+ Utilities.formatLargest(mti.getDuration(), 2) + "**.").queue();
-										is.removeAndSave(BigInteger.ONE);
 
 										serv.save();
 									}
@@ -530,25 +546,33 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 										.queue();
 								return;
 							}
+							if (amt.signum() <= 0) {
+								inv.event.getChannel().sendMessage(
+										"You have to use at least one item. :(\nExample Usage: `~use pizza 12`")
+										.queue();
+								return;
+							}
 						} else
 							amt = BigInteger.ONE;
 
 						if (crateEntry != null) {
 							var is = crateEntry.get(0);
 							if (is.getItem() instanceof Foodstuff) {
-								if (!is.has(amt)) {
+								var lci = (Foodstuff) is.getItem();
+								if (!clover.getEconomy().atomically(() -> {
+									if (!is.take(amt))
+										return false;
+									lci.consume(u, amt);
+									u.save();
+									return true;
+								}, u.getUserID())) {
 									inv.event.getChannel()
 											.sendMessage("You can't use that many, you only have `"
 													+ NumberFormat.getIntegerInstance().format(is.getCount()) + "`! :(")
 											.queue();
 									return;
 								}
-								is.removeAndSave(amt);
-								var lci = (Foodstuff) is.getItem();
 								var mult = lci.getMultiplier();
-								for (BigInteger i = BigInteger.ZERO; i.compareTo(amt) < 0; i = i.add(BigInteger.ONE))
-									lci.consume(u);
-								u.save();
 
 								inv.event.getChannel()
 										.sendMessage(inv.event.getAuthor().getAsMention() + " you consumed some "
@@ -780,20 +804,16 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 								inv.event.getAuthor().getAsMention() + " ping who you want to check the balance of.")
 								.queue();
 					else {
-						net.dv8tion.jda.api.entities.User u;
+						CompletableFuture<net.dv8tion.jda.api.entities.User> user;
 						try {
-							u = clover.getBot().retrieveUserById(id).complete();
+							user = clover.getRest().submit(clover.getBot().retrieveUserById(id));
 						} catch (NumberFormatException e) {
 							inv.event.getChannel()
 									.sendMessage(inv.event.getAuthor().getAsMention() + " that's not a valid mention.")
 									.queue();
 							return;
 						}
-						if (u == null) {
-							inv.event.getChannel()
-									.sendMessage(inv.event.getAuthor().getAsMention() + " that user couldn't be found.")
-									.queue();
-						} else {
+						user.thenAccept(u -> {
 							if (clover.getEconomy().hasAccount(u.getId())) {
 								var bal = clover.getEconomy().getAccount(u.getId()).getBalance();
 								inv.event.getChannel().sendMessage(u.getAsMention() + " has **" + format(bal) + "** (`"
@@ -802,7 +822,12 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 								inv.event.getChannel().sendMessage(u.getAsMention() + " doesn't have an account.")
 										.queue();
 							}
-						}
+						}).exceptionally(e -> {
+							inv.event.getChannel()
+									.sendMessage(inv.event.getAuthor().getAsMention() + " that user couldn't be found.")
+									.queue();
+							return null;
+						});
 					}
 				} else {
 					BigInteger bal = clover.getEconomy().getAccount(inv.event.getAuthor().getId()).getBalance();
@@ -815,14 +840,6 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 		});
 		register(new MatchBasedCommand("baltop", "leaderboard", "lb", "top") {
 
-			private final Set<String> servers = new HashSet<>();
-
-			private BigInteger getBal(Member member) {
-				return clover.getEconomy().hasAccount(member.getId())
-						? clover.getEconomy().getAccount(member.getId()).getBalance()
-						: BigInteger.ZERO;
-			}
-
 			@Override
 			public void exec(CommandInvocation inv) {
 				if (inv.event.isFromGuild()) {
@@ -831,70 +848,103 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 						return;
 					}
 
-					inv.event.getChannel().sendMessage("Sorting all members! (This may take a moment.)");
-					if (!servers.contains(inv.event.getGuild().getId())) {
-						servers.add(inv.event.getGuild().getId());
-						inv.event.getGuild().findMembers(t -> !t.getUser().isBot()).onSuccess(t -> {
-							try {
-
-								List<Member> users = new ArrayList<>();
-								for (Member m : t) {
-									int search = Collections.binarySearch(users, m,
-											((Comparator<Member>) (o1, o2) -> getBal(o1).compareTo(getBal(o2)))
-													.reversed());
-									users.add(search < 0 ? -search - 1 : search, m);
-								}
+					int page;
+					PAGE_PARSER: if (inv.args.length == 1) {
+						try {
+							if ((page = Integer.parseInt(inv.args[0])) > 0)
+								break PAGE_PARSER;
+						} catch (NumberFormatException e) {
+						}
+						inv.event.getChannel()
+								.sendMessage(inv.event.getAuthor().getAsMention() + ", that's not a valid page!")
+								.queue();
+						return;
+					} else
+						page = 1;
 
-								int page;
-								PAGE_PARSER: if (inv.args.length == 1) {
-									try {
-										if ((page = Integer.parseInt(inv.args[0])) > 0)
-											break PAGE_PARSER;
-									} catch (NumberFormatException e) {
-									}
-									inv.event.getChannel()
-											.sendMessage(
-													inv.event.getAuthor().getAsMention() + ", that's not a valid page!")
-											.queue();
-									return;
-								} else
-									page = 1;
+					var guild = inv.event.getGuild();
+					clover.getEconomy().getLeaderboards().get(guild).whenComplete((lb, err) -> {
+						if (err != null) {
+							inv.event.getChannel()
+									.sendMessage("An error occurred while querying discord for server members.")
+									.queue();
+							return;
+						}
 
-								int maxpage = maxPage(10, users);
-								if (page > maxpage) {
-									inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention() + " there "
-											+ (maxpage == 1 ? "is only `1` page" : "are only `" + maxpage + "` pages")
-											+ " of people in the leaderboard!").queue();
-									return;
-								}
+						int maxpage = Math.max(1, (lb.size() + 9) / 10);
+						if (page > maxpage) {
+							inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention() + " there "
+									+ (maxpage == 1 ? "is only `1` page" : "are only `" + maxpage + "` pages")
+									+ " of people in the leaderboard!").queue();
+							return;
+						}
 
-								EmbedBuilder eb = new EmbedBuilder();
-								eb.setAuthor("Server Leaderboard", null, inv.event.getGuild().getIconUrl());
-								StringBuilder sb = new StringBuilder();
+						EmbedBuilder eb = new EmbedBuilder();
+						eb.setAuthor("Server Leaderboard", null, guild.getIconUrl());
+						StringBuilder sb = new StringBuilder();
+
+						var entries = lb.get(page * 10 - 9, 10);
+						for (int i = 0; i < entries.size(); i++) {
+							var e = entries.get(i);
+							var m = guild.getMemberById(e.getUserID());
+							sb.append("`#" + (page * 10 - 9 + i) + "` "
+									+ (m == null ? "<@" + e.getUserID() + '>'
+											: m.getUser().getName() + "#" + m.getUser().getDiscriminator())
+									+ ": " + format(e.getBalance()) + "\n");
+						}
+						eb.addField("Page " + page + " Ranking", sb.toString(), false);
+						eb.setFooter("Showing page " + page + " in the server leaderboard.");
 
-								List<Member> paginate = JavaTools.paginate(page, 10, users);
-								for (int i = 0; i < paginate.size(); i++) {
-									var u = paginate.get(i);
-									sb.append("`#" + (page * 10 - 9 + i) + "` " + u.getUser().getName() + "#"
-											+ u.getUser().getDiscriminator() + ": "
-											+ format(clover.getEconomy().getAccount(u.getId()).getBalance()) + "\n");
-								}
-								eb.addField("Page " + page + " Ranking", sb.toString(), false);
-								eb.setFooter("Showing page " + page + " in the server leaderboard.");
+						inv.event.getChannel().sendMessage(eb.build()).queue();
+					});
+				} else
+					inv.event.getChannel().sendMessage("Please run this command in a server.").queue();
+			}
+		});
+		register(new MatchBasedCommand("rank", "balrank") {
 
-								inv.event.getChannel().sendMessage(eb.build()).queue();
-							} finally {
-								servers.remove(inv.event.getGuild().getId());
-							}
-						}).onError(t -> {
-							servers.remove(inv.event.getGuild().getId());
-							inv.event.getChannel()
-									.sendMessage("An error occurred while querying discord for server members.")
-									.queue();
-						});
+			@Override
+			public void exec(CommandInvocation inv) {
+				if (!inv.event.isFromGuild()) {
+					inv.event.getChannel().sendMessage("Please run this command in a server.").queue();
+					return;
+				}
+				if (inv.args.length > 1) {
+					inv.event.getChannel().sendMessage("Too many arguments.").queue();
+					return;
+				}
+				String id;
+				if (inv.args.length == 1) {
+					if ((id = Utilities.parseMention(inv.args[0])) == null) {
+						inv.event.getChannel().sendMessage(
+								inv.event.getAuthor().getAsMention() + " ping who you want to check the rank of.")
+								.queue();
+						return;
 					}
 				} else
-					inv.event.getChannel().sendMessage("Please run this command in a server.").queue();
+					id = inv.event.getAuthor().getId();
+
+				clover.getEconomy().getLeaderboards().get(inv.event.getGuild()).whenComplete((lb, err) -> {
+					if (err != null) {
+						inv.event.getChannel()
+								.sendMessage("An error occurred while querying discord for server members.").queue();
+						return;
+					}
+					int rank = lb.rank(id);
+					boolean self = id.equals(inv.event.getAuthor().getId());
+					if (rank == -1)
+						inv.event.getChannel()
+								.sendMessage(inv.event.getAuthor().getAsMention() + ", "
+										+ (self ? "you're" : "<@" + id + "> is") + " not on this server's leaderboard.")
+								.queue();
+					else
+						inv.event.getChannel()
+								.sendMessage(inv.event.getAuthor().getAsMention() + ", "
+										+ (self ? "you're" : "<@" + id + "> is") + " ranked **#" + rank + "** out of `"
+										+ lb.size() + "` on this server's leaderboard (page `" + ((rank + 9) / 10)
+										+ "`).")
+								.queue();
+				});
 			}
 		});
 
@@ -1029,7 +1079,8 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 								return true;
 							};
 							clover.getEventHandler().getMessageProcessor()
-									.registerInputConsumer(inp.filter(inv.event.getAuthor(), inv.event.getChannel()));
+									.registerChannelConsumer(inp.filter(inv.event.getAuthor(), inv.event.getChannel()),
+											inv.event.getChannel().getId());
 						}
 					}
 				};
@@ -1173,7 +1224,7 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 						inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
 								+ " this will close your previous question. Continue? (yes/N)").queue();
 						clover.getEventHandler().getMessageProcessor()
-								.registerInputConsumer(((MessageInputConsumer) (event, eventHandler, consumer) -> {
+								.registerChannelConsumer(((MessageInputConsumer) (event, eventHandler, consumer) -> {
 									switch (event.getMessage().getContentRaw().toLowerCase()) {
 									case "y":
 									case "yes":
@@ -1193,7 +1244,8 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 									default:
 										return false;
 									}
-								}).filter(inv.event.getAuthor().getId(), inv.event.getChannel().getId()));
+								}).filter(inv.event.getAuthor().getId(), inv.event.getChannel().getId()),
+										inv.event.getChannel().getId());
 					} else if (numb < 0)
 						inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
 								+ " this is not a valid question number: `" + Utilities.strip(inv.args[0]) + '`')
@@ -1208,24 +1260,15 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 							var q = questions.get(numb);
 							Box<InputConsumer<MessageReactionAddEvent>> reactionHandler = new Box<>();
 							Box<InputConsumer<MessageReceivedEvent>> messageHandler = new Box<>();
+							// Answers are looked up asynchronously, so this makes sure only one is rewarded.
+							var answered = new AtomicBoolean();
 							reactionHandler.value = (event, eventHandler, consumer) -> {
 								if (event.getChannel().getId().equals(inv.event.getChannel().getId())
 										&& event.getUserId().equals(inv.event.getAuthor().getId())
 										&& event.getReactionEmote().isEmoji()
 										&& event.getReactionEmote().getEmoji().equals("\u2705")) {
-									var user = event.getChannel().retrieveMessageById(event.getMessageId()).complete()
-											.getAuthor();
-									var u1 = clover.getEconomy().getUser(user.getId());
-									var mult = u1.calcMultiplier(event.getGuild());
-									var rewards = u1.rewardAndSave(q.getValue(), mult);
-
-									String m = Utilities.prettyPrintMultiplier(mult);
-
-									String msg = user.getAsMention() + ", you got the question right and earned "
-											+ Utilities.format(rewards) + " for answering it!";
-									if (m != null)
-										msg += "\n\nMultiplier: **" + m + "**.";
-
+									if (!answered.compareAndSet(false, true))
+										return true;
 									questionMap.remove(inv.event.getAuthor().getId(), inv.event.getChannel().getId());
 
 									clover.getEventHandler().getReactionAdditionProcessor()
@@ -1233,7 +1276,25 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 									clover.getEventHandler().getMessageProcessor()
 											.removeInputConsumer(messageHandler.value);
 
-									event.getChannel().sendMessage(msg).queue();
+									var retrieval = event.getChannel().retrieveMessageById(event.getMessageId());
+									clover.getRest().submit(retrieval).thenAccept(message -> {
+										var user = message.getAuthor();
+										var u1 = clover.getEconomy().getUser(user.getId());
+										var mult = u1.calcMultiplier(event.getGuild());
+										var rewards = u1.rewardAndSave(q.getValue(), mult);
+
+										String m = Utilities.prettyPrintMultiplier(mult);
+
+										String msg = user.getAsMention() + ", you got the question right and earned "
+												+ Utilities.format(rewards) + " for answering it!";
+										if (m != null)
+											msg += "\n\nMultiplier: **" + m + "**.";
+										event.getChannel().sendMessage(msg).queue();
+									}).exceptionally(e -> {
+										System.err.println("Failed to reward the answer to a question.");
+										e.printStackTrace();
+										return null;
+									});
 									return true;
 								}
 								return false;
@@ -1256,39 +1317,41 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 											event.getChannel().sendMessage(event.getAuthor().getAsMention()
 													+ " ping whoever got the right answer in the `accept` command.")
 													.queue();
-										else {
-											var user = event.getJDA().retrieveUserById(fid).complete();
-											if (user == null) {
-												event.getChannel().sendMessage(event.getAuthor().getAsMention()
-														+ " that person couldn't be found.").queue();
-												return true;
-											}
-											var u1 = clover.getEconomy().getUser(fid);
-
-											var mult = u1.calcMultiplier(event.getGuild());
-											var rewards = u1.reward(q.getValue(), mult);
-
-											String m = Utilities.multiplier(mult);
-
-											String msg = user.getAsMention()
-													+ ", you got the question right and earned " + format(rewards)
-													+ " for answering it!";
-											if (m != null)
-												msg += "\n\nMultiplier: **" + m + "**.";
-
-											questionMap.remove(inv.event.getAuthor().getId(),
-													inv.event.getChannel().getId());
-
-											clover.getEventHandler().getReactionAdditionProcessor()
-													.removeInputConsumer(reactionHandler.value);
-											clover.getEventHandler().getMessageProcessor()
-													.removeInputConsumer(consumer);
-
-											event.getChannel().sendMessage(msg).queue();
-
-										}
+										else
+											clover.getRest().submit(event.getJDA().retrieveUserById(fid))
+													.thenAccept(user -> {
+														if (!answered.compareAndSet(false, true))
+															return;
+														var u1 = clover.getEconomy().getUser(fid);
+
+														var mult = u1.calcMultiplier(event.getGuild());
+														var rewards = u1.reward(q.getValue(), mult);
+
+														String m = Utilities.multiplier(mult);
+
+														String msg = user.getAsMention()
+																+ ", you got the question right and earned "
+																+ format(rewards) + " for answering it!";
+														if (m != null)
+															msg += "\n\nMultiplier: **" + m + "**.";
+
+														questionMap.remove(inv.event.getAuthor().getId(),
+																inv.event.getChannel().getId());
+
+														clover.getEventHandler().getReactionAdditionProcessor()
+																.removeInputConsumer(reactionHandler.value);
+														clover.getEventHandler().getMessageProcessor()
+																.removeInputConsumer(consumer);
+
+														event.getChannel().sendMessage(msg).queue();
+													}).exceptionally(e -> {
+														event.getChannel().sendMessage(event.getAuthor().getAsMention()
+																+ " that person couldn't be found.").queue();
+														return null;
+													});
 										return true;
 									} else if (ci.cmdName.equalsIgnoreCase("cancel")) {
+										answered.set(true);
 										event.getChannel()
 												.sendMessage(event.getAuthor().getAsMention() + " question cancelled.")
 												.queue();
@@ -1303,8 +1366,9 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 								return false;
 							};
 							clover.getEventHandler().getReactionAdditionProcessor()
-									.registerInputConsumer(reactionHandler.value);
-							clover.getEventHandler().getMessageProcessor().registerInputConsumer(messageHandler.value);
+									.registerChannelConsumer(reactionHandler.value, inv.event.getChannel().getId());
+							clover.getEventHandler().getMessageProcessor().registerChannelConsumer(messageHandler.value,
+									inv.event.getChannel().getId());
 							questionMap.put(new AskedQuiz(q, messageHandler.value, reactionHandler.value),
 									inv.event.getAuthor().getId(), inv.event.getChannel().getId());
 							inv.event.getChannel().sendMessage(new EmbedBuilder().setColor(switch (q.getDifficulty()) {
@@ -2037,8 +2101,6 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 
 		register(new MatchBasedCommand("math") {
 
-			Timer timer = new Timer(true);
-
 			class MathState {
 				BigInteger value = BigInteger.valueOf(50);
 				double diff = 1;
@@ -2052,7 +2114,6 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 				Set<String> players = new HashSet<>(1);
 				MathProblem problem;
 				MessageInputConsumer mic;
-				TimerTask ts;
 				Instant inst;
 			}
 
@@ -2121,7 +2182,24 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 
 				clover.getEventHandler().getMessageProcessor().removeInputConsumer(ms.mic);
 				channelToProblemMap.remove(channel);
-				ms.ts.cancel();
+				clover.getScheduler().cancel(timeoutKey(channel));
+			}
+
+			private String timeoutKey(String channel) {
+				return "math/" + channel;
+			}
+
+			/**
+			 * (Re)starts the lobby's 30 second timer. Scheduling under the channel's key
+			 * replaces the timer for the previous problem.
+			 */
+			private void scheduleTimeout(MathState ms, CommandInvocation inv) {
+				clover.getScheduler().schedule(timeoutKey(inv.event.getChannel().getId()), ms.inst, () -> {
+					end(inv.event.getChannel().getId());
+					inv.event.getChannel()
+							.sendMessage("**Time's Up!** No one answered the math problem correctly in time!")
+							.embed(printStateOver(ms, inv)).queue();
+				});
 			}
 
 			@Override
@@ -2170,21 +2248,7 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 						ms.problem = mpg.generate(ms.diff);
 						ms.inst = Instant.now().plusSeconds(30);
 						var ms2 = ms;
-						try {
-							timer.schedule(ms.ts = new TimerTask() {
-
-								@Override
-								public void run() {
-									end(inv.event.getChannel().getId());
-									inv.event.getChannel().sendMessage(
-											"**Time's Up!** No one answered the math problem correctly in time!")
-											.embed(printStateOver(ms2, inv)).queue();
-								}
-							}, 30000);
-						} catch (IllegalStateException e) {
-							timer = new Timer(true);
-							timer.schedule(ms.ts, 30000);
-						}
+						scheduleTimeout(ms, inv);
 
 						ms.mic = new MessageInputConsumer() {
 
@@ -2198,23 +2262,8 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 								if (s == AttemptResult.CORRECT) {
 									if (!ms2.players.contains(event.getAuthor().getId()))
 										ms2.players.add(event.getAuthor().getId());
-									ms2.ts.cancel();
-									try {
-										timer.schedule(ms2.ts = new TimerTask() {
-
-											@Override
-											public void run() {
-												end(inv.event.getChannel().getId());
-												inv.event.getChannel().sendMessage(
-														"**Time's Up!** No one answered the math problem correctly in time!")
-														.embed(printStateOver(ms2, inv)).queue();
-											}
-										}, 30000);
-									} catch (IllegalStateException e) {
-										timer = new Timer(true);
-										timer.schedule(ms2.ts, 30000);
-									}
 									ms2.inst = Instant.now().plusSeconds(30);
+									scheduleTimeout(ms2, inv);
 									BigInteger amt = ms2.value;
 									ms2.upgrade();
 									ms2.problem = mpg.generate(ms2.diff);
@@ -2237,7 +2286,8 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 									return false;
 							}
 						}.filterChannel(inv.event.getChannel().getId());
-						clover.getEventHandler().getMessageProcessor().registerInputConsumer(ms.mic);
+						clover.getEventHandler().getMessageProcessor().registerChannelConsumer(ms.mic,
+								inv.event.getChannel().getId());
 
 						inv.event.getChannel().sendMessage("Starting a new math lobby!")
 								.embed(printState(ms, inv.event)).queue();
@@ -2354,7 +2404,8 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 						inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
 								+ ", do you want to prestige? (Y/N) Prestiging will cost: " + Utilities.format(cost))
 								.queue();
-						clover.getEventHandler().getMessageProcessor().registerInputConsumer(mic);
+						clover.getEventHandler().getMessageProcessor().registerChannelConsumer(mic,
+								inv.event.getChannel().getId());
 					} else
 						inv.event.getChannel()
 								.sendMessage(inv.event.getAuthor().getAsMention()
@@ -2500,6 +2551,8 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 		help.addCommand("balance", "Tells you how rich you are.", "balance", "bal");
 		help.addCommand("baltop", "Check out who the richest people in this server are!", "baltop [page]",
 				"leaderboard");
+		help.addCommand("rank", "Tells you where you (or someone else) are on this server's leaderboard.",
+				"rank [user]", "balrank");
 		help.addCommand("inventory", "Shows your inventory.", "inventory [item-id] [page]", "inv");
 		help.addCommand("accolades",
 				"Shows you what accolades you have. Use a number to get info about a specific accolade you have, for example `~accolades 2` will give you information about the second accolade you have.",
@@ -2562,11 +2615,13 @@ public class CloverCommandProcessor extends SimpleCommandProcessor {
 			}
 
 		}
-		var mm = JavaTools.frequencyMap(JavaTools.mask(mults, MultConv::new));
+		Map<MultConv, BigInteger> mm = new LinkedHashMap<>();
+		for (var m : mults)
+			mm.merge(new MultConv(m), m.getCount(), BigInteger::add);
 		if (!mm.isEmpty()) {
 			for (var e : mm.entrySet())
 				sb.append('(').append(e.getValue()).append("x) [**x").append(e.getKey().mult.getAmount())
-						.append(e.getValue() == 1 ? "**] for " : "**] for about ")
+						.append(e.getValue().equals(BigInteger.ONE) ? "**] for " : "**] for about ")
 						.append(Utilities.formatLargest(e.getKey().mult.getTimeRemaining(), 2)).append('\n');
 		}
 
@@ -67,7 +67,7 @@ public abstract class ActionMessage<A extends Action> {
 					String customEmoji = actions.get(i).getEmoji();
 					t.addReaction(customEmoji == null ? EMOJIS[i] : customEmoji).queue();
 				}
-				clover.getEventHandler().getReactionAdditionProcessor().registerInputConsumer(
+				clover.getEventHandler().getReactionAdditionProcessor().registerMessageConsumer(
 						((MessageReactionInputConsumer<MessageReactionAddEvent>) (event, processor, consumer) -> {
 							for (int i = 0; i < actions.size(); i++) {
 								String customEmoji = actions.get(i).getEmoji();
@@ -78,7 +78,7 @@ public abstract class ActionMessage<A extends Action> {
 								}
 							}
 							return false;
-						}).filter(target, t).oneTime());
+						}).filter(target, t).oneTime(), t.getId());
 			}
 
 		});
@@ -4,12 +4,12 @@ import java.io.File;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import org.alixia.javalibrary.JavaTools;
 
@@ -37,18 +37,18 @@ public class PrivateChannelCommand extends ParentCommand {
 		this.clover = clover;
 
 		File channels = clover.getRandStorage(PRIVATE_CHANNEL_FILE_NAMESPACE + "/channels");
-		if (channels.isDirectory())
-			for (File f : channels.listFiles()) {
-				PrivateChannel pc;
-				try {
-					pc = PrivateChannel.load(f, clover);
-				} catch (Exception e) {
-					System.err.println("Failed to load a private channel: " + f);
-					e.printStackTrace();
-					continue;
-				}
-				putChannel(pc);
+		for (String name : Utilities.getStorage().listFiles(channels)) {
+			File f = new File(channels, name);
+			PrivateChannel pc;
+			try {
+				pc = PrivateChannel.load(f, clover);
+			} catch (Exception e) {
+				System.err.println("Failed to load a private channel: " + f);
+				e.printStackTrace();
+				continue;
 			}
+			putChannel(pc);
+		}
 
 		var h = help.addParentCommand("pc",
 				"Allows you to purchase a private channel for you and your friends! Channels have a **tax** of "
@@ -65,50 +65,39 @@ public class PrivateChannelCommand extends ParentCommand {
 		h.addSubcommand("delete",
 				"Deletes a private channel. This stops it from charging you tax, but deletes the channel so that you'll no longer have access to it.",
 				"delete (#channel)", "remove");
-	}
-
-//	private final Map<TextChannel, User> channels = new HashMap<>();
-
-	private final Map<String, List<PrivateChannel>> channels = new HashMap<>();
-	private final List<TextChannel> deletedChannels = new ArrayList<>();
-	private final Timer t = new Timer();
 
-	private void putChannel(PrivateChannel pc) {
-		var cs = channels.get(pc.getOwnerID());
-		if (cs == null)
-			channels.put(pc.getOwnerID(), cs = new ArrayList<>());
-		cs.add(pc);
+		scheduleUpkeep();
 	}
 
-	{
-
+	/**
+	 * Schedules the hourly tax collection and the daily deletion of channels that
+	 * couldn't pay their tax. These are recomputed every time Clover starts, so
+	 * they are transient jobs.
+	 */
+	private void scheduleUpkeep() {
 		var c = Calendar.getInstance();
 		c.setLenient(true);
 		c.set(Calendar.MINUTE, 0);
 		c.set(Calendar.SECOND, 0);
 		c.set(Calendar.MILLISECOND, 0);
 		c.set(Calendar.HOUR_OF_DAY, c.get(Calendar.HOUR_OF_DAY) + 1);
-		t.schedule(new TimerTask() {
+		clover.getScheduler().scheduleAtFixedRate("private-channel-tax", c.toInstant(), 1, TimeUnit.HOURS, new Runnable() {
 
 			@Override
 			public void run() {
 				try {
-					synchronized (channels) {
-						System.out.println("Taxing all private channel customers!");
-						LIST: for (Iterator<List<PrivateChannel>> i = channels.values().iterator(); i.hasNext();)
-							try {
-								var l = i.next();
+					System.out.println("Taxing all private channel customers!");
+					for (var e : channels.entrySet())
+						try {
+							var l = e.getValue();
+							synchronized (l) {
 								for (Iterator<PrivateChannel> iterator = l.iterator(); iterator.hasNext();)
 									try {
 										var pc = iterator.next();
 										TextChannel pcchan = pc.getDiscordChannel();
 										if (pcchan == null) {
 											iterator.remove();
-											pc.getSaveLocation().delete();
-											if (l.isEmpty()) {
-												i.remove();
-												continue LIST;
-											}
+											pc.delete();
 											continue;
 										}
 										long cost = pc.cost();
@@ -117,17 +106,15 @@ public class PrivateChannelCommand extends ParentCommand {
 													"The owner of this channel did not have enough money to support it. It has been queued for deletion!!!")
 													.queue();
 											deletedChannels.add(pcchan);
-											pc.getOwner().getUser().openPrivateChannel().complete()
-													.sendMessage("Private channel taxes came around ("
+											clover.getRest().submit(pc.getOwner().getUser().openPrivateChannel())
+													.thenAccept(dm -> dm.sendMessage("Private channel taxes came around ("
 															+ pcchan.getGuild().getName()
 															+ "), and unfortunately you didn't have enough cloves in your account to support your private channel: <#"
 															+ pcchan.getId() + ">. I am truly sorry. :pensive:")
-													.queue();
+															.queue());
 											pcchan.getMemberPermissionOverrides().forEach(a -> a.delete().queue());
 											iterator.remove();
-											pc.getSaveLocation().delete();
-											if (l.isEmpty())
-												i.remove();
+											pc.delete();
 										} else {
 											pcchan.sendMessage("Tax is being collected! **" + Utilities.CURRENCY_SYMBOL
 													+ ' ' + cost + "** has been taken from "
@@ -135,42 +122,78 @@ public class PrivateChannelCommand extends ParentCommand {
 													+ "'s account for upkeep and room-size (number of channel members).")
 													.queue();
 										}
-									} catch (Exception e) {
-										e.printStackTrace();
+									} catch (Exception ex) {
+										ex.printStackTrace();
 									}
-							} catch (Exception e) {
-								e.printStackTrace();
+								removeIfEmpty(e.getKey(), l);
 							}
-						System.out.println("Finished Taxing!");
-					}
+						} catch (Exception ex) {
+							ex.printStackTrace();
+						}
+					System.out.println("Finished Taxing!");
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
 			}
-		}, c.getTime(), 3600000);
+		});
 
 		c.set(Calendar.HOUR_OF_DAY, 0);
 		c.set(Calendar.SECOND, 5);
-		t.schedule(new TimerTask() {
+		clover.getScheduler().scheduleAtFixedRate("private-channel-cleanup", c.toInstant(), 1, TimeUnit.DAYS, new Runnable() {
 
 			@Override
 			public void run() {
-				synchronized (channels) {
-					for (var tc : deletedChannels)
-						try {
-							tc.delete().queue();
-						} catch (ErrorResponseException e) {
-							if (e.getErrorResponse() != ErrorResponse.UNKNOWN_CHANNEL) {
-								System.out.println("Failed to delete a private channel, (Name=" + tc.getName() + ", ID="
-										+ tc.getId() + "), for a reason other than it already being deleted: ");
-								e.printStackTrace();
-							}
-						} catch (Exception e) {
+				for (var tc : deletedChannels)
+					try {
+						tc.delete().queue();
+					} catch (ErrorResponseException e) {
+						if (e.getErrorResponse() != ErrorResponse.UNKNOWN_CHANNEL) {
+							System.out.println("Failed to delete a private channel, (Name=" + tc.getName() + ", ID="
+									+ tc.getId() + "), for a reason other than it already being deleted: ");
 							e.printStackTrace();
 						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+			}
+		});
+	}
+
+//	private final Map<TextChannel, User> channels = new HashMap<>();
+
+	/**
+	 * Each owner's private channels. The tax and cleanup jobs run on the
+	 * {@link gartham.c10ver.scheduling.Scheduler}'s threads, at the same time as
+	 * commands, so each owner's list is only touched while holding the list's
+	 * lock, and a list is only removed from the map (once it's empty) while
+	 * holding it.
+	 */
+	private final Map<String, List<PrivateChannel>> channels = new ConcurrentHashMap<>();
+	private final List<TextChannel> deletedChannels = new CopyOnWriteArrayList<>();
+
+	private void putChannel(PrivateChannel pc) {
+		while (true) {
+			var cs = channels.computeIfAbsent(pc.getOwnerID(), k -> new ArrayList<>());
+			synchronized (cs) {
+				// The list may have been removed for being empty in the meantime.
+				if (channels.get(pc.getOwnerID()) == cs) {
+					cs.add(pc);
+					return;
 				}
 			}
-		}, c.getTime(), 86400000);
+		}
+	}
+
+	/**
+	 * Removes the specified owner's list of channels if it's empty. The list's
+	 * lock must be held.
+	 */
+	private void removeIfEmpty(String owner, List<PrivateChannel> l) {
+		if (l.isEmpty())
+			channels.remove(owner, l);
+	}
+
+	{
 
 		new Subcommand("delete", "remove") {
 
@@ -193,26 +216,30 @@ public class PrivateChannelCommand extends ParentCommand {
 								.queue();
 					else {
 						var l = channels.get(inv.event.getAuthor().getId());
-						if (l == null || l.isEmpty())
+						if (l == null)
 							inv.event.getChannel().sendMessage("You don't have any private channels.").queue();
-						else {
-							for (Iterator<PrivateChannel> iterator = l.iterator(); iterator.hasNext();) {
-								var pc = iterator.next();
-								if (pc.getDiscordChannel().getId().equals(ment)) {
-									deletedChannels.add(pc.getDiscordChannel());
-									pc.getDiscordChannel().getMemberPermissionOverrides()
-											.forEach(a -> a.delete().queue());
-									iterator.remove();
-									pc.getSaveLocation().delete();
-									if (l.isEmpty())
-										channels.remove(inv.event.getAuthor().getId());
-									inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
-											+ " you successfully deleted your channel.").queue();
+						else
+							synchronized (l) {
+								if (l.isEmpty()) {
+									inv.event.getChannel().sendMessage("You don't have any private channels.").queue();
 									return;
 								}
+								for (Iterator<PrivateChannel> iterator = l.iterator(); iterator.hasNext();) {
+									var pc = iterator.next();
+									if (pc.getDiscordChannel().getId().equals(ment)) {
+										deletedChannels.add(pc.getDiscordChannel());
+										pc.getDiscordChannel().getMemberPermissionOverrides()
+												.forEach(a -> a.delete().queue());
+										iterator.remove();
+										pc.delete();
+										removeIfEmpty(inv.event.getAuthor().getId(), l);
+										inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
+												+ " you successfully deleted your channel.").queue();
+										return;
+									}
+								}
+								inv.event.getChannel().sendMessage("You don't own that channel.").queue();
 							}
-							inv.event.getChannel().sendMessage("You don't own that channel.").queue();
-						}
 					}
 				}
 			}
@@ -242,64 +269,64 @@ public class PrivateChannelCommand extends ParentCommand {
 								+ ", couldn't find a user by that ping. (Make sure you're pinging the user in your first argument.)")
 								.queue();
 					else {
-						net.dv8tion.jda.api.entities.User u;
-						try {
-							u = inv.event.getJDA().retrieveUserById(us).complete();
-						} catch (Exception e) {
-							inv.event.getChannel().sendMessage("Failed to find a user by that ping.").queue();
-							return;
-						}
 						var pcid = Utilities.parseChannelMention(inv.args[1]);
 						if (pcid == null)
 							inv.event.getChannel().sendMessage("Couldn't find any channels by that mention.").queue();
-						else {
-							for (Iterator<PrivateChannel> iterator = l.iterator(); iterator.hasNext();) {
-								var pc = iterator.next();
-								if (pc.getDiscordChannel() == null) {
-									iterator.remove();
-									pc.getSaveLocation().delete();
-								} else if (pc.getDiscordChannel().getId().equals(pcid)) {
-									if (pc.getUsers().contains(u.getId()))
-										inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
-												+ " that user already has access to that channel. (If they can't access it, contact a staff member!")
-												.queue();
-									else {
-										var acc = clover.getEconomy().getAccount(inv.event.getAuthor().getId());
-										if (acc.withdraw(2500)) {
-											pc.getUsers().add(u.getId());
-											pc.getDiscordChannel()
-													.createPermissionOverride(
-															pc.getDiscordChannel().getGuild().getMember(u))
-													.setAllow(Permission.CREATE_INSTANT_INVITE,
-															Permission.MESSAGE_ADD_REACTION,
-															Permission.MESSAGE_ATTACH_FILES,
-															Permission.MESSAGE_EMBED_LINKS, Permission.MESSAGE_HISTORY,
-															Permission.MESSAGE_WRITE, Permission.MESSAGE_READ)
-													.queue();
-											pc.save();
+						else
+							clover.getRest().submit(inv.event.getJDA().retrieveUserById(us)).thenAccept(u -> {
+								synchronized (l) {
+									for (Iterator<PrivateChannel> iterator = l.iterator(); iterator.hasNext();) {
+										var pc = iterator.next();
+										if (pc.getDiscordChannel() == null) {
+											iterator.remove();
+											pc.delete();
+										} else if (pc.getDiscordChannel().getId().equals(pcid)) {
+											if (pc.getUsers().contains(u.getId()))
+												inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
+														+ " that user already has access to that channel. (If they can't access it, contact a staff member!")
+														.queue();
+											else {
+												var acc = clover.getEconomy().getAccount(inv.event.getAuthor().getId());
+												if (acc.withdraw(2500)) {
+													pc.getUsers().add(u.getId());
+													pc.getDiscordChannel()
+															.createPermissionOverride(
+																	pc.getDiscordChannel().getGuild().getMember(u))
+															.setAllow(Permission.CREATE_INSTANT_INVITE,
+																	Permission.MESSAGE_ADD_REACTION,
+																	Permission.MESSAGE_ATTACH_FILES,
+																	Permission.MESSAGE_EMBED_LINKS,
+																	Permission.MESSAGE_HISTORY, Permission.MESSAGE_WRITE,
+																	Permission.MESSAGE_READ)
+															.queue();
+													pc.save();
+													inv.event.getChannel()
+															.sendMessage("That user was added to your private channel!")
+															.queue();
+												} else
+													inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
+															+ ", you don't have enough cloves to invite a user to your private channel.")
+															.queue();
+											}
+
+											return;
+										}
+										if (l.isEmpty()) {
+											removeIfEmpty(inv.event.getAuthor().getId(), l);
 											inv.event.getChannel()
-													.sendMessage("That user was added to your private channel!")
-													.queue();
-										} else
-											inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
-													+ ", you don't have enough cloves to invite a user to your private channel.")
+													.sendMessage(
+															inv.event.getAuthor() + ", you don't have any private channels.")
 													.queue();
+											return;
+										}
 									}
-
-									return;
-								}
-								if (l.isEmpty()) {
-									channels.remove(inv.event.getAuthor().getId());
-									inv.event.getChannel()
-											.sendMessage(
-													inv.event.getAuthor() + ", you don't have any private channels.")
+									inv.event.getChannel().sendMessage("Couldn't find any private channels by that ping.")
 											.queue();
-									return;
 								}
-							}
-							inv.event.getChannel().sendMessage("Couldn't find any private channels by that ping.")
-									.queue();
-						}
+							}).exceptionally(e -> {
+								inv.event.getChannel().sendMessage("Failed to find a user by that ping.").queue();
+								return null;
+							});
 					}
 				}
 			}
@@ -314,9 +341,12 @@ public class PrivateChannelCommand extends ParentCommand {
 					inv.event.getChannel().sendMessage("You don't have any private channels.").queue();
 				else {
 					long tt = 0;
-					String res = "Your channels: " + JavaTools.printInEnglish(l.iterator(), true);
-					for (var v : l)
-						tt += v.cost();
+					String res;
+					synchronized (l) {
+						res = "Your channels: " + JavaTools.printInEnglish(l.iterator(), true);
+						for (var v : l)
+							tt += v.cost();
+					}
 					inv.event.getChannel()
 							.sendMessage(res + "\nTotal Hourly Tax: " + Utilities.format(BigInteger.valueOf(tt)))
 							.queue();
@@ -353,25 +383,42 @@ public class PrivateChannelCommand extends ParentCommand {
 						}
 						if (acc.withdraw(25000)) {
 							var cat = g.getCategoryById(cg);
-							var tc = cat.createTextChannel(inv.args[0]).complete();
-							tc.createPermissionOverride(g.getMember(inv.event.getAuthor()))
-									.setAllow(Permission.CREATE_INSTANT_INVITE, Permission.MESSAGE_ADD_REACTION,
-											Permission.MESSAGE_ATTACH_FILES, Permission.MESSAGE_EMBED_LINKS,
-											Permission.MANAGE_WEBHOOKS, Permission.MESSAGE_HISTORY,
-											Permission.MESSAGE_MANAGE, Permission.MESSAGE_TTS, Permission.MESSAGE_WRITE,
-											Permission.MESSAGE_READ)
-									.queue();
-							// No mentioning everyone because staff also have access + owner can add random
-							// users.
-							User owner = acc.getOwner();
-							System.out.println("TC ID: " + tc.getId());
-							PrivateChannel pc = new PrivateChannel(
-									new File(clover.getRandStorage(PRIVATE_CHANNEL_FILE_NAMESPACE + "/channels"),
-											tc.getId() + ".txt"),
-									clover, tc.getId(), owner.getUserID());
-							pc.save();
-							putChannel(pc);
-							inv.event.getChannel().sendMessage("You now have a new private channel!").queue();
+							clover.getRest().submit(cat.createTextChannel(inv.args[0]), false).handle((tc, e) -> {
+								if (e != null) {
+									// The channel was never made, so the cost is given back.
+									acc.deposit(25000);
+									System.err.println("Failed to create a private channel for "
+											+ inv.event.getAuthor().getId() + '.');
+									e.printStackTrace();
+									inv.event.getChannel().sendMessage(inv.event.getAuthor().getAsMention()
+											+ " your private channel couldn't be created; you weren't charged.")
+											.queue();
+									return null;
+								}
+								tc.createPermissionOverride(g.getMember(inv.event.getAuthor()))
+										.setAllow(Permission.CREATE_INSTANT_INVITE, Permission.MESSAGE_ADD_REACTION,
+												Permission.MESSAGE_ATTACH_FILES, Permission.MESSAGE_EMBED_LINKS,
+												Permission.MANAGE_WEBHOOKS, Permission.MESSAGE_HISTORY,
+												Permission.MESSAGE_MANAGE, Permission.MESSAGE_TTS,
+												Permission.MESSAGE_WRITE, Permission.MESSAGE_READ)
+										.queue();
+								// No mentioning everyone because staff also have access + owner can add random
+								// users.
+								User owner = acc.getOwner();
+								System.out.println("TC ID: " + tc.getId());
+								PrivateChannel pc = new PrivateChannel(
+										new File(clover.getRandStorage(PRIVATE_CHANNEL_FILE_NAMESPACE + "/channels"),
+												tc.getId() + ".txt"),
+										clover, tc.getId(), owner.getUserID());
+								pc.save();
+								putChannel(pc);
+								inv.event.getChannel().sendMessage("You now have a new private channel!").queue();
+								return null;
+							}).exceptionally(e -> {
+								System.err.println("Failed to set up a new private channel.");
+								e.printStackTrace();
+								return null;
+							});
 							return;
 						}
 					}
@@ -0,0 +1,97 @@
+package gartham.c10ver.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>
+ * Finds the {@link Command} that an invocation should be dispatched to without
+ * asking every registered {@link Command} whether it matches. Commands that
+ * declare their {@link MatchBasedCommand#getAliases() aliases} are indexed by
+ * each case-folded alias, so looking up a name only considers the commands that
+ * have it as an alias (and an unknown name fails after a single hash lookup).
+ * Commands that do not declare aliases (e.g. ones built on an arbitrary
+ * {@link org.alixia.javalibrary.strings.matching.Matching}) are checked
+ * linearly.
+ * </p>
+ * <p>
+ * Every candidate's {@link Command#match(CommandInvocation)} method is still
+ * called before it is returned, so commands that further restrict matching
+ * (such as dev-only commands) keep working. If more than one registered command
+ * matches, the one registered first wins.
+ * </p>
+ *
+ * @author Gartham
+ *
+ * @param <C> The type of {@link Command}.
+ */
+public class CommandIndex<C extends Command> {
+
+	private static final class Registration<C> {
+		private final C command;
+		private final int order;
+
+		private Registration(C command, int order) {
+			this.command = command;
+			this.order = order;
+		}
+	}
+
+	private final Map<String, List<Registration<C>>> aliases = new HashMap<>();
+	private final List<Registration<C>> unindexed = new ArrayList<>();
+	private int registrations;
+
+	/**
+	 * Case-folds a command name or alias the way that
+	 * {@link org.alixia.javalibrary.strings.matching.Matching#ignoreCase(String...)}
+	 * compares them.
+	 *
+	 * @param name The name.
+	 * @return The case-folded name.
+	 */
+	public static String fold(String name) {
+		return name.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+	}
+
+	public void add(C command) {
+		var r = new Registration<>(command, registrations++);
+		var a = command instanceof MatchBasedCommand ? ((MatchBasedCommand) command).getAliases() : null;
+		if (a == null)
+			unindexed.add(r);
+		else
+			for (String s : a) {
+				var l = aliases.computeIfAbsent(fold(s), x -> new ArrayList<>(1));
+				// A command may list the same alias in two different cases.
+				if (l.isEmpty() || l.get(l.size() - 1) != r)
+					l.add(r);
+			}
+	}
+
+	/**
+	 * Returns the first registered {@link Command} that matches the specified
+	 * invocation.
+	 *
+	 * @param inv The {@link CommandInvocation}.
+	 * @return The matching {@link Command}, or <code>null</code> if none match.
+	 */
+	public C find(CommandInvocation inv) {
+		List<Registration<C>> candidates = inv.cmdName == null ? null : aliases.get(fold(inv.cmdName));
+		if (candidates == null)
+			candidates = Collections.emptyList();
+		// Merge the two registration-ordered lists so that registration order decides.
+		int i = 0, j = 0;
+		while (i < candidates.size() || j < unindexed.size()) {
+			Registration<C> r = j == unindexed.size()
+					|| i < candidates.size() && candidates.get(i).order < unindexed.get(j).order ? candidates.get(i++)
+							: unindexed.get(j++);
+			if (r.command.match(inv))
+				return r.command;
+		}
+		return null;
+	}
+
+}
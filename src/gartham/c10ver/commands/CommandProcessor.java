@@ -1,18 +1,14 @@
 package gartham.c10ver.commands;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class CommandProcessor {
-	private List<Command> commands = new ArrayList<>();
+	private final CommandIndex<Command> commands = new CommandIndex<>();
 
 	public boolean run(CommandInvocation inv) {
-		for (Command c : commands)
-			if (c.match(inv)) {
-				c.exec(inv);
-				return true;
-			}
-		return false;
+		Command c = commands.find(inv);
+		if (c == null)
+			return false;
+		c.exec(inv);
+		return true;
 	}
 
 	public void register(Command comm) {
@@ -1,59 +1,274 @@
 package gartham.c10ver.commands;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
+import gartham.c10ver.commands.consumers.Expiry;
 import gartham.c10ver.commands.consumers.InputConsumer;
+import gartham.c10ver.utils.TimingWheel;
 import net.dv8tion.jda.api.events.GenericEvent;
-import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 
+/**
+ * <p>
+ * Dispatches events to registered {@link InputConsumer}s, in registration
+ * order, until one of them consumes the event.
+ * </p>
+ * <p>
+ * An {@link InputConsumer} can be registered under a routing key (a channel,
+ * user or message ID), in which case it is only offered events whose
+ * corresponding ID matches that key. Registering an {@link InputConsumer}
+ * under a key does not replace its own filtering; the key only lets this
+ * processor skip it for events it could never match. {@link InputConsumer}s
+ * registered without a key are offered every event. For routing to work, the
+ * processor has to be told how to get each ID from an event, through its
+ * constructor; routed {@link InputConsumer}s registered with a processor that
+ * can't get a kind of ID are simply treated like unkeyed ones.
+ * </p>
+ * <p>
+ * Dispatching does not hold a global lock. Each {@link InputConsumer} is only
+ * ever run by one thread at a time, and an {@link InputConsumer} that has been
+ * removed is not run again, even by a dispatch that was already underway when
+ * it was removed.
+ * </p>
+ * <p>
+ * If the processor is given a {@link TimingWheel}, {@link InputConsumer}s that
+ * have an {@link Expiry} (those made with one of the TTL methods of
+ * {@link InputConsumer}) are removed, and their expiration actions are run, as
+ * soon as they expire, instead of whenever the next event happens to reach
+ * them.
+ * </p>
+ *
+ * @author Gartham
+ *
+ * @param <E> The type of event.
+ */
 public class InputProcessor<E extends GenericEvent> {
-	private final List<InputConsumer<? super E>> consumers = new ArrayList<>(100), toRemove = new ArrayList<>(20);
 
-	public synchronized void registerInputConsumer(InputConsumer<? super E> ic) {
-		consumers.add(ic);
+	private static final class Registration<E> {
+		private final InputConsumer<? super E> consumer;
+		private final long order;
+		private final Map<String, List<Registration<E>>> routes;
+		private final String key;
+		private final Expiry expiry;
+		private volatile boolean removed;
+		private volatile TimingWheel.Timeout timeout;
+
+		private Registration(InputConsumer<? super E> consumer, long order, Map<String, List<Registration<E>>> routes,
+				String key) {
+			this.consumer = consumer;
+			this.order = order;
+			this.routes = routes;
+			this.key = key;
+			expiry = Expiry.of(consumer);
+		}
 	}
 
-	public synchronized void removeInputConsumer(InputConsumer<? super E> ic) {
-		consumers.remove(ic);
+	private static final Comparator<Registration<?>> REGISTRATION_ORDER = Comparator.comparingLong(r -> r.order);
+
+	private final Function<? super E, String> channelKey, userKey, messageKey;
+	private final Map<String, List<Registration<E>>> channelRoutes = new ConcurrentHashMap<>(),
+			userRoutes = new ConcurrentHashMap<>(), messageRoutes = new ConcurrentHashMap<>();
+	private final List<Registration<E>> unrouted = new CopyOnWriteArrayList<>();
+	private final Map<InputConsumer<? super E>, Registration<E>> registrations = new ConcurrentHashMap<>();
+	private final AtomicLong registrationCount = new AtomicLong(), expiredCount = new AtomicLong();
+	private final TimingWheel expiryWheel;
+
+	/**
+	 * Creates an {@link InputProcessor} that can route {@link InputConsumer}s by
+	 * channel, user and message.
+	 *
+	 * @param channelKey  Gets the ID of an event's channel, or <code>null</code>.
+	 * @param userKey     Gets the ID of an event's user, or <code>null</code>.
+	 * @param messageKey  Gets the ID of an event's message, or <code>null</code>.
+	 * @param expiryWheel The {@link TimingWheel} used to expire
+	 *                    {@link InputConsumer}s on time, or <code>null</code>.
+	 */
+	public InputProcessor(Function<? super E, String> channelKey, Function<? super E, String> userKey,
+			Function<? super E, String> messageKey, TimingWheel expiryWheel) {
+		this.channelKey = channelKey;
+		this.userKey = userKey;
+		this.messageKey = messageKey;
+		this.expiryWheel = expiryWheel;
+	}
+
+	public InputProcessor(Function<? super E, String> channelKey, Function<? super E, String> userKey,
+			Function<? super E, String> messageKey) {
+		this(channelKey, userKey, messageKey, null);
+	}
+
+	public InputProcessor() {
+		this(null, null, null);
+	}
+
+	private void register(InputConsumer<? super E> ic, Map<String, List<Registration<E>>> routes, String key) {
+		var r = new Registration<E>(ic, registrationCount.getAndIncrement(), routes, key);
+		if (registrations.putIfAbsent(ic, r) != null)
+			return;
+		if (routes == null)
+			unrouted.add(r);
+		else
+			routes.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(r);
+		if (expiryWheel != null && r.expiry != null)
+			scheduleExpiry(r);
+	}
+
+	private void scheduleExpiry(Registration<E> r) {
+		r.timeout = expiryWheel.schedule(r.expiry.getDeadline() - System.currentTimeMillis() + 1,
+				TimeUnit.MILLISECONDS, () -> checkExpiry(r));
+	}
+
+	private void checkExpiry(Registration<E> r) {
+		if (r.removed)
+			return;
+		// Activity TTLs push their deadline back, so the deadline may have moved.
+		if (!r.expiry.isDue()) {
+			scheduleExpiry(r);
+			return;
+		}
+		synchronized (r) {
+			if (r.removed || !r.expiry.expire())
+				return;
+			removeInputConsumer(r.consumer);
+			r.expiry.runAction();
+		}
+	}
+
+	public void registerInputConsumer(InputConsumer<? super E> ic) {
+		register(ic, null, null);
+	}
+
+	/**
+	 * Registers an {@link InputConsumer} that is only offered events in the
+	 * specified channel.
+	 *
+	 * @param ic        The {@link InputConsumer}.
+	 * @param channelID The channel's ID.
+	 */
+	public void registerChannelConsumer(InputConsumer<? super E> ic, String channelID) {
+		if (channelKey == null)
+			registerInputConsumer(ic);
+		else
+			register(ic, channelRoutes, channelID);
+	}
+
+	/**
+	 * Registers an {@link InputConsumer} that is only offered events from the
+	 * specified user.
+	 *
+	 * @param ic     The {@link InputConsumer}.
+	 * @param userID The user's ID.
+	 */
+	public void registerUserConsumer(InputConsumer<? super E> ic, String userID) {
+		if (userKey == null)
+			registerInputConsumer(ic);
+		else
+			register(ic, userRoutes, userID);
+	}
+
+	/**
+	 * Registers an {@link InputConsumer} that is only offered events on the
+	 * specified message (e.g. reactions to it).
+	 *
+	 * @param ic        The {@link InputConsumer}.
+	 * @param messageID The message's ID.
+	 */
+	public void registerMessageConsumer(InputConsumer<? super E> ic, String messageID) {
+		if (messageKey == null)
+			registerInputConsumer(ic);
+		else
+			register(ic, messageRoutes, messageID);
+	}
+
+	public void removeInputConsumer(InputConsumer<? super E> ic) {
+		var r = registrations.remove(ic);
+		if (r == null)
+			return;
+		r.removed = true;
+		var t = r.timeout;
+		if (t != null)
+			t.cancel();
+		if (r.expiry != null && r.expiry.isExpired())
+			expiredCount.incrementAndGet();
+		if (r.routes == null)
+			unrouted.remove(r);
+		else
+			r.routes.computeIfPresent(r.key, (k, v) -> {
+				v.remove(r);
+				return v.isEmpty() ? null : v;
+			});
 	}
 
 	/**
 	 * <p>
-	 * Schedules the specified {@link InputConsumer} to be removed at the end of the
-	 * next {@link InputConsumer} run cycle.
-	 * </p>
-	 * <p>
-	 * Whenever {@link InputConsumer}s are being checked during the handling of a
-	 * {@link MessageReceivedEvent}, the {@link Iterable} that this class uses to
-	 * store them is being iterated over to access all of the
-	 * {@link InputConsumer}s, so none can be removed while they're running.
-	 * Problematically, one may be considered "dead" and will need to be removed
-	 * although not consume the event, so it can be scheduled for removal by this
-	 * method. At the end of a {@link #runInputHandlers(GenericEvent)}'s execution, all of the
-	 * {@link InputConsumer}s that have been scheduled to be removed until, will be
-	 * removed from the {@link Iterable}.
+	 * Removes the specified {@link InputConsumer}. This is equivalent to
+	 * {@link #removeInputConsumer(InputConsumer)}, which can safely be called while
+	 * events are being dispatched (including from inside an
+	 * {@link InputConsumer}).
 	 * </p>
-	 * 
-	 * @param ic The {@link InputConsumer} to schedule for removal.
+	 *
+	 * @param ic The {@link InputConsumer} to remove.
+	 */
+	public void scheduleForRemoval(InputConsumer<? super E> ic) {
+		removeInputConsumer(ic);
+	}
+
+	/**
+	 * Returns the number of {@link InputConsumer}s registered with this processor.
+	 *
+	 * @return The number of registered {@link InputConsumer}s.
+	 */
+	public int getConsumerCount() {
+		return registrations.size();
+	}
+
+	/**
+	 * Returns the number of {@link InputConsumer}s that have been removed from
+	 * this processor because they expired.
+	 *
+	 * @return The number of expired {@link InputConsumer}s.
 	 */
-	public synchronized void scheduleForRemoval(InputConsumer<? super E> ic) {
-		toRemove.add(ic);
-	}
-
-	public synchronized boolean runInputHandlers(E mre) {
-		boolean res;
-		DEC: {
-			for (var ic : consumers)
-				if (ic.consume(mre, this)) {
-					res = true;
-					break DEC;
-				}
-			res = false;
+	public long getExpiredCount() {
+		return expiredCount.get();
+	}
+
+	private static <E> int addRoute(List<Registration<E>> candidates, Map<String, List<Registration<E>>> routes,
+			Function<? super E, String> key, E event) {
+		if (key == null || routes.isEmpty())
+			return 0;
+		String k = key.apply(event);
+		if (k == null)
+			return 0;
+		var l = routes.get(k);
+		if (l == null)
+			return 0;
+		candidates.addAll(l);
+		return 1;
+	}
+
+	public boolean runInputHandlers(E event) {
+		List<Registration<E>> candidates = new ArrayList<>();
+		int sources = addRoute(candidates, channelRoutes, channelKey, event)
+				+ addRoute(candidates, userRoutes, userKey, event)
+				+ addRoute(candidates, messageRoutes, messageKey, event);
+		if (!unrouted.isEmpty()) {
+			candidates.addAll(unrouted);
+			sources++;
 		}
-		for (var ic : toRemove)
-			consumers.remove(ic);
-		toRemove.clear();
-		return res;
+		if (sources > 1)
+			candidates.sort(REGISTRATION_ORDER);
+
+		for (var r : candidates)
+			synchronized (r) {
+				if (!r.removed && r.consumer.consume(event, this))
+					return true;
+			}
+		return false;
 	}
 }
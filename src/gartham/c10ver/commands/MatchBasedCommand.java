@@ -5,13 +5,30 @@ import org.alixia.javalibrary.strings.matching.Matching;
 public abstract class MatchBasedCommand implements Command {
 
 	protected final Matching matching;
+	private final String[] aliases;
 
 	public MatchBasedCommand(Matching matching) {
 		this.matching = matching;
+		aliases = null;
 	}
 
 	public MatchBasedCommand(String... aliases) {
-		this(Matching.ignoreCase(aliases));
+		matching = Matching.ignoreCase(aliases);
+		this.aliases = aliases.clone();
+	}
+
+	/**
+	 * Returns the aliases that this command matches (ignoring case), so that it
+	 * can be looked up by name in a {@link CommandIndex}. Subclasses that override
+	 * {@link #match(CommandInvocation)} may only make matching stricter; a command
+	 * whose {@link #match(CommandInvocation)} accepts names that are not among its
+	 * aliases must return <code>null</code> here.
+	 *
+	 * @return The aliases, or <code>null</code> if this command was not created
+	 *         from a list of aliases.
+	 */
+	public String[] getAliases() {
+		return aliases == null ? null : aliases.clone();
 	}
 
 	@Override
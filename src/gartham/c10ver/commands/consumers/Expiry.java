@@ -0,0 +1,110 @@
+package gartham.c10ver.commands.consumers;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * The expiration of an {@link InputConsumer} created by one of the TTL methods
+ * (e.g. {@link InputConsumer#withTTL(long)} or
+ * {@link InputConsumer#withActivityTTL(long, Runnable)}). The {@link Expiry} is
+ * attached to the {@link InputConsumer} that the TTL method returns, and is
+ * carried over to any {@link InputConsumer} that wraps it through the other
+ * default methods (such as the <code>filter</code> methods), so that the
+ * {@link gartham.c10ver.commands.InputProcessor} that the outermost
+ * {@link InputConsumer} gets registered with can {@link #of(InputConsumer) find
+ * it} and expire the {@link InputConsumer} on time, without waiting for an event
+ * to reach it.
+ * </p>
+ * <p>
+ * An {@link Expiry} only ever {@link #expire() expires} once, whether that
+ * happens on the processor's timer or when an event reaches the
+ * {@link InputConsumer} after its deadline.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class Expiry {
+
+	private static final Map<InputConsumer<?>, Expiry> EXPIRIES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private volatile long deadline;
+	private final Runnable action;
+	private final AtomicBoolean expired = new AtomicBoolean();
+
+	Expiry(long deadline, Runnable action) {
+		this.deadline = deadline;
+		this.action = action;
+	}
+
+	/**
+	 * Returns the {@link Expiry} of the specified {@link InputConsumer}.
+	 *
+	 * @param consumer The {@link InputConsumer}.
+	 * @return The {@link Expiry}, or <code>null</code> if the {@link InputConsumer}
+	 *         does not expire.
+	 */
+	public static Expiry of(InputConsumer<?> consumer) {
+		return EXPIRIES.get(consumer);
+	}
+
+	static <C extends InputConsumer<?>> C attach(C consumer, Expiry expiry) {
+		EXPIRIES.put(consumer, expiry);
+		return consumer;
+	}
+
+	/**
+	 * Gives <code>wrapper</code> the {@link Expiry} of <code>wrapped</code>, if it
+	 * has one.
+	 */
+	static <C extends InputConsumer<?>> C inherit(InputConsumer<?> wrapped, C wrapper) {
+		var e = EXPIRIES.get(wrapped);
+		if (e != null)
+			EXPIRIES.put(wrapper, e);
+		return wrapper;
+	}
+
+	/**
+	 * Returns the time, in epoch milliseconds, after which the
+	 * {@link InputConsumer} is expired.
+	 *
+	 * @return The deadline.
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+
+	void extend(long deadline) {
+		this.deadline = deadline;
+	}
+
+	public boolean isDue() {
+		return System.currentTimeMillis() > deadline;
+	}
+
+	public boolean isExpired() {
+		return expired.get();
+	}
+
+	/**
+	 * Marks this {@link Expiry} as expired.
+	 *
+	 * @return <code>true</code> if this call expired it, <code>false</code> if it
+	 *         had already expired.
+	 */
+	public boolean expire() {
+		return expired.compareAndSet(false, true);
+	}
+
+	/**
+	 * Runs the action to run upon expiration, if there is one.
+	 */
+	public void runAction() {
+		if (action != null)
+			action.run();
+	}
+
+}
@@ -2,8 +2,6 @@ package gartham.c10ver.commands.consumers;
 
 import java.time.Instant;
 
-import org.alixia.javalibrary.util.Box;
-
 import gartham.c10ver.commands.InputProcessor;
 import gartham.c10ver.events.EventHandler;
 import net.dv8tion.jda.api.events.GenericEvent;
@@ -41,40 +39,39 @@ public interface InputConsumer<E extends GenericEvent> {
 	}
 
 	default InputConsumer<E> withActivityTTL(long millis) {
-		var inst = new Box<>(Instant.now().plusMillis(millis));
-		return (a, b, c) -> {
-			if (Instant.now().isAfter(inst.value))
-				b.removeInputConsumer(c);
-			else {
-				inst.value = Instant.now().plusMillis(millis);
-				return consume(a, b, c);
-			}
-			return false;
-		};
+		return withActivityTTL(millis, null);
 	}
 
+	/**
+	 * Returns an {@link InputConsumer} that invokes this {@link InputConsumer}
+	 * unless it has gone <code>millis</code> milliseconds without being invoked.
+	 * Once it has, it is removed from its processor and the specified action is
+	 * invoked. This happens on time if the processor it is registered with has a
+	 * timer, and otherwise when the next event reaches it.
+	 * 
+	 * @param millis The amount of inactivity, in milliseconds, after which the
+	 *               {@link InputConsumer} expires.
+	 * @param action The action to invoke after the {@link InputConsumer} has been
+	 *               removed, or <code>null</code>.
+	 * @return The new {@link InputConsumer}.
+	 */
 	default InputConsumer<E> withActivityTTL(long millis, Runnable action) {
-		var inst = new Box<>(Instant.now().plusMillis(millis));
-		return (a, b, c) -> {
-			if (Instant.now().isAfter(inst.value)) {
-				b.removeInputConsumer(c);
-				action.run();
-			} else {
-				inst.value = Instant.now().plusMillis(millis);
-				return consume(a, b, c);
+		var expiry = new Expiry(System.currentTimeMillis() + millis, action);
+		return Expiry.attach((a, b, c) -> {
+			if (expiry.isDue()) {
+				if (expiry.expire()) {
+					b.removeInputConsumer(c);
+					expiry.runAction();
+				}
+				return false;
 			}
-			return false;
-		};
+			expiry.extend(System.currentTimeMillis() + millis);
+			return consume(a, b, c);
+		}, expiry);
 	}
 
 	default InputConsumer<E> expires(Instant ts) {
-		return (a, b, c) -> {
-			if (Instant.now().isAfter(ts))
-				b.removeInputConsumer(c);
-			else
-				return consume(a, b, c);
-			return false;
-		};
+		return expires(ts, null);
 	}
 
 	default InputConsumer<E> withTTL(long millis, Runnable action) {
@@ -87,31 +84,36 @@ public interface InputConsumer<E extends GenericEvent> {
 	 * current time is after, this {@link InputConsumer} is removed and then the
 	 * specified action is invoked. In experimation, <code>false</code> is returned
 	 * by the {@link InputConsumer} so that it will not affect the processing of the
-	 * processor.
+	 * processor. If the processor that the {@link InputConsumer} is registered
+	 * with has a timer, the {@link InputConsumer} is removed (and the action is
+	 * invoked) as soon as it expires, rather than when the next event reaches it.
 	 * 
 	 * @param ts     The timestamp at which this {@link InputConsumer} "expires."
 	 * @param action The action to invoke after this {@link InputConsumer} has been
-	 *               removed from its processor.
+	 *               removed from its processor, or <code>null</code>.
 	 * @return The new {@link InputConsumer}.
 	 */
 	default InputConsumer<E> expires(Instant ts, Runnable action) {
-		return (a, b, c) -> {
-			if (Instant.now().isAfter(ts)) {
-				b.removeInputConsumer(c);
-				action.run();
-			} else
-				return consume(a, b, c);
-			return false;
-		};
+		var expiry = new Expiry(ts.toEpochMilli(), action);
+		return Expiry.attach((a, b, c) -> {
+			if (expiry.isDue()) {
+				if (expiry.expire()) {
+					b.removeInputConsumer(c);
+					expiry.runAction();
+				}
+				return false;
+			}
+			return consume(a, b, c);
+		}, expiry);
 	}
 
 	default InputConsumer<E> oneTime() {
-		return (event, processor, consumer) -> {
+		return Expiry.inherit(this, (event, processor, consumer) -> {
 			var res = consume(event, processor, consumer);
 			if (res)
 				processor.removeInputConsumer(consumer);
 			return res;
-		};
+		});
 	}
 
 }
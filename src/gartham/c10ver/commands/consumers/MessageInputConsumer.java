@@ -3,7 +3,6 @@ package gartham.c10ver.commands.consumers;
 import java.time.Instant;
 
 import org.alixia.javalibrary.strings.StringTools;
-import org.alixia.javalibrary.util.Box;
 
 import net.dv8tion.jda.api.entities.MessageChannel;
 import net.dv8tion.jda.api.entities.User;
@@ -19,57 +18,57 @@ public interface MessageInputConsumer extends InputConsumer<MessageReceivedEvent
 	 * @return
 	 */
 	default MessageInputConsumer filterUser(String userID) {
-		return (event, eventHandler, consumer) -> {
+		return Expiry.inherit(this, (MessageInputConsumer) (event, eventHandler, consumer) -> {
 			if (event.getAuthor().getId().equals(userID))
 				return consume(event, eventHandler, consumer);
 			else
 				return false;
-		};
+		});
 	}
 
 	default MessageInputConsumer filterChannel(String channelID) {
-		return (event, eventHandler, consumer) -> {
+		return Expiry.inherit(this, (MessageInputConsumer) (event, eventHandler, consumer) -> {
 			if (event.getChannel().getId().equals(channelID))
 				return consume(event, eventHandler, consumer);
 			else
 				return false;
-		};
+		});
 	}
 
 	default MessageInputConsumer filterUser(String... userIDs) {
-		return (event, eventHandler, consumer) -> {
+		return Expiry.inherit(this, (MessageInputConsumer) (event, eventHandler, consumer) -> {
 			if (StringTools.equalsAny(event.getAuthor().getId(), userIDs))
 				return consume(event, eventHandler, consumer);
 			else
 				return false;
-		};
+		});
 	}
 
 	default MessageInputConsumer filterChannel(String... channelIDs) {
-		return (event, eventHandler, consumer) -> {
+		return Expiry.inherit(this, (MessageInputConsumer) (event, eventHandler, consumer) -> {
 			if (StringTools.equalsAny(event.getChannel().getId(), channelIDs))
 				return consume(event, eventHandler, consumer);
 			else
 				return false;
-		};
+		});
 	}
 
 	default MessageInputConsumer filter(String userID, String channelID) {
-		return (event, eventHandler, consumer) -> {
+		return Expiry.inherit(this, (MessageInputConsumer) (event, eventHandler, consumer) -> {
 			if (event.getChannel().getId().equals(channelID) && event.getAuthor().getId().equals(userID))
 				return consume(event, eventHandler, consumer);
 			else
 				return false;
-		};
+		});
 	}
 
 	default MessageInputConsumer filter(User user, MessageChannel channel) {
-		return (event, eventHandler, consumer) -> {
+		return Expiry.inherit(this, (MessageInputConsumer) (event, eventHandler, consumer) -> {
 			if (event.getChannel().getId().equals(channel.getId()) && event.getAuthor().getId().equals(user.getId()))
 				return consume(event, eventHandler, consumer);
 			else
 				return false;
-		};
+		});
 	}
 
 	default MessageInputConsumer withTTL(long millis) {
@@ -77,13 +76,7 @@ public interface MessageInputConsumer extends InputConsumer<MessageReceivedEvent
 	}
 
 	default MessageInputConsumer expires(Instant ts) {
-		return (a, b, c) -> {
-			if (Instant.now().isAfter(ts))
-				b.removeInputConsumer(c);
-			else
-				return consume(a, b, c);
-			return false;
-		};
+		return expires(ts, null);
 	}
 
 	default MessageInputConsumer withTTL(long millis, Runnable action) {
@@ -91,51 +84,46 @@ public interface MessageInputConsumer extends InputConsumer<MessageReceivedEvent
 	}
 
 	default MessageInputConsumer expires(Instant ts, Runnable action) {
-		return (a, b, c) -> {
-			if (Instant.now().isAfter(ts)) {
-				b.removeInputConsumer(c);
-				action.run();
-			} else
-				return consume(a, b, c);
-			return false;
-		};
+		var expiry = new Expiry(ts.toEpochMilli(), action);
+		return Expiry.attach((MessageInputConsumer) (a, b, c) -> {
+			if (expiry.isDue()) {
+				if (expiry.expire()) {
+					b.removeInputConsumer(c);
+					expiry.runAction();
+				}
+				return false;
+			}
+			return consume(a, b, c);
+		}, expiry);
 	}
 
 	default MessageInputConsumer withActivityTTL(long millis) {
-		var inst = new Box<>(Instant.now().plusMillis(millis));
-		return (a, b, c) -> {
-			if (Instant.now().isAfter(inst.value))
-				b.removeInputConsumer(c);
-			else {
-				inst.value = Instant.now().plusMillis(millis);
-				return consume(a, b, c);
-			}
-			return false;
-		};
+		return withActivityTTL(millis, null);
 	}
 
 	default MessageInputConsumer withActivityTTL(long millis, Runnable action) {
-		var inst = new Box<>(Instant.now().plusMillis(millis));
-		return (a, b, c) -> {
-			if (Instant.now().isAfter(inst.value)) {
-				b.removeInputConsumer(c);
-				action.run();
-			} else {
-				inst.value = Instant.now().plusMillis(millis);
-				return consume(a, b, c);
+		var expiry = new Expiry(System.currentTimeMillis() + millis, action);
+		return Expiry.attach((MessageInputConsumer) (a, b, c) -> {
+			if (expiry.isDue()) {
+				if (expiry.expire()) {
+					b.removeInputConsumer(c);
+					expiry.runAction();
+				}
+				return false;
 			}
-			return false;
-		};
+			expiry.extend(System.currentTimeMillis() + millis);
+			return consume(a, b, c);
+		}, expiry);
 	}
 
 	@Override
 	default MessageInputConsumer oneTime() {
-		return (event, processor, consumer) -> {
+		return Expiry.inherit(this, (MessageInputConsumer) (event, processor, consumer) -> {
 			var res = consume(event, processor, consumer);
 			if (res)
 				processor.removeInputConsumer(consumer);
 			return res;
-		};
+		});
 	}
 
 }
@@ -1,12 +1,11 @@
 package gartham.c10ver.commands.subcommands;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.alixia.javalibrary.JavaTools;
 import org.alixia.javalibrary.strings.matching.Matching;
 
+import gartham.c10ver.commands.CommandIndex;
 import gartham.c10ver.commands.CommandInvocation;
 import gartham.c10ver.commands.MatchBasedCommand;
 
@@ -14,7 +13,7 @@ public abstract class ParentCommand extends MatchBasedCommand {
 
 	protected abstract void tailed(CommandInvocation inv);
 
-	private final Set<Subcommand> subcommands = new HashSet<>();
+	private final CommandIndex<Subcommand> subcommands = new CommandIndex<>();
 
 	public ParentCommand(Matching matching) {
 		super(matching);
@@ -57,12 +56,11 @@ public abstract class ParentCommand extends MatchBasedCommand {
 							? JavaTools.addToArray(((SubcommandInvocation) inv).preargs, inv.cmdName)
 							: new String[] { inv.cmdName },
 					Arrays.copyOfRange(inv.args, 1, inv.args.length));
-			for (var s : subcommands)
-				if (s.match(si)) {
-					s.exec(si);
-					return;
-				}
-			tailed(inv);
+			var s = subcommands.find(si);
+			if (s != null)
+				s.exec(si);
+			else
+				tailed(inv);
 		}
 	}
 
@@ -28,6 +28,8 @@ import org.alixia.javalibrary.json.JSONValue;
 import org.alixia.javalibrary.util.Gateway;
 import org.alixia.javalibrary.util.StringGateway;
 
+import gartham.c10ver.utils.HybridInteger;
+
 public class PropertyObject {
 
 	private Map<String, Property<?>> propertyMap = new HashMap<>();
@@ -392,6 +394,10 @@ public class PropertyObject {
 		return bigIntegerProperty(key, null);
 	}
 
+	protected final Property<HybridInteger> hybridIntegerProperty(String key) {
+		return hybridIntegerProperty(key, null);
+	}
+
 	protected final Property<Instant> instantProperty(String key) {
 		return instantProperty(key, null);
 	}
@@ -580,6 +586,20 @@ public class PropertyObject {
 		return toStringProperty(key, def, BigInteger::new);
 	}
 
+	/**
+	 * Creates a {@link HybridInteger} property. {@link HybridInteger}s are saved in
+	 * the same form as {@link #bigIntegerProperty(String, BigInteger)} saves
+	 * {@link BigInteger}s, so a {@link BigInteger} property can be switched to a
+	 * {@link HybridInteger} property without changing the saved data.
+	 *
+	 * @param key The key of the property.
+	 * @param def The default value of the property.
+	 * @return The new {@link Property}.
+	 */
+	protected final Property<HybridInteger> hybridIntegerProperty(String key, HybridInteger def) {
+		return toStringProperty(key, def, HybridInteger::parse);
+	}
+
 	protected final Property<Color> colorProperty(String key) {
 		return colorProperty(key, null);
 	}
@@ -1,6 +1,9 @@
 package gartham.c10ver.data.autosave;
 
 import java.io.File;
+import java.util.function.BiConsumer;
+
+import org.alixia.javalibrary.json.JSONValue;
 
 import gartham.c10ver.data.PropertyObject;
 import gartham.c10ver.utils.Utilities;
@@ -8,6 +11,7 @@ import gartham.c10ver.utils.Utilities;
 public class SavablePropertyObject extends PropertyObject {
 
 	private final File saveLocation;
+	private boolean tracking;
 
 	public File getSaveLocation() {
 		return saveLocation;
@@ -15,12 +19,91 @@ public class SavablePropertyObject extends PropertyObject {
 
 	public void load() {
 		load(Utilities.loadObj(saveLocation));
+		trackChanges();
 	}
 
+	/**
+	 * <p>
+	 * Saves this {@link SavablePropertyObject}. If a {@link WriteBehindSaver} is
+	 * {@link WriteBehindSaver#setGlobal(WriteBehindSaver) installed}, the save is
+	 * deferred to it (and coalesced with any other pending save of this object);
+	 * otherwise, this method behaves exactly like {@link #saveNow()}.
+	 * </p>
+	 */
 	public void save() {
+		trackChanges();
+		WriteBehindSaver.save(this, snapshot(), saveLocation);
+	}
+
+	/**
+	 * Serializes this object for a write. Subclasses whose properties are changed
+	 * under a lock should take that lock here, since deferred writes take their
+	 * snapshot on the {@link WriteBehindSaver}'s thread.
+	 * 
+	 * @return The snapshot.
+	 */
+	protected JSONValue snapshot() {
+		return toJSON();
+	}
+
+	/**
+	 * Synchronously writes this {@link SavablePropertyObject} to its
+	 * {@link #getSaveLocation() save location}.
+	 */
+	public void saveNow() {
 		Utilities.save(toJSON(), saveLocation);
 	}
 
+	/**
+	 * Registers a listener on each of this object's {@link Property properties} so
+	 * that setting any non-{@link Property#isTransient() transient} property
+	 * {@link WriteBehindSaver#markDirty(Object, java.util.function.Supplier, File)
+	 * marks this object dirty} with the global {@link WriteBehindSaver} (if there
+	 * is one). Nothing is serialized on the thread that set the property; a single
+	 * {@link #snapshot()} is taken just before the next flush, however many
+	 * properties were set. This is done automatically after the first
+	 * {@link #load()} or {@link #save()}, (since properties are not yet
+	 * initialized while this class's constructor runs). Properties whose values
+	 * are mutated in place (lists, maps, etc.) still require an explicit call to
+	 * {@link #save()}. Properties that are {@link #isJournaled(Property)
+	 * journaled} don't mark the object dirty.
+	 */
+	protected final void trackChanges() {
+		if (tracking)
+			return;
+		tracking = true;
+		for (var p : getPropertyMap().values()) {
+			BiConsumer<Object, Object> listener = (o, n) -> {
+				if (!p.isTransient() && !isJournaled(p))
+					WriteBehindSaver.markDirty(this, this::snapshot, saveLocation);
+			};
+			p.addListener(listener);
+		}
+	}
+
+	/**
+	 * Returns whether changes to the specified property are recorded in a journal
+	 * (such as the economy's), in which case setting it doesn't schedule a write
+	 * of this object: the journal covers the change until the object is written
+	 * out some other way. By default, no property is journaled.
+	 * 
+	 * @param property The property.
+	 * @return <code>true</code> if the property is journaled.
+	 */
+	protected boolean isJournaled(Property<?> property) {
+		return false;
+	}
+
+	/**
+	 * Discards any pending save of this object and deletes it from storage.
+	 * 
+	 * @return <code>true</code> if there was stored data to delete.
+	 */
+	public boolean delete() {
+		WriteBehindSaver.discard(this);
+		return Utilities.getStorage().delete(saveLocation);
+	}
+
 	public SavablePropertyObject(File saveLocation) {
 		this.saveLocation = saveLocation;
 	}
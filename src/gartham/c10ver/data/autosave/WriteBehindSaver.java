@@ -0,0 +1,343 @@
+package gartham.c10ver.data.autosave;
+
+import java.io.File;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.alixia.javalibrary.json.JSONValue;
+
+import gartham.c10ver.utils.Utilities;
+
+/**
+ * <p>
+ * Defers writes to physical storage so that they can be performed off of the
+ * calling thread. Writes are {@link #schedule(Object, JSONValue, File)
+ * scheduled} against a key (typically the object being saved); scheduling a
+ * write for a key that already has a pending write replaces the pending write,
+ * so any number of saves of the same object within one flush window result in
+ * a single write.
+ * </p>
+ * <p>
+ * What gets scheduled is either a snapshot of the object's data, taken by the
+ * caller, or (for objects that are only {@link #markDirty(Object, Supplier, File)
+ * marked dirty}) a way of taking one. Objects that are only marked dirty are
+ * snapshotted once per flush window, just before the flush, rather than every
+ * time they change. Snapshots are never taken while the saver holds its own
+ * locks, so taking one may lock the object (e.g. with its owner's economy lock)
+ * without risking a deadlock with a thread that holds that lock and is waiting
+ * on the saver.
+ * </p>
+ * <p>
+ * Pending writes are flushed on a background daemon thread every
+ * <code>interval</code>, or as soon as the number of pending writes reaches the
+ * configured threshold, whichever comes first. A write that fails is logged and
+ * retried on the next flush, unless it has been superseded by then.
+ * </p>
+ * <p>
+ * A single {@link WriteBehindSaver} can be {@link #setGlobal(WriteBehindSaver)
+ * installed globally}, in which case {@link SavablePropertyObject}s (and other
+ * savable parts of the bot) route their saves through it instead of writing
+ * synchronously.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class WriteBehindSaver {
+
+	private static volatile WriteBehindSaver global;
+
+	/**
+	 * Returns the globally installed {@link WriteBehindSaver}, or
+	 * <code>null</code> if saves should be performed synchronously.
+	 *
+	 * @return The global {@link WriteBehindSaver}.
+	 */
+	public static WriteBehindSaver getGlobal() {
+		return global;
+	}
+
+	public static void setGlobal(WriteBehindSaver saver) {
+		global = saver;
+	}
+
+	/**
+	 * Schedules a write of the provided snapshot against the global
+	 * {@link WriteBehindSaver}, or writes it immediately if there is none.
+	 *
+	 * @param key      The key to coalesce the write under.
+	 * @param snapshot The data to write. It must not be changed afterwards.
+	 * @param location The file to write the data to.
+	 */
+	public static void save(Object key, JSONValue snapshot, File location) {
+		var s = global;
+		if (s == null)
+			Utilities.save(snapshot, location);
+		else
+			s.schedule(key, snapshot, location);
+	}
+
+	/**
+	 * Marks the specified key dirty on the global {@link WriteBehindSaver}, if
+	 * there is one: before the next flush, <code>snapshotter</code> is called
+	 * (once, however many times the key was marked) and what it returns is
+	 * written. Does nothing if there is no global {@link WriteBehindSaver}.
+	 *
+	 * @param key         The key to coalesce the write under.
+	 * @param snapshotter Takes the snapshot to write.
+	 * @param location    The file to write the data to.
+	 */
+	public static void markDirty(Object key, Supplier<? extends JSONValue> snapshotter, File location) {
+		var s = global;
+		if (s != null)
+			s.scheduleSnapshot(key, snapshotter, location);
+	}
+
+	/**
+	 * Cancels any pending write for the specified key on the global
+	 * {@link WriteBehindSaver}, if there is one. This should be called before an
+	 * object's file is deleted, so that a pending write does not resurrect it.
+	 *
+	 * @param key The key.
+	 */
+	public static void discard(Object key) {
+		var s = global;
+		if (s != null)
+			s.cancel(key);
+	}
+
+	/**
+	 * A pending write: the data (or, until it's been taken, what takes it) and
+	 * where it goes.
+	 */
+	private static final class Write {
+		private final JSONValue snapshot;
+		private final Supplier<? extends JSONValue> snapshotter;
+		private final File location;
+
+		private Write(JSONValue snapshot, File location) {
+			this.snapshot = snapshot;
+			snapshotter = null;
+			this.location = location;
+		}
+
+		private Write(Supplier<? extends JSONValue> snapshotter, File location) {
+			snapshot = null;
+			this.snapshotter = snapshotter;
+			this.location = location;
+		}
+
+		private void run() {
+			Utilities.save(snapshot != null ? snapshot : snapshotter.get(), location);
+		}
+	}
+
+	private Map<Object, Write> dirty = new IdentityHashMap<>();
+	private final Object flushLock = new Object();
+	private final ScheduledExecutorService executor;
+	private final int threshold;
+	private boolean flushRequested, closed;
+	private long writes, coalesced;
+
+	/**
+	 * Creates a new {@link WriteBehindSaver}.
+	 *
+	 * @param interval  The maximum amount of time that a write will be pending
+	 *                  for before being flushed.
+	 * @param unit      The {@link TimeUnit} of <code>interval</code>.
+	 * @param threshold The number of pending writes which immediately triggers a
+	 *                  flush.
+	 */
+	public WriteBehindSaver(long interval, TimeUnit unit, int threshold) {
+		if (interval <= 0)
+			throw new IllegalArgumentException("Illegal interval: " + interval);
+		if (threshold < 1)
+			throw new IllegalArgumentException("Illegal threshold: " + threshold);
+		this.threshold = threshold;
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			var t = new Thread(r, "Write-Behind Saver");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.scheduleWithFixedDelay(this::flush, interval, interval, unit);
+	}
+
+	/**
+	 * Schedules a write of the specified snapshot under the specified key. If the
+	 * saver has been {@link #close() closed}, the write is performed immediately
+	 * on the calling thread.
+	 *
+	 * @param key      The key to coalesce the write under.
+	 * @param snapshot The data to write. It must not be changed afterwards.
+	 * @param location The file to write the data to.
+	 */
+	public void schedule(Object key, JSONValue snapshot, File location) {
+		enqueue(key, new Write(snapshot, location));
+	}
+
+	/**
+	 * Schedules a write under the specified key whose snapshot is taken by
+	 * <code>snapshotter</code> just before the next flush. If the saver has been
+	 * {@link #close() closed}, the snapshot is taken and written immediately on
+	 * the calling thread.
+	 *
+	 * @param key         The key to coalesce the write under.
+	 * @param snapshotter Takes the snapshot to write.
+	 * @param location    The file to write the data to.
+	 */
+	public void scheduleSnapshot(Object key, Supplier<? extends JSONValue> snapshotter, File location) {
+		enqueue(key, new Write(snapshotter, location));
+	}
+
+	private void enqueue(Object key, Write write) {
+		synchronized (this) {
+			if (!closed) {
+				if (dirty.put(key, write) != null)
+					coalesced++;
+				if (dirty.size() < threshold || flushRequested)
+					return;
+				flushRequested = true;
+				executor.execute(this::flush);
+				return;
+			}
+		}
+		write.run();
+	}
+
+	/**
+	 * Cancels the pending write for the specified key. If a flush is currently in
+	 * progress, this method waits for it to complete before returning.
+	 *
+	 * @param key The key.
+	 * @return <code>true</code> if there was a pending write.
+	 */
+	public boolean cancel(Object key) {
+		synchronized (flushLock) {
+			synchronized (this) {
+				return dirty.remove(key) != null;
+			}
+		}
+	}
+
+	public synchronized boolean isPending(Object key) {
+		return dirty.containsKey(key);
+	}
+
+	public synchronized int getPendingCount() {
+		return dirty.size();
+	}
+
+	/**
+	 * Returns the number of writes that this saver has performed.
+	 *
+	 * @return The number of performed writes.
+	 */
+	public synchronized long getWriteCount() {
+		return writes;
+	}
+
+	/**
+	 * Returns the number of writes that were dropped because they were superseded
+	 * by a later write of the same key before being flushed.
+	 *
+	 * @return The number of coalesced writes.
+	 */
+	public synchronized long getCoalescedCount() {
+		return coalesced;
+	}
+
+	/**
+	 * Performs all pending writes on the calling thread.
+	 *
+	 * @return <code>false</code> if any of the writes failed (they will be
+	 *         retried on the next flush).
+	 */
+	public boolean flush() {
+		takeSnapshots();
+		synchronized (flushLock) {
+			Map<Object, Write> batch = new IdentityHashMap<>();
+			synchronized (this) {
+				flushRequested = false;
+				// Writes marked dirty since the snapshots were taken wait for the next flush.
+				for (var i = dirty.entrySet().iterator(); i.hasNext();) {
+					var e = i.next();
+					if (e.getValue().snapshot != null) {
+						batch.put(e.getKey(), e.getValue());
+						i.remove();
+					}
+				}
+				if (batch.isEmpty())
+					return true;
+			}
+			var failed = new boolean[1];
+			// Directory syncs from atomic saves are shared across the whole batch.
+			Utilities.getGroupCommit().batch(() -> {
+				int count = 0;
+				for (var e : batch.entrySet())
+					try {
+						e.getValue().run();
+						count++;
+					} catch (Exception ex) {
+						System.err.println("Failed to perform a deferred save; it will be retried.");
+						ex.printStackTrace();
+						failed[0] = true;
+						synchronized (this) {
+							if (!closed)
+								dirty.putIfAbsent(e.getKey(), e.getValue());
+						}
+					}
+				synchronized (this) {
+					writes += count;
+				}
+			});
+			return !failed[0];
+		}
+	}
+
+	/**
+	 * Takes the snapshots of the pending writes that don't have one yet, without
+	 * holding any of this saver's locks. A write that is cancelled or replaced
+	 * while its snapshot is being taken keeps its replacement (or stays cancelled).
+	 */
+	private void takeSnapshots() {
+		Map<Object, Write> lazy = new IdentityHashMap<>();
+		synchronized (this) {
+			for (var e : dirty.entrySet())
+				if (e.getValue().snapshot == null)
+					lazy.put(e.getKey(), e.getValue());
+		}
+		for (var e : lazy.entrySet()) {
+			var w = e.getValue();
+			Write taken;
+			try {
+				taken = new Write(w.snapshotter.get(), w.location);
+			} catch (Exception ex) {
+				System.err.println("Failed to take a snapshot for a deferred save; it will be retried.");
+				ex.printStackTrace();
+				continue;
+			}
+			synchronized (this) {
+				dirty.replace(e.getKey(), w, taken);
+			}
+		}
+	}
+
+	/**
+	 * Flushes all pending writes and stops the background flusher. Writes
+	 * scheduled after this call are performed synchronously.
+	 */
+	public void close() {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+		}
+		executor.shutdown();
+		flush();
+	}
+
+}
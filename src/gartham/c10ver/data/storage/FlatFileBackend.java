@@ -0,0 +1,87 @@
+package gartham.c10ver.data.storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.alixia.javalibrary.json.JSONValue;
+
+import gartham.c10ver.utils.Utilities;
+
+/**
+ * The original storage layout: every value is its own file on the file system,
+ * at exactly the location it is addressed by.
+ *
+ * @author Gartham
+ *
+ */
+public final class FlatFileBackend implements StorageBackend {
+
+	public static final FlatFileBackend INSTANCE = new FlatFileBackend();
+
+	private FlatFileBackend() {
+	}
+
+	@Override
+	public JSONValue load(File file) {
+		return Utilities.read(file);
+	}
+
+	@Override
+	public void save(File file, JSONValue value) {
+		Utilities.write(value, file);
+	}
+
+	@Override
+	public boolean delete(File file) {
+		return file.delete();
+	}
+
+	@Override
+	public boolean exists(File file) {
+		return file.isFile();
+	}
+
+	@Override
+	public List<String> listFiles(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return Collections.emptyList();
+		List<String> names = new ArrayList<>(files.length);
+		for (File f : files)
+			if (f.isFile() && !Utilities.isTempFile(f))
+				names.add(f.getName());
+		return names;
+	}
+
+	@Override
+	public List<String> listDirectories(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return Collections.emptyList();
+		List<String> names = new ArrayList<>(files.length);
+		for (File f : files)
+			if (f.isDirectory())
+				names.add(f.getName());
+		return names;
+	}
+
+	@Override
+	public List<File> walk(File root) {
+		List<File> files = new ArrayList<>();
+		walk(root, files);
+		return files;
+	}
+
+	private static void walk(File dir, List<File> files) {
+		File[] children = dir.listFiles();
+		if (children != null)
+			for (File f : children)
+				if (f.isDirectory())
+					walk(f, files);
+				else if (f.isFile() && !Utilities.isTempFile(f))
+					files.add(f);
+	}
+
+}
@@ -0,0 +1,305 @@
+package gartham.c10ver.data.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.alixia.javalibrary.json.JSONParser;
+import org.alixia.javalibrary.json.JSONValue;
+import org.alixia.javalibrary.streams.CharacterStream;
+
+/**
+ * <p>
+ * A {@link StorageBackend} that packs every value into a single data file. The
+ * file is a sequence of slots, each consisting of a fixed-size header followed
+ * by the slot's capacity in bytes:
+ * </p>
+ *
+ * <pre>
+ * int status | int capacity | int keyLength | int valueLength | long version | key | value | (unused)
+ * </pre>
+ * <p>
+ * Keys are the stored {@link File}'s path relative to this backend's root
+ * directory. On open, the file is scanned once to build an in-memory index from
+ * key to slot. Saving a value writes it to a free slot that is large enough (or
+ * appends a new one), marks that slot live, and only then frees the slot
+ * holding the key's previous value, so a crash mid-save leaves the previous
+ * value intact. Each write is stamped with an increasing version, so if a crash
+ * leaves two live slots for the same key, the newer one wins on the next scan.
+ * Freed slots are reused, best-fit, by later saves.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class PackedFileBackend implements StorageBackend {
+
+	private static final int HEADER_SIZE = 24, LIVE = 0x4C495645, FREE = 0;
+
+	private static final class Slot {
+		private final long offset, version;
+		private final int capacity;
+
+		private Slot(long offset, int capacity, long version) {
+			this.offset = offset;
+			this.capacity = capacity;
+			this.version = version;
+		}
+	}
+
+	private final Path root;
+	private final FileChannel channel;
+	private final boolean durable;
+	private final TreeMap<String, Slot> index = new TreeMap<>();
+	private final TreeMap<Integer, ArrayDeque<Long>> free = new TreeMap<>();
+	private long end, version;
+
+	/**
+	 * Opens (or creates) a packed store.
+	 *
+	 * @param root     The directory that stored {@link File}s are addressed
+	 *                 relative to.
+	 * @param dataFile The data file.
+	 * @param durable  Whether every save should be forced to the storage device
+	 *                 before returning.
+	 * @throws IOException If the data file could not be opened or scanned.
+	 */
+	public PackedFileBackend(File root, File dataFile, boolean durable) throws IOException {
+		this.root = root.toPath().toAbsolutePath().normalize();
+		this.durable = durable;
+		if (dataFile.getAbsoluteFile().getParentFile() != null)
+			dataFile.getAbsoluteFile().getParentFile().mkdirs();
+		channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		scan();
+	}
+
+	public PackedFileBackend(File root, File dataFile) throws IOException {
+		this(root, dataFile, false);
+	}
+
+	private void scan() throws IOException {
+		long size = channel.size(), pos = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (pos + HEADER_SIZE <= size) {
+			header.clear();
+			readFully(header, pos);
+			header.flip();
+			int status = header.getInt(), capacity = header.getInt(), keyLen = header.getInt(),
+					valLen = header.getInt();
+			long ver = header.getLong();
+			if (status != LIVE && status != FREE || capacity < 0 || pos + HEADER_SIZE + capacity > size)
+				break;// Torn tail from a crash mid-append.
+			if (status == LIVE && keyLen >= 0 && valLen >= 0 && keyLen + valLen <= capacity) {
+				ByteBuffer kb = ByteBuffer.allocate(keyLen);
+				readFully(kb, pos + HEADER_SIZE);
+				String key = new String(kb.array(), UTF_8);
+				Slot s = new Slot(pos, capacity, ver), existing = index.get(key);
+				if (existing == null || existing.version < ver) {
+					index.put(key, s);
+					if (existing != null)
+						addFree(existing);
+				} else
+					addFree(s);
+				version = Math.max(version, ver);
+			} else
+				addFree(new Slot(pos, capacity, 0));
+			pos += HEADER_SIZE + capacity;
+		}
+		end = pos;
+		if (end < size)
+			channel.truncate(end);
+	}
+
+	private void readFully(ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining()) {
+			int r = channel.read(buf, pos);
+			if (r < 0)
+				throw new IOException("Unexpected end of packed store.");
+			pos += r;
+		}
+	}
+
+	private void writeFully(ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining())
+			pos += channel.write(buf, pos);
+	}
+
+	private void addFree(Slot slot) {
+		free.computeIfAbsent(slot.capacity, c -> new ArrayDeque<>()).add(slot.offset);
+	}
+
+	private void release(Slot slot) throws IOException {
+		writeFully(ByteBuffer.allocate(4).putInt(FREE).flip(), slot.offset);
+		addFree(slot);
+	}
+
+	/**
+	 * Finds the smallest free slot that can hold <code>need</code> bytes (without
+	 * wasting more than half of it), or reserves a new one at the end of the file.
+	 */
+	private Slot allocate(int need) {
+		Entry<Integer, ArrayDeque<Long>> e = free.ceilingEntry(need);
+		if (e != null && e.getKey() <= need * 2 + HEADER_SIZE) {
+			long offset = e.getValue().poll();
+			if (e.getValue().isEmpty())
+				free.remove(e.getKey());
+			return new Slot(offset, e.getKey(), 0);
+		}
+		// Leave some slack so that a slightly larger value can reuse the slot later.
+		int capacity = need + (need >> 2) + 16;
+		Slot s = new Slot(end, capacity, 0);
+		end += HEADER_SIZE + capacity;
+		return s;
+	}
+
+	private String key(File file) {
+		Path p = root.relativize(file.toPath().toAbsolutePath().normalize());
+		if (p.startsWith(".."))
+			throw new IllegalArgumentException("File is outside of the packed store's root: " + file);
+		return p.toString().replace(File.separatorChar, '/');
+	}
+
+	private String prefix(File dir) {
+		String k = key(dir);
+		return k.isEmpty() ? k : k + '/';
+	}
+
+	@Override
+	public synchronized JSONValue load(File file) {
+		Slot s = index.get(key(file));
+		if (s == null)
+			return null;
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(header, s.offset);
+			header.flip();
+			header.position(8);
+			int keyLen = header.getInt(), valLen = header.getInt();
+			ByteBuffer vb = ByteBuffer.allocate(valLen);
+			readFully(vb, s.offset + HEADER_SIZE + keyLen);
+			return new JSONParser().parse(CharacterStream.from(new StringReader(new String(vb.array(), UTF_8))));
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to load from packed store: " + file, e);
+		}
+	}
+
+	@Override
+	public synchronized void save(File file, JSONValue value) {
+		String key = key(file);
+		byte[] k = key.getBytes(UTF_8), v = value.toString().getBytes(UTF_8);
+		Slot slot = allocate(k.length + v.length);
+		// The whole slot is written, so that an appended slot's slack is part of the file.
+		ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + slot.capacity);
+		buf.putInt(FREE).putInt(slot.capacity).putInt(k.length).putInt(v.length).putLong(++version).put(k).put(v);
+		buf.clear();
+		try {
+			// The slot is only marked live once its contents are fully written.
+			writeFully(buf, slot.offset);
+			if (durable)
+				channel.force(false);
+			writeFully(ByteBuffer.allocate(4).putInt(LIVE).flip(), slot.offset);
+			if (durable)
+				channel.force(false);
+			Slot old = index.put(key, new Slot(slot.offset, slot.capacity, version));
+			if (old != null)
+				release(old);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to save to packed store: " + file, e);
+		}
+	}
+
+	@Override
+	public synchronized boolean delete(File file) {
+		Slot s = index.remove(key(file));
+		if (s == null)
+			return false;
+		try {
+			release(s);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to delete from packed store: " + file, e);
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized boolean exists(File file) {
+		return index.containsKey(key(file));
+	}
+
+	@Override
+	public synchronized List<String> listFiles(File dir) {
+		String prefix = prefix(dir);
+		List<String> names = new ArrayList<>();
+		for (String k : index.subMap(prefix, prefix + Character.MAX_VALUE).keySet()) {
+			String rest = k.substring(prefix.length());
+			if (rest.indexOf('/') == -1)
+				names.add(rest);
+		}
+		return names;
+	}
+
+	@Override
+	public synchronized List<String> listDirectories(File dir) {
+		String prefix = prefix(dir);
+		List<String> names = new ArrayList<>();
+		for (String k : index.subMap(prefix, prefix + Character.MAX_VALUE).keySet()) {
+			String rest = k.substring(prefix.length());
+			int slash = rest.indexOf('/');
+			// Keys are sorted, so all keys in one subdirectory are adjacent.
+			if (slash != -1 && (names.isEmpty() || !names.get(names.size() - 1).equals(rest.substring(0, slash))))
+				names.add(rest.substring(0, slash));
+		}
+		return names;
+	}
+
+	@Override
+	public synchronized List<File> walk(File root) {
+		String prefix = prefix(root);
+		List<File> files = new ArrayList<>();
+		for (String k : index.subMap(prefix, prefix + Character.MAX_VALUE).keySet())
+			files.add(new File(root, k.substring(prefix.length())));
+		return files;
+	}
+
+	/**
+	 * Returns the number of values in this store.
+	 *
+	 * @return The number of stored values.
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * Forces all writes made so far to the storage device.
+	 */
+	public synchronized void sync() {
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to sync packed store.", e);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to close packed store.", e);
+		}
+	}
+
+}
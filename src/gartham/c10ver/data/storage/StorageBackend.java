@@ -0,0 +1,74 @@
+package gartham.c10ver.data.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.List;
+
+import org.alixia.javalibrary.json.JSONValue;
+
+/**
+ * <p>
+ * Stores the JSON values that Clover persists. Values are addressed by the
+ * {@link File} that they would occupy in the original, flat-file layout (e.g.
+ * <code>data/economy/users/&lt;id&gt;/main-account.txt</code>), so that callers
+ * do not need to know how a backend actually lays out its data. Directories
+ * exist implicitly, as the parents of stored files.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public interface StorageBackend extends Closeable {
+
+	/**
+	 * Loads the value stored for the specified {@link File}.
+	 *
+	 * @param file The {@link File}.
+	 * @return The stored value, or <code>null</code> if nothing is stored for it.
+	 */
+	JSONValue load(File file);
+
+	void save(File file, JSONValue value);
+
+	/**
+	 * Deletes the value stored for the specified {@link File}.
+	 *
+	 * @param file The {@link File}.
+	 * @return <code>true</code> if there was a value to delete.
+	 */
+	boolean delete(File file);
+
+	boolean exists(File file);
+
+	/**
+	 * Returns the names of the stored files directly inside the specified
+	 * directory.
+	 *
+	 * @param dir The directory.
+	 * @return The names of the files, or an empty list if there are none.
+	 */
+	List<String> listFiles(File dir);
+
+	/**
+	 * Returns the names of the directories directly inside the specified
+	 * directory.
+	 *
+	 * @param dir The directory.
+	 * @return The names of the directories, or an empty list if there are none.
+	 */
+	List<String> listDirectories(File dir);
+
+	/**
+	 * Returns every stored file in the specified directory and all of its
+	 * subdirectories.
+	 *
+	 * @param root The directory to walk.
+	 * @return The stored files.
+	 */
+	List<File> walk(File root);
+
+	@Override
+	default void close() {
+	}
+
+}
@@ -0,0 +1,147 @@
+package gartham.c10ver.data.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.alixia.javalibrary.json.JSONNumber;
+import org.alixia.javalibrary.json.JSONObject;
+import org.alixia.javalibrary.json.JSONString;
+
+import gartham.c10ver.utils.Utilities;
+
+/**
+ * <p>
+ * Compares the {@link FlatFileBackend} with the {@link PackedFileBackend} on a
+ * synthetic economy laid out like <code>data/economy/users</code>: every user
+ * has a <code>user-data.txt</code>, a <code>main-account.txt</code> and one
+ * inventory entry. For each backend, this measures the time to write the whole
+ * dataset, the time to load all of it back (walking the user directories the
+ * way {@link gartham.c10ver.economy.Economy} does), and the latency of
+ * individual saves to random users.
+ * </p>
+ *
+ * <pre>
+ * StorageBenchmark [users=100000] [saves=20000] [atomic]
+ * </pre>
+ * <p>
+ * The OS page cache is not dropped between phases, so load times are warm-cache
+ * numbers.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class StorageBenchmark {
+
+	private StorageBenchmark() {
+	}
+
+	private static JSONObject userData(Random r) {
+		var o = new JSONObject();
+		o.put("message-count", new JSONString(String.valueOf(r.nextInt(100000))));
+		o.put("daily", new JSONString("2021-08-0" + (r.nextInt(9) + 1) + "T12:00:00Z"));
+		o.put("prestige", new JSONString(String.valueOf(r.nextInt(5))));
+		return o;
+	}
+
+	private static JSONObject account(Random r) {
+		var o = new JSONObject();
+		o.put("bal", new JSONString(String.valueOf(r.nextInt(Integer.MAX_VALUE))));
+		o.put("total-earnings", new JSONString(String.valueOf(r.nextInt(Integer.MAX_VALUE))));
+		return o;
+	}
+
+	private static JSONObject entry(Random r) {
+		var o = new JSONObject();
+		o.put("count", new JSONString(String.valueOf(r.nextInt(50) + 1)));
+		o.put("type", new JSONString("daily-crate"));
+		o.put("slot", new JSONNumber(r.nextInt(10)));
+		return o;
+	}
+
+	private static void run(String name, StorageBackend backend, File root, int users, int saves) {
+		File userDir = new File(root, "economy/users");
+		Random r = new Random(1);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < users; i++) {
+			File dir = new File(userDir, String.valueOf(100000000000000000L + i));
+			backend.save(new File(dir, "user-data.txt"), userData(r));
+			backend.save(new File(dir, "main-account.txt"), account(r));
+			backend.save(new File(dir, "inventory/daily-crate.txt"), entry(r));
+		}
+		long populate = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int loaded = 0;
+		for (String id : backend.listDirectories(userDir)) {
+			File dir = new File(userDir, id);
+			if (backend.load(new File(dir, "user-data.txt")) != null)
+				loaded++;
+			if (backend.load(new File(dir, "main-account.txt")) != null)
+				loaded++;
+			File inv = new File(dir, "inventory");
+			for (String e : backend.listFiles(inv))
+				if (backend.load(new File(inv, e)) != null)
+					loaded++;
+		}
+		long loadAll = System.nanoTime() - start;
+
+		long[] latencies = new long[saves];
+		for (int i = 0; i < saves; i++) {
+			File f = new File(new File(userDir, String.valueOf(100000000000000000L + r.nextInt(users))),
+					"main-account.txt");
+			var value = account(r);
+			long s = System.nanoTime();
+			backend.save(f, value);
+			latencies[i] = System.nanoTime() - s;
+		}
+		Arrays.sort(latencies);
+
+		System.out.println(name + ':');
+		System.out.printf("\tpopulate: %,d ms (%,d values)%n", populate / 1000000, users * 3);
+		System.out.printf("\tload-all: %,d ms (%,d values)%n", loadAll / 1000000, loaded);
+		System.out.printf("\tsave latency: p50 %,d us, p99 %,d us, max %,d us%n", latencies[saves / 2] / 1000,
+				latencies[(int) (saves * 0.99)] / 1000, latencies[saves - 1] / 1000);
+	}
+
+	private static void deleteRecursively(Path dir) throws IOException {
+		try (var s = Files.walk(dir)) {
+			s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int users = 100000, saves = 20000;
+		for (var a : args)
+			if (a.startsWith("users="))
+				users = Integer.parseInt(a.substring(6));
+			else if (a.startsWith("saves="))
+				saves = Integer.parseInt(a.substring(6));
+			else if (a.equalsIgnoreCase("atomic"))
+				Utilities.setAtomicSaves(true);
+
+		Path flat = Files.createTempDirectory("clover-flat"), packed = Files.createTempDirectory("clover-packed");
+		try {
+			run("Flat files", FlatFileBackend.INSTANCE, flat.toFile(), users, saves);
+			try (var backend = new PackedFileBackend(packed.toFile(), packed.resolve("store.pack").toFile())) {
+				run("Packed store", backend, packed.toFile(), users, saves);
+			}
+			// Reopening the packed store includes the index-building scan that a cold start pays.
+			long start = System.nanoTime();
+			try (var backend = new PackedFileBackend(packed.toFile(), packed.resolve("store.pack").toFile())) {
+				System.out.printf("Packed store reopen (index scan): %,d ms (%,d values)%n",
+						(System.nanoTime() - start) / 1000000, backend.size());
+			}
+		} finally {
+			deleteRecursively(flat);
+			deleteRecursively(packed);
+		}
+	}
+
+}
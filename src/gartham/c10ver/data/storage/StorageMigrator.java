@@ -0,0 +1,88 @@
+package gartham.c10ver.data.storage;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.alixia.javalibrary.json.JSONValue;
+
+/**
+ * <p>
+ * Copies every stored value under a root directory from one
+ * {@link StorageBackend} to another. This is meant to be run offline (while the
+ * bot is not running), with either:
+ * </p>
+ *
+ * <pre>
+ * StorageMigrator to-packed &lt;root&gt; &lt;pack-file&gt;
+ * StorageMigrator to-flat &lt;root&gt; &lt;pack-file&gt;
+ * </pre>
+ * <p>
+ * where <code>root</code> is the bot's data directory (normally
+ * <code>data</code>). The economy journal directory is skipped since it is not
+ * made up of stored values; it should be empty anyway once the bot has shut
+ * down and restarted cleanly. Files that cannot be parsed are reported and
+ * skipped. The source is left untouched.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class StorageMigrator {
+
+	private static final String JOURNAL_DIRECTORY = "journal";
+
+	private StorageMigrator() {
+	}
+
+	/**
+	 * Copies every value under <code>root</code> from <code>source</code> to
+	 * <code>target</code>.
+	 *
+	 * @param source The backend to copy from.
+	 * @param target The backend to copy to.
+	 * @param root   The directory whose contents should be copied.
+	 * @param skip   A file to skip (e.g. the packed store's own data file), or
+	 *               <code>null</code>.
+	 * @return The number of values copied.
+	 */
+	public static int migrate(StorageBackend source, StorageBackend target, File root, File skip) {
+		int count = 0, failed = 0;
+		File absSkip = skip == null ? null : skip.getAbsoluteFile();
+		for (File f : source.walk(root)) {
+			if (f.getAbsoluteFile().equals(absSkip) || f.getParentFile() != null
+					&& JOURNAL_DIRECTORY.equals(f.getParentFile().getName()))
+				continue;
+			JSONValue value;
+			try {
+				value = source.load(f);
+			} catch (RuntimeException e) {
+				System.err.println("Skipping unreadable file: " + f + " (" + e.getCause() + ')');
+				failed++;
+				continue;
+			}
+			if (value == null)
+				continue;
+			target.save(f, value);
+			if (++count % 10000 == 0)
+				System.out.println("Migrated " + count + " values...");
+		}
+		System.out.println("Migrated " + count + " values. Skipped " + failed + " unreadable files.");
+		return count;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3 || !args[0].equalsIgnoreCase("to-packed") && !args[0].equalsIgnoreCase("to-flat")) {
+			System.err.println("Usage: StorageMigrator (to-packed|to-flat) <root> <pack-file>");
+			System.exit(1);
+		}
+		File root = new File(args[1]), pack = new File(args[2]);
+		try (var packed = new PackedFileBackend(root, pack)) {
+			if (args[0].equalsIgnoreCase("to-packed")) {
+				migrate(FlatFileBackend.INSTANCE, packed, root, pack);
+				packed.sync();
+			} else
+				migrate(packed, FlatFileBackend.INSTANCE, root, pack);
+		}
+	}
+
+}
@@ -8,6 +8,7 @@ import static java.time.temporal.ChronoUnit.WEEKS;
 import static java.time.temporal.ChronoUnit.YEARS;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -61,6 +62,16 @@ public class AbstractMultiplier {
 		return new Multiplier(Instant.now().plus(duration), amt);
 	}
 
+	/**
+	 * Creates a stack of <code>count</code> of this multiplier, all starting now.
+	 *
+	 * @param count The number of multipliers in the stack.
+	 * @return The {@link Multiplier} stack.
+	 */
+	public Multiplier reify(long count) {
+		return new Multiplier(Instant.now().plus(duration), amt, BigInteger.valueOf(count));
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
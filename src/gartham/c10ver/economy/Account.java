@@ -2,12 +2,36 @@ package gartham.c10ver.economy;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import org.alixia.javalibrary.json.JSONValue;
 
 import gartham.c10ver.data.autosave.SavablePropertyObject;
 import gartham.c10ver.economy.users.UserAccount;
+import gartham.c10ver.utils.HybridInteger;
 
+/**
+ * <p>
+ * An amount of cloves, saved to its own file. The balance is kept as a
+ * {@link HybridInteger}, so depositing into or withdrawing from an account whose
+ * balance fits in a <code>long</code> doesn't go through {@link BigInteger}
+ * arithmetic. {@link #getBalance()} and {@link #setBalance(BigInteger)} convert
+ * to and from {@link BigInteger}; {@link #getBalanceValue()} doesn't.
+ * </p>
+ * <p>
+ * Every change to the balance is made while holding the account's
+ * {@link #getLock() lock}, so concurrent deposits and withdrawals are never
+ * lost. Balance listeners are called while the lock is held.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
 public class Account extends SavablePropertyObject {
-	private final Property<BigInteger> balance = bigIntegerProperty("bal", BigInteger.ZERO);
+	private final Property<HybridInteger> balance = hybridIntegerProperty("bal", HybridInteger.ZERO);
+	private final Lock lock = new ReentrantLock();
 
 	public Account(File dir) {
 		this(dir, true);
@@ -19,14 +43,70 @@ public class Account extends SavablePropertyObject {
 			load();
 	}
 
+	/**
+	 * Returns the lock that guards this account's balance. Holding it makes a
+	 * sequence of operations on this account atomic.
+	 *
+	 * @return The {@link Lock}.
+	 */
+	protected Lock getLock() {
+		return lock;
+	}
+
+	@Override
+	protected JSONValue snapshot() {
+		var l = getLock();
+		l.lock();
+		try {
+			return super.snapshot();
+		} finally {
+			l.unlock();
+		}
+	}
+
 	public void setBalance(BigInteger balance) {
-		this.balance.set(balance);
+		var value = HybridInteger.valueOf(balance);
+		var l = getLock();
+		l.lock();
+		try {
+			this.balance.set(value);
+		} finally {
+			l.unlock();
+		}
 	}
 
 	public BigInteger getBalance() {
+		return balance.get().toBigInteger();
+	}
+
+	public HybridInteger getBalanceValue() {
 		return balance.get();
 	}
 
+	/**
+	 * Registers a listener that is called with the old and new balance whenever
+	 * this {@link Account}'s balance is set.
+	 * 
+	 * @param listener The listener.
+	 */
+	public void addBalanceListener(BiConsumer<? super HybridInteger, ? super HybridInteger> listener) {
+		balance.addListener(listener);
+	}
+
+	public void removeBalanceListener(BiConsumer<? super HybridInteger, ? super HybridInteger> listener) {
+		balance.removeListener(listener);
+	}
+
+	/**
+	 * Moves the specified amount from this account to the recipient, if this
+	 * account has enough. The withdrawal and the deposit are each atomic, but the
+	 * transfer as a whole is not: the amount is briefly in neither account.
+	 * {@link UserAccount} overrides this to make the whole transfer atomic.
+	 *
+	 * @param amount    The amount to pay.
+	 * @param recipient The account to pay.
+	 * @return <code>true</code> if the payment was made.
+	 */
 	public boolean pay(BigInteger amount, UserAccount recipient) {
 		if (!withdraw(amount))
 			return false;
@@ -35,11 +115,23 @@ public class Account extends SavablePropertyObject {
 	}
 
 	public void deposit(BigInteger amt) {
-		setBalance(getBalance().add(amt));
+		var l = getLock();
+		l.lock();
+		try {
+			balance.set(balance.get().add(amt));
+		} finally {
+			l.unlock();
+		}
 	}
 
 	public void deposit(long amt) {
-		deposit(BigInteger.valueOf(amt));
+		var l = getLock();
+		l.lock();
+		try {
+			balance.set(balance.get().add(amt));
+		} finally {
+			l.unlock();
+		}
 	}
 
 	/**
@@ -52,14 +144,31 @@ public class Account extends SavablePropertyObject {
 	 *         than the specified amount.
 	 */
 	public boolean withdraw(BigInteger amt) {
-		if (getBalance().compareTo(amt) < 0)
-			return false;
-		setBalance(getBalance().subtract(amt));
-		return true;
+		var l = getLock();
+		l.lock();
+		try {
+			var bal = balance.get();
+			if (bal.compareTo(amt) < 0)
+				return false;
+			balance.set(bal.subtract(amt));
+			return true;
+		} finally {
+			l.unlock();
+		}
 	}
 
 	public boolean withdraw(long amt) {
-		return withdraw(BigInteger.valueOf(amt));
+		var l = getLock();
+		l.lock();
+		try {
+			var bal = balance.get();
+			if (bal.compareTo(amt) < 0)
+				return false;
+			balance.set(bal.subtract(amt));
+			return true;
+		} finally {
+			l.unlock();
+		}
 	}
 
 }
@@ -1,15 +1,27 @@
 package gartham.c10ver.economy;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 import org.apache.commons.collections4.map.HashedMap;
 
 import gartham.c10ver.Clover;
 import gartham.c10ver.economy.items.UserInventory;
+import gartham.c10ver.economy.journal.EconomyJournal;
+import gartham.c10ver.economy.leaderboard.Leaderboards;
 import gartham.c10ver.economy.users.User;
 import gartham.c10ver.economy.users.UserAccount;
+import gartham.c10ver.utils.StripedLock;
+import gartham.c10ver.utils.Utilities;
 
 public class Economy {
 
@@ -21,31 +33,240 @@ public class Economy {
 	}
 
 	public Economy(File dir, Clover clover) {
+		this(dir, clover, 0);
+	}
+
+	/**
+	 * <p>
+	 * Creates an {@link Economy} rooted at the specified directory.
+	 * </p>
+	 * <p>
+	 * If <code>maxLoadedUsers</code> is positive, users are loaded lazily: only the
+	 * IDs of stored users are read up front (into an existence index that
+	 * {@link #hasUser(String)} consults), and a {@link User} is only loaded the
+	 * first time that {@link #getUser(String)} is called for it. At most
+	 * <code>maxLoadedUsers</code> users are kept strongly reachable; past that,
+	 * the least recently used users that have been idle for at least
+	 * {@link #MIN_IDLE_NANOS a minute} and have no unsaved changes are evicted. An
+	 * evicted user that is still referenced elsewhere (e.g. by a running game) is
+	 * handed back out by {@link #getUser(String)} instead of being loaded a second
+	 * time, so there is never more than one {@link User} object per user.
+	 * </p>
+	 * <p>
+	 * Otherwise, every user is loaded up front and kept loaded.
+	 * </p>
+	 * 
+	 * @param dir            The economy's directory.
+	 * @param clover         The {@link Clover} instance.
+	 * @param maxLoadedUsers The maximum number of users to keep loaded, or
+	 *                       <code>0</code> to load every user eagerly.
+	 */
+	public Economy(File dir, Clover clover, int maxLoadedUsers) {
 		this.clover = clover;
 		root = dir;
-		File[] userFolder = getUserDir().listFiles();
-		if (userFolder != null)
-			for (File f : userFolder)
-				if (f.isDirectory())
-					users.put(f.getName(), new User(f, this));
-		File[] serverFolder = getServersDir().listFiles();
-		if (serverFolder != null)
-			for (File f : serverFolder)
-				if (f.isDirectory())
-					servers.put(f.getName(), new Server(f));
-	}
-
-	private final Map<String, User> users = new HashedMap<>();
+		this.maxLoadedUsers = maxLoadedUsers;
+		users = maxLoadedUsers > 0 ? new LinkedHashMap<>() : new HashedMap<>();
+		knownUsers = maxLoadedUsers > 0 ? new HashSet<>() : null;
+		var storage = Utilities.getStorage();
+		for (String id : storage.listDirectories(getUserDir()))
+			if (knownUsers != null)
+				knownUsers.add(id);
+			else
+				users.put(id, new User(new File(getUserDir(), id), this));
+		for (String id : storage.listDirectories(getServersDir()))
+			servers.put(id, new Server(new File(getServersDir(), id)));
+		var j = new EconomyJournal(new File(dir, "journal"), this);
+		j.replay();
+		j.startCompacting(10, TimeUnit.MINUTES);
+		journal = j;
+	}
+
+	private volatile EconomyJournal journal;
+	private final Leaderboards leaderboards = new Leaderboards(this);
+	private final StripedLock userLocks = new StripedLock(256);
+
+	/**
+	 * <p>
+	 * Returns the lock that guards the specified user's economy data (their
+	 * balance, earnings and rewards). {@link UserAccount}s take this lock
+	 * themselves for each of their operations, so a single deposit or withdrawal
+	 * never needs it to be held. It only needs to be held to make a sequence of
+	 * operations on one user atomic.
+	 * </p>
+	 * <p>
+	 * To lock more than one user, use {@link #atomically(Supplier, String...)}
+	 * rather than taking each user's lock in turn, which can deadlock.
+	 * </p>
+	 *
+	 * @param userID The user's ID.
+	 * @return The user's {@link Lock}.
+	 */
+	public Lock getLock(String userID) {
+		return userLocks.get(userID);
+	}
+
+	/**
+	 * Runs the specified action while holding the locks of all of the specified
+	 * users, and returns its result. The locks are always taken in the same
+	 * (canonical) order, so concurrent multi-user operations (e.g. a payment from
+	 * A to B and one from B to A) cannot deadlock.
+	 *
+	 * @param <T>     The type of the result.
+	 * @param action  The action.
+	 * @param userIDs The IDs of the users the action touches.
+	 * @return The action's result.
+	 */
+	public <T> T atomically(Supplier<T> action, String... userIDs) {
+		return userLocks.call(action, (Object[]) userIDs);
+	}
+
+	public void atomically(Runnable action, String... userIDs) {
+		userLocks.run(action, (Object[]) userIDs);
+	}
+
+	public Leaderboards getLeaderboards() {
+		return leaderboards;
+	}
+
+	/**
+	 * Returns the {@link EconomyJournal} that economy mutations are recorded in, or
+	 * <code>null</code> while the economy is still being loaded.
+	 * 
+	 * @return The {@link EconomyJournal}.
+	 */
+	public EconomyJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * The minimum amount of time that a loaded user must go untouched before it may
+	 * be evicted in lazy mode.
+	 */
+	private static final long MIN_IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private final int maxLoadedUsers;
+	/**
+	 * The loaded users. In lazy mode, this is in order of use (each user is moved
+	 * to the end whenever {@link #getUser(String)} hands them out), so the least
+	 * recently used user comes first. Just looking a user up doesn't move them.
+	 */
+	private final Map<String, User> users;
+	/**
+	 * In lazy mode, the IDs of every stored user, loaded or not. <code>null</code>
+	 * otherwise.
+	 */
+	private final Set<String> knownUsers;
+	/**
+	 * In lazy mode, the time at which each loaded user was last handed out.
+	 */
+	private final Map<String, Long> lastAccess = new HashMap<>();
+	/**
+	 * In lazy mode, users that have been evicted but may still be referenced
+	 * elsewhere.
+	 */
+	private final Map<String, WeakReference<User>> evicted = new HashMap<>();
 	private final Map<String, Server> servers = new HashMap<>();
 
 	public User getUser(String userID) throws RuntimeException {
 		synchronized (users) {
-			if (!users.containsKey(userID))
-				users.put(userID, new User(new File(getUserDir(), userID), this));
-			return users.get(userID);
+			if (knownUsers == null) {
+				User u = users.get(userID);
+				if (u == null)
+					users.put(userID, u = new User(new File(getUserDir(), userID), this));
+				return u;
+			}
+			// Taking the user out and putting them back in moves them to the end.
+			User u = users.remove(userID);
+			boolean loaded = u == null;
+			if (loaded) {
+				var ref = evicted.remove(userID);
+				if (ref != null)
+					u = ref.get();
+				if (u == null)
+					u = new User(new File(getUserDir(), userID), this);
+				knownUsers.add(userID);
+			}
+			users.put(userID, u);
+			lastAccess.put(userID, System.nanoTime());
+			if (loaded)
+				evict();
+			return u;
 		}
 	}
 
+	/**
+	 * Returns the balance of the specified user's main account without loading
+	 * the user. A loaded user's balance is read from memory; anyone else's is read
+	 * from storage, which is up to date for them, since users with unsaved changes
+	 * are never evicted. Nothing read this way is cached, and looking a loaded user
+	 * up this way doesn't count as using them, so reading the balances of many
+	 * users at once (e.g. to build a leaderboard) doesn't push the users that are
+	 * actually in use out of the cache.
+	 * 
+	 * @param userID The user's ID.
+	 * @return The user's balance, or <code>0</code> if the user doesn't exist.
+	 */
+	public BigInteger peekBalance(String userID) {
+		User u;
+		synchronized (users) {
+			u = users.get(userID);
+			if (u == null && knownUsers != null) {
+				var ref = evicted.get(userID);
+				if (ref != null)
+					u = ref.get();
+			}
+			if (u == null && !hasUser(userID))
+				return BigInteger.ZERO;
+		}
+		if (u != null)
+			return u.getAccount().getBalance();
+		return new Account(new File(new File(getUserDir(), userID), UserAccount.FILE_NAME)).getBalance();
+	}
+
+	/**
+	 * Evicts the least recently used, idle, clean users until no more than
+	 * {@link #maxLoadedUsers} are loaded, or until no more users can be evicted.
+	 * Users with changes that have not been saved (or journaled changes that have
+	 * not been snapshotted) are skipped, since reloading them from storage would
+	 * lose those changes if they were collected in the meantime.
+	 */
+	private void evict() {
+		var j = journal;
+		// Nothing is evicted while the journal is being replayed, since replayed users
+		// are only snapshotted once the replay is done.
+		if (j == null || users.size() <= maxLoadedUsers)
+			return;
+		long now = System.nanoTime();
+		for (var itr = users.entrySet().iterator(); itr.hasNext() && users.size() > maxLoadedUsers;) {
+			var e = itr.next();
+			// In order of use, so every user after this one has been used more recently.
+			if (now - lastAccess.get(e.getKey()) < MIN_IDLE_NANOS)
+				break;
+			if (e.getValue().hasPendingSaves() || j.isPending(e.getKey()))
+				continue;
+			itr.remove();
+			lastAccess.remove(e.getKey());
+			evicted.put(e.getKey(), new WeakReference<>(e.getValue()));
+		}
+		evicted.values().removeIf(r -> r.get() == null);
+	}
+
+	/**
+	 * Returns the number of users that are currently loaded (and strongly held) by
+	 * this {@link Economy}.
+	 * 
+	 * @return The number of loaded users.
+	 */
+	public int getLoadedUserCount() {
+		synchronized (users) {
+			return users.size();
+		}
+	}
+
+	public boolean isLazy() {
+		return knownUsers != null;
+	}
+
 	public Server getServer(String serverID) throws RuntimeException {
 		synchronized (servers) {
 			if (!servers.containsKey(serverID))
@@ -67,11 +288,15 @@ public class Economy {
 	}
 
 	public boolean hasUser(String userID) {
-		return users.containsKey(userID);
+		synchronized (users) {
+			return knownUsers != null ? knownUsers.contains(userID) : users.containsKey(userID);
+		}
 	}
 
 	public boolean hasServer(String serverID) {
-		return servers.containsKey(serverID);
+		synchronized (servers) {
+			return servers.containsKey(serverID);
+		}
 	}
 
 	public File getUserDir() {
@@ -4,6 +4,7 @@ import static java.time.temporal.ChronoUnit.HOURS;
 import static java.time.temporal.ChronoUnit.MINUTES;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.Duration;
 import java.time.Instant;
 
@@ -13,9 +14,26 @@ import org.alixia.javalibrary.json.JSONValue;
 import gartham.c10ver.data.PropertyObject;
 import static java.time.temporal.ChronoUnit.*;
 
+/**
+ * <p>
+ * A multiplier that expires at a specific time. A {@link Multiplier} can stand
+ * for a stack of several identical multipliers (e.g. from eating many of the
+ * same food at once), in which case its {@link #getCount() count} is the number
+ * of multipliers in the stack and its {@link #getTotalAmount() total amount} is
+ * the sum of their amounts.
+ * </p>
+ * <p>
+ * The count is only saved if it is not <code>1</code>, so single multipliers
+ * are saved in the same format as multipliers that predate stacking.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
 public final class Multiplier extends PropertyObject {
 	private final Property<Instant> expr = instantProperty("expr");
 	private final Property<BigDecimal> amt = bigDecimalProperty("amt");
+	private final Property<BigInteger> count = bigIntegerProperty("n", BigInteger.ONE);
 
 	public static Multiplier ofSec(long secondsTillExpired, BigDecimal value) {
 		return new Multiplier(Instant.now().plusSeconds(secondsTillExpired), value);
@@ -53,13 +71,47 @@ public final class Multiplier extends PropertyObject {
 		return Duration.between(Instant.now(), expr.get());
 	}
 
+	/**
+	 * Returns the amount of a single multiplier in this stack.
+	 *
+	 * @return The amount of each multiplier.
+	 */
 	public BigDecimal getAmount() {
 		return amt.get();
 	}
 
+	public BigInteger getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the sum of the amounts of the multipliers in this stack, i.e.
+	 * <code>{@link #getAmount()} * {@link #getCount()}</code>.
+	 *
+	 * @return The total amount of this stack.
+	 */
+	public BigDecimal getTotalAmount() {
+		return count.get().equals(BigInteger.ONE) ? amt.get() : amt.get().multiply(new BigDecimal(count.get()));
+	}
+
+	/**
+	 * Adds <code>count</code> multipliers to this stack. Only used by
+	 * {@link MultiplierSet}, which merges identical multipliers into one stack.
+	 */
+	void stack(BigInteger count) {
+		this.count.set(this.count.get().add(count));
+	}
+
 	public Multiplier(Instant exprTime, BigDecimal amt) {
+		this(exprTime, amt, BigInteger.ONE);
+	}
+
+	public Multiplier(Instant exprTime, BigDecimal amt, BigInteger count) {
+		if (count.signum() <= 0)
+			throw new IllegalArgumentException("A multiplier stack needs at least one multiplier.");
 		expr.set(exprTime);
 		this.amt.set(amt);
+		this.count.set(count);
 	}
 
 	public Multiplier(JSONObject obj) {
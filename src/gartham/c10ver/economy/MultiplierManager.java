@@ -3,13 +3,15 @@ package gartham.c10ver.economy;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 
 /**
  * A convenience class for calculating information about stackable multipliers.
  * Most classes that need this functionality implement a subset of these
  * functions in addition to a <code>hasMults()</code> method, or something
- * similar designed to determine whether there are any active multipliers.
+ * similar designed to determine whether there are any active multipliers. When
+ * the multipliers are kept in a {@link MultiplierSet}, these methods use its
+ * cached total and expiration order instead of scanning.
  * 
  * @author Gartham
  *
@@ -20,7 +22,11 @@ public class MultiplierManager {
 	 * Iterates over the list of multipliers property and cleans out any expired
 	 * multipliers.
 	 */
-	public static void cleanMults(List<Multiplier> mults) {
+	public static void cleanMults(Collection<Multiplier> mults) {
+		if (mults instanceof MultiplierSet) {
+			((MultiplierSet) mults).clean();
+			return;
+		}
 		Instant now = Instant.now();
 		for (var iterator = mults.iterator(); iterator.hasNext();)
 			if (now.isAfter(iterator.next().getExpiration()))
@@ -29,11 +35,13 @@ public class MultiplierManager {
 
 	/**
 	 * Sums up the valid multipliers stored in the multipliers property and deletes
-	 * the expired ones (like a call to {@link #cleanMults(List)} would).
+	 * the expired ones (like a call to {@link #cleanMults(Collection)} would).
 	 * 
 	 * @return The sum of the valid multipliers.
 	 */
-	public static BigDecimal getTotalMultiplier(List<Multiplier> mults) {
+	public static BigDecimal getTotalMultiplier(Collection<Multiplier> mults) {
+		if (mults instanceof MultiplierSet)
+			return ((MultiplierSet) mults).getTotal();
 		if (mults.isEmpty())
 			return BigDecimal.ZERO;
 		BigDecimal res = BigDecimal.ZERO;
@@ -43,13 +51,15 @@ public class MultiplierManager {
 			if (now.isAfter(m.getExpiration()))
 				iterator.remove();
 			else
-				res = res.add(m.getAmount());
+				res = res.add(m.getTotalAmount());
 		}
 
 		return res;
 	}
 
-	public static ArrayList<Multiplier> getMultipliers(List<Multiplier> mults) {
+	public static ArrayList<Multiplier> getMultipliers(Collection<Multiplier> mults) {
+		if (mults instanceof MultiplierSet)
+			return ((MultiplierSet) mults).list();
 		cleanMults(mults);
 		return new ArrayList<>(mults);
 	}
@@ -58,7 +68,7 @@ public class MultiplierManager {
 	 * <p>
 	 * Gets the total multiplier applied to whatever entity these multipliers apply
 	 * to. This is equivalent to <code>1 + mults</code> where <code>mults</code> is
-	 * the {@link #getTotalMultiplier(List) sum of the multipliers managed by this
+	 * the {@link #getTotalMultiplier(Collection) sum of the multipliers managed by this
 	 * object}.
 	 * </p>
 	 * <p>
@@ -66,17 +76,17 @@ public class MultiplierManager {
 	 * total multiplier will be 1.6x, which is the sum of the two multipliers, plus
 	 * their standard 1x multiplier. The value of 1.6x would be returned by this
 	 * function, whereas the simple sum of the multipliers (0.6x) would be returned
-	 * by {@link #getTotalMultiplier(List)}.
+	 * by {@link #getTotalMultiplier(Collection)}.
 	 * </p>
 	 * 
 	 * @return <code>{@link BigDecimal#ONE}.{@link BigDecimal#add(BigDecimal)
-	 *         add}({@link #getTotalMultiplier(List) this.getTotalMultiplier}())</code>
+	 *         add}({@link #getTotalMultiplier(Collection) this.getTotalMultiplier}())</code>
 	 */
-	public static BigDecimal getTotalValue(List<Multiplier> mults) {
+	public static BigDecimal getTotalValue(Collection<Multiplier> mults) {
 		return BigDecimal.ONE.add(getTotalMultiplier(mults));
 	}
 
-	public static void addMultiplier(Multiplier multiplier, List<? super Multiplier> mults) {
+	public static void addMultiplier(Multiplier multiplier, Collection<? super Multiplier> mults) {
 		if (!expired(multiplier))
 			mults.add(multiplier);
 	}
@@ -0,0 +1,370 @@
+package gartham.c10ver.economy;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * A collection of stackable {@link Multiplier}s, kept in a min-heap ordered by
+ * {@link Multiplier#getExpiration() expiration}, that caches the sum of its
+ * multipliers. Each stack in the heap keeps track of its position, so a stack
+ * can be moved or removed in logarithmic time rather than being searched for.
+ * The cached sum stays valid until the next multiplier is added or the earliest
+ * one expires, so {@link #getTotal()} usually only has to compare the current
+ * time against a single expiration, no matter how many multipliers are
+ * stacked.
+ * </p>
+ * <p>
+ * Multipliers with the same amount that expire within the same second are
+ * merged into a single {@link Multiplier#getCount() stack}, which keeps the
+ * earlier of the two expirations. Adding a multiplier that can be merged into
+ * one that is already in the set changes that multiplier's count instead of
+ * adding a new entry, so stacking thousands of identical multipliers (e.g.
+ * eating thousands of the same food at once) costs a single entry, both in
+ * memory and in the saved file.
+ * </p>
+ * <p>
+ * Expired multipliers are removed the next time the collection is queried after
+ * they expire (by {@link #getTotal()}, {@link #list()} or {@link #clean()}).
+ * Each multiplier removed that way is passed to the collection's
+ * {@link #addExpiryListener(Consumer) expiry listeners}, after the collection
+ * has been updated.
+ * </p>
+ * <p>
+ * Iterating over a {@link MultiplierSet} iterates over a snapshot of it, in no
+ * particular order, and includes expired multipliers that haven't been removed
+ * yet.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class MultiplierSet extends AbstractCollection<Multiplier> {
+
+	private static final Comparator<Multiplier> BY_EXPIRATION = Comparator.comparing(Multiplier::getExpiration);
+
+	/**
+	 * Identifies the multipliers that can be merged into one stack: those with the
+	 * same amount and expiration second.
+	 */
+	private static final class StackKey {
+		private final BigDecimal amount;
+		private final long second;
+
+		private StackKey(Multiplier m) {
+			amount = m.getAmount();
+			second = m.getExpiration().getEpochSecond();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof StackKey && ((StackKey) obj).second == second
+					&& ((StackKey) obj).amount.equals(amount);
+		}
+
+		@Override
+		public int hashCode() {
+			return amount.hashCode() * 31 + Long.hashCode(second);
+		}
+	}
+
+	/**
+	 * A stack in the heap, along with its index in the heap.
+	 */
+	private static final class Node {
+		private Multiplier multiplier;
+		private int index;
+
+		private Node(Multiplier multiplier) {
+			this.multiplier = multiplier;
+		}
+	}
+
+	private final ArrayList<Node> heap = new ArrayList<>();
+	private final Map<StackKey, Node> stacks = new HashMap<>();
+	private final List<Consumer<? super Multiplier>> expiryListeners = new CopyOnWriteArrayList<>();
+	/**
+	 * The sum of the multipliers in the heap.
+	 */
+	private volatile BigDecimal total = BigDecimal.ZERO;
+	/**
+	 * The epoch millisecond before which none of the multipliers in the heap have
+	 * expired. {@link Long#MAX_VALUE} if the heap is empty.
+	 */
+	private volatile long validUntil = Long.MAX_VALUE;
+
+	public MultiplierSet() {
+	}
+
+	private void updateValidity() {
+		validUntil = heap.isEmpty() ? Long.MAX_VALUE : heap.get(0).multiplier.getExpiration().toEpochMilli();
+	}
+
+	private static boolean expiresBefore(Node a, Node b) {
+		return a.multiplier.getExpiration().isBefore(b.multiplier.getExpiration());
+	}
+
+	private void place(Node n, int index) {
+		heap.set(index, n);
+		n.index = index;
+	}
+
+	private void siftUp(Node n) {
+		int i = n.index;
+		while (i > 0) {
+			var parent = heap.get((i - 1) >>> 1);
+			if (!expiresBefore(n, parent))
+				break;
+			place(parent, i);
+			i = (i - 1) >>> 1;
+		}
+		place(n, i);
+	}
+
+	private void siftDown(Node n) {
+		int i = n.index, size = heap.size();
+		for (int c; (c = 2 * i + 1) < size; i = c) {
+			if (c + 1 < size && expiresBefore(heap.get(c + 1), heap.get(c)))
+				c++;
+			if (!expiresBefore(heap.get(c), n))
+				break;
+			place(heap.get(c), i);
+		}
+		place(n, i);
+	}
+
+	private void offer(Node n) {
+		n.index = heap.size();
+		heap.add(n);
+		siftUp(n);
+	}
+
+	/**
+	 * Removes the specified node from the heap and from {@link #stacks}, and takes
+	 * its multiplier out of the total.
+	 */
+	private void unlink(Node n) {
+		var last = heap.remove(heap.size() - 1);
+		if (last != n) {
+			place(last, n.index);
+			siftDown(last);
+			siftUp(last);
+		}
+		stacks.remove(new StackKey(n.multiplier), n);
+		total = total.subtract(n.multiplier.getTotalAmount());
+	}
+
+	/**
+	 * Adds the specified multiplier, or merges it with a stack of identical
+	 * multipliers that is already in this set. When merging, only one of the two
+	 * {@link Multiplier} objects is kept.
+	 */
+	@Override
+	public synchronized boolean add(Multiplier m) {
+		// Taken before merging, since merging into m changes its total.
+		var added = m.getTotalAmount();
+		var key = new StackKey(m);
+		var existing = stacks.get(key);
+		if (existing == null) {
+			var n = new Node(m);
+			stacks.put(key, n);
+			offer(n);
+		} else if (m.getExpiration().isBefore(existing.multiplier.getExpiration())) {
+			// Keep the earlier expiration, which can only move the stack up the heap.
+			m.stack(existing.multiplier.getCount());
+			existing.multiplier = m;
+			siftUp(existing);
+		} else
+			existing.multiplier.stack(m.getCount());
+		total = total.add(added);
+		updateValidity();
+		return true;
+	}
+
+	/**
+	 * Returns the stack in this set that the specified multiplier is (or would be)
+	 * merged into.
+	 *
+	 * @param m The multiplier.
+	 * @return The stack, or <code>null</code> if there is none.
+	 */
+	public synchronized Multiplier getStack(Multiplier m) {
+		var n = stacks.get(new StackKey(m));
+		return n == null ? null : n.multiplier;
+	}
+
+	/**
+	 * Puts the specified stack into this set, replacing the stack that it would be
+	 * merged into, if there is one, rather than merging with it. Putting the same
+	 * stack twice therefore has the same effect as putting it once.
+	 *
+	 * @param stack The stack.
+	 */
+	public synchronized void put(Multiplier stack) {
+		var key = new StackKey(stack);
+		var n = stacks.get(key);
+		if (n == null) {
+			stacks.put(key, n = new Node(stack));
+			offer(n);
+			total = total.add(stack.getTotalAmount());
+		} else {
+			total = total.subtract(n.multiplier.getTotalAmount()).add(stack.getTotalAmount());
+			n.multiplier = stack;
+			siftUp(n);
+			siftDown(n);
+		}
+		updateValidity();
+	}
+
+	@Override
+	public synchronized boolean remove(Object o) {
+		if (!(o instanceof Multiplier))
+			return false;
+		var n = stacks.get(new StackKey((Multiplier) o));
+		if (n == null || n.multiplier != o)
+			return false;
+		unlink(n);
+		updateValidity();
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+		heap.clear();
+		stacks.clear();
+		total = BigDecimal.ZERO;
+		updateValidity();
+	}
+
+	private ArrayList<Multiplier> multipliers() {
+		var l = new ArrayList<Multiplier>(heap.size());
+		for (var n : heap)
+			l.add(n.multiplier);
+		return l;
+	}
+
+	/**
+	 * Returns the number of stacks in this set.
+	 */
+	@Override
+	public synchronized int size() {
+		return heap.size();
+	}
+
+	@Override
+	public Iterator<Multiplier> iterator() {
+		Iterator<Multiplier> snapshot;
+		synchronized (this) {
+			snapshot = multipliers().iterator();
+		}
+		return new Iterator<>() {
+			private Multiplier last;
+
+			@Override
+			public boolean hasNext() {
+				return snapshot.hasNext();
+			}
+
+			@Override
+			public Multiplier next() {
+				return last = snapshot.next();
+			}
+
+			@Override
+			public void remove() {
+				if (last == null)
+					throw new IllegalStateException();
+				MultiplierSet.this.remove(last);
+				last = null;
+			}
+		};
+	}
+
+	/**
+	 * Removes the multipliers that have expired and notifies the expiry listeners
+	 * of them.
+	 */
+	public void clean() {
+		if (System.currentTimeMillis() < validUntil)
+			return;
+		List<Multiplier> expired = new ArrayList<>(1);
+		synchronized (this) {
+			Instant now = Instant.now();
+			while (!heap.isEmpty() && now.isAfter(heap.get(0).multiplier.getExpiration())) {
+				var n = heap.get(0);
+				unlink(n);
+				expired.add(n.multiplier);
+			}
+			if (expired.isEmpty())
+				return;
+			updateValidity();
+		}
+		for (var m : expired)
+			for (var l : expiryListeners)
+				try {
+					l.accept(m);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+	}
+
+	/**
+	 * Returns the sum of the multipliers that haven't expired.
+	 *
+	 * @return The sum of the active multipliers.
+	 */
+	public BigDecimal getTotal() {
+		clean();
+		return total;
+	}
+
+	/**
+	 * Returns the time at which the next multiplier expires.
+	 *
+	 * @return The earliest expiration, or <code>null</code> if there are no
+	 *         multipliers.
+	 */
+	public synchronized Instant getNextExpiration() {
+		return heap.isEmpty() ? null : heap.get(0).multiplier.getExpiration();
+	}
+
+	/**
+	 * Returns a modifiable list of the multipliers that haven't expired, soonest
+	 * to expire first. Modifying the list does not affect this collection.
+	 *
+	 * @return The active multipliers.
+	 */
+	public ArrayList<Multiplier> list() {
+		clean();
+		ArrayList<Multiplier> l;
+		synchronized (this) {
+			l = multipliers();
+		}
+		l.sort(BY_EXPIRATION);
+		return l;
+	}
+
+	/**
+	 * Registers a listener that is given each multiplier that is removed from this
+	 * collection because it expired.
+	 *
+	 * @param listener The listener.
+	 */
+	public void addExpiryListener(Consumer<? super Multiplier> listener) {
+		expiryListeners.add(listener);
+	}
+
+	public void removeExpiryListener(Consumer<? super Multiplier> listener) {
+		expiryListeners.remove(listener);
+	}
+
+}
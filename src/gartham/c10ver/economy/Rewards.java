@@ -2,9 +2,7 @@ package gartham.c10ver.economy;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -88,9 +86,13 @@ public class Rewards {
 		multipliers = mults == null || mults.isEmpty() ? null : JavaTools.frequencyMap(mults);
 	}
 
-	private Rewards(Inventory inventory, BigInteger cloves, Map<AbstractMultiplier, Integer> mults) {
+	/**
+	 * Takes ownership of the provided {@link Inventory} and multiplier map, without
+	 * copying them. Used by {@link RewardsBuilder#build()}.
+	 */
+	Rewards(Inventory inventory, BigInteger cloves, Map<AbstractMultiplier, Integer> mults) {
 		items = inventory == null || inventory.getEntryCount() == 0 ? null : inventory;
-		this.cloves = cloves == null ? BigInteger.ZERO : cloves;
+		this.cloves = cloves == null || cloves.signum() == 0 ? null : cloves;
 		multipliers = mults == null || mults.isEmpty() ? null : mults;
 	}
 
@@ -135,30 +137,34 @@ public class Rewards {
 		return cloves == null ? BigInteger.ZERO : cloves;
 	}
 
-	private static <K> void arithmeticAdd(Map<? super K, Integer> first, Map<? extends K, Integer> second) {
-		for (var e : second.entrySet())
-			first.put(e.getKey(), first.containsKey(e.getKey()) ? first.get(e.getKey()) + e.getValue() : e.getValue());
+	/**
+	 * Returns this {@link Rewards}' items, or <code>null</code> if it has none. The
+	 * returned {@link Inventory} must not be modified.
+	 */
+	Inventory getInventory() {
+		return items;
 	}
 
 	public static Rewards combine(Rewards... others) {
-		Inventory res = new Inventory();
-		Map<AbstractMultiplier, Integer> mults = new HashMap<>();
-		BigInteger cloves = BigInteger.ZERO;
-		for (var r : others) {
-			if (r.hasItems())
-				r.items.putInto(res);
-			if (r.hasMultipliers())
-				arithmeticAdd(mults, r.multipliers);
-			if (r.hasCloves())
-				cloves = cloves.add(r.cloves);
-		}
-		return new Rewards(res, cloves, mults);
+		var b = new RewardsBuilder();
+		for (var r : others)
+			b.add(r);
+		return b.build();
 	}
 
+	/**
+	 * Returns a new {@link Rewards} containing this {@link Rewards} and the others.
+	 * This copies everything in all of them, so to merge many {@link Rewards}, add
+	 * them to a {@link RewardsBuilder} instead.
+	 *
+	 * @param others The {@link Rewards} to merge with this one.
+	 * @return The merged {@link Rewards}.
+	 */
 	public Rewards with(Rewards... others) {
-		var arr = Arrays.copyOf(others, others.length + 1);
-		arr[arr.length - 1] = this;
-		return combine(arr);
+		var b = new RewardsBuilder().add(this);
+		for (var r : others)
+			b.add(r);
+		return b.build();
 	}
 
 }
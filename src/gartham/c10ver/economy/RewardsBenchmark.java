@@ -0,0 +1,108 @@
+package gartham.c10ver.economy;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import gartham.c10ver.economy.items.ItemBunch;
+import gartham.c10ver.economy.items.utility.crates.DailyCrate;
+import gartham.c10ver.economy.items.utility.crates.WeeklyCrate;
+import gartham.c10ver.economy.items.utility.foodstuffs.Sandwich;
+
+/**
+ * <p>
+ * Measures the allocation and time per merged {@link Rewards} of the two ways
+ * of merging rewards: chaining {@link Rewards#with(Rewards...)} (each call
+ * copies everything merged so far), and adding to one {@link RewardsBuilder}
+ * that is {@link RewardsBuilder#build() built} at the end. The rewards being
+ * merged look like crate loot: cloves, one or two kinds of items, and
+ * occasionally a multiplier.
+ * </p>
+ *
+ * <pre>
+ * RewardsBenchmark [merges=1000] [rounds=20]
+ * </pre>
+ * <p>
+ * Allocation is read from the JVM's per-thread allocation counter, so it needs a
+ * HotSpot-based JVM.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class RewardsBenchmark {
+
+	private RewardsBenchmark() {
+	}
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private static List<Rewards> sample(int count, Random r) {
+		List<Rewards> rewards = new ArrayList<>(count);
+		AbstractMultiplier mult = AbstractMultiplier.ofHr(1, BigDecimal.valueOf(5, 2));
+		for (int i = 0; i < count; i++) {
+			List<ItemBunch<?>> items = new ArrayList<>(2);
+			items.add(new ItemBunch<>(new Sandwich(), r.nextInt(3) + 1));
+			if (r.nextBoolean())
+				items.add(new ItemBunch<>(r.nextInt(10) == 0 ? new WeeklyCrate() : new DailyCrate()));
+			rewards.add(r.nextInt(20) == 0 ? new Rewards(items, BigInteger.valueOf(r.nextInt(250) + 100), mult)
+					: new Rewards(items, BigInteger.valueOf(r.nextInt(250) + 100)));
+		}
+		return rewards;
+	}
+
+	private static Rewards chained(List<Rewards> rewards) {
+		var res = new Rewards();
+		for (var r : rewards)
+			res = res.with(r);
+		return res;
+	}
+
+	private static Rewards built(List<Rewards> rewards) {
+		var b = new RewardsBuilder();
+		for (var r : rewards)
+			b.add(r);
+		return b.build();
+	}
+
+	private interface Merger {
+		Rewards merge(List<Rewards> rewards);
+	}
+
+	private static void run(String name, Merger merger, List<Rewards> rewards, int rounds) {
+		// Warm up, so that the measured rounds run compiled code.
+		for (int i = 0; i < Math.max(3, rounds / 4); i++)
+			merger.merge(rewards);
+
+		long thread = Thread.currentThread().getId(), bytes = THREADS.getThreadAllocatedBytes(thread),
+				start = System.nanoTime();
+		BigInteger check = BigInteger.ZERO;
+		for (int i = 0; i < rounds; i++)
+			check = check.add(merger.merge(rewards).getCloves());
+		long time = System.nanoTime() - start;
+		bytes = THREADS.getThreadAllocatedBytes(thread) - bytes;
+
+		long merges = (long) rounds * rewards.size();
+		System.out.printf("%s: %,d bytes/merge, %,d ns/merge (checksum %s)%n", name, bytes / merges,
+				time / merges, check);
+	}
+
+	public static void main(String[] args) {
+		int merges = 1000, rounds = 20;
+		for (var a : args)
+			if (a.startsWith("merges="))
+				merges = Integer.parseInt(a.substring(7));
+			else if (a.startsWith("rounds="))
+				rounds = Integer.parseInt(a.substring(7));
+
+		var rewards = sample(merges, new Random(1));
+		System.out.printf("Merging %,d rewards, %,d rounds each.%n", merges, rounds);
+		run("Rewards.with chain", RewardsBenchmark::chained, rewards, rounds);
+		run("RewardsBuilder    ", RewardsBenchmark::built, rewards, rounds);
+	}
+
+}
@@ -0,0 +1,122 @@
+package gartham.c10ver.economy;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import gartham.c10ver.economy.items.Inventory;
+import gartham.c10ver.economy.items.Item;
+import gartham.c10ver.economy.items.ItemBunch;
+
+/**
+ * <p>
+ * Accumulates cloves, items and multipliers in place, and then {@link #build()
+ * freezes} them into a {@link Rewards}. Merging many rewards through a
+ * {@link RewardsBuilder} costs one addition per item stack and multiplier,
+ * whereas chaining {@link Rewards#with(Rewards...)} copies everything collected
+ * so far on every call.
+ * </p>
+ * <p>
+ * A {@link RewardsBuilder} can be reused: {@link #build()} hands what has been
+ * accumulated over to the {@link Rewards} it returns and leaves the builder
+ * empty. {@link RewardsBuilder}s are not thread-safe.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class RewardsBuilder {
+	private Inventory items;
+	private Map<AbstractMultiplier, Integer> multipliers;
+	private BigInteger cloves = BigInteger.ZERO;
+
+	public RewardsBuilder addCloves(long amount) {
+		return amount == 0 ? this : addCloves(BigInteger.valueOf(amount));
+	}
+
+	public RewardsBuilder addCloves(BigInteger amount) {
+		if (amount != null)
+			cloves = cloves.add(amount);
+		return this;
+	}
+
+	/**
+	 * Adds <code>count</code> of the specified {@link Item}. Does nothing if
+	 * <code>count</code> is zero.
+	 *
+	 * @param item  The {@link Item}.
+	 * @param count The number of that {@link Item} to add.
+	 * @return This {@link RewardsBuilder}.
+	 */
+	public RewardsBuilder add(Item item, long count) {
+		return count == 0 ? this : add(item, BigInteger.valueOf(count));
+	}
+
+	public RewardsBuilder add(Item item, BigInteger count) {
+		if (count.signum() != 0) {
+			if (items == null)
+				items = new Inventory();
+			items.add(item, count);
+		}
+		return this;
+	}
+
+	public RewardsBuilder add(ItemBunch<?> items) {
+		return add(items.getItem(), items.getCount());
+	}
+
+	public RewardsBuilder add(AbstractMultiplier multiplier) {
+		return add(multiplier, 1);
+	}
+
+	public RewardsBuilder add(AbstractMultiplier multiplier, int count) {
+		if (count != 0) {
+			if (multipliers == null)
+				multipliers = new HashMap<>();
+			multipliers.merge(multiplier, count, Integer::sum);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds everything in the specified {@link Rewards} to this builder.
+	 *
+	 * @param rewards The {@link Rewards} to add.
+	 * @return This {@link RewardsBuilder}.
+	 */
+	public RewardsBuilder add(Rewards rewards) {
+		if (rewards.hasItems())
+			for (var e : rewards.getInventory())
+				for (var is : e)
+					add(is.getItem(), is.getCount());
+		if (rewards.hasMultipliers())
+			for (var e : rewards.getMultipliers().entrySet())
+				add(e.getKey(), e.getValue());
+		if (rewards.hasCloves())
+			addCloves(rewards.getCloves());
+		return this;
+	}
+
+	public boolean isEmpty() {
+		return items == null && multipliers == null && cloves.signum() == 0;
+	}
+
+	/**
+	 * Returns a {@link Rewards} containing everything added to this builder, and
+	 * empties the builder.
+	 *
+	 * @return The {@link Rewards}.
+	 */
+	public Rewards build() {
+		var r = new Rewards(items, cloves, multipliers);
+		clear();
+		return r;
+	}
+
+	public void clear() {
+		items = null;
+		multipliers = null;
+		cloves = BigInteger.ZERO;
+	}
+
+}
@@ -2,7 +2,6 @@ package gartham.c10ver.economy;
 
 import java.io.File;
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -23,8 +22,8 @@ public class Server extends SavablePropertyObject {
 			privateChannelCategory = stringProperty("private-channel-category"),
 			loggingChannel = stringProperty("logging-channel");
 	private final Property<String> voteRole = stringProperty("vote-role");
-	private final Property<ArrayList<Multiplier>> multipliers = listProperty("multipliers",
-			toObjectGateway(Multiplier::new));
+	private final Property<MultiplierSet> multipliers = listProperty("multipliers", Multiplier::toJSON,
+			MultiplierSet::new, Multiplier::new);
 	private final String serverID;
 
 	public String getServerID() {
@@ -62,6 +61,10 @@ public class Server extends SavablePropertyObject {
 		MultiplierManager.addMultiplier(multiplier, multipliers.get());
 	}
 
+	public MultiplierSet getMultiplierSet() {
+		return multipliers.get();
+	}
+
 	public Map<String, ColorRole> getColorRoles() {
 		return colorRoles.get();
 	}
@@ -132,7 +135,7 @@ public class Server extends SavablePropertyObject {
 		if (load)
 			load();
 		if (multipliers.get() == null)
-			multipliers.set(new ArrayList<>());
+			multipliers.set(new MultiplierSet());
 	}
 
 	public String getPCCategory() {
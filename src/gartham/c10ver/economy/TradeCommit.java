@@ -0,0 +1,235 @@
+package gartham.c10ver.economy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.alixia.javalibrary.json.JSONArray;
+
+import gartham.c10ver.economy.items.Item;
+import gartham.c10ver.economy.items.UserInventory.UserEntry;
+import gartham.c10ver.economy.users.User;
+
+/**
+ * <p>
+ * A set of transfers of cloves and items between any number of users that is
+ * validated and applied as a single unit. Committing a {@link TradeCommit}:
+ * </p>
+ * <ol>
+ * <li>locks every user involved, in the {@link Economy#atomically(Runnable, String...)
+ * canonical order},</li>
+ * <li>checks that every user has all of the cloves and items that they are
+ * giving away (in total, across every transfer), and stops without changing
+ * anything if one doesn't,</li>
+ * <li>applies every transfer and saves everything it touched, inside one
+ * {@link gartham.c10ver.economy.journal.EconomyJournal#batch(java.util.function.Supplier)
+ * journal batch}, so that the whole trade reaches the journal as a single record,
+ * and</li>
+ * <li>if anything fails while applying, restores every balance and inventory
+ * entry that was touched to its state from before the commit, discards the
+ * batch, and rethrows.</li>
+ * </ol>
+ * <p>
+ * A {@link TradeCommit} can only be committed once.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class TradeCommit {
+
+	public enum Result {
+		COMMITTED, NOT_ENOUGH_CLOVES, NOT_ENOUGH_ITEMS;
+	}
+
+	private static final class ItemTransfer {
+		private final User from, to;
+		private final Item item;
+		private final BigInteger count;
+
+		private ItemTransfer(User from, User to, Item item, BigInteger count) {
+			this.from = from;
+			this.to = to;
+			this.item = item;
+			this.count = count;
+		}
+	}
+
+	private final Economy economy;
+	/**
+	 * Every user involved, by ID, in the order they were first mentioned.
+	 */
+	private final Map<String, User> users = new LinkedHashMap<>();
+	private final Map<User, BigInteger> clovesOut = new HashMap<>(), clovesIn = new HashMap<>();
+	private final List<ItemTransfer> items = new ArrayList<>();
+	private boolean committed;
+
+	public TradeCommit(Economy economy) {
+		this.economy = economy;
+	}
+
+	private void involve(User user) {
+		if (committed)
+			throw new IllegalStateException("This trade has already been committed.");
+		users.put(user.getUserID(), user);
+	}
+
+	/**
+	 * Adds a transfer of cloves to this trade.
+	 *
+	 * @param from   The user paying.
+	 * @param to     The user being paid.
+	 * @param cloves The amount. Must not be negative.
+	 * @return This {@link TradeCommit}.
+	 */
+	public TradeCommit pay(User from, User to, BigInteger cloves) {
+		if (cloves.signum() < 0)
+			throw new IllegalArgumentException("Cannot trade a negative amount of cloves.");
+		involve(from);
+		involve(to);
+		if (cloves.signum() != 0) {
+			clovesOut.merge(from, cloves, BigInteger::add);
+			clovesIn.merge(to, cloves, BigInteger::add);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a transfer of items to this trade.
+	 *
+	 * @param from  The user giving the items.
+	 * @param to    The user receiving them.
+	 * @param item  The item.
+	 * @param count The number of the item. Must not be negative.
+	 * @return This {@link TradeCommit}.
+	 */
+	public TradeCommit give(User from, User to, Item item, BigInteger count) {
+		if (count.signum() < 0)
+			throw new IllegalArgumentException("Cannot trade a negative number of items.");
+		involve(from);
+		involve(to);
+		if (count.signum() != 0)
+			items.add(new ItemTransfer(from, to, item, count));
+		return this;
+	}
+
+	/**
+	 * Validates and applies this trade. See the {@link TradeCommit class
+	 * documentation} for details.
+	 *
+	 * @return {@link Result#COMMITTED} if the trade was applied, or the reason it
+	 *         wasn't.
+	 * @throws RuntimeException If applying the trade failed. The trade will have
+	 *                          been rolled back.
+	 */
+	public Result commit() throws RuntimeException {
+		if (committed)
+			throw new IllegalStateException("This trade has already been committed.");
+		return economy.atomically(() -> {
+			var res = validate();
+			if (res != Result.COMMITTED)
+				return res;
+			var j = economy.getJournal();
+			if (j == null)
+				apply();
+			else
+				j.batch(() -> {
+					apply();
+					return null;
+				});
+			committed = true;
+			return res;
+		}, users.keySet().toArray(new String[users.size()]));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static UserEntry<Item>.UserItemStack stackOf(User user, Item item) {
+		var entry = (UserEntry<Item>) user.getInventory().get(item);
+		return entry == null ? null : entry.get(item);
+	}
+
+	private Result validate() {
+		for (var e : clovesOut.entrySet())
+			if (e.getKey().getAccount().getBalanceValue().compareTo(e.getValue()) < 0)
+				return Result.NOT_ENOUGH_CLOVES;
+		// Items are counted per stack, since that's what they're removed from.
+		Map<Object, BigInteger> needed = new IdentityHashMap<>();
+		for (var t : items) {
+			var stack = stackOf(t.from, t.item);
+			if (stack == null || stack.getCount().compareTo(needed.merge(stack, t.count, BigInteger::add)) < 0)
+				return Result.NOT_ENOUGH_ITEMS;
+		}
+		return Result.COMMITTED;
+	}
+
+	/**
+	 * The state of an inventory entry from before the commit, for rollback.
+	 */
+	private static final class EntrySnapshot {
+		private final User user;
+		private final String type;
+		/**
+		 * The entry's stacks, or <code>null</code> if the user had no such entry.
+		 */
+		private final JSONArray stacks;
+
+		private EntrySnapshot(User user, String type) {
+			this.user = user;
+			this.type = type;
+			var e = user.getInventory().get(type);
+			stacks = e == null ? null : e.toJSON();
+		}
+	}
+
+	private void apply() {
+		Map<User, BigInteger> balances = new HashMap<>();
+		for (var u : users.values())
+			balances.put(u, u.getAccount().getBalance());
+		List<EntrySnapshot> entries = new ArrayList<>();
+		Set<String> snapshotted = new LinkedHashSet<>();
+		for (var t : items)
+			for (var u : new User[] { t.from, t.to })
+				if (snapshotted.add(u.getUserID() + '/' + t.item.getItemType()))
+					entries.add(new EntrySnapshot(u, t.item.getItemType()));
+
+		try {
+			for (var e : clovesOut.entrySet())
+				if (!e.getKey().getAccount().withdraw(e.getValue()))
+					throw new IllegalStateException("A validated withdrawal failed.");
+			for (var e : clovesIn.entrySet())
+				e.getKey().getAccount().deposit(e.getValue());
+			for (var t : items) {
+				if (!t.from.getInventory().remove(t.item, t.count))
+					throw new IllegalStateException("A validated item removal failed.");
+				t.to.getInventory().add(t.item, t.count);
+			}
+
+			for (var u : users.values())
+				u.getAccount().save();
+			for (var s : entries) {
+				var e = s.user.getInventory().get(s.type);
+				if (e != null)
+					e.save();
+			}
+		} catch (RuntimeException | Error e) {
+			try {
+				for (var b : balances.entrySet())
+					b.getKey().getAccount().setBalance(b.getValue());
+				for (var s : entries)
+					s.user.getInventory().restore(s.type, s.stacks);
+				for (var u : users.values())
+					u.getAccount().save();
+			} catch (RuntimeException | Error e2) {
+				e.addSuppressed(e2);
+			}
+			throw e;
+		}
+	}
+
+}
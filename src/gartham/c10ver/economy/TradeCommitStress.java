@@ -0,0 +1,163 @@
+package gartham.c10ver.economy;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import gartham.c10ver.economy.items.Item;
+import gartham.c10ver.economy.items.utility.crates.DailyCrate;
+import gartham.c10ver.economy.items.utility.foodstuffs.Sandwich;
+import gartham.c10ver.economy.users.User;
+
+/**
+ * <p>
+ * Runs many overlapping {@link TradeCommit}s between a small set of users from
+ * several threads at once, and then checks that the total number of cloves and
+ * items in the economy is what it was before (trades only move things around),
+ * both in memory and after reloading the economy from disk. Trades involve two
+ * to four users, each of whom gives cloves and items to the next, and are
+ * sized so that a fair number of them fail validation.
+ * </p>
+ *
+ * <pre>
+ * TradeCommitStress [trades=5000] [threads=8] [users=12] [dir=&lt;temp dir&gt;]
+ * </pre>
+ * <p>
+ * Exits with status <code>1</code> if anything wasn't conserved, or if the
+ * trades didn't finish within a minute (which would mean a deadlock).
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class TradeCommitStress {
+
+	private TradeCommitStress() {
+	}
+
+	private static final List<Supplier<Item>> ITEMS = List.of(Sandwich::new, DailyCrate::new);
+	private static final BigInteger STARTING_CLOVES = BigInteger.valueOf(10_000),
+			STARTING_ITEMS = BigInteger.valueOf(100);// Added to whatever the user already has.
+
+	private static BigInteger[] totals(Economy economy, List<String> users) {
+		BigInteger[] totals = new BigInteger[ITEMS.size() + 1];
+		Arrays.fill(totals, BigInteger.ZERO);
+		for (var id : users) {
+			var u = economy.getUser(id);
+			totals[0] = totals[0].add(u.getAccount().getBalance());
+			for (int i = 0; i < ITEMS.size(); i++) {
+				var e = u.getInventory().get(ITEMS.get(i).get());
+				if (e != null)
+					totals[i + 1] = totals[i + 1].add(e.getTotalCount());
+			}
+		}
+		return totals;
+	}
+
+	private static boolean check(String when, BigInteger[] expected, BigInteger[] actual) {
+		boolean ok = true;
+		for (int i = 0; i < expected.length; i++)
+			if (!expected[i].equals(actual[i])) {
+				System.err.println(when + ": " + (i == 0 ? "cloves" : ITEMS.get(i - 1).get().getItemType())
+						+ " not conserved. Expected " + expected[i] + ", found " + actual[i] + '.');
+				ok = false;
+			}
+		if (ok)
+			System.out.println(when + ": everything conserved.");
+		return ok;
+	}
+
+	private static TradeCommit randomTrade(Economy economy, List<String> users, Random r) {
+		List<User> party = new ArrayList<>();
+		for (int n = r.nextInt(3) + 2; party.size() < n;) {
+			var u = economy.getUser(users.get(r.nextInt(users.size())));
+			if (!party.contains(u))
+				party.add(u);
+		}
+		var trade = new TradeCommit(economy);
+		for (int i = 0; i < party.size(); i++) {
+			User from = party.get(i), to = party.get((i + 1) % party.size());
+			trade.pay(from, to, BigInteger.valueOf(r.nextInt(2_500)));
+			if (r.nextBoolean())
+				trade.give(from, to, ITEMS.get(r.nextInt(ITEMS.size())).get(), BigInteger.valueOf(r.nextInt(40) + 1));
+		}
+		return trade;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int trades = 5000, threads = 8, userCount = 12;
+		File dir = null;
+		for (var a : args)
+			if (a.startsWith("trades="))
+				trades = Integer.parseInt(a.substring(7));
+			else if (a.startsWith("threads="))
+				threads = Integer.parseInt(a.substring(8));
+			else if (a.startsWith("users="))
+				userCount = Integer.parseInt(a.substring(6));
+			else if (a.startsWith("dir="))
+				dir = new File(a.substring(4));
+		if (dir == null)
+			dir = Files.createTempDirectory("trade-stress").toFile();
+		System.out.println("Economy directory: " + dir);
+
+		var economy = new Economy(dir, null);
+		List<String> users = new ArrayList<>();
+		for (int i = 0; i < userCount; i++) {
+			String id = "stress-" + i;
+			users.add(id);
+			var u = economy.getUser(id);
+			u.getAccount().setBalance(STARTING_CLOVES);
+			u.getAccount().save();
+			for (var item : ITEMS)
+				u.getInventory().add(item.get(), STARTING_ITEMS).save();
+		}
+		var expected = totals(economy, users);
+
+		Map<TradeCommit.Result, AtomicInteger> results = new EnumMap<>(TradeCommit.Result.class);
+		for (var res : TradeCommit.Result.values())
+			results.put(res, new AtomicInteger());
+		AtomicInteger failures = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		for (int i = 0; i < trades; i++) {
+			var r = new Random(i);
+			pool.execute(() -> {
+				try {
+					results.get(randomTrade(economy, users, r).commit()).incrementAndGet();
+				} catch (RuntimeException e) {
+					failures.incrementAndGet();
+					e.printStackTrace();
+				}
+			});
+		}
+		pool.shutdown();
+		if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+			System.err.println("The trades did not finish within a minute; they are probably deadlocked.");
+			System.exit(1);
+		}
+		long time = System.nanoTime() - start;
+
+		System.out.printf("%,d trades on %d threads in %,d ms: %s, %d threw.%n", trades, threads,
+				TimeUnit.NANOSECONDS.toMillis(time), results, failures.get());
+		boolean ok = check("In memory", expected, totals(economy, users));
+
+		economy.getJournal().close();
+		var reloaded = new Economy(dir, null);
+		ok &= check("After reloading", expected, totals(reloaded, users));
+		reloaded.getJournal().close();
+		System.exit(ok ? 0 : 1);
+	}
+
+}
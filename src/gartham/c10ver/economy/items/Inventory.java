@@ -15,10 +15,12 @@ import java.util.Set;
 import org.alixia.javalibrary.JavaTools;
 import org.alixia.javalibrary.json.JSONArray;
 import org.alixia.javalibrary.json.JSONObject;
+import org.alixia.javalibrary.json.JSONValue;
 
 import gartham.c10ver.data.PropertyObject;
 import gartham.c10ver.economy.items.Inventory.Entry;
 import gartham.c10ver.economy.items.Inventory.Entry.ItemStack;
+import gartham.c10ver.utils.HybridInteger;
 import gartham.c10ver.utils.Utilities;
 
 /**
@@ -44,12 +46,12 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 	 */
 	public void load(File dir) throws RuntimeException {
 		clear();
-		File[] files = dir.listFiles();
-		if (files != null) {
+		List<String> files = Utilities.getStorage().listFiles(dir);
+		if (!files.isEmpty()) {
 			RuntimeException ex = null;
-			for (File type : files)
+			for (String type : files)
 				try {
-					newEntry(type);
+					newEntry(new File(dir, type));
 				} catch (RuntimeException e) {
 					if (ex == null)
 						ex = e;
@@ -72,6 +74,29 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 		return new Entry<>(item, amount);
 	}
 
+	protected <I extends Item> Entry<I> newEntry(Iterable<? extends JSONValue> stacks) {
+		return new Entry<>(stacks);
+	}
+
+	/**
+	 * Replaces the {@link Entry} for the specified item type with one created from
+	 * the provided stacks (in the same JSON format as an {@link Entry}'s file), or
+	 * simply removes it if <code>stacks</code> is <code>null</code>. This is used
+	 * to restore an entry to a previously recorded state.
+	 * 
+	 * @param type   The item type of the {@link Entry}.
+	 * @param stacks The JSON form of the new {@link Entry}'s stacks.
+	 * @return The new {@link Entry}, or <code>null</code> if the entry was removed.
+	 */
+	public Entry<?> restore(String type, Iterable<? extends JSONValue> stacks) {
+		var e = entries.remove(type);
+		if (e != null) {
+			entryList.remove(e);
+			e.alive = false;
+		}
+		return stacks == null ? null : newEntry(stacks);
+	}
+
 	/**
 	 * Gets a page of entries in this {@link UserInventory}. The number of entries
 	 * per page is specified by the <code>pagesize</code> argument, and the page is
@@ -208,10 +233,10 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 		}
 
 		public BigInteger getTotalCount() {
-			BigInteger bi = BigInteger.ZERO;
+			HybridInteger total = HybridInteger.ZERO;
 			for (ItemStack is : stacks)
-				bi = bi.add(is.count());
-			return bi;
+				total = total.add(is.count.get());
+			return total.toBigInteger();
 		}
 
 		public List<? extends ItemStack> getPage(int page, int pagesize) {
@@ -285,7 +310,7 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 			if (!alive)
 				throw new IllegalStateException("Cannot perform operation while entry is discarded.");
 			var is = get(item);
-			return is != null && is.count().compareTo(amt) >= 0;
+			return is != null && is.count.get().compareTo(amt) >= 0;
 		}
 
 		/**
@@ -309,10 +334,25 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 		}
 
 		protected Entry(File f) {
-			for (var jv : (JSONArray) Utilities.load(f))
+			this((JSONArray) Utilities.load(f), f);
+		}
+
+		/**
+		 * Creates an {@link Entry} from the JSON form of its stacks (the same format
+		 * that an {@link Entry}'s file is in).
+		 * 
+		 * @param stacks The JSON form of each stack.
+		 */
+		protected Entry(Iterable<? extends JSONValue> stacks) {
+			this(stacks, null);
+		}
+
+		private Entry(Iterable<? extends JSONValue> stacks, File f) {
+			for (var jv : stacks)
 				newItemStack((JSONObject) jv);
-			if (stacks.isEmpty())
-				throw new IllegalArgumentException("Invalid file. No stacks found in an entry. File: " + f);
+			if (this.stacks.isEmpty())
+				throw new IllegalArgumentException(
+						f == null ? "No stacks found in an entry." : "Invalid file. No stacks found in an entry. File: " + f);
 			String type = this.stacks.get(0).getType();
 			entries.put(type, this);
 			entryList.add(-Collections.binarySearch(entryList, type, COMPARATOR) - 1, this);
@@ -325,9 +365,13 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 		private Entry() {
 		}
 
+		public JSONArray toJSON() {
+			return new JSONArray(JavaTools.mask(stacks, ItemStack::toJSON));
+		}
+
 		public void save(File file) {
 			if (alive)
-				Utilities.save(new JSONArray(JavaTools.mask(stacks, ItemStack::toJSON)), file);
+				Utilities.save(toJSON(), file);
 		}
 
 		public void saveInto(File inventoryRoot) {
@@ -377,7 +421,7 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 			}
 
 			public BigInteger count() {
-				return count.get();
+				return count.get().toBigInteger();
 			}
 
 			public String getEffectiveName() {
@@ -391,12 +435,12 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 			public ItemStack remove(BigInteger amt) {
 				if (!alive)
 					throw new IllegalStateException("Cannot perform operation while stack is discarded.");
-				if (amt.compareTo(count()) > 0)
+				if (count.get().compareTo(amt) < 0)
 					throw new IllegalArgumentException(
 							"Cannot remove more items from this stack than there are items in this stack.");
 				else
-					count.set(count().subtract(amt));
-				if (count.get().equals(BigInteger.ZERO)) {
+					count.set(count.get().subtract(amt));
+				if (count.get().signum() == 0) {
 					if (stacks.size() == 1 && stacks.contains(this))
 						Entry.this.remove(this);
 					stacks.remove(this);
@@ -411,7 +455,7 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 			}
 
 			protected final Property<I> item = toObjectProperty("item", ItemReifier::reify);
-			protected final Property<BigInteger> count = bigIntegerProperty("count", BigInteger.ONE);
+			protected final Property<HybridInteger> count = hybridIntegerProperty("count", HybridInteger.ONE);
 
 			public void add(BigInteger amount) {
 				if (!alive)
@@ -420,12 +464,14 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 			}
 
 			public void add(long amount) {
-				add(BigInteger.valueOf(amount));
+				if (!alive)
+					throw new IllegalStateException("Cannot perform operation while stack is discarded.");
+				count.set(count.get().add(amount));
 			}
 
 			protected ItemStack(I item, BigInteger amount) {
 				this.item.set(item);
-				count.set(amount);
+				count.set(HybridInteger.valueOf(amount));
 			}
 
 			protected ItemStack(JSONObject json) {
@@ -442,7 +488,7 @@ public class Inventory implements Cloneable, Iterable<Entry<?>> {
 			}
 
 			public BigInteger getCount() {
-				return count.get();
+				return count.get().toBigInteger();
 			}
 
 			@Override
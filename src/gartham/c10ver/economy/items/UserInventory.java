@@ -7,6 +7,12 @@ import java.util.List;
 import java.util.Set;
 
 import org.alixia.javalibrary.json.JSONObject;
+import org.alixia.javalibrary.json.JSONValue;
+
+import gartham.c10ver.data.autosave.WriteBehindSaver;
+import gartham.c10ver.economy.journal.EconomyJournal;
+import gartham.c10ver.economy.users.User;
+import gartham.c10ver.utils.Utilities;
 
 /**
  * A {@link UserInventory} is an {@link Inventory} that has an associated
@@ -19,6 +25,7 @@ import org.alixia.javalibrary.json.JSONObject;
  */
 public class UserInventory extends Inventory {
 	private final File invdir;
+	private final User user;
 
 	@Override
 	public <I extends Item> UserEntry<I> add(I item) {
@@ -91,11 +98,50 @@ public class UserInventory extends Inventory {
 		return new UserEntry<>(item, amount);
 	}
 
+	@Override
+	protected <I extends Item> UserEntry<I> newEntry(Iterable<? extends JSONValue> stacks) {
+		return new UserEntry<>(stacks);
+	}
+
+	/**
+	 * Restores the specified entry (see {@link Inventory#restore(String, Iterable)})
+	 * and then writes it to (or deletes it from) this inventory's directory.
+	 */
+	@Override
+	public UserEntry<?> restore(String type, Iterable<? extends JSONValue> stacks) {
+		var e = get(type);
+		if (e != null)
+			WriteBehindSaver.discard(e);
+		var res = (UserEntry<?>) super.restore(type, stacks);
+		if (res == null)
+			Utilities.getStorage().delete(new File(invdir, type + ".txt"));
+		else
+			res.saveInto(invdir);
+		return res;
+	}
+
 	public UserInventory(File userDir) {
+		this(userDir, null);
+	}
+
+	/**
+	 * Creates a {@link UserInventory} belonging to the specified {@link User}.
+	 * Changes to the inventory's entries are recorded in the {@link User}'s
+	 * economy's {@link EconomyJournal}, if it has one.
+	 * 
+	 * @param userDir The user's directory.
+	 * @param user    The {@link User} that owns this inventory.
+	 */
+	public UserInventory(File userDir, User user) {
+		this.user = user;
 		invdir = new File(userDir, "inventory");
 		load(invdir);
 	}
 
+	private EconomyJournal getJournal() {
+		return user == null ? null : user.getEconomy().getJournal();
+	}
+
 	public void load() {
 		load(invdir);
 	}
@@ -106,15 +152,43 @@ public class UserInventory extends Inventory {
 
 	public class UserEntry<I extends Item> extends Entry<I> {
 
+		/**
+		 * The total item count of this entry as of the last time it was journaled.
+		 */
+		private BigInteger journaled;
+
 		public UserEntry(File f) {
 			super(f);
+			journaled = getTotalCount();
+		}
+
+		public UserEntry(Iterable<? extends JSONValue> stacks) {
+			super(stacks);
+			journaled = getTotalCount();
 		}
 
 		public UserEntry(I item, BigInteger amt) {
 			super(item, amt);
+			journaled = BigInteger.ZERO;
 			save();
 		}
 
+		/**
+		 * Journals the change in this entry's item count since it was last journaled,
+		 * if there is one and there is a journal.
+		 * 
+		 * @return <code>true</code> if a record was journaled.
+		 */
+		private boolean journal(Iterable<? extends JSONValue> stacks) {
+			var j = getJournal();
+			BigInteger count = stacks == null ? BigInteger.ZERO : getTotalCount(), delta = count.subtract(journaled);
+			journaled = count;
+			if (j == null || delta.signum() == 0)
+				return false;
+			j.itemsChanged(user.getUserID(), getType(), delta, stacks);
+			return true;
+		}
+
 		public class UserItemStack extends ItemStack {
 
 			public UserItemStack(I item, BigInteger amount) {
@@ -132,13 +206,37 @@ public class UserInventory extends Inventory {
 			}
 
 			public void save() {
-				saveInto(invdir);
+				UserEntry.this.save();
 			}
 
+			/**
+			 * Removes the specified amount from this stack and saves, while holding the
+			 * user's {@link gartham.c10ver.economy.Economy#getLock(String) economy lock}.
+			 */
 			public void removeAndSave(BigInteger amt) {
-				var is = remove(amt);
-				if (is != null)
-					is.save();
+				user.getEconomy().atomically(() -> {
+					var is = remove(amt);
+					if (is != null)
+						is.save();
+				}, user.getUserID());
+			}
+
+			/**
+			 * Removes the specified amount from this stack and saves, but only if the
+			 * stack {@link #has(BigInteger) has} that many. The check and the removal are
+			 * made under the user's economy lock, so two commands can't both take the
+			 * last of a stack.
+			 *
+			 * @param amt The amount to take.
+			 * @return <code>true</code> if the amount was taken.
+			 */
+			public boolean take(BigInteger amt) {
+				return user.getEconomy().atomically(() -> {
+					if (!alive || !has(amt))
+						return false;
+					removeAndSave(amt);
+					return true;
+				}, user.getUserID());
 			}
 
 		}
@@ -185,23 +283,37 @@ public class UserInventory extends Inventory {
 		public boolean remove(I item, BigInteger amt) {
 			var file = getFile();// Can't be called after removal.
 			boolean res = super.remove(item, amt);
-			if (stacks.isEmpty())
-				file.delete();
+			if (stacks.isEmpty()) {
+				WriteBehindSaver.discard(this);
+				Utilities.getStorage().delete(file);
+			}
 			return res;
 		}
 
 		@Override
 		protected void remove(Entry<I>.ItemStack is) {
 			super.remove(is);
-			getFile().delete();
+			journal(null);
+			WriteBehindSaver.discard(this);
+			Utilities.getStorage().delete(getFile());
 		}
 
 		/**
-		 * Calls {@link Entry#saveInto(File)} with {@link UserInventory#invdir} as the
-		 * argument.
+		 * Saves this entry into {@link UserInventory#invdir}, like
+		 * {@link Entry#saveInto(File)}. The entry is serialized right away, and
+		 * writing it is deferred to the global {@link WriteBehindSaver}, if there is
+		 * one. If this inventory's owner's economy has an
+		 * {@link EconomyJournal}, any change in this entry's item count since it was
+		 * last saved is journaled instead, and the entry is left to be written out
+		 * when the journal is compacted.
 		 */
 		public void save() {
-			super.saveInto(invdir);
+			if (!alive)
+				return;
+			var snapshot = toJSON();
+			// A journaled change is written out when the journal is compacted.
+			if (!journal(snapshot))
+				WriteBehindSaver.save(this, snapshot, getFile());
 		}
 
 	}
@@ -7,8 +7,10 @@ import java.util.List;
 import org.alixia.javalibrary.json.JSONObject;
 
 import gartham.c10ver.economy.Rewards;
+import gartham.c10ver.economy.RewardsBuilder;
 import gartham.c10ver.economy.items.ItemBunch;
 import gartham.c10ver.economy.items.utility.foodstuffs.Sandwich;
+import gartham.c10ver.utils.Sampling;
 
 public class DailyCrate extends LootCrateItem {
 	public static final String ITEM_NAME = "Daily Crate", ITEM_ICON = "<:crate:808762616456675338>",
@@ -40,4 +42,14 @@ public class DailyCrate extends LootCrateItem {
 		return new Rewards(items, cloves);
 	}
 
+	@Override
+	protected void openInto(BigInteger count, RewardsBuilder loot) {
+		var sandwiches = Sampling.binomial(count, 0.05);
+		loot.add(new Sandwich(), sandwiches.add(Sampling.binomial(sandwiches, 0.2)));
+		var dailies = Sampling.binomial(count, 0.3);
+		loot.add(new DailyCrate(), dailies);
+		loot.add(new WeeklyCrate(), Sampling.binomial(count.subtract(dailies), 0.007));
+		loot.addCloves(Sampling.uniformSum(count, 100, 350));
+	}
+
 }
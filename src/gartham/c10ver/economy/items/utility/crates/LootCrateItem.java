@@ -1,8 +1,11 @@
 package gartham.c10ver.economy.items.utility.crates;
 
+import java.math.BigInteger;
+
 import org.alixia.javalibrary.json.JSONObject;
 
 import gartham.c10ver.economy.Rewards;
+import gartham.c10ver.economy.RewardsBuilder;
 import gartham.c10ver.economy.items.Item;
 
 public abstract class LootCrateItem extends Item {
@@ -17,6 +20,38 @@ public abstract class LootCrateItem extends Item {
 
 	public abstract Rewards open();
 
+	/**
+	 * Opens <code>count</code> crates of this type at once, returning their
+	 * combined loot.
+	 *
+	 * @param count The number of crates to open.
+	 * @return The combined {@link Rewards}.
+	 */
+	public Rewards open(BigInteger count) {
+		if (count.signum() <= 0)
+			return new Rewards();
+		if (count.equals(BigInteger.ONE))
+			return open();
+		var loot = new RewardsBuilder();
+		openInto(count, loot);
+		return loot.build();
+	}
+
+	/**
+	 * Adds the combined loot of <code>count</code> crates of this type to the
+	 * specified {@link RewardsBuilder}. By default, this just {@link #open() opens}
+	 * the crates one by one. Crate types override it to draw the total of each of
+	 * their drops directly (see {@link gartham.c10ver.utils.Sampling}), so that
+	 * opening many crates takes about as long as opening one.
+	 *
+	 * @param count The number of crates.
+	 * @param loot  The {@link RewardsBuilder} to add the loot to.
+	 */
+	protected void openInto(BigInteger count, RewardsBuilder loot) {
+		for (var i = BigInteger.ZERO; i.compareTo(count) < 0; i = i.add(BigInteger.ONE))
+			loot.add(open());
+	}
+
 	private Property<String> crateTypeProperty() {
 		return getProperty(CRATE_TYPE_PK);
 	}
@@ -8,9 +8,11 @@ import org.alixia.javalibrary.json.JSONObject;
 
 import gartham.c10ver.economy.AbstractMultiplier;
 import gartham.c10ver.economy.Rewards;
+import gartham.c10ver.economy.RewardsBuilder;
 import gartham.c10ver.economy.items.ItemBunch;
 import gartham.c10ver.economy.items.utility.foodstuffs.Hamburger;
 import gartham.c10ver.economy.items.utility.foodstuffs.Pizza;
+import gartham.c10ver.utils.Sampling;
 
 public class MonthlyCrate extends LootCrateItem {
 
@@ -45,4 +47,13 @@ public class MonthlyCrate extends LootCrateItem {
 		return new Rewards(items, BigInteger.valueOf((long) (Math.random() * 800 + 450)), mults);
 	}
 
+	@Override
+	protected void openInto(BigInteger count, RewardsBuilder loot) {
+		loot.add(new Hamburger(), Sampling.uniformSum(count, 1, 4));
+		loot.add(new Pizza(), Sampling.binomial(count, 0.2));
+		loot.add(new DailyCrate(), Sampling.uniformSum(Sampling.binomial(count, 0.3), 1, 4));
+		loot.add(new MonthlyCrate(), Sampling.binomial(count, 0.4));
+		loot.addCloves(Sampling.uniformSum(count, 450, 1250));
+	}
+
 }
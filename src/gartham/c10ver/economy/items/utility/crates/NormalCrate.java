@@ -7,7 +7,9 @@ import java.util.List;
 import org.alixia.javalibrary.json.JSONObject;
 
 import gartham.c10ver.economy.Rewards;
+import gartham.c10ver.economy.RewardsBuilder;
 import gartham.c10ver.economy.items.ItemBunch;
+import gartham.c10ver.utils.Sampling;
 
 public class NormalCrate extends LootCrateItem {
 	public static final String ITEM_NAME = "Normal Crate", ITEM_ICON = "<:normalcrate:815039013085773825>",
@@ -32,4 +34,9 @@ public class NormalCrate extends LootCrateItem {
 		return new Rewards(items, BigInteger.valueOf((long) (Math.random() * 30 + 10)));
 	}
 
+	@Override
+	protected void openInto(BigInteger count, RewardsBuilder loot) {
+		loot.addCloves(Sampling.uniformSum(count, 10, 40));
+	}
+
 }
@@ -7,10 +7,12 @@ import java.util.List;
 import org.alixia.javalibrary.json.JSONObject;
 
 import gartham.c10ver.economy.Rewards;
+import gartham.c10ver.economy.RewardsBuilder;
 import gartham.c10ver.economy.items.ItemBunch;
 import gartham.c10ver.economy.items.utility.foodstuffs.Pizza;
 import gartham.c10ver.economy.items.utility.foodstuffs.Sandwich;
 import gartham.c10ver.economy.items.utility.foodstuffs.Spaghetti;
+import gartham.c10ver.utils.Sampling;
 
 public class WeeklyCrate extends LootCrateItem {
 
@@ -44,4 +46,12 @@ public class WeeklyCrate extends LootCrateItem {
 				BigInteger.valueOf((long) (350 + Math.random() * 150)));
 	}
 
+	@Override
+	protected void openInto(BigInteger count, RewardsBuilder loot) {
+		loot.add(new Sandwich(), Sampling.uniformSum(count, 2, 6).add(Sampling.binomial(count, 0.6)));
+		loot.add(new DailyCrate(), Sampling.uniformSum(Sampling.binomial(count, 0.2), 2, 4));
+		loot.add(new MonthlyCrate(), Sampling.binomial(count, 0.02));
+		loot.addCloves(Sampling.uniformSum(count, 350, 500));
+	}
+
 }
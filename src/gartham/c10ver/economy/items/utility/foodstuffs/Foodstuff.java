@@ -145,6 +145,17 @@ public class Foodstuff extends Item implements Consumable {
 		user.addMultiplier(new Multiplier(Instant.now().plusMillis(getTTL()), getMultiplier()));
 	}
 
+	/**
+	 * Consumes <code>count</code> of this food at once, giving the user a single
+	 * {@link Multiplier} stack of <code>count</code> multipliers.
+	 * 
+	 * @param user  The user that will consume the food.
+	 * @param count How many to consume.
+	 */
+	public final void consume(User user, BigInteger count) {
+		user.addMultiplier(new Multiplier(Instant.now().plusMillis(getTTL()), getMultiplier(), count));
+	}
+
 	public final AbstractMultiplier mult() {
 		return new AbstractMultiplier(getMultiplier(), Duration.ofMillis(getTTL()));
 	}
@@ -0,0 +1,471 @@
+package gartham.c10ver.economy.journal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.alixia.javalibrary.json.JSONParser;
+import org.alixia.javalibrary.json.JSONValue;
+import org.alixia.javalibrary.streams.CharacterStream;
+
+import gartham.c10ver.data.autosave.WriteBehindSaver;
+import gartham.c10ver.economy.Economy;
+import gartham.c10ver.economy.Multiplier;
+import gartham.c10ver.economy.users.User;
+import gartham.c10ver.utils.HybridInteger;
+
+/**
+ * <p>
+ * An append-only journal of economy mutations. Each mutation (deposit,
+ * withdrawal, change in total earnings, item addition or removal, multiplier
+ * addition, or prestige) is appended, as a single line of JSON, to the current
+ * <i>segment</i> file, so a burst of rewards results in sequential appends
+ * rather than a rewrite of every touched file. Journaled objects (accounts and
+ * inventory entries) are not written out when they change; the journal stands
+ * in for them until the next compaction. Appends that happen at around the same
+ * time share a single flush.
+ * </p>
+ * <p>
+ * Periodically, the journal is <i>compacted</i>: a new segment is started, the
+ * per-object snapshots (<code>main-account.txt</code>, the inventory entries,
+ * <code>user-data.txt</code>) of every user touched in the now-closed segment
+ * are written out, and every segment older than the closed one is deleted. The
+ * closed segment itself is kept until the following compaction, which covers
+ * any change that raced with the snapshot. Each user's snapshot is taken while
+ * holding their {@link Economy#getLock(String) economy lock}, so it never
+ * catches a change half-way through.
+ * </p>
+ * <p>
+ * On startup, after the snapshots are loaded, {@link #replay()} re-applies
+ * every remaining segment in order. Since {@link JournalRecord}s carry
+ * resulting states, replaying records that are already reflected in the
+ * snapshots is harmless.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class EconomyJournal {
+
+	private static final String SEGMENT_PREFIX = "segment-", SEGMENT_SUFFIX = ".txt";
+
+	private final File dir;
+	private final Economy economy;
+	private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+		var t = new Thread(r, "Economy Journal Compactor");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private BufferedWriter writer;
+	private long segment, seq;
+	/**
+	 * Held while flushing or replacing the {@link #writer}. When both are needed,
+	 * this is taken before the journal's own monitor.
+	 */
+	private final Object flushLock = new Object();
+	/**
+	 * The sequence number of the last record that has been flushed.
+	 */
+	private volatile long flushed;
+	private Set<String> touched = new HashSet<>(), compacting = Collections.emptySet();
+	private boolean replaying, closed;
+	/**
+	 * The records appended by the current thread inside {@link #batch(Supplier)},
+	 * if any.
+	 */
+	private final ThreadLocal<List<JournalRecord>> batch = new ThreadLocal<>();
+
+	public EconomyJournal(File dir, Economy economy) {
+		this.dir = dir;
+		this.economy = economy;
+	}
+
+	/**
+	 * Starts compacting this journal every <code>interval</code>.
+	 *
+	 * @param interval The compaction interval.
+	 * @param unit     The unit of <code>interval</code>.
+	 */
+	public void startCompacting(long interval, TimeUnit unit) {
+		compactor.scheduleWithFixedDelay(() -> {
+			try {
+				compact();
+			} catch (Exception e) {
+				System.err.println("Failed to compact the economy journal.");
+				e.printStackTrace();
+			}
+		}, interval, interval, unit);
+	}
+
+	private File segmentFile(long segment) {
+		return new File(dir, SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+	}
+
+	private TreeMap<Long, File> listSegments() {
+		TreeMap<Long, File> segments = new TreeMap<>();
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File f : files) {
+				String name = f.getName();
+				if (f.isFile() && name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+					try {
+						segments.put(Long.parseLong(
+								name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), f);
+					} catch (NumberFormatException e) {
+						System.err.println("Ignoring unrecognized file in the economy journal: " + f);
+					}
+			}
+		return segments;
+	}
+
+	private void openSegment(long segment) throws IOException {
+		if (writer != null)
+			writer.close();
+		dir.mkdirs();
+		this.segment = segment;
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(segmentFile(segment), true)));
+	}
+
+	/**
+	 * <p>
+	 * Replays every segment in this journal's directory over the (already loaded)
+	 * economy, then snapshots every user the replay touched, deletes the replayed
+	 * segments, and opens a fresh segment for new records.
+	 * </p>
+	 * <p>
+	 * A record that cannot be parsed (e.g. a line that was torn by a crash) ends
+	 * the replay of its segment.
+	 * </p>
+	 */
+	public synchronized void replay() {
+		var segments = listSegments();
+		Set<String> replayed = new HashSet<>();
+		replaying = true;
+		try {
+			for (var f : segments.values())
+				try (var reader = new BufferedReader(new InputStreamReader(new FileInputStream(f)))) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (line.isBlank())
+							continue;
+						JournalRecord r;
+						try {
+							r = new JournalRecord(new JSONParser().parse(CharacterStream.from(new StringReader(line))));
+						} catch (Exception e) {
+							System.err.println("Stopped replaying journal segment at an unreadable record: " + f);
+							e.printStackTrace();
+							break;
+						}
+						apply(r);
+						addUsers(r, replayed);
+						seq = Math.max(seq, r.getSequence());
+					}
+				} catch (IOException e) {
+					throw new RuntimeException("Failed to replay journal segment: " + f, e);
+				}
+		} finally {
+			replaying = false;
+		}
+
+		try {
+			openSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to open a new journal segment.", e);
+		}
+		for (String id : replayed)
+			snapshot(id);
+		if (!writeSnapshots()) {
+			// The segments are replayed again next time.
+			System.err.println("Failed to write the users replayed from the economy journal.");
+			return;
+		}
+		for (var f : segments.values())
+			f.delete();
+	}
+
+	private static void addUsers(JournalRecord record, Set<String> users) {
+		if (record.getType() == JournalRecord.Type.BATCH)
+			for (var r : record.getBatch())
+				users.add(r.getUser());
+		else
+			users.add(record.getUser());
+	}
+
+	private void apply(JournalRecord record) {
+		if (record.getType() == JournalRecord.Type.BATCH) {
+			for (var r : record.getBatch())
+				apply(r);
+			return;
+		}
+		User u = economy.getUser(record.getUser());
+		switch (record.getType()) {
+		case DEPOSIT:
+		case WITHDRAW:
+			u.getAccount().setBalance(record.getValue());
+			break;
+		case EARNINGS:
+			u.getAccount().setTotalEarnings(record.getValue());
+			break;
+		case ITEM_ADD:
+		case ITEM_REMOVE:
+			u.getInventory().restore(record.getItemType(), record.getStacks());
+			break;
+		case MULTIPLIER_ADD:
+			for (var m : record.getMultipliers())
+				u.putMultiplierStack(m);
+			break;
+		case PRESTIGE:
+			u.setPrestige(record.getValue());
+		}
+	}
+
+	/**
+	 * Appends the specified record to the current segment. The record is handed to
+	 * the OS before this method returns, although it may be flushed by (and along
+	 * with) a concurrent append. Records appended while the journal is
+	 * {@link #replay() replaying} are dropped, since they are the result of the
+	 * replay itself. Records appended inside a {@link #batch(Supplier) batch} are
+	 * held back until the batch finishes.
+	 *
+	 * @param record The record to append.
+	 */
+	public void append(JournalRecord record) {
+		var b = batch.get();
+		if (b != null)
+			b.add(record);
+		else
+			write(record);
+	}
+
+	private void write(JournalRecord record) {
+		long s;
+		synchronized (this) {
+			if (replaying || closed)
+				return;
+			if (writer == null)
+				throw new IllegalStateException("The journal has not been replayed yet.");
+			s = ++seq;
+			record.setSequence(s);
+			try {
+				writer.write(record.toJSON().toString());
+				writer.newLine();
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to append to the economy journal.", e);
+			}
+			addUsers(record, touched);
+		}
+		flush(s);
+	}
+
+	/**
+	 * Flushes the writer, unless the record with the specified sequence number has
+	 * already been flushed. Whoever flushes flushes every record written so far,
+	 * so appends that wait here for someone else's flush usually find that their
+	 * record was flushed along with it.
+	 */
+	private void flush(long upTo) {
+		if (flushed >= upTo)
+			return;
+		synchronized (flushLock) {
+			if (flushed >= upTo)
+				return;
+			long last;
+			BufferedWriter w;
+			synchronized (this) {
+				if (closed)
+					return;
+				last = seq;
+				w = writer;
+			}
+			try {
+				w.flush();
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to append to the economy journal.", e);
+			}
+			flushed = last;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Runs the specified action, collecting every record that the current thread
+	 * appends while it runs, and then appends them all as a single
+	 * {@link JournalRecord.Type#BATCH} record. If the action throws, the collected
+	 * records are discarded, so nothing the action did is journaled (the action is
+	 * expected to have undone its changes before throwing).
+	 * </p>
+	 * <p>
+	 * A batch started inside another batch on the same thread joins the outer one.
+	 * </p>
+	 *
+	 * @param <T>    The type of the action's result.
+	 * @param action The action.
+	 * @return The action's result.
+	 */
+	public <T> T batch(Supplier<T> action) {
+		if (batch.get() != null)
+			return action.get();
+		List<JournalRecord> records = new ArrayList<>();
+		batch.set(records);
+		T res;
+		try {
+			res = action.get();
+		} finally {
+			batch.remove();
+		}
+		if (!records.isEmpty())
+			write(records.size() == 1 ? records.get(0) : JournalRecord.batch(records));
+		return res;
+	}
+
+	public void balanceChanged(String user, HybridInteger old, HybridInteger bal) {
+		append(JournalRecord.balance(user, old, bal));
+	}
+
+	public void earningsChanged(String user, HybridInteger old, HybridInteger earnings) {
+		append(JournalRecord.earnings(user, old, earnings));
+	}
+
+	public void itemsChanged(String user, String type, BigInteger delta, Iterable<? extends JSONValue> stacks) {
+		append(JournalRecord.items(user, type, delta, stacks));
+	}
+
+	public void multiplierAdded(String user, Multiplier stack) {
+		append(JournalRecord.multiplierAdded(user, stack));
+	}
+
+	public void prestigeChanged(String user, HybridInteger old, HybridInteger prestige) {
+		append(JournalRecord.prestige(user, old, prestige));
+	}
+
+	/**
+	 * Serializes the specified user's data, account and inventory while holding
+	 * the user's lock, and hands the snapshots to the global
+	 * {@link WriteBehindSaver} (replacing any older pending writes of them), or
+	 * writes them right away if there is none.
+	 */
+	private void snapshot(String userID) {
+		User u = economy.getUser(userID);
+		economy.atomically(() -> {
+			WriteBehindSaver.save(u, u.toJSON(), u.getSaveLocation());
+			var a = u.getAccount();
+			WriteBehindSaver.save(a, a.toJSON(), a.getSaveLocation());
+			for (var e : u.getInventory().getEntries())
+				WriteBehindSaver.save(e, e.toJSON(), e.getFile());
+		}, userID);
+	}
+
+	/**
+	 * Makes sure that every snapshot has been written.
+	 * 
+	 * @return <code>false</code> if writing any of them failed.
+	 */
+	private static boolean writeSnapshots() {
+		var saver = WriteBehindSaver.getGlobal();
+		return saver == null || saver.flush();
+	}
+
+	/**
+	 * Starts a new segment, writes the snapshots of every user touched in the
+	 * closed segment, and deletes all segments older than the closed one.
+	 */
+	public void compact() {
+		Set<String> users;
+		long closedSegment;
+		synchronized (flushLock) {
+			synchronized (this) {
+				if (closed || writer == null || touched.isEmpty())
+					return;
+				users = compacting = touched;
+				touched = new HashSet<>();
+				closedSegment = segment;
+				try {
+					// Closing the old writer flushes it.
+					openSegment(segment + 1);
+				} catch (IOException e) {
+					throw new RuntimeException("Failed to open a new journal segment.", e);
+				}
+				flushed = seq;
+			}
+		}
+
+		for (String id : users)
+			try {
+				snapshot(id);
+			} catch (RuntimeException e) {
+				System.err.println("Failed to snapshot user " + id + " during journal compaction.");
+				e.printStackTrace();
+				retryLater(users);
+				return;
+			}
+		if (!writeSnapshots()) {
+			System.err.println("Failed to write the snapshots of a journal compaction.");
+			retryLater(users);
+			return;
+		}
+		synchronized (this) {
+			compacting = Collections.emptySet();
+		}
+
+		for (var e : listSegments().headMap(closedSegment).values())
+			e.delete();
+	}
+
+	/**
+	 * Keeps the closed segment (and its records) around for the next compaction,
+	 * which snapshots the specified users again.
+	 */
+	private synchronized void retryLater(Set<String> users) {
+		touched.addAll(users);
+		compacting = Collections.emptySet();
+	}
+
+	/**
+	 * Returns whether the specified user has journaled changes that have not yet
+	 * been snapshotted, i.e. whether the user's in-memory state is newer than
+	 * their stored state (as far as this journal knows).
+	 *
+	 * @param userID The user's ID.
+	 * @return <code>true</code> if the user was touched since the last completed
+	 *         compaction.
+	 */
+	public synchronized boolean isPending(String userID) {
+		return touched.contains(userID) || compacting.contains(userID);
+	}
+
+	public void close() {
+		synchronized (flushLock) {
+			synchronized (this) {
+				if (closed)
+					return;
+				closed = true;
+				compactor.shutdown();
+				if (writer != null)
+					try {
+						writer.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,247 @@
+package gartham.c10ver.economy.journal;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.alixia.javalibrary.json.JSONObject;
+import org.alixia.javalibrary.json.JSONValue;
+import org.alixia.javalibrary.util.Gateway;
+
+import gartham.c10ver.data.PropertyObject;
+import gartham.c10ver.economy.Multiplier;
+import gartham.c10ver.utils.HybridInteger;
+
+/**
+ * <p>
+ * A single economy mutation, as stored in an {@link EconomyJournal} segment.
+ * Every record carries the <i>resulting</i> state of whatever it changed (the
+ * new balance or total earnings, the item entry's stacks, the multiplier stack
+ * that a multiplier was added to, or the new prestige), alongside the delta
+ * that caused the change. Replay only ever
+ * applies the resulting state, so replaying a record that is already reflected
+ * in a snapshot is harmless.
+ * </p>
+ * <p>
+ * A {@link Type#BATCH} record holds other records that must be applied
+ * together (e.g. every change made by one trade). Since a record is a single
+ * line, a batch is either replayed completely or not at all.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class JournalRecord extends PropertyObject {
+
+	public enum Type {
+		DEPOSIT, WITHDRAW, EARNINGS, ITEM_ADD, ITEM_REMOVE, MULTIPLIER_ADD, PRESTIGE, BATCH;
+	}
+
+	private static final Gateway<JSONValue, JSONValue> IDENTITY = new Gateway<>() {
+
+		@Override
+		public JSONValue to(JSONValue value) {
+			return value;
+		}
+
+		@Override
+		public JSONValue from(JSONValue value) {
+			return value;
+		}
+	};
+
+	private final Property<Long> seq = longProperty("seq");
+	private final Property<Type> type = toStringProperty("op", Type::valueOf);
+	private final Property<String> user = stringProperty("user");
+	private final Property<Instant> time = instantProperty("time");
+	private final Property<HybridInteger> amount = hybridIntegerProperty("amt"), value = hybridIntegerProperty("val");
+	private final Property<String> item = stringProperty("item");
+	private final Property<ArrayList<JSONValue>> stacks = listProperty("stacks", IDENTITY);
+	private final Property<ArrayList<Multiplier>> multipliers = listProperty("mults",
+			toObjectGateway(Multiplier::new));
+	private final Property<ArrayList<JournalRecord>> batch = listProperty("recs", toObjectGateway(JournalRecord::new));
+
+	public JournalRecord(JSONValue json) {
+		load((JSONObject) json);
+	}
+
+	private JournalRecord(Type type, String user) {
+		this.type.set(type);
+		this.user.set(user);
+		time.set(Instant.now());
+	}
+
+	/**
+	 * Creates a {@link Type#DEPOSIT} or {@link Type#WITHDRAW} record (depending on
+	 * the direction of the change) for a change in balance.
+	 *
+	 * @param user The ID of the user whose balance changed.
+	 * @param old  The balance before the change.
+	 * @param bal  The balance after the change.
+	 * @return The new record.
+	 */
+	public static JournalRecord balance(String user, HybridInteger old, HybridInteger bal) {
+		var diff = bal.subtract(old == null ? HybridInteger.ZERO : old);
+		var r = new JournalRecord(diff.signum() < 0 ? Type.WITHDRAW : Type.DEPOSIT, user);
+		r.amount.set(diff.abs());
+		r.value.set(bal);
+		return r;
+	}
+
+	/**
+	 * Creates an {@link Type#ITEM_ADD} or {@link Type#ITEM_REMOVE} record for a
+	 * change to one of a user's inventory entries.
+	 *
+	 * @param user   The ID of the user.
+	 * @param type   The item type of the entry.
+	 * @param delta  The change in the total number of items in the entry.
+	 * @param stacks The JSON form of each of the entry's stacks after the change,
+	 *               or <code>null</code> if the entry was removed.
+	 * @return The new record.
+	 */
+	public static JournalRecord items(String user, String type, BigInteger delta,
+			Iterable<? extends JSONValue> stacks) {
+		var r = new JournalRecord(stacks == null || delta.signum() < 0 ? Type.ITEM_REMOVE : Type.ITEM_ADD, user);
+		r.item.set(type);
+		r.amount.set(HybridInteger.valueOf(delta.abs()));
+		if (stacks != null) {
+			var l = new ArrayList<JSONValue>();
+			for (var v : stacks)
+				l.add(v);
+			r.stacks.set(l);
+		}
+		return r;
+	}
+
+	/**
+	 * Creates an {@link Type#EARNINGS} record for a change in a user's total
+	 * earnings.
+	 *
+	 * @param user     The ID of the user.
+	 * @param old      The total earnings before the change.
+	 * @param earnings The total earnings after the change.
+	 * @return The new record.
+	 */
+	public static JournalRecord earnings(String user, HybridInteger old, HybridInteger earnings) {
+		var r = new JournalRecord(Type.EARNINGS, user);
+		r.amount.set(earnings.subtract(old == null ? HybridInteger.ZERO : old));
+		r.value.set(earnings);
+		return r;
+	}
+
+	/**
+	 * Creates a {@link Type#MULTIPLIER_ADD} record for a multiplier being added to
+	 * one of a user's multiplier stacks. The record holds a copy of the stack as it
+	 * is after the addition, not just the added multiplier, so that replaying the
+	 * record twice doesn't add the multiplier twice.
+	 *
+	 * @param user  The ID of the user.
+	 * @param stack The stack that the multiplier was added to.
+	 * @return The new record.
+	 */
+	public static JournalRecord multiplierAdded(String user, Multiplier stack) {
+		var r = new JournalRecord(Type.MULTIPLIER_ADD, user);
+		var l = new ArrayList<Multiplier>(1);
+		l.add(new Multiplier(stack.getExpiration(), stack.getAmount(), stack.getCount()));
+		r.multipliers.set(l);
+		return r;
+	}
+
+	public static JournalRecord prestige(String user, HybridInteger old, HybridInteger prestige) {
+		var r = new JournalRecord(Type.PRESTIGE, user);
+		r.amount.set(prestige.subtract(old == null ? HybridInteger.ZERO : old));
+		r.value.set(prestige);
+		return r;
+	}
+
+	/**
+	 * Creates a {@link Type#BATCH} record out of the specified records.
+	 *
+	 * @param records The records, in the order they were made.
+	 * @return The new record.
+	 */
+	public static JournalRecord batch(Collection<JournalRecord> records) {
+		var r = new JournalRecord(Type.BATCH, null);
+		r.batch.set(new ArrayList<>(records));
+		return r;
+	}
+
+	void setSequence(long seq) {
+		this.seq.set(seq);
+	}
+
+	public long getSequence() {
+		return seq.get();
+	}
+
+	public Type getType() {
+		return type.get();
+	}
+
+	public String getUser() {
+		return user.get();
+	}
+
+	public Instant getTime() {
+		return time.get();
+	}
+
+	/**
+	 * Returns the (absolute) amount that the change was by. For item changes, this
+	 * is the number of items.
+	 *
+	 * @return The amount.
+	 */
+	public BigInteger getAmount() {
+		var a = amount.get();
+		return a == null ? null : a.toBigInteger();
+	}
+
+	/**
+	 * Returns the resulting balance for {@link Type#DEPOSIT}/{@link Type#WITHDRAW}
+	 * records, the resulting total earnings for {@link Type#EARNINGS} records and
+	 * the resulting prestige for {@link Type#PRESTIGE} records.
+	 *
+	 * @return The resulting value.
+	 */
+	public BigInteger getValue() {
+		var v = value.get();
+		return v == null ? null : v.toBigInteger();
+	}
+
+	public String getItemType() {
+		return item.get();
+	}
+
+	/**
+	 * Returns the stacks of the item entry after the change, or <code>null</code>
+	 * if the entry was removed entirely.
+	 *
+	 * @return The resulting stacks.
+	 */
+	public List<JSONValue> getStacks() {
+		return stacks.get();
+	}
+
+	/**
+	 * Returns the multiplier stacks of a {@link Type#MULTIPLIER_ADD} record, as
+	 * they were after the addition.
+	 *
+	 * @return The resulting stacks.
+	 */
+	public List<Multiplier> getMultipliers() {
+		return multipliers.get();
+	}
+
+	/**
+	 * Returns the records in a {@link Type#BATCH} record.
+	 *
+	 * @return The batched records.
+	 */
+	public List<JournalRecord> getBatch() {
+		return batch.get();
+	}
+
+}
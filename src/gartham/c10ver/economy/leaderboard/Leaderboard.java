@@ -0,0 +1,238 @@
+package gartham.c10ver.economy.leaderboard;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ * A balance ranking of a set of users, kept as an order-statistic tree (a treap
+ * whose nodes know the size of their subtree). Users are ordered by balance,
+ * highest first, with ties broken by user ID so that every user has a distinct,
+ * stable rank.
+ * </p>
+ * <p>
+ * Updating a user's balance, adding or removing a user, and looking up a user's
+ * rank all take <code>O(log n)</code> time. Getting a page of <code>k</code>
+ * entries takes <code>O(log n + k)</code> time. Ranks are 1-based.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class Leaderboard {
+
+	public static final class Entry {
+		private final String userID;
+		private final BigInteger balance;
+
+		private Entry(String userID, BigInteger balance) {
+			this.userID = userID;
+			this.balance = balance;
+		}
+
+		public String getUserID() {
+			return userID;
+		}
+
+		public BigInteger getBalance() {
+			return balance;
+		}
+	}
+
+	private static final class Node {
+		private final String userID;
+		private final BigInteger balance;
+		private final int priority = ThreadLocalRandom.current().nextInt();
+		private Node left, right;
+		private int size = 1;
+
+		private Node(String userID, BigInteger balance) {
+			this.userID = userID;
+			this.balance = balance;
+		}
+
+		/**
+		 * Orders nodes with higher balances first, then by user ID.
+		 */
+		private int compareTo(BigInteger balance, String userID) {
+			int c = balance.compareTo(this.balance);
+			return c != 0 ? c : this.userID.compareTo(userID);
+		}
+	}
+
+	private static int size(Node n) {
+		return n == null ? 0 : n.size;
+	}
+
+	private static Node update(Node n) {
+		n.size = 1 + size(n.left) + size(n.right);
+		return n;
+	}
+
+	/**
+	 * Splits <code>n</code> into the nodes ordered before the specified key and
+	 * the nodes ordered at or after it. The results are stored in
+	 * <code>out</code>.
+	 */
+	private static void split(Node n, BigInteger balance, String userID, Node[] out) {
+		if (n == null) {
+			out[0] = out[1] = null;
+		} else if (n.compareTo(balance, userID) < 0) {
+			split(n.right, balance, userID, out);
+			n.right = out[0];
+			out[0] = update(n);
+		} else {
+			split(n.left, balance, userID, out);
+			n.left = out[1];
+			out[1] = update(n);
+		}
+	}
+
+	private static Node merge(Node a, Node b) {
+		if (a == null)
+			return b;
+		if (b == null)
+			return a;
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			return update(a);
+		} else {
+			b.left = merge(a, b.left);
+			return update(b);
+		}
+	}
+
+	private static Node insert(Node root, Node node) {
+		Node[] parts = new Node[2];
+		split(root, node.balance, node.userID, parts);
+		return merge(merge(parts[0], node), parts[1]);
+	}
+
+	private static Node remove(Node n, BigInteger balance, String userID) {
+		if (n == null)
+			return null;
+		int c = n.compareTo(balance, userID);
+		if (c == 0)
+			return merge(n.left, n.right);
+		if (c < 0)
+			n.right = remove(n.right, balance, userID);
+		else
+			n.left = remove(n.left, balance, userID);
+		return update(n);
+	}
+
+	private Node root;
+	private final Map<String, Node> nodes = new HashMap<>();
+
+	/**
+	 * Sets the balance of the specified user, adding the user to this leaderboard
+	 * if it is not already in it.
+	 *
+	 * @param userID  The user's ID.
+	 * @param balance The user's balance.
+	 */
+	public synchronized void put(String userID, BigInteger balance) {
+		Node old = nodes.get(userID);
+		if (old != null) {
+			if (old.balance.equals(balance))
+				return;
+			root = remove(root, old.balance, userID);
+		}
+		Node n = new Node(userID, balance);
+		nodes.put(userID, n);
+		root = insert(root, n);
+	}
+
+	/**
+	 * Updates the balance of the specified user, if the user is in this
+	 * leaderboard.
+	 *
+	 * @param userID  The user's ID.
+	 * @param balance The user's new balance.
+	 * @return <code>true</code> if the user is in this leaderboard.
+	 */
+	public synchronized boolean update(String userID, BigInteger balance) {
+		if (!nodes.containsKey(userID))
+			return false;
+		put(userID, balance);
+		return true;
+	}
+
+	public synchronized boolean remove(String userID) {
+		Node old = nodes.remove(userID);
+		if (old == null)
+			return false;
+		root = remove(root, old.balance, userID);
+		return true;
+	}
+
+	public synchronized boolean contains(String userID) {
+		return nodes.containsKey(userID);
+	}
+
+	public synchronized int size() {
+		return size(root);
+	}
+
+	/**
+	 * Returns the rank of the specified user.
+	 *
+	 * @param userID The user's ID.
+	 * @return The user's 1-based rank, or <code>-1</code> if the user is not in
+	 *         this leaderboard.
+	 */
+	public synchronized int rank(String userID) {
+		Node target = nodes.get(userID);
+		if (target == null)
+			return -1;
+		int before = 0;
+		Node n = root;
+		while (n != null) {
+			int c = n.compareTo(target.balance, userID);
+			if (c == 0)
+				return before + size(n.left) + 1;
+			if (c < 0) {
+				before += size(n.left) + 1;
+				n = n.right;
+			} else
+				n = n.left;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns up to <code>count</code> entries, in rank order, starting with the
+	 * entry at the specified 1-based rank.
+	 *
+	 * @param rank  The rank of the first entry.
+	 * @param count The maximum number of entries to return.
+	 * @return The entries.
+	 */
+	public synchronized List<Entry> get(int rank, int count) {
+		List<Entry> entries = new ArrayList<>(Math.max(0, Math.min(count, size(root) - rank + 1)));
+		collect(root, rank - 1, count, entries);
+		return entries;
+	}
+
+	/**
+	 * In-order traversal of <code>n</code> that skips the first <code>skip</code>
+	 * nodes (using subtree sizes, without visiting them) and stops once
+	 * <code>count</code> entries have been collected.
+	 */
+	private static void collect(Node n, int skip, int count, List<Entry> entries) {
+		if (n == null || entries.size() >= count)
+			return;
+		int ls = size(n.left);
+		if (skip < ls)
+			collect(n.left, skip, count, entries);
+		if (skip <= ls && entries.size() < count)
+			entries.add(new Entry(n.userID, n.balance));
+		if (entries.size() < count)
+			collect(n.right, Math.max(0, skip - ls - 1), count, entries);
+	}
+
+}
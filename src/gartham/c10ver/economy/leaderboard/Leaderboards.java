@@ -0,0 +1,187 @@
+package gartham.c10ver.economy.leaderboard;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gartham.c10ver.economy.Economy;
+import gartham.c10ver.utils.HybridInteger;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+
+/**
+ * <p>
+ * Keeps a {@link Leaderboard} for every guild that has asked for one. A guild's
+ * leaderboard is built once, from the guild's (non-bot) members, the first time
+ * it is requested. After that, it is kept up to date by
+ * {@link #balanceChanged(String, HybridInteger)} (which every loaded account calls
+ * when its balance changes) and by {@link #memberJoined(String, Member)} and
+ * {@link #memberLeft(String, String)}.
+ * </p>
+ * <p>
+ * Concurrent requests for a guild whose leaderboard is still being built share
+ * the same build. Balance changes that happen while a leaderboard is being
+ * built are held back and applied once every member has been added, so a
+ * change that lands between reading a member's balance and finishing the build
+ * isn't lost. Balances are read {@link Economy#peekBalance(String) without
+ * loading} users that aren't already loaded.
+ * </p>
+ * <p>
+ * Leaderboards are indexed by member, so a balance change is only passed to the
+ * leaderboards of the guilds that the user is a member of.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class Leaderboards {
+
+	/**
+	 * A guild's leaderboard, along with the balance changes that arrived while it
+	 * was being built.
+	 */
+	private static final class Build {
+		private final CompletableFuture<Leaderboard> future = new CompletableFuture<>();
+		private final Leaderboard board = new Leaderboard();
+		/**
+		 * The latest balance of each user whose balance changed during the build, or
+		 * <code>null</code> once the build is done.
+		 */
+		private Map<String, HybridInteger> changes = new HashMap<>();
+
+		private synchronized void balanceChanged(String userID, HybridInteger balance) {
+			if (changes != null)
+				changes.put(userID, balance);
+			// Only converted if the user is on this leaderboard.
+			else if (board.contains(userID))
+				board.update(userID, balance.toBigInteger());
+		}
+
+		private void finish() {
+			synchronized (this) {
+				for (var e : changes.entrySet())
+					board.update(e.getKey(), e.getValue().toBigInteger());
+				changes = null;
+			}
+			future.complete(board);
+		}
+	}
+
+	private final Economy economy;
+	private final Map<String, Build> leaderboards = new ConcurrentHashMap<>();
+	/**
+	 * The leaderboards (built or being built) that each user is on.
+	 */
+	private final Map<String, Set<Build>> memberships = new ConcurrentHashMap<>();
+
+	public Leaderboards(Economy economy) {
+		this.economy = economy;
+	}
+
+	private BigInteger getBalance(String userID) {
+		return economy.peekBalance(userID);
+	}
+
+	/**
+	 * Returns the {@link Leaderboard} of the specified guild, building it first if
+	 * necessary. If building it fails, the next call tries again.
+	 *
+	 * @param guild The {@link Guild}.
+	 * @return A {@link CompletableFuture} that completes with the
+	 *         {@link Leaderboard}.
+	 */
+	public CompletableFuture<Leaderboard> get(Guild guild) {
+		var id = guild.getId();
+		var build = leaderboards.get(id);
+		if (build != null)
+			return build.future;
+		var created = new Build();
+		build = leaderboards.putIfAbsent(id, created);
+		if (build != null)
+			return build.future;
+		// Only started once the build is in the map, since the members may be found
+		// (and the build finished) on this thread.
+		guild.findMembers(t -> !t.getUser().isBot()).onSuccess(t -> build(id, created, t))
+				.onError(t -> fail(id, created, List.of(), t));
+		return created.future;
+	}
+
+	private void build(String guildID, Build build, List<Member> members) {
+		try {
+			// Members are indexed before their balances are read, so that no change is
+			// missed in between.
+			for (Member m : members)
+				index(m.getId(), build);
+			for (Member m : members)
+				build.board.put(m.getId(), getBalance(m.getId()));
+			build.finish();
+		} catch (RuntimeException e) {
+			fail(guildID, build, members, e);
+		}
+	}
+
+	private void fail(String guildID, Build build, List<Member> members, Throwable cause) {
+		for (Member m : members)
+			unindex(m.getId(), build);
+		leaderboards.remove(guildID, build);
+		build.future.completeExceptionally(cause);
+	}
+
+	private void index(String userID, Build build) {
+		memberships.compute(userID, (k, v) -> {
+			if (v == null)
+				v = ConcurrentHashMap.newKeySet();
+			v.add(build);
+			return v;
+		});
+	}
+
+	private void unindex(String userID, Build build) {
+		memberships.computeIfPresent(userID, (k, v) -> {
+			v.remove(build);
+			return v.isEmpty() ? null : v;
+		});
+	}
+
+	/**
+	 * Returns the specified guild's {@link Build} if its leaderboard has already
+	 * been built.
+	 *
+	 * @param guildID The guild's ID.
+	 * @return The {@link Build}, or <code>null</code>.
+	 */
+	private Build getIfBuilt(String guildID) {
+		var build = leaderboards.get(guildID);
+		return build == null || build.future.getNow(null) == null ? null : build;
+	}
+
+	public void balanceChanged(String userID, HybridInteger balance) {
+		var builds = memberships.get(userID);
+		if (builds != null)
+			for (var build : builds)
+				build.balanceChanged(userID, balance);
+	}
+
+	public void memberJoined(String guildID, Member member) {
+		if (member.getUser().isBot())
+			return;
+		var build = getIfBuilt(guildID);
+		if (build != null) {
+			index(member.getId(), build);
+			build.board.put(member.getId(), getBalance(member.getId()));
+		}
+	}
+
+	public void memberLeft(String guildID, String userID) {
+		var build = getIfBuilt(guildID);
+		if (build != null) {
+			build.board.remove(userID);
+			unindex(userID, build);
+		}
+	}
+
+}
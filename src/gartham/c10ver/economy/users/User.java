@@ -6,21 +6,27 @@ import java.math.BigInteger;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 import org.alixia.javalibrary.json.JSONObject;
+import org.alixia.javalibrary.json.JSONValue;
 import org.alixia.javalibrary.util.StringGateway;
 
 import gartham.c10ver.data.autosave.SavablePropertyObject;
+import gartham.c10ver.data.autosave.WriteBehindSaver;
 import gartham.c10ver.economy.Economy;
 import gartham.c10ver.economy.Multiplier;
 import gartham.c10ver.economy.MultiplierManager;
+import gartham.c10ver.economy.MultiplierSet;
 import gartham.c10ver.economy.Rewards;
 import gartham.c10ver.economy.Server;
 import gartham.c10ver.economy.accolades.AccoladeList;
 import gartham.c10ver.economy.items.UserInventory;
 import gartham.c10ver.economy.questions.Question;
 import gartham.c10ver.games.rpg.creatures.CreatureBox;
+import gartham.c10ver.utils.HybridInteger;
 import net.dv8tion.jda.api.entities.Guild;
 
 public class User extends SavablePropertyObject {
@@ -28,11 +34,11 @@ public class User extends SavablePropertyObject {
 	private final Property<Instant> dailyCommand = instantProperty("daily", Instant.MIN),
 			weeklyCommand = instantProperty("weekly", Instant.MIN),
 			monthlyCommand = instantProperty("monthly", Instant.MIN);
-	private final Property<BigInteger> messageCount = bigIntegerProperty("message-count", BigInteger.ZERO),
-			prestige = bigIntegerProperty("prestige", BigInteger.ZERO),
-			voteCount = bigIntegerProperty("vote-count", BigInteger.ZERO);
-	private final Property<ArrayList<Multiplier>> multipliers = listProperty("multipliers",
-			toObjectGateway(Multiplier::new));
+	private final Property<HybridInteger> messageCount = hybridIntegerProperty("message-count", HybridInteger.ZERO),
+			prestige = hybridIntegerProperty("prestige", HybridInteger.ZERO),
+			voteCount = hybridIntegerProperty("vote-count", HybridInteger.ZERO);
+	private final Property<MultiplierSet> multipliers = listProperty("multipliers", Multiplier::toJSON,
+			MultiplierSet::new, Multiplier::new);
 	private final Property<ArrayList<String>> joinedGuilds = listProperty("joined-guilds",
 			toStringGateway(StringGateway.string()));
 
@@ -52,40 +58,93 @@ public class User extends SavablePropertyObject {
 		return MultiplierManager.getTotalValue(multipliers.get());
 	}
 
+	/**
+	 * Returns the {@link MultiplierSet} holding this user's personal multipliers,
+	 * e.g. to {@link MultiplierSet#addExpiryListener(java.util.function.Consumer)
+	 * listen} for them expiring.
+	 * 
+	 * @return The user's {@link MultiplierSet}.
+	 */
+	public MultiplierSet getMultiplierSet() {
+		return multipliers.get();
+	}
+
 	public void addMultiplier(Multiplier m) {
-		MultiplierManager.addMultiplier(m, multipliers.get());
+		var set = multipliers.get();
+		MultiplierManager.addMultiplier(m, set);
+		var j = economy.getJournal();
+		if (j != null) {
+			var stack = set.getStack(m);
+			if (stack != null)
+				j.multiplierAdded(userID, stack);
+		}
+	}
+
+	/**
+	 * Puts the specified multiplier stack into this user's multipliers, replacing
+	 * the stack it would otherwise be merged with (see
+	 * {@link MultiplierSet#put(Multiplier)}). This is how journaled multiplier
+	 * additions are replayed.
+	 * 
+	 * @param stack The stack.
+	 */
+	public void putMultiplierStack(Multiplier stack) {
+		if (!MultiplierManager.expired(stack))
+			multipliers.get().put(stack);
+	}
+
+	/**
+	 * Replaces this user's personal multipliers with the specified ones. The
+	 * user's {@link MultiplierSet} (and its listeners) is kept.
+	 * 
+	 * @param multipliers The new multipliers.
+	 */
+	public void setMultipliers(Collection<Multiplier> multipliers) {
+		var set = this.multipliers.get();
+		set.clear();
+		set.addAll(multipliers);
 	}
 
 	public BigInteger getMessageCount() {
+		return messageCount.get().toBigInteger();
+	}
+
+	/**
+	 * Returns the message count without converting it to a {@link BigInteger}.
+	 * This is what the per-message handling should use.
+	 *
+	 * @return The message count.
+	 */
+	public HybridInteger getMessageCountValue() {
 		return messageCount.get();
 	}
 
 	public BigInteger getPrestige() {
-		return prestige.get();
+		return prestige.get().toBigInteger();
 	}
 
 	public void setMessageCount(BigInteger count) {
-		messageCount.set(count);
+		messageCount.set(HybridInteger.valueOf(count));
 	}
 
 	public void setPrestige(BigInteger count) {
-		prestige.set(count);
+		prestige.set(HybridInteger.valueOf(count));
 	}
 
 	public void setVoteCount(BigInteger count) {
-		voteCount.set(count);
+		voteCount.set(HybridInteger.valueOf(count));
 	}
 
 	public void incrementVoteCount() {
-		setVoteCount(getVoteCount().add(BigInteger.ONE));
+		voteCount.set(voteCount.get().add(1));
 	}
 
 	public void incrementMessageCount() {
-		setMessageCount(getMessageCount().add(BigInteger.ONE));
+		messageCount.set(messageCount.get().add(1));
 	}
 
 	public void incrementPrestige() {
-		setPrestige(getPrestige().add(BigInteger.ONE));
+		prestige.set(prestige.get().add(1));
 	}
 
 	private final Property<ArrayList<Question>> questions = listProperty("questions",
@@ -134,6 +193,27 @@ public class User extends SavablePropertyObject {
 		return settings;
 	}
 
+	/**
+	 * Returns whether any part of this user (its data, account, inventory,
+	 * accolades, settings or creatures) has a write pending in the global
+	 * {@link WriteBehindSaver}, i.e. whether its stored state is behind its
+	 * in-memory state.
+	 * 
+	 * @return <code>true</code> if a write is pending.
+	 */
+	public boolean hasPendingSaves() {
+		var saver = WriteBehindSaver.getGlobal();
+		if (saver == null)
+			return false;
+		if (saver.isPending(this) || saver.isPending(account) || saver.isPending(accolades)
+				|| saver.isPending(settings) || creatures.hasPendingSaves(saver))
+			return true;
+		for (var e : inventory.getEntries())
+			if (saver.isPending(e))
+				return true;
+		return false;
+	}
+
 	/**
 	 * Calculates the multiplier applied to a reward that this user earned in the
 	 * provided guild.
@@ -180,6 +260,14 @@ public class User extends SavablePropertyObject {
 		super.save();
 	}
 
+	/**
+	 * Prestige changes are journaled, if there is a journal.
+	 */
+	@Override
+	protected boolean isJournaled(Property<?> property) {
+		return property == prestige && economy != null && economy.getJournal() != null;
+	}
+
 	/**
 	 * Adds the specified amount of cloves, multiplied by the pre-calculated
 	 * multiplier, to this user's account.
@@ -191,9 +279,27 @@ public class User extends SavablePropertyObject {
 	 */
 	public BigInteger reward(BigInteger amount, BigDecimal multiplier) {
 		var x = new BigDecimal(amount).multiply(multiplier).toBigInteger();
+		var l = getLock();
+		l.lock();
+		try {
+			var j = economy.getJournal();
+			// The deposit and the earnings are journaled as one record.
+			if (j == null)
+				deposit(x);
+			else
+				j.batch(() -> {
+					deposit(x);
+					return null;
+				});
+		} finally {
+			l.unlock();
+		}
+		return x;
+	}
+
+	private void deposit(BigInteger x) {
 		getAccount().deposit(x);
 		getAccount().addTotalEarnings(x);
-		return x;
 	}
 
 	/**
@@ -212,13 +318,36 @@ public class User extends SavablePropertyObject {
 		return x;
 	}
 
+	/**
+	 * Returns this user's {@link Economy#getLock(String) economy lock}.
+	 * 
+	 * @return The {@link Lock}.
+	 */
+	public Lock getLock() {
+		return economy.getLock(userID);
+	}
+
+	@Override
+	protected JSONValue snapshot() {
+		var l = getLock();
+		l.lock();
+		try {
+			return super.snapshot();
+		} finally {
+			l.unlock();
+		}
+	}
+
 	public Receipt reward(Rewards rewards, Guild guild) {
+		return economy.atomically(() -> rewardUnlocked(rewards, guild), userID);
+	}
+
+	private Receipt rewardUnlocked(Rewards rewards, Guild guild) {
 		var mult = calcMultiplier(guild);
 		BigInteger clovesGiven = BigInteger.ZERO;
 		if (rewards.hasMultipliers())
 			for (var m : rewards.getMultipliers().entrySet())
-				for (int i = 0; i < m.getValue(); i++)
-					addMultiplier(m.getKey().reify());
+				addMultiplier(m.getKey().reify(m.getValue()));
 		if (rewards.hasCloves())
 			clovesGiven = reward(rewards.getCloves(), mult);
 		if (rewards.hasItems())
@@ -238,7 +367,8 @@ public class User extends SavablePropertyObject {
 				} catch (NullPointerException e) {
 					e.printStackTrace();
 				}
-		if (rewards.hasMultipliers())
+		// Added multipliers are journaled, so there is nothing to save for them if there is a journal.
+		if (rewards.hasMultipliers() && economy.getJournal() == null)
 			save();
 		return r;
 	}
@@ -293,20 +423,25 @@ public class User extends SavablePropertyObject {
 		this.economy = economy;
 		userID = userDirectory.getName();
 		account = new UserAccount(userDirectory, this);
-		inventory = new UserInventory(userDirectory);
+		inventory = new UserInventory(userDirectory, this);
 		accolades = new AccoladeList(new File(userDirectory, "accolades.txt"));
 		creatures = new CreatureBox(new File(userDirectory, "creatures.txt"));
 		settings = new UserSettings(userDirectory, this);
 		if (load)
 			load();
-		if (getMessageCount() == null)
-			setMessageCount(BigInteger.ZERO);
+		if (messageCount.get() == null)
+			messageCount.set(HybridInteger.ZERO);
 		if (questions.get() == null)
 			questions.set(new ArrayList<>());
 		if (multipliers.get() == null)
-			multipliers.set(new ArrayList<>());
+			multipliers.set(new MultiplierSet());
 		if (joinedGuilds.get() == null)
 			joinedGuilds.set(new ArrayList<>());
+		prestige.addListener((o, n) -> {
+			var j = economy.getJournal();
+			if (j != null)
+				j.prestigeChanged(userID, o, n);
+		});
 	}
 
 	public Instant getLastDailyInvocation() {
@@ -346,7 +481,7 @@ public class User extends SavablePropertyObject {
 	}
 
 	public BigInteger getVoteCount() {
-		return voteCount.get();
+		return voteCount.get().toBigInteger();
 	}
 
 }
@@ -2,27 +2,99 @@ package gartham.c10ver.economy.users;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.util.concurrent.locks.Lock;
 
 import gartham.c10ver.economy.Account;
 import gartham.c10ver.economy.Owned;
+import gartham.c10ver.economy.journal.EconomyJournal;
+import gartham.c10ver.utils.HybridInteger;
 
+/**
+ * <p>
+ * A user's main {@link Account}, which also keeps track of the user's total
+ * earnings.
+ * </p>
+ * <p>
+ * If the user's economy has an {@link EconomyJournal}, every change to the
+ * account (its balance and total earnings) is journaled, and the account is
+ * only written out when the journal is compacted; {@link #save()} does nothing
+ * and changing the account doesn't schedule a write.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
 public class UserAccount extends Account implements Owned<User> {
-	private final Property<BigInteger> totalEarnings = bigIntegerProperty("total-earnings", BigInteger.ZERO);
+	/**
+	 * The name of the file, in a user's directory, that their account is saved
+	 * to.
+	 */
+	public static final String FILE_NAME = "main-account.txt";
+
+	private final Property<HybridInteger> totalEarnings = hybridIntegerProperty("total-earnings",
+			HybridInteger.ZERO);
 
 	public void setTotalEarnings(BigInteger earnings) {
-		totalEarnings.set(earnings);
+		var value = HybridInteger.valueOf(earnings);
+		var l = getLock();
+		l.lock();
+		try {
+			totalEarnings.set(value);
+		} finally {
+			l.unlock();
+		}
 	}
 
 	public BigInteger getTotalEarnings() {
-		return totalEarnings.get();
+		return totalEarnings.get().toBigInteger();
+	}
+
+	public void addTotalEarnings(BigInteger earnings) {
+		var l = getLock();
+		l.lock();
+		try {
+			totalEarnings.set(totalEarnings.get().add(earnings));
+		} finally {
+			l.unlock();
+		}
+	}
+
+	/**
+	 * Returns the user's {@link gartham.c10ver.economy.Economy#getLock(String)
+	 * economy lock}, so that locking a user also locks their account.
+	 */
+	@Override
+	protected Lock getLock() {
+		return user.getEconomy().getLock(user.getUserID());
 	}
 
-	public BigInteger addTotalEarnings(BigInteger earnings) {
-		return totalEarnings.set(totalEarnings.get().add(earnings)).get();
+	/**
+	 * Moves the specified amount from this account to the recipient atomically,
+	 * while holding both users' locks.
+	 */
+	@Override
+	public boolean pay(BigInteger amount, UserAccount recipient) {
+		return user.getEconomy().atomically(() -> super.pay(amount, recipient), user.getUserID(),
+				recipient.user.getUserID());
 	}
 
 	private final User user;
 
+	private EconomyJournal getJournal() {
+		return user == null ? null : user.getEconomy().getJournal();
+	}
+
+	@Override
+	protected boolean isJournaled(Property<?> property) {
+		return getJournal() != null;
+	}
+
+	@Override
+	public void save() {
+		if (getJournal() == null)
+			super.save();
+	}
+
 	public User getUser() {
 		return user;
 	}
@@ -37,9 +109,20 @@ public class UserAccount extends Account implements Owned<User> {
 	}
 
 	protected UserAccount(File userDirectory, boolean load, User user) {
-		super(new File(userDirectory, "main-account.txt"));
+		super(new File(userDirectory, FILE_NAME));
 		this.user = user;
 		if (load)
 			load();
+		addBalanceListener((o, n) -> {
+			var j = getJournal();
+			if (j != null)
+				j.balanceChanged(user.getUserID(), o, n);
+			user.getEconomy().getLeaderboards().balanceChanged(user.getUserID(), n);
+		});
+		totalEarnings.addListener((o, n) -> {
+			var j = getJournal();
+			if (j != null)
+				j.earningsChanged(user.getUserID(), o, n);
+		});
 	}
 }
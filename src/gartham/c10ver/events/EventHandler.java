@@ -13,19 +13,25 @@ import java.util.concurrent.TimeUnit;
 import gartham.c10ver.Clover;
 import gartham.c10ver.commands.CommandInvocation;
 import gartham.c10ver.commands.InputProcessor;
+import gartham.c10ver.commands.consumers.InputConsumer;
 import gartham.c10ver.economy.Multiplier;
 import gartham.c10ver.economy.Server;
 import gartham.c10ver.economy.items.ItemBunch;
 import gartham.c10ver.economy.items.utility.crates.NormalCrate;
 import gartham.c10ver.economy.items.utility.foodstuffs.Sandwich;
 import gartham.c10ver.economy.users.User;
+import gartham.c10ver.utils.HybridInteger;
+import gartham.c10ver.utils.LaneExecutor;
+import gartham.c10ver.utils.TimingWheel;
 import gartham.c10ver.utils.Utilities;
 import net.dv8tion.jda.api.entities.Invite;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
 import net.dv8tion.jda.api.events.guild.invite.GuildInviteCreateEvent;
 import net.dv8tion.jda.api.events.guild.invite.GuildInviteDeleteEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
@@ -35,8 +41,54 @@ import zeale.applicationss.notesss.utilities.generators.Generator;
 public class EventHandler implements EventListener {
 
 	private final Clover clover;
-	private final InputProcessor<MessageReceivedEvent> messageProcessor = new InputProcessor<>();
-	private final InputProcessor<MessageReactionAddEvent> reactionAdditionProcessor = new InputProcessor<>();
+	/**
+	 * Expires the {@link InputProcessor}s' timed {@link InputConsumer}s.
+	 */
+	private final TimingWheel expiryWheel = new TimingWheel(100, TimeUnit.MILLISECONDS, "Input Consumer Expiry");
+	private final InputProcessor<MessageReceivedEvent> messageProcessor = new InputProcessor<>(
+			e -> e.getChannel().getId(), e -> e.getAuthor().getId(), MessageReceivedEvent::getMessageId, expiryWheel);
+	private final InputProcessor<MessageReactionAddEvent> reactionAdditionProcessor = new InputProcessor<>(
+			e -> e.getChannel().getId(), MessageReactionAddEvent::getUserId, MessageReactionAddEvent::getMessageId,
+			expiryWheel);
+
+	/**
+	 * <p>
+	 * Runs the handling of each event, so that JDA's event thread only has to hand
+	 * events off. Messages and reactions are keyed by the user who sent them, so
+	 * each user's commands run one at a time and in order (a user can't, e.g.,
+	 * claim the same daily from two guilds at once), while different users'
+	 * commands run in parallel. Other guild events are keyed by guild.
+	 * </p>
+	 * <p>
+	 * A full lane drops new events rather than holding up JDA's event thread (and
+	 * with it the gateway connection) until the lane catches up. The lanes are
+	 * configured with system properties:
+	 * </p>
+	 * <ul>
+	 * <li><code>clover.event-lanes</code>: the number of lanes (default: twice the
+	 * number of processors),</li>
+	 * <li><code>clover.event-lane-capacity</code>: the number of events each lane
+	 * can queue (default: 1024),</li>
+	 * <li><code>clover.event-overflow</code>: the name of the
+	 * {@link LaneExecutor.Overflow} policy for full lanes (default:
+	 * <code>DROP_NEWEST</code>), and</li>
+	 * <li><code>clover.event-lane-threads</code>: <code>virtual</code> to run the
+	 * lanes on virtual threads, where the JVM supports them.</li>
+	 * </ul>
+	 */
+	private final LaneExecutor lanes = createLanes();
+
+	private static LaneExecutor createLanes() {
+		var factory = "virtual".equalsIgnoreCase(System.getProperty("clover.event-lane-threads"))
+				? LaneExecutor.virtualThreadFactory()
+				: null;
+		if (factory == null && System.getProperty("clover.event-lane-threads") != null)
+			System.err.println("Virtual threads aren't supported by this JVM; using platform threads for event lanes.");
+		var overflow = System.getProperty("clover.event-overflow", "DROP_NEWEST").toUpperCase();
+		return new LaneExecutor("Event", Integer.getInteger("clover.event-lanes",
+				Runtime.getRuntime().availableProcessors() * 2), Integer.getInteger("clover.event-lane-capacity", 1024),
+				LaneExecutor.Overflow.valueOf(overflow), factory);
+	}
 
 	private final Generator<InfoPopup> infoPopupGenerator;
 	private final InviteTracker inviteTracker = new InviteTracker(this);
@@ -54,6 +106,20 @@ public class EventHandler implements EventListener {
 		return clover;
 	}
 
+	/**
+	 * Returns the {@link LaneExecutor} that events are handled on, e.g. to read
+	 * its queue depths.
+	 * 
+	 * @return The event lanes.
+	 */
+	public LaneExecutor getLanes() {
+		return lanes;
+	}
+
+	public TimingWheel getExpiryWheel() {
+		return expiryWheel;
+	}
+
 	public InputProcessor<MessageReceivedEvent> getMessageProcessor() {
 		return messageProcessor;
 	}
@@ -72,8 +138,41 @@ public class EventHandler implements EventListener {
 		inviteTracker.initialize();
 	}
 
+	/**
+	 * Stops handling new events, and waits up to ten seconds for the events that
+	 * have already been queued to be handled.
+	 */
+	public void close() {
+		try {
+			if (!lanes.close(10, TimeUnit.SECONDS))
+				System.err.println("Some queued events were not handled before shutting down.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static String laneKey(GenericEvent event) {
+		if (event instanceof MessageReceivedEvent)
+			return ((MessageReceivedEvent) event).getAuthor().getId();
+		else if (event instanceof MessageReactionAddEvent)
+			return ((MessageReactionAddEvent) event).getUserId();
+		else if (event instanceof GenericGuildEvent)
+			return ((GenericGuildEvent) event).getGuild().getId();
+		return "";
+	}
+
 	@Override
 	public void onEvent(GenericEvent event) {
+		if (!lanes.execute(laneKey(event), () -> handle(event))) {
+			long dropped = lanes.getDroppedCount();
+			// Only log at powers of two, so a flood of events doesn't turn into a flood of logs.
+			if (Long.bitCount(dropped) == 1)
+				System.err.println("Dropped a " + event.getClass().getSimpleName()
+						+ " because its event lane was full or closed. (" + dropped + " events dropped so far.)");
+		}
+	}
+
+	private void handle(GenericEvent event) {
 		if (event instanceof MessageReceivedEvent) {
 			var mre = (MessageReceivedEvent) event;
 
@@ -86,38 +185,48 @@ public class EventHandler implements EventListener {
 
 			if (mre.isFromGuild() && clover.getEconomy().hasServer(mre.getGuild().getId())) {
 				User user = clover.getEconomy().getUser(mre.getAuthor().getId());
-				user.incrementMessageCount();
-				user.getAccount().deposit((long) (Math.random() * 4 + 2));
-				if (user.getMessageCount().getLowestSetBit() >= 4) {// Save every 16 messages.
-					user.save();
-					user.getAccount().save();
+				HybridInteger messageCount;
+				// Other users' commands (e.g. payments or bombs) can reach this user from other lanes.
+				var lock = user.getLock();
+				lock.lock();
+				try {
+					user.incrementMessageCount();
+					user.getAccount().deposit((long) (Math.random() * 4 + 2));
+					messageCount = user.getMessageCountValue();
+					if (messageCount.getLowestSetBit() >= 4) {// Save every 16 messages.
+						user.save();
+						user.getAccount().save();
+					}
+				} finally {
+					lock.unlock();
 				}
 				if (!mre.getAuthor().isBot()) {
-					BigInteger rewards = switch (user.getMessageCount().toString()) {
-					case "10" -> valueOf(50);
-					case "50" -> valueOf(100);
-					case "100" -> valueOf(250);// TODO Handle spam channel.
-					case "200" -> valueOf(300);
-					case "250" -> valueOf(400);
-					case "300" -> valueOf(450);
-					case "400" -> valueOf(500);
-					case "500" -> valueOf(750);
-					case "750" -> valueOf(1000);
-					case "1000" -> valueOf(1_500);
-					case "2000" -> valueOf(2_500);
-					case "2500" -> valueOf(3_000);
-					case "3000" -> valueOf(3_000);
-					case "4000" -> valueOf(5_000);
-					case "5000" -> valueOf(10_000);
-					case "10000" -> valueOf(25_000);
-					case "15000" -> valueOf(40_000);
-					case "25000" -> valueOf(50_000);
-					case "50000" -> valueOf(100_000);
-					case "75000" -> valueOf(100_000);
-					case "100000" -> valueOf(100_000);
-					case "250000" -> valueOf(500_000);
-					case "500000" -> valueOf(1_000_000);
-					case "1000000" -> valueOf(25_000_000);
+					// Counts past the last milestone map to 0, which has no reward.
+					BigInteger rewards = switch (messageCount.compareTo(1_000_000) > 0 ? 0 : messageCount.intValue()) {
+					case 10 -> valueOf(50);
+					case 50 -> valueOf(100);
+					case 100 -> valueOf(250);// TODO Handle spam channel.
+					case 200 -> valueOf(300);
+					case 250 -> valueOf(400);
+					case 300 -> valueOf(450);
+					case 400 -> valueOf(500);
+					case 500 -> valueOf(750);
+					case 750 -> valueOf(1000);
+					case 1_000 -> valueOf(1_500);
+					case 2_000 -> valueOf(2_500);
+					case 2_500 -> valueOf(3_000);
+					case 3_000 -> valueOf(3_000);
+					case 4_000 -> valueOf(5_000);
+					case 5_000 -> valueOf(10_000);
+					case 10_000 -> valueOf(25_000);
+					case 15_000 -> valueOf(40_000);
+					case 25_000 -> valueOf(50_000);
+					case 50_000 -> valueOf(100_000);
+					case 75_000 -> valueOf(100_000);
+					case 100_000 -> valueOf(100_000);
+					case 250_000 -> valueOf(500_000);
+					case 500_000 -> valueOf(1_000_000);
+					case 1_000_000 -> valueOf(25_000_000);
 					default -> null;
 					};
 					if (rewards != null) {
@@ -126,7 +235,7 @@ public class EventHandler implements EventListener {
 						if (user.getSettings().isRandomRewardsNotifyingEnabled())
 							mre.getChannel()
 									.sendMessage(mre.getAuthor().getAsMention() + " congratulations, you just reached "
-											+ user.getMessageCount() + " messages! You've earned: "
+											+ messageCount + " messages! You've earned: "
 											+ Utilities.listRewards(amt, mult))
 									.queue(t -> t.delete().queueAfter(10, TimeUnit.SECONDS));
 					} else {
@@ -148,7 +257,8 @@ public class EventHandler implements EventListener {
 						else if (serv.isGeneral(mre.getChannel()) && Math.random() < 0.01)
 							if (Math.random() < 0.2) {
 								NormalCrate crate = new NormalCrate();
-								user.getInventory().add(crate).save();
+								clover.getEconomy().atomically(() -> user.getInventory().add(crate).save(),
+										user.getUserID());
 								if (user.getSettings().isRandomRewardsNotifyingEnabled())
 									mre.getChannel()
 											.sendMessage(mre.getAuthor().getAsMention()
@@ -158,7 +268,8 @@ public class EventHandler implements EventListener {
 							} else {
 								BigInteger count = BigInteger.valueOf((long) (Math.random() * 3 + 1));
 								Sandwich item = new Sandwich();
-								user.getInventory().add(new ItemBunch<>(item, count)).save();
+								clover.getEconomy().atomically(() -> user.getInventory().add(new ItemBunch<>(item, count)).save(),
+										user.getUserID());
 								if (user.getSettings().isRandomRewardsNotifyingEnabled())
 									mre.getChannel()
 											.sendMessage(mre.getAuthor().getAsMention()
@@ -173,19 +284,76 @@ public class EventHandler implements EventListener {
 
 		} else if (event instanceof MessageReactionAddEvent)
 			reactionAdditionProcessor.runInputHandlers((MessageReactionAddEvent) event);
-		else if (event instanceof GuildMemberJoinEvent)
-			synchronized (this) {
-				var ge = (GuildMemberJoinEvent) event;
-				Invite inviteee = inviteTracker.calcUser(ge);
-				if (inviteee == null)
+		else if (event instanceof GuildMemberJoinEvent) {
+			var ge = (GuildMemberJoinEvent) event;
+			clover.getEconomy().getLeaderboards().memberJoined(ge.getGuild().getId(), ge.getMember());
+			// The invite lookup runs in the background; the rest of the join is handled back on the guild's lane.
+			inviteTracker.calcUser(ge).whenComplete((attribution, e) -> {
+				if (e != null) {
+					System.err.println("Failed to work out which invite " + ge.getUser().getAsTag() + " joined "
+							+ ge.getGuild().getName() + " with.");
+					e.printStackTrace();
 					return;
+				}
+				switch (attribution.getKind()) {
+				case INVITE:
+					lanes.execute(ge.getGuild().getId(), () -> memberJoined(ge, attribution.getInvite()));
+					break;
+				case AMBIGUOUS:
+					print(ge.getUser().getAsTag() + '[' + ge.getUser().getId() + "] joined " + ge.getGuild().getName()
+							+ '[' + ge.getGuild().getId() + "] during a burst of joins, with one of the invites: "
+							+ String.join(", ", attribution.getCandidates()) + '.');
+					break;
+				case UNKNOWN:
+					print(ge.getUser().getAsTag() + '[' + ge.getUser().getId() + "] joined " + ge.getGuild().getName()
+							+ '[' + ge.getGuild().getId() + "] with an invite that couldn't be found.");
+					break;
+				default:// Vanity invites have no inviter to reward.
+				}
+			});
+		} else if (event instanceof GuildMemberRemoveEvent) {
+			var e = (GuildMemberRemoveEvent) event;
+			clover.getEconomy().getLeaderboards().memberLeft(e.getGuild().getId(), e.getUser().getId());
+		} else if (event instanceof GuildInviteCreateEvent)
+			inviteTracker.inviteCreated((GuildInviteCreateEvent) event);
+		else if (event instanceof GuildInviteDeleteEvent)
+			inviteTracker.inviteDeleted((GuildInviteDeleteEvent) event);
+		else if (event instanceof GuildMemberRoleAddEvent) {
+			var e = (GuildMemberRoleAddEvent) event;
+			Server s = clover.getEconomy().getServer(e.getGuild().getId());
+			var role = s.getVoteRole();
+			if (role != null) {
+				for (Role r : e.getRoles()) {
+					if (r.getId().equals(role)) {
+						try {
+							e.getGuild().removeRoleFromMember(e.getMember(), r).queue();
+						} catch (Exception er) {
+							System.err
+									.println("An error occurred while attempting to remove the vote role from a user!");
+							er.printStackTrace();
+						}
+						voteManager.handleVoteRoleAdded(e.getMember());
+						break;
+					}
+				}
+			}
+		}
+	}
 
-				var u = inviteee.getInviter();
-				if (u == null) {
-					u = ((MessageReceivedEvent) event).getGuild().getOwner().getUser();
-					return;
-				} else if (u.isBot())
-					return;
+	/**
+	 * Handles a member joining a guild once the invite they used is known. This
+	 * runs on the guild's lane.
+	 * 
+	 * @param ge       The join event.
+	 * @param inviteee The invite the member joined with.
+	 */
+	private void memberJoined(GuildMemberJoinEvent ge, Invite inviteee) {
+		synchronized (this) {
+			var u = inviteee.getInviter();
+			if (u == null || u.isBot())
+				return;
+			// Either user can be changed from other lanes, so the check and the grants are made under their locks.
+			clover.getEconomy().atomically(() -> {
 				var inviter = clover.getEconomy().getAccount(u.getId());
 				var joinee = clover.getEconomy().getUser(ge.getUser().getId());
 
@@ -273,30 +441,7 @@ public class EventHandler implements EventListener {
 					}
 
 				}
-			}
-		else if (event instanceof GuildInviteCreateEvent)
-			inviteTracker.inviteCreated((GuildInviteCreateEvent) event);
-		else if (event instanceof GuildInviteDeleteEvent)
-			inviteTracker.inviteDeleted((GuildInviteDeleteEvent) event);
-		else if (event instanceof GuildMemberRoleAddEvent) {
-			var e = (GuildMemberRoleAddEvent) event;
-			Server s = clover.getEconomy().getServer(e.getGuild().getId());
-			var role = s.getVoteRole();
-			if (role != null) {
-				for (Role r : e.getRoles()) {
-					if (r.getId().equals(role)) {
-						try {
-							e.getGuild().removeRoleFromMember(e.getMember(), r).queue();
-						} catch (Exception er) {
-							System.err
-									.println("An error occurred while attempting to remove the vote role from a user!");
-							er.printStackTrace();
-						}
-						voteManager.handleVoteRoleAdded(e.getMember());
-						break;
-					}
-				}
-			}
+			}, ge.getUser().getId(), u.getId());
 		}
 	}
 
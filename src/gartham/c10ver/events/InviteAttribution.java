@@ -0,0 +1,92 @@
+package gartham.c10ver.events;
+
+import java.util.List;
+
+import net.dv8tion.jda.api.entities.Invite;
+
+/**
+ * The result of working out which invite a new member joined a guild with. See
+ * {@link InviteTracker#calcUser(net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent)}.
+ *
+ * @author Gartham
+ *
+ */
+public final class InviteAttribution {
+
+	public enum Kind {
+		/**
+		 * The member joined with {@link InviteAttribution#getInvite() a regular
+		 * invite}.
+		 */
+		INVITE,
+		/**
+		 * The member joined with the guild's vanity invite.
+		 */
+		VANITY,
+		/**
+		 * Several invites were used by the joins that were resolved together, so
+		 * which one this member used can't be told. The invites are the
+		 * {@link InviteAttribution#getCandidates() candidates}.
+		 */
+		AMBIGUOUS,
+		/**
+		 * No invite was found to have been used by this member.
+		 */
+		UNKNOWN;
+	}
+
+	private static final InviteAttribution UNKNOWN = new InviteAttribution(Kind.UNKNOWN, null, List.of());
+
+	private final Kind kind;
+	private final Invite invite;
+	private final List<String> candidates;
+
+	private InviteAttribution(Kind kind, Invite invite, List<String> candidates) {
+		this.kind = kind;
+		this.invite = invite;
+		this.candidates = candidates;
+	}
+
+	static InviteAttribution invite(Invite invite) {
+		return new InviteAttribution(Kind.INVITE, invite, List.of(invite.getCode()));
+	}
+
+	static InviteAttribution vanity(String code) {
+		return new InviteAttribution(Kind.VANITY, null, List.of(code));
+	}
+
+	static InviteAttribution ambiguous(List<String> candidates) {
+		return new InviteAttribution(Kind.AMBIGUOUS, null, List.copyOf(candidates));
+	}
+
+	static InviteAttribution unknown() {
+		return UNKNOWN;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the invite the member joined with, if this attribution is of the
+	 * {@link Kind#INVITE INVITE} kind.
+	 *
+	 * @return The invite, or <code>null</code>.
+	 */
+	public Invite getInvite() {
+		return invite;
+	}
+
+	/**
+	 * Returns the codes of the invites the member may have joined with: the one
+	 * invite for {@link Kind#INVITE INVITE} and {@link Kind#VANITY VANITY}
+	 * attributions, every invite that was used for {@link Kind#AMBIGUOUS
+	 * AMBIGUOUS} ones, and none for {@link Kind#UNKNOWN UNKNOWN} ones.
+	 *
+	 * @return The candidate invite codes.
+	 */
+	public List<String> getCandidates() {
+		return candidates;
+	}
+
+}
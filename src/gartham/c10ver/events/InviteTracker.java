@@ -1,11 +1,15 @@
 package gartham.c10ver.events;
 
-import java.time.Duration;
-import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import gartham.c10ver.utils.TimingWheel;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Invite;
@@ -15,48 +19,323 @@ import net.dv8tion.jda.api.events.guild.invite.GuildInviteDeleteEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
 import net.dv8tion.jda.api.events.guild.update.GuildUpdateVanityCodeEvent;
 
+/**
+ * <p>
+ * Keeps a snapshot of how many uses each invite of each guild has, so that the
+ * invite a new member joined with can be worked out by comparing the snapshot
+ * against a freshly retrieved invite list. All of the retrieval is done through
+ * the {@link gartham.c10ver.rest.RestPipeline}, so nothing here waits on
+ * Discord.
+ * </p>
+ * <p>
+ * Joins are resolved in batches: the first join to a guild starts a short
+ * window (<code>-Dclover.invite-batch-millis</code>, 750 by default), and
+ * every join to that guild within the window is resolved against the same
+ * retrieval. During a raid, that's one retrieval per window instead of one per
+ * join. A batch is resolved like this:
+ * </p>
+ * <ul>
+ * <li>If exactly one invite was used, every join in the batch is attributed to
+ * it. If it has fewer new uses than the batch has joins, only the earliest
+ * joins are; the rest may not have shown up in the invite list yet, and are
+ * carried over to the next batch once before being given up on.</li>
+ * <li>If several invites were used, which join used which can't be told, and
+ * every join in the batch is {@link InviteAttribution.Kind#AMBIGUOUS
+ * ambiguous}.</li>
+ * <li>If no invite was used, the joins are carried over like above.</li>
+ * </ul>
+ * <p>
+ * Invites that reach their maximum number of uses are deleted by Discord, so a
+ * used-up invite shows up as a missing one; an invite that goes missing with
+ * no more uses left than there are joins in the batch counts as having been
+ * used up.
+ * </p>
+ * <p>
+ * Snapshots are also refreshed in the background
+ * (<code>-Dclover.invite-refresh-seconds</code>, 300 by default), to pick up
+ * expirations and anything else that was missed. Uses that a background
+ * refresh finds are kept for a while, for joins whose events arrive after the
+ * refresh.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
 public class InviteTracker {
-	private final Map<String, Map<String, Integer>> invites = new HashMap<>();
+
+	private static final long BATCH_MILLIS = Long.getLong("clover.invite-batch-millis", 750),
+			REFRESH_SECONDS = Long.getLong("clover.invite-refresh-seconds", 300), UNCLAIMED_MILLIS = 30_000;
+	/**
+	 * How many times an unresolved join is carried over to the next batch.
+	 */
+	private static final int MAX_CARRIES = 1;
+
+	private static final class PendingJoin {
+		private final CompletableFuture<InviteAttribution> result = new CompletableFuture<>();
+		private int carries;
+	}
+
+	/**
+	 * The tracked state of one guild's invites. Everything is guarded by the
+	 * object's monitor.
+	 */
+	private final class GuildInvites {
+		private final String guildID;
+		/**
+		 * The invites from the last retrieval (and creation events since), by code.
+		 */
+		private Map<String, Invite> invites = new HashMap<>();
+		/**
+		 * The use counts of {@link #invites}, by code.
+		 */
+		private Map<String, Integer> uses = new HashMap<>();
+		/**
+		 * Invites deleted since the last retrieval, with their last known use
+		 * counts.
+		 */
+		private final Map<Invite, Integer> deleted = new HashMap<>();
+		private String vanityCode;
+		private int vanityUses = -1;
+		private boolean loaded, busy;
+		private final List<PendingJoin> pending = new ArrayList<>();
+		private Map<String, Integer> unclaimed = Map.of();
+		private long unclaimedSince;
+
+		private GuildInvites(String guildID) {
+			this.guildID = guildID;
+		}
+
+		private synchronized CompletableFuture<InviteAttribution> join() {
+			var j = new PendingJoin();
+			pending.add(j);
+			if (!busy) {
+				busy = true;
+				timer.schedule(BATCH_MILLIS, TimeUnit.MILLISECONDS, this::flush);
+			}
+			return j.result;
+		}
+
+		/**
+		 * Refreshes the snapshot, unless a batch is about to do so anyway.
+		 */
+		private void refresh() {
+			synchronized (this) {
+				if (busy)
+					return;
+				busy = true;
+			}
+			retrieve(List.of());
+		}
+
+		private void flush() {
+			List<PendingJoin> joins;
+			synchronized (this) {
+				joins = new ArrayList<>(pending);
+				pending.clear();
+			}
+			retrieve(joins);
+		}
+
+		private void retrieve(List<PendingJoin> joins) {
+			Guild guild = eventHandler.getClover().getBot().getGuildById(guildID);
+			if (guild == null) {
+				for (var j : joins)
+					j.result.complete(InviteAttribution.unknown());
+				done();
+				return;
+			}
+			var rest = eventHandler.getClover().getRest();
+			CompletableFuture<VanityInvite> vanity = guild.getVanityCode() != null
+					&& guild.getSelfMember().hasPermission(Permission.MANAGE_SERVER)
+							? rest.submit(guild.retrieveVanityInvite())
+							: CompletableFuture.completedFuture(null);
+			rest.submit(guild.retrieveInvites()).thenCombine(vanity, (list, v) -> {
+				synchronized (this) {
+					return resolve(list, v, joins);
+				}
+			}).whenComplete((results, e) -> {
+				if (e != null) {
+					System.err.println("Failed to retrieve the invites of the guild " + guildID + '.');
+					e.printStackTrace();
+					for (var j : joins)
+						j.result.completeExceptionally(e);
+				} else
+					for (var r : results.entrySet())
+						r.getKey().result.complete(r.getValue());
+				done();
+			});
+		}
+
+		/**
+		 * Ends a retrieval, and starts the next batch if joins came in during it.
+		 */
+		private synchronized void done() {
+			busy = !pending.isEmpty();
+			if (busy)
+				timer.schedule(BATCH_MILLIS, TimeUnit.MILLISECONDS, this::flush);
+		}
+
+		/**
+		 * Replaces the snapshot with the retrieved invites, and attributes the joins
+		 * based on the difference. Joins that are carried over are put back into
+		 * {@link #pending} and left out of the result.
+		 */
+		private Map<PendingJoin, InviteAttribution> resolve(List<Invite> list, VanityInvite vanity,
+				List<PendingJoin> joins) {
+			// New uses since the last snapshot, by code, in the order they were found.
+			Map<String, Integer> used = new LinkedHashMap<>();
+			Map<String, Invite> known = new HashMap<>(invites), fresh = new HashMap<>();
+			Map<String, Integer> freshUses = new HashMap<>();
+			for (var i : list) {
+				fresh.put(i.getCode(), i);
+				freshUses.put(i.getCode(), i.getUses());
+				known.put(i.getCode(), i);
+				int d = i.getUses() - uses.getOrDefault(i.getCode(), 0);
+				if (loaded && d > 0)
+					used.merge(i.getCode(), d, Integer::sum);
+			}
+			for (var e : invites.entrySet())
+				if (!fresh.containsKey(e.getKey()))
+					usedUp(e.getValue(), uses.get(e.getKey()), joins.size(), used);
+			for (var e : deleted.entrySet()) {
+				known.put(e.getKey().getCode(), e.getKey());
+				usedUp(e.getKey(), e.getValue(), joins.size(), used);
+			}
+			deleted.clear();
+			if (vanity != null) {
+				if (loaded && vanityUses >= 0 && vanity.getUses() > vanityUses)
+					used.merge(vanity.getCode(), vanity.getUses() - vanityUses, Integer::sum);
+				vanityCode = vanity.getCode();
+				vanityUses = vanity.getUses();
+			}
+			if (System.currentTimeMillis() - unclaimedSince < UNCLAIMED_MILLIS)
+				unclaimed.forEach((k, v) -> used.merge(k, v, Integer::sum));
+			unclaimed = Map.of();
+			invites = fresh;
+			uses = freshUses;
+			boolean wasLoaded = loaded;
+			loaded = true;
+
+			Map<PendingJoin, InviteAttribution> results = new LinkedHashMap<>();
+			if (joins.isEmpty()) {
+				// A background refresh; the joins these uses belong to may not have arrived yet.
+				if (!used.isEmpty()) {
+					unclaimed = used;
+					unclaimedSince = System.currentTimeMillis();
+				}
+				return results;
+			}
+			if (!wasLoaded) {
+				// There's nothing to compare against.
+				for (var j : joins)
+					results.put(j, InviteAttribution.unknown());
+				return results;
+			}
+			if (used.size() > 1) {
+				var candidates = new ArrayList<>(used.keySet());
+				for (var j : joins)
+					results.put(j, InviteAttribution.ambiguous(candidates));
+				return results;
+			}
+
+			int i = 0;
+			if (used.size() == 1) {
+				var e = used.entrySet().iterator().next();
+				var invite = known.get(e.getKey());
+				var attribution = e.getKey().equals(vanityCode) ? InviteAttribution.vanity(e.getKey())
+						: invite == null ? InviteAttribution.unknown() : InviteAttribution.invite(invite);
+				for (; i < joins.size() && i < e.getValue(); i++)
+					results.put(joins.get(i), attribution);
+				if (e.getValue() > joins.size()) {
+					unclaimed = Map.of(e.getKey(), e.getValue() - joins.size());
+					unclaimedSince = System.currentTimeMillis();
+				}
+			}
+			for (; i < joins.size(); i++) {
+				var j = joins.get(i);
+				if (j.carries++ < MAX_CARRIES)
+					pending.add(j);
+				else
+					results.put(j, InviteAttribution.unknown());
+			}
+			return results;
+		}
+
+		/**
+		 * Counts an invite that has gone missing as used up, if it was close enough
+		 * to its maximum number of uses for the joins to have used it up.
+		 */
+		private void usedUp(Invite invite, Integer lastUses, int joins, Map<String, Integer> used) {
+			if (!loaded || lastUses == null || invite.getMaxUses() <= 0)
+				return;
+			int left = invite.getMaxUses() - lastUses;
+			if (left > 0 && left <= joins)
+				used.merge(invite.getCode(), left, Integer::sum);
+		}
+
+		private synchronized void inviteCreated(Invite invite) {
+			invites.put(invite.getCode(), invite);
+			uses.put(invite.getCode(), invite.getUses());
+		}
+
+		private synchronized void inviteDeleted(String code) {
+			var i = invites.remove(code);
+			var u = uses.remove(code);
+			if (i != null && u != null)
+				deleted.put(i, u);
+		}
+
+		private synchronized void vanityUpdated(String code) {
+			vanityCode = code;
+			vanityUses = code == null ? -1 : 0;
+		}
+	}
+
+	private final Map<String, GuildInvites> guilds = new ConcurrentHashMap<>();
+	private final TimingWheel timer = new TimingWheel(50, TimeUnit.MILLISECONDS, "Invite Tracker");
 	private final EventHandler eventHandler;
 
 	public InviteTracker(EventHandler eventHandler) {
 		this.eventHandler = eventHandler;
 	}
 
+	private GuildInvites guild(String guildID) {
+		return guilds.computeIfAbsent(guildID, GuildInvites::new);
+	}
+
 	public void initialize() {
 		try {
 			eventHandler.getClover().getBot().awaitReady();
 		} catch (InterruptedException e) {
 		}
 		for (Guild g : eventHandler.getClover().getBot().getGuilds()) {
-			Map<String, Integer> invmap = new HashMap<>();
-			invites.put(g.getId(), invmap);
-			for (var i : g.retrieveInvites().complete())
-				invmap.put(i.getCode(), i.getUses());
 			if (g.getSelfMember().hasPermission(Permission.ADMINISTRATOR)) {
-				if (g.getVanityCode() != null) {
-//					System.out.println("Getting Vanity Invite for " + g.getName());
-					invmap.put(g.getVanityCode(), g.retrieveVanityInvite().complete().getUses());
-				} else
+				if (g.getVanityCode() == null)
 					System.out.println(g.getName()
 							+ " does not have a vanity code! Server excluded from vanity code invite tracking.");
 			} else
 				System.out.println("No manage server perms on " + g.getName() + " so vanity invite tracking disabled!");
+			guild(g.getId()).refresh();
 		}
+		timer.schedule(REFRESH_SECONDS, TimeUnit.SECONDS, this::refreshAll);
+	}
 
+	private void refreshAll() {
+		for (Guild g : eventHandler.getClover().getBot().getGuilds())
+			guild(g.getId()).refresh();
+		timer.schedule(REFRESH_SECONDS, TimeUnit.SECONDS, this::refreshAll);
 	}
 
 	public void vanityUpdate(GuildUpdateVanityCodeEvent ev) {
-		invites.get(ev.getGuild().getId()).remove(ev.getOldVanityCode());
-		invites.get(ev.getGuild().getId()).put(ev.getNewVanityCode(), 0);
+		guild(ev.getGuild().getId()).vanityUpdated(ev.getNewVanityCode());
 	}
 
 	public void inviteCreated(GuildInviteCreateEvent ev) {
 		try {
+			var inviter = ev.getInvite().getInviter();
 			System.out.println("Invite " + ev.getCode() + " created by: "
-					+ ev.getInvite().expand().complete().getInviter().getAsMention());
-			invites.get(ev.getGuild().getId()).put(ev.getInvite().expand().complete().getCode(),
-					ev.getInvite().getUses());
+					+ (inviter == null ? "an unknown user" : inviter.getAsMention()));
+			guild(ev.getGuild().getId()).inviteCreated(ev.getInvite());
 		} catch (Exception e) {
 			System.out.println("Error occurred while trying to store created invite.");
 			e.printStackTrace();
@@ -66,7 +345,7 @@ public class InviteTracker {
 	public void inviteDeleted(GuildInviteDeleteEvent ev) {
 		try {
 			System.out.println("Invite " + ev.getCode() + " from: " + ev);
-			invites.get(ev.getGuild().getId()).remove(ev.getCode());
+			guild(ev.getGuild().getId()).inviteDeleted(ev.getCode());
 		} catch (Exception e) {
 			System.out.println("Error occurred while trying to propagate deletion of invite.");
 			e.printStackTrace();
@@ -74,51 +353,16 @@ public class InviteTracker {
 	}
 
 	/**
-	 * 
-	 * 
+	 * Works out which invite the member in the specified join event used. The join
+	 * is resolved together with the other joins to the same guild in its batch;
+	 * see the {@link InviteTracker class documentation}.
+	 *
 	 * @param ev The join event.
-	 * @return Returns null if the invite is the vanity invite, otherwise, returns
-	 *         the used invite.
+	 * @return A {@link CompletableFuture} of the {@link InviteAttribution}, which
+	 *         fails if the guild's invites couldn't be retrieved.
 	 */
-	public Invite calcUser(GuildMemberJoinEvent ev) {
-		var map = invites.get(ev.getGuild().getId());
-		System.out.println(map + "\n");
-		if (ev.getGuild().getVanityCode() != null) {
-			VanityInvite vanityCode = ev.getGuild().retrieveVanityInvite().complete();
-			if (map.get(ev.getGuild().getVanityCode()) != vanityCode.getUses()) {
-				map.put(vanityCode.getCode(), vanityCode.getUses());
-				return null;
-			}
-		}
-		for (Iterator<Invite> iterator = ev.getGuild().retrieveInvites().complete().iterator(); iterator.hasNext();) {
-			var i = iterator.next();
-			if (i.getUses() != map.get(i.getCode())) {
-				if (i.getMaxUses() != 0 && i.getMaxUses() <= map.get(i.getCode()))
-					map.remove(i.getCode());
-				else {
-					System.out.println(ev.getUser().getAsTag() + " joined with invite: " + i.getCode() + ". It now has "
-							+ i.getUses() + " uses.");
-					map.put(i.getCode(), i.getUses());
-				}
-				while (iterator.hasNext()) {
-					var j = iterator.next();
-					if (j.isTemporary() && Duration.between(OffsetDateTime.now(), j.getTimeCreated()).getSeconds() > j
-							.getMaxAge()) {
-						System.out.println(
-								"Found out that invite: " + j.getCode() + " expired due to time limit. Clearing.");
-						map.remove(j.getCode());
-					}
-				}
-				return i;
-			}
-			if (i.isTemporary()
-					&& Duration.between(OffsetDateTime.now(), i.getTimeCreated()).getSeconds() > i.getMaxAge())
-				map.remove(i.getCode());
-		}
-
-		System.out.println("All invites in cache had same use # as retrieved invites.");
-
-		throw new RuntimeException("Something went wrong!");
+	public CompletableFuture<InviteAttribution> calcUser(GuildMemberJoinEvent ev) {
+		return guild(ev.getGuild().getId()).join();
 	}
 
 }
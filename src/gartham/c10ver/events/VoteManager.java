@@ -2,15 +2,12 @@ package gartham.c10ver.events;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.sql.Date;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 
 import gartham.c10ver.Clover;
@@ -35,16 +32,18 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageChannel;
 import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 
 public class VoteManager {
 
-	private final Timer timer = new Timer(true);
-	private final Map<String, Map<String, TimerTask>> tasks = new HashMap<>();
+	private static final String REMINDER_TYPE = "vote-reminder";
 
 	private final Clover clover;
 
 	public VoteManager(Clover clover) {
 		this.clover = clover;
+		clover.getScheduler().registerHandler(REMINDER_TYPE, this::sendReminder);
 	}
 
 	public void handleVoteRoleAdded(Member member) {
@@ -84,96 +83,94 @@ public class VoteManager {
 								+ "\n\nYou can [vote on top.gg by clicking me](https://top.gg/servers/"
 								+ member.getGuild().getId() + "/vote).");
 
-		MessageChannel channel = s.getVoteChannel() != null ? member.getGuild().getTextChannelById(s.getVoteChannel())
-				: member.getUser().openPrivateChannel().complete();
-
-		if (u.getSettings().isVoteRemindersEnabled()) {
-			scheduleReminder(member, s, voteTime);
-			channel.sendMessage(embed.setFooter(
-					"----> You currently have vote reminders enabled. Disable them with: ~settings vr false <----")
-					.build()).queue();
-		} else
-			channel.sendMessage(embed.setFooter(
-					"You can automatically be reminded when it's time to vote by reacting to this message! (Click the alarm clock.)")
-					.build()).queue((Consumer<? super Message>) t -> {
-						t.addReaction("\u23F0").queue();
-						clover.getEventHandler().getReactionAdditionProcessor().registerInputConsumer(
-								((MessageReactionInputConsumer<MessageReactionAddEvent>) (event, b, consumer) -> {
-									if (event.getReactionEmote().isEmoji()
-											&& event.getReactionEmote().getEmoji().equals("\u23F0")) {
-										clover.getEventHandler().getReactionAdditionProcessor()
-												.removeInputConsumer(consumer);
-										channel.sendMessage(member.getAsMention()
-												+ " vote reminders are now enabled for you! To turn them off, run the command: `~settings vr false`.")
-												.queue();
-										scheduleReminder(member, s, voteTime);
-										setVotingRemindersEnabled(u, s.getServerID(), true);
-										return true;
-									} else
-										return false;
-								}).expires(Instant.now().plusSeconds(180)).filter(member.getUser(), channel));
-					});
-
-	}
-
-	private void scheduleReminder(Member member, Server server, Instant from) {
-		TimerTask task = new TimerTask() {
-
-			@Override
-			public void run() {
-				remove(member.getId(), server.getServerID());
-				MessageChannel channel = server.getVoteChannel() != null
-						? member.getGuild().getTextChannelById(server.getVoteChannel())
-						: member.getUser().openPrivateChannel().complete();
-				channel.sendMessage("Hey there " + member.getAsMention() + "! It's time to vote for **"
-						+ member.getGuild().getName() + "**! Here's the vote link: https://top.gg/servers/"
-						+ member.getGuild().getId()
-						+ "/vote\n\n(REMEMBER: You can disable this using the command: `~settings vr false`.)").queue();
-			}
-		};
-		timer.schedule(task, Date.from(from.plus(12, ChronoUnit.HOURS)));
-
-		var o = put(member.getId(), server.getServerID(), task);
-		if (o != null)
-			o.cancel();
+		voteChannel(member, s).thenAccept(channel -> {
+			if (u.getSettings().isVoteRemindersEnabled()) {
+				scheduleReminder(member, s, voteTime);
+				channel.sendMessage(embed.setFooter(
+						"----> You currently have vote reminders enabled. Disable them with: ~settings vr false <----")
+						.build()).queue();
+			} else
+				channel.sendMessage(embed.setFooter(
+						"You can automatically be reminded when it's time to vote by reacting to this message! (Click the alarm clock.)")
+						.build()).queue((Consumer<? super Message>) t -> {
+							t.addReaction("\u23F0").queue();
+							clover.getEventHandler().getReactionAdditionProcessor().registerMessageConsumer(
+									((MessageReactionInputConsumer<MessageReactionAddEvent>) (event, b, consumer) -> {
+										if (event.getReactionEmote().isEmoji()
+												&& event.getReactionEmote().getEmoji().equals("\u23F0")) {
+											clover.getEventHandler().getReactionAdditionProcessor()
+													.removeInputConsumer(consumer);
+											channel.sendMessage(member.getAsMention()
+													+ " vote reminders are now enabled for you! To turn them off, run the command: `~settings vr false`.")
+													.queue();
+											scheduleReminder(member, s, voteTime);
+											setVotingRemindersEnabled(u, s.getServerID(), true);
+											return true;
+										} else
+											return false;
+									}).expires(Instant.now().plusSeconds(180)).filter(member.getUser(), channel), t.getId());
+						});
+		}).exceptionally(e -> {
+			System.err.println("Failed to send the vote message of " + member.getUser().getAsTag() + '.');
+			e.printStackTrace();
+			return null;
+		});
 	}
 
-	public TimerTask put(String user, String server, TimerTask task) {
-		var u = tasks.get(user);
-		if (u == null)
-			tasks.put(user, u = new HashMap<>());
-
-		var s = u.get(server);
-		u.put(server, task);
-		return s;
+	/**
+	 * Returns the channel that vote messages for the specified member go to: the
+	 * server's vote channel, or the member's DMs if it doesn't have one.
+	 */
+	private CompletableFuture<? extends MessageChannel> voteChannel(Member member, Server server) {
+		var channel = server.getVoteChannel() == null ? null
+				: member.getGuild().getTextChannelById(server.getVoteChannel());
+		if (channel != null)
+			return CompletableFuture.completedFuture(channel);
+		return clover.getRest().submit(member.getUser().openPrivateChannel());
 	}
 
-	public TimerTask remove(String user, String server) {
-		var u = tasks.get(user);
-		if (u != null) {
-			var t = u.remove(server);
-			if (u.isEmpty())
-				tasks.remove(user);
-			return t;
-		}
-		return null;
+	private static String reminderKey(String user, String server) {
+		return REMINDER_TYPE + "/" + user + "/" + server;
 	}
 
-	public TimerTask get(String user, String server) {
-		var u = tasks.get(user);
-		return u == null ? null : u.get(server);
+	private void scheduleReminder(Member member, Server server, Instant from) {
+		clover.getScheduler().schedule(reminderKey(member.getId(), server.getServerID()),
+				from.plus(12, ChronoUnit.HOURS), REMINDER_TYPE, member.getId() + ":" + server.getServerID());
 	}
 
-	public boolean contains(String user, String server) {
-		return get(user, server) != null;
+	/**
+	 * Sends a vote reminder. This runs on one of the
+	 * {@link gartham.c10ver.scheduling.Scheduler}'s worker threads, possibly after
+	 * a restart, so the member is looked up again (without waiting on it).
+	 */
+	private void sendReminder(String key, String data) {
+		int i = data.indexOf(':');
+		String userID = data.substring(0, i), guildID = data.substring(i + 1);
+		var guild = clover.getBot().getGuildById(guildID);
+		if (guild == null)
+			return;
+		var server = clover.getEconomy().getServer(guildID);
+		// If the member can't be retrieved, they left the server, and the reminder is dropped quietly.
+		clover.getRest().submit(guild.retrieveMemberById(userID))
+				.thenCompose(member -> voteChannel(member, server).thenAccept(channel -> channel
+						.sendMessage("Hey there " + member.getAsMention() + "! It's time to vote for **"
+								+ guild.getName() + "**! Here's the vote link: https://top.gg/servers/" + guild.getId()
+								+ "/vote\n\n(REMEMBER: You can disable this using the command: `~settings vr false`.)")
+						.queue()))
+				.exceptionally(e -> {
+					var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					if (!(cause instanceof ErrorResponseException
+							&& ((ErrorResponseException) cause).getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER)) {
+						System.err.println("Failed to send the vote reminder " + key + '.');
+						cause.printStackTrace();
+					}
+					return null;
+				});
 	}
 
 	public void setVotingRemindersEnabled(User user, String server, boolean b) {
-		if (!b) {
-			var x = remove(user.getUserID(), server);
-			if (x != null)
-				x.cancel();
-		}
+		if (!b)
+			clover.getScheduler().cancel(reminderKey(user.getUserID(), server));
 		user.getSettings().setVoteRemindersEnabled(b);
 		user.getSettings().save();
 	}
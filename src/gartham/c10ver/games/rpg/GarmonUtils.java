@@ -1,9 +1,11 @@
 package gartham.c10ver.games.rpg;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.alixia.javalibrary.JavaTools;
 import org.alixia.javalibrary.strings.StringTools;
@@ -18,21 +20,22 @@ import gartham.c10ver.games.rpg.creatures.Creature;
 import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattle;
 import gartham.c10ver.games.rpg.fighting.battles.app.GarmonFighter;
 import gartham.c10ver.games.rpg.fighting.battles.app.GarmonTeam;
+import gartham.c10ver.rest.RestPipeline;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.entities.Webhook;
 
 public class GarmonUtils {
 
-	private static final Map<String, JDAWebhookClient> clients = new HashMap<>();
+	private static final Map<String, JDAWebhookClient> clients = new ConcurrentHashMap<>();
 
 	private GarmonUtils() {
 	}
 
 	private static String getField(GarmonFighter f, GarmonBattle battle) {
-		return "\\\u2764\uFE0F `" + f.getHealth() + "/" + f.getMaxHealth() + "` \u200b \u200b \\\u2694\uFE0F `"
-				+ f.getAttack() + "` \u200b \u200b \\\uD83D\uDEE1\uFE0F `" + f.getDefense()
-				+ "` \u200b \u200b \\\uD83D\uDCA8\uFE0F `" + f.getSpeed() + "`\nTeam: "
+		return "\\\u2764\uFE0F `" + f.getHealthLong() + "/" + f.getMaxHealthLong() + "` \u200b \u200b \\\u2694\uFE0F `"
+				+ f.getAttackLong() + "` \u200b \u200b \\\uD83D\uDEE1\uFE0F `" + f.getDefenseLong()
+				+ "` \u200b \u200b \\\uD83D\uDCA8\uFE0F `" + f.getSpeedLong() + "`\nTeam: "
 				+ battle.getFighterTeam(f).getName();
 	}
 
@@ -55,56 +58,60 @@ public class GarmonUtils {
 	 * Tries to provide a feasible webhook for use. This method iterates over all
 	 * the webhooks it retrieves from the specified channel. If any one of them is
 	 * created by the bot user (more specifically, if its owner is the bot user), it
-	 * is returned. Otherwise, an attempt is made to create a new webhook. This
-	 * function will throw exceptions if it does not have the appropriate
-	 * permissions or if an error occurs during the retrieval or creation of a
-	 * webhook.
+	 * is returned. Otherwise, an attempt is made to create a new webhook. The
+	 * returned future fails if the bot does not have the appropriate permissions or
+	 * if an error occurs during the retrieval or creation of a webhook.
 	 * 
 	 * @param channel The channel that the webhook will belong to.
-	 * @return The {@link Webhook} that was found or newly created.
+	 * @return A {@link CompletableFuture} of the {@link Webhook} that was found or
+	 *         newly created.
 	 */
-	public static Webhook getFeasibleWebhook(TextChannel channel) {
-		for (Webhook wb : channel.retrieveWebhooks().complete())
-			if (wb.getOwner().getId().equals(channel.getJDA().getSelfUser().getId()))
-				return wb;
-		byte[] b = new byte[5];
-		new Random().nextBytes(b);// 1/2^40 collision chance.
-		return channel.createWebhook(StringTools.toHexString(b)).complete();
-	}
-
-	public static void queueWithFeasibleWebhook(TextChannel channel, Consumer<Webhook> consumer) {
-		channel.retrieveWebhooks().queue(t -> {
+	public static CompletableFuture<Webhook> getFeasibleWebhook(TextChannel channel) {
+		return RestPipeline.queue(channel.retrieveWebhooks()).thenCompose(t -> {
 			for (Webhook wb : t)
-				if (wb.getOwner().getId().equals(channel.getJDA().getSelfUser().getId())) {
-					consumer.accept(wb);
-					return;
-				}
+				if (wb.getOwner().getId().equals(channel.getJDA().getSelfUser().getId()))
+					return CompletableFuture.completedFuture(wb);
 			byte[] b = new byte[5];
 			new Random().nextBytes(b);// 1/2^40 collision chance.
-			channel.createWebhook(StringTools.toHexString(b)).queue(t1 -> consumer.accept(t1));
+			return RestPipeline.queue(channel.createWebhook(StringTools.toHexString(b)), false);
 		});
 	}
 
+	/**
+	 * Returns a handler for {@link CompletableFuture#exceptionally(Function)} that
+	 * logs that the specified action failed, so that failures of futures that
+	 * nothing else waits on aren't lost.
+	 */
+	private static <T> Function<Throwable, T> logFailure(String action) {
+		return e -> {
+			System.err.println("Failed to " + action + '.');
+			e.printStackTrace();
+			return null;
+		};
+	}
+
+	public static void queueWithFeasibleWebhook(TextChannel channel, Consumer<Webhook> consumer) {
+		getFeasibleWebhook(channel).thenAccept(consumer)
+				.exceptionally(logFailure("get a webhook for the channel " + channel.getId()));
+	}
+
 	public static void queueWithClient(TextChannel channel, Consumer<JDAWebhookClient> consumer) {
-		if (clients.containsKey(channel.getId()))
-			consumer.accept(clients.get(channel.getId()));
-		else {
-			queueWithFeasibleWebhook(channel, t -> {
-				var cl = WebhookClientBuilder.fromJDA(t).buildJDA();
-				clients.put(channel.getId(), cl);
-				consumer.accept(cl);
-			});
-		}
+		getClient(channel).thenAccept(consumer)
+				.exceptionally(logFailure("get a webhook client for the channel " + channel.getId()));
 	}
 
-	public static JDAWebhookClient getClient(TextChannel channel) {
-		if (clients.containsKey(channel.getId()))
-			return clients.get(channel.getId());
-		else {
-			var cl = WebhookClientBuilder.fromJDA(getFeasibleWebhook(channel)).buildJDA();
-			clients.put(channel.getId(), cl);
-			return cl;
-		}
+	public static CompletableFuture<JDAWebhookClient> getClient(TextChannel channel) {
+		var client = clients.get(channel.getId());
+		if (client != null)
+			return CompletableFuture.completedFuture(client);
+		return getFeasibleWebhook(channel).thenApply(t -> {
+			var cl = WebhookClientBuilder.fromJDA(t).buildJDA();
+			var prev = clients.putIfAbsent(channel.getId(), cl);
+			if (prev == null)
+				return cl;
+			cl.close();// Another lookup for the same channel got there first.
+			return prev;
+		});
 	}
 
 	public static void sendAsCreature(Creature creature, String message, EmbedBuilder embed, TextChannel channel) {
@@ -118,17 +125,26 @@ public class GarmonUtils {
 			wmb.setContent(message);
 		if (embed != null)
 			wmb.addEmbeds(WebhookEmbedBuilder.fromJDA(embed.build()).build());
-		JDAWebhookClient client = getClient(channel);
-		@NotNull
-		WebhookMessage builtmsg = wmb.build();
-		client.send(builtmsg).exceptionally(t -> {
+		send(wmb.build(), channel);
+	}
+
+	/**
+	 * Sends the specified message over the channel's webhook, retrying once with a
+	 * refreshed webhook client if sending fails (e.g. because the webhook was
+	 * deleted). Failures are logged.
+	 *
+	 * @param message The message.
+	 * @param channel The channel to send it in.
+	 */
+	public static void send(@NotNull WebhookMessage message, TextChannel channel) {
+		getClient(channel).thenCompose(client -> client.send(message).exceptionallyCompose(t -> {
 			System.err.println(
 					"An error occurred while sending a webhook message over a webhook (hook URL: " + client.getUrl()
 							+ ").\nPerhaps the webhook was deleted. Retrying with a refreshed webhook client.");
 			t.printStackTrace();
-			clients.remove(channel.getId());
-			return getClient(channel).send(builtmsg).join();
-		});
+			clients.remove(channel.getId(), client);
+			return getClient(channel).thenCompose(c -> c.send(message));
+		})).exceptionally(logFailure("send a webhook message in the channel " + channel.getId()));
 	}
 
 	public static void sendAsCreature(Creature creature, EmbedBuilder embed, TextChannel channel) {
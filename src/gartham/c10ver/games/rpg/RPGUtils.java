@@ -1,8 +1,6 @@
 package gartham.c10ver.games.rpg;
 
-import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 
 public class RPGUtils {
 	private static final String[][] BARS = { { "<:HealthFront:856774887379959818>" },
@@ -20,19 +18,63 @@ public class RPGUtils {
 					"<:HealthSectionFullMedium:863306492949823488>" },
 					{ "<:HealthBackEmptyMedium:863306492941565982>", "<:HealthBackFullMedium:863306492714156053>" } };
 
-	public static String calcHealthbar(BigInteger health, BigInteger maxHealth) {
-		StringBuilder bar = new StringBuilder(LARGE_BARS[0][0]);
-		if (health.equals(maxHealth)) {
-			bar.append(LARGE_BARS[1][LARGE_BARS[1].length - 1]);
-			bar.append(LARGE_BARS[2][1]);
-		} else {
-			bar.append(LARGE_BARS[1][health.equals(BigInteger.ZERO) ? 0
-					: new BigDecimal(health.multiply(BigInteger.valueOf(LARGE_BARS[1].length - 1)))
-							.divide(new BigDecimal(maxHealth), RoundingMode.HALF_UP).setScale(0, RoundingMode.HALF_UP)
-							.intValue()]);
-			bar.append(LARGE_BARS[2][0]);
-		}
+	/**
+	 * Every healthbar {@link #calcHealthbar(long, long)} can return. The bar at
+	 * index <code>i</code> has its section filled to level <code>i</code> and an
+	 * empty back; the last bar is completely full.
+	 */
+	private static final String[] HEALTHBARS = new String[LARGE_BARS[1].length + 1];
+	static {
+		for (int i = 0; i < LARGE_BARS[1].length; i++)
+			HEALTHBARS[i] = LARGE_BARS[0][0] + LARGE_BARS[1][i] + LARGE_BARS[2][0];
+		HEALTHBARS[LARGE_BARS[1].length] = LARGE_BARS[0][0] + LARGE_BARS[1][LARGE_BARS[1].length - 1]
+				+ LARGE_BARS[2][1];
+	}
 
-		return bar.toString();
+	/**
+	 * Returns the healthbar for a fighter with the specified health. The section
+	 * is filled to the nearest eighth of the fighter's max health (rounding
+	 * halves up), and the back of the bar is only filled at full health. The bars
+	 * are built ahead of time, so this doesn't allocate.
+	 * 
+	 * @param health    The fighter's health.
+	 * @param maxHealth The fighter's max health.
+	 * @return The healthbar.
+	 */
+	public static String calcHealthbar(long health, long maxHealth) {
+		if (health == maxHealth)
+			return HEALTHBARS[HEALTHBARS.length - 1];
+		int steps = LARGE_BARS[1].length - 1;
+		if (health <= 0)
+			return HEALTHBARS[0];
+		if (health >= maxHealth)
+			return HEALTHBARS[steps];
+		// health * steps / maxHealth, rounded half up, in longs unless that could overflow.
+		if (health <= Long.MAX_VALUE / (4 * steps) && maxHealth <= Long.MAX_VALUE / 2)
+			return HEALTHBARS[(int) ((2 * steps * health + maxHealth) / (2 * maxHealth))];
+		return calcHealthbar(BigInteger.valueOf(health), BigInteger.valueOf(maxHealth));
+	}
+
+	/**
+	 * Returns the healthbar for a fighter with the specified health, like
+	 * {@link #calcHealthbar(long, long)}, which this uses whenever the values are
+	 * small enough.
+	 * 
+	 * @param health    The fighter's health.
+	 * @param maxHealth The fighter's max health.
+	 * @return The healthbar.
+	 */
+	public static String calcHealthbar(BigInteger health, BigInteger maxHealth) {
+		if (health.bitLength() < Long.SIZE - 5 && maxHealth.bitLength() < Long.SIZE - 2)
+			return calcHealthbar(health.longValue(), maxHealth.longValue());
+		if (health.equals(maxHealth))
+			return HEALTHBARS[HEALTHBARS.length - 1];
+		var steps = BigInteger.valueOf(LARGE_BARS[1].length - 1);
+		if (health.signum() <= 0)
+			return HEALTHBARS[0];
+		if (health.compareTo(maxHealth) >= 0)
+			return HEALTHBARS[steps.intValue()];
+		return HEALTHBARS[health.multiply(steps).shiftLeft(1).add(maxHealth).divide(maxHealth.shiftLeft(1))
+				.intValue()];
 	}
 }
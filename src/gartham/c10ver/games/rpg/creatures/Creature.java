@@ -1,8 +1,6 @@
 package gartham.c10ver.games.rpg.creatures;
 
-import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 
 import org.alixia.javalibrary.json.JSONObject;
 import org.alixia.javalibrary.util.Gateway;
@@ -14,35 +12,34 @@ import gartham.c10ver.games.rpg.fighting.fighters.Fighter;
 
 public abstract class Creature extends PropertyObject implements Comparable<Creature> {
 
-	private static final BigInteger BI_FIFTY = BigInteger.valueOf(50);
-	private static final BigDecimal BI_TWO = BigDecimal.valueOf(2), C1 = BigDecimal.valueOf(5.48481),
-			NATURAL_LOG_OF_TEN = BigDecimal.valueOf(2.302585092994);
-
-	private static final BigDecimal ln(BigDecimal value, int itrc, int rprec) {
-		if (value.signum() == 0)
-			throw new ArithmeticException("Negative infinity.");
-		int digits = value.precision() - value.scale() - 1;
-
-		var shrunk = value.movePointLeft(digits);
-		var frac = shrunk.subtract(BigDecimal.ONE).divide(shrunk.add(BigDecimal.ONE), RoundingMode.HALF_UP);
-
-		BigDecimal bd = BigDecimal.ZERO;
-		for (int i = 0; i < itrc; i++) {
-			int q = 2 * i + 1;
-			bd = bd.add(frac.pow(q).divide(BigDecimal.valueOf(q), RoundingMode.HALF_UP));
-		}
-		bd.setScale(rprec, RoundingMode.HALF_UP);
-
-		return bd.multiply(BI_TWO).add(NATURAL_LOG_OF_TEN.multiply(BigDecimal.valueOf(digits)));
+	public BigInteger xpToNextLevel() {
+		return XPCurve.xpForLevel(getLevel()).subtract(getXP());
 	}
 
-	private static BigInteger xpForLevel(BigInteger level) {
-		return C1.multiply(new BigDecimal(level)).multiply(ln(new BigDecimal(level), 5, 5))
-				.setScale(0, RoundingMode.HALF_UP).toBigInteger().add(BI_FIFTY);
+	/**
+	 * Returns how much more XP this {@link Creature} needs to reach the specified
+	 * level.
+	 * 
+	 * @param level The level to reach.
+	 * @return The XP needed, or a non-positive amount if the {@link Creature} is
+	 *         already at or past the level.
+	 */
+	public BigInteger xpToLevel(BigInteger level) {
+		var current = getLevel();
+		if (level.compareTo(current) <= 0)
+			return XPCurve.xpBetween(level, current).add(getXP()).negate();
+		return XPCurve.xpBetween(current, level).subtract(getXP());
 	}
 
-	public BigInteger xpToNextLevel() {
-		return xpForLevel(getLevel()).subtract(getXP());
+	/**
+	 * Returns the level that this {@link Creature} would reach if it were
+	 * {@link #rewardXP(BigInteger) rewarded} the specified amount of XP.
+	 * 
+	 * @param xp The amount of experience.
+	 * @return The level.
+	 */
+	public BigInteger levelAfter(BigInteger xp) {
+		return XPCurve.levelUp(getLevel(), getXP().add(xp))[0];
 	}
 
 	protected String fullImage, pfp, emoji, name;
@@ -150,7 +147,8 @@ public abstract class Creature extends PropertyObject implements Comparable<Crea
 	}
 
 	public final BigInteger getXP() {
-		return xp.get();
+		var xp = this.xp.get();
+		return xp == null ? BigInteger.ZERO : xp;
 	}
 
 	public void setLevel(BigInteger level) {
@@ -163,15 +161,16 @@ public abstract class Creature extends PropertyObject implements Comparable<Crea
 
 	/**
 	 * Adds the specified amount of xp to this {@link Creature} and levels up the
-	 * {@link Creature} as appropriate.
+	 * {@link Creature} as appropriate. However much XP is added, the new level is
+	 * found with a binary search over the {@link XPCurve XP curve}, rather than by
+	 * going through the levels one at a time.
 	 * 
 	 * @param xp The amount of experience to add.
 	 */
 	public void rewardXP(BigInteger xp) {
-		setXP(this.xp.get().add(xp));
-		BigInteger xp2nl;
-		while ((xp2nl = xpToNextLevel()).signum() < 1)
-			setXP(xp2nl.negate());
+		var leveled = XPCurve.levelUp(getLevel(), getXP().add(xp));
+		setLevel(leveled[0]);
+		setXP(leveled[1]);
 	}
 
 	public GID getID() {
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 
 import gartham.c10ver.data.autosave.SavablePropertyObject;
+import gartham.c10ver.data.autosave.WriteBehindSaver;
 import gartham.c10ver.utils.Utilities;
 
 public class CreatureBox extends SavablePropertyObject {
@@ -37,7 +38,7 @@ public class CreatureBox extends SavablePropertyObject {
 	}
 
 	private void save(Creature creature) {
-		Utilities.save(creature.toJSON(), new File(creatureDir, "crtr-" + creature.getID().getHex()));
+		WriteBehindSaver.save(creature, creature.toJSON(), new File(creatureDir, "crtr-" + creature.getID().getHex()));
 	}
 
 	public int indexOf(Creature creature) {
@@ -75,13 +76,28 @@ public class CreatureBox extends SavablePropertyObject {
 
 	@Override
 	public void load() {
-		if (creatureDir.isDirectory())
-			for (File f : creatureDir.listFiles())
-				if (f.getName().startsWith("crtr-") && f.isFile())
-					add(Creature.from(Utilities.loadObj(f)));
+		for (String f : Utilities.getStorage().listFiles(creatureDir))
+			if (f.startsWith("crtr-"))
+				add(Creature.from(Utilities.loadObj(new File(creatureDir, f))));
 		super.load();
 	}
 
+	/**
+	 * Returns whether this box, or any {@link Creature} in it, has a write pending
+	 * in the specified {@link WriteBehindSaver}.
+	 * 
+	 * @param saver The {@link WriteBehindSaver} to check.
+	 * @return <code>true</code> if a write is pending.
+	 */
+	public boolean hasPendingSaves(WriteBehindSaver saver) {
+		if (saver.isPending(this))
+			return true;
+		for (Creature c : creatures)
+			if (saver.isPending(c))
+				return true;
+		return false;
+	}
+
 	public int getCapacity() {
 		return capacity.get();
 	}
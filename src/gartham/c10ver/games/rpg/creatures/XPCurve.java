@@ -0,0 +1,174 @@
+package gartham.c10ver.games.rpg.creatures;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The XP curve that {@link Creature}s level along. How much XP a level takes is
+ * {@link #series(BigInteger) worked out} with a <code>BigDecimal</code> series,
+ * which is slow, so the curve is kept in a table of the total XP it takes to
+ * reach each level from level 1. The table is worked out once per level, and
+ * only as far as it's needed; it then answers how much XP a level takes, how
+ * much XP it takes to get from one level to another, and (by binary search)
+ * what level some amount of XP gets a creature to.
+ * </p>
+ * <p>
+ * The table stops at {@link #MAX_LEVEL}; past that, levels are worked out one at
+ * a time again.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+final class XPCurve {
+
+	private XPCurve() {
+	}
+
+	/**
+	 * The highest level that the table goes up to.
+	 */
+	static final int MAX_LEVEL = 1 << 20;
+
+	private static final BigInteger BI_FIFTY = BigInteger.valueOf(50);
+	private static final BigDecimal BI_TWO = BigDecimal.valueOf(2), C1 = BigDecimal.valueOf(5.48481),
+			NATURAL_LOG_OF_TEN = BigDecimal.valueOf(2.302585092994);
+
+	/**
+	 * The total XP it takes to get from level 1 to each level, indexed by level.
+	 * (Index 0 is unused.) The table only ever grows, and is replaced rather than
+	 * modified when it does, so it can be read without locking.
+	 */
+	private static volatile long[] totals = { 0, 0 };
+
+	private static final BigDecimal ln(BigDecimal value, int itrc, int rprec) {
+		if (value.signum() == 0)
+			throw new ArithmeticException("Negative infinity.");
+		int digits = value.precision() - value.scale() - 1;
+
+		var shrunk = value.movePointLeft(digits);
+		var frac = shrunk.subtract(BigDecimal.ONE).divide(shrunk.add(BigDecimal.ONE), RoundingMode.HALF_UP);
+
+		BigDecimal bd = BigDecimal.ZERO;
+		for (int i = 0; i < itrc; i++) {
+			int q = 2 * i + 1;
+			bd = bd.add(frac.pow(q).divide(BigDecimal.valueOf(q), RoundingMode.HALF_UP));
+		}
+		bd.setScale(rprec, RoundingMode.HALF_UP);
+
+		return bd.multiply(BI_TWO).add(NATURAL_LOG_OF_TEN.multiply(BigDecimal.valueOf(digits)));
+	}
+
+	/**
+	 * Works out the XP it takes to get from the specified level to the next one,
+	 * without the table.
+	 *
+	 * @param level The level.
+	 * @return The XP that the level takes.
+	 */
+	static BigInteger series(BigInteger level) {
+		return C1.multiply(new BigDecimal(level)).multiply(ln(new BigDecimal(level), 5, 5))
+				.setScale(0, RoundingMode.HALF_UP).toBigInteger().add(BI_FIFTY);
+	}
+
+	/**
+	 * Returns a table that reaches at least up to the specified level (which must
+	 * be no greater than {@link #MAX_LEVEL}), growing the table if it doesn't
+	 * already.
+	 */
+	private static long[] table(int level) {
+		var t = totals;
+		if (level < t.length)
+			return t;
+		synchronized (XPCurve.class) {
+			t = totals;
+			if (level < t.length)
+				return t;
+			// Grow by at least doubling, so that walking the table up level by level costs amortized constant time.
+			int size = (int) Math.min(MAX_LEVEL + 1L, Math.max(level + 1L, t.length * 2L));
+			var grown = Arrays.copyOf(t, size);
+			for (int l = t.length; l < size; l++)
+				grown[l] = grown[l - 1] + series(BigInteger.valueOf(l - 1)).longValueExact();
+			return totals = grown;
+		}
+	}
+
+	private static boolean inTable(BigInteger level) {
+		return level.signum() > 0 && level.compareTo(BigInteger.valueOf(MAX_LEVEL)) <= 0;
+	}
+
+	/**
+	 * Returns the XP it takes to get from the specified level to the next one.
+	 *
+	 * @param level The level.
+	 * @return The XP that the level takes.
+	 */
+	static BigInteger xpForLevel(BigInteger level) {
+		if (!inTable(level) || level.intValue() == MAX_LEVEL)
+			return series(level);
+		int l = level.intValue();
+		var t = table(l + 1);
+		return BigInteger.valueOf(t[l + 1] - t[l]);
+	}
+
+	/**
+	 * Returns the XP it takes to get from level <code>from</code> to level
+	 * <code>to</code>.
+	 *
+	 * @param from The starting level.
+	 * @param to   The level to reach, no lower than <code>from</code>.
+	 * @return The XP it takes.
+	 */
+	static BigInteger xpBetween(BigInteger from, BigInteger to) {
+		if (inTable(from) && inTable(to)) {
+			var t = table(to.intValue());
+			return BigInteger.valueOf(t[to.intValue()] - t[from.intValue()]);
+		}
+		// Past the end of the table, the levels there are added up one at a time.
+		var xp = BigInteger.ZERO;
+		var level = from;
+		if (inTable(from)) {
+			xp = xpBetween(from, BigInteger.valueOf(MAX_LEVEL));
+			level = BigInteger.valueOf(MAX_LEVEL);
+		}
+		for (; level.compareTo(to) < 0; level = level.add(BigInteger.ONE))
+			xp = xp.add(series(level));
+		return xp;
+	}
+
+	/**
+	 * Levels up a creature at the specified level with the specified XP towards
+	 * its next level, for as long as it has enough XP to.
+	 *
+	 * @param level The creature's level.
+	 * @param xp    The creature's XP towards its next level.
+	 * @return The creature's new level and its XP left over towards the level
+	 *         after that, in that order.
+	 */
+	static BigInteger[] levelUp(BigInteger level, BigInteger xp) {
+		// The total XP from level 1 is kept under 2^62, and the table's totals are far smaller, so nothing overflows.
+		if (inTable(level) && xp.signum() >= 0 && xp.bitLength() < 62) {
+			int l = level.intValue();
+			long total = table(l)[l] + xp.longValue();
+			var t = totals;
+			while (t[t.length - 1] <= total && t.length <= MAX_LEVEL)
+				t = table(t.length);
+			int found = Arrays.binarySearch(t, 1, t.length, total);
+			// Not found means that the total falls between two levels; the creature is at the lower one.
+			int reached = found >= 0 ? found : -found - 2;
+			level = BigInteger.valueOf(reached);
+			xp = BigInteger.valueOf(total - t[reached]);
+		}
+		// Only a creature at the end of the table (or with an enormous amount of XP) gets this far.
+		BigInteger needed;
+		while (xp.compareTo(needed = xpForLevel(level)) >= 0) {
+			xp = xp.subtract(needed);
+			level = level.add(BigInteger.ONE);
+		}
+		return new BigInteger[] { level, xp };
+	}
+
+}
@@ -0,0 +1,119 @@
+package gartham.c10ver.games.rpg.creatures;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>
+ * Compares the {@link XPCurve} table against working out the curve with the
+ * series every time, which is what {@link Creature}s used to do:
+ * </p>
+ * <ul>
+ * <li><b>per level</b>: the XP that a random level takes, and</li>
+ * <li><b>grants</b>: leveling up a random creature rewarded a random (often
+ * large) amount of XP, by going through the levels one at a time with the series
+ * versus by binary search over the table.</li>
+ * </ul>
+ * <p>
+ * Both ways are checked to give the same results before anything is timed.
+ * </p>
+ *
+ * <pre>
+ * XPCurveBenchmark [levels=1000] [count=100000] [rounds=5]
+ * </pre>
+ * <p>
+ * Creatures are between level 1 and <code>levels</code>, and are rewarded up to
+ * the XP it takes to gain <code>levels</code> more levels.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class XPCurveBenchmark {
+
+	private XPCurveBenchmark() {
+	}
+
+	private static BigInteger[] walk(BigInteger level, BigInteger xp) {
+		BigInteger needed;
+		while (xp.compareTo(needed = XPCurve.series(level)) >= 0) {
+			xp = xp.subtract(needed);
+			level = level.add(BigInteger.ONE);
+		}
+		return new BigInteger[] { level, xp };
+	}
+
+	private static double median(double[] values) {
+		var sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	public static void main(String[] args) {
+		int levels = 1000, count = 100000, rounds = 5;
+		for (var a : args)
+			if (a.startsWith("levels="))
+				levels = Integer.parseInt(a.substring(7));
+			else if (a.startsWith("count="))
+				count = Integer.parseInt(a.substring(6));
+			else if (a.startsWith("rounds="))
+				rounds = Integer.parseInt(a.substring(7));
+
+		var rand = new Random(0);
+		var startLevels = new BigInteger[count];
+		var grants = new BigInteger[count];
+		long most = XPCurve.xpBetween(BigInteger.ONE, BigInteger.valueOf(levels + 1L)).longValueExact();
+		for (int i = 0; i < count; i++) {
+			startLevels[i] = BigInteger.valueOf(1 + rand.nextInt(levels));
+			grants[i] = BigInteger.valueOf((long) (rand.nextDouble() * most));
+		}
+
+		for (int i = 0; i < count; i++) {
+			if (!XPCurve.series(startLevels[i]).equals(XPCurve.xpForLevel(startLevels[i]))) {
+				System.err.println("The table disagrees with the series at level " + startLevels[i] + '.');
+				System.exit(1);
+			}
+			// The series walk is slow enough for large grants that only some of them are checked.
+			if (i % 100 == 0 && !Arrays.equals(walk(startLevels[i], grants[i]),
+					XPCurve.levelUp(startLevels[i], grants[i]))) {
+				System.err.println("Leveling disagrees at level " + startLevels[i] + " with " + grants[i] + " XP.");
+				System.exit(1);
+			}
+		}
+
+		double[] seriesLevel = new double[rounds], tableLevel = new double[rounds], walkGrant = new double[rounds],
+				tableGrant = new double[rounds];
+		// Walking levels with the series is by far the slowest, so it is timed on fewer grants.
+		int walked = Math.max(1, count / 100);
+		long sink = 0;
+		for (int r = 0; r < rounds; r++) {
+			long start = System.nanoTime();
+			for (var l : startLevels)
+				sink += XPCurve.series(l).longValue();
+			seriesLevel[r] = (System.nanoTime() - start) / (double) count;
+
+			start = System.nanoTime();
+			for (var l : startLevels)
+				sink += XPCurve.xpForLevel(l).longValue();
+			tableLevel[r] = (System.nanoTime() - start) / (double) count;
+
+			start = System.nanoTime();
+			for (int i = 0; i < walked; i++)
+				sink += walk(startLevels[i], grants[i])[0].longValue();
+			walkGrant[r] = (System.nanoTime() - start) / (double) walked;
+
+			start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+				sink += XPCurve.levelUp(startLevels[i], grants[i])[0].longValue();
+			tableGrant[r] = (System.nanoTime() - start) / (double) count;
+		}
+
+		System.out.printf("Levels up to %d, median of %d rounds (checksum %d):%n", levels, rounds, sink);
+		System.out.printf("  per level: series %10.1f ns, table %8.1f ns (%.0fx)%n", median(seriesLevel),
+				median(tableLevel), median(seriesLevel) / median(tableLevel));
+		System.out.printf("  grants:    series %10.1f ns, table %8.1f ns (%.0fx)%n", median(walkGrant),
+				median(tableGrant), median(walkGrant) / median(tableGrant));
+	}
+
+}
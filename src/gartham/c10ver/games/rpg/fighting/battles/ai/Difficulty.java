@@ -0,0 +1,24 @@
+package gartham.c10ver.games.rpg.fighting.battles.ai;
+
+/**
+ * How hard a {@link MonteCarloAI} plays, as the number of rollouts it may play
+ * out per move. More rollouts estimate each move's odds more precisely, and
+ * take longer; every difficulty is still bound by the AI's time budget.
+ *
+ * @author Gartham
+ *
+ */
+public enum Difficulty {
+	EASY(32), NORMAL(256), HARD(2048), EXPERT(16384);
+
+	private final int rollouts;
+
+	private Difficulty(int rollouts) {
+		this.rollouts = rollouts;
+	}
+
+	public int getRollouts() {
+		return rollouts;
+	}
+
+}
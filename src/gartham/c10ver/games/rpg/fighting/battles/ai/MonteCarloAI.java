@@ -0,0 +1,245 @@
+package gartham.c10ver.games.rpg.fighting.battles.ai;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import gartham.c10ver.games.rpg.fighting.battles.api.Battle.State;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattle;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattleAction;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattleAction.ActionType;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonFighter;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonTeam;
+
+/**
+ * <p>
+ * An {@link OpponentAI} that picks its move by Monte-Carlo search. Each
+ * candidate move (attacking each standing opponent, or skipping the turn) is
+ * tried out in {@link GarmonBattle#copy(Random, Map) copies} of the battle that
+ * are then played to the end with random attacks, and the move that wins most
+ * often is taken. Which move to try next is chosen with UCB1, so rollouts are
+ * spent on the moves that look best (or that have hardly been tried) rather
+ * than evenly.
+ * </p>
+ * <p>
+ * The search only branches at the root: the rest of each rollout is random, since
+ * the opponent's choices and the attack rolls are random anyway. Rollouts are
+ * played in parallel on a {@link SearchPool}, all sharing the move statistics.
+ * The search stops when the rollout budget (the {@link Difficulty}) is spent or
+ * the time budget runs out, whichever comes first; the move is delivered by
+ * then even if rollouts are still being played out, so thinking time is
+ * strictly bounded.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class MonteCarloAI implements OpponentAI {
+
+	private static final long DEFAULT_BUDGET_MILLIS = 1000;
+	/**
+	 * Rollouts that run for this many turns are stopped and scored by how much
+	 * health each side has left.
+	 */
+	private static final int MAX_ROLLOUT_TURNS = 500;
+	/**
+	 * Rollout scores (in <code>[0, 1]</code>) are summed as fixed point numbers
+	 * with this scale, so that they can be added atomically.
+	 */
+	private static final long SCALE = 1_000_000;
+	private static final double EXPLORATION = Math.sqrt(2);
+
+	private final SearchPool pool;
+	private final int rollouts;
+	private final long budgetNanos;
+
+	/**
+	 * Creates a {@link MonteCarloAI}.
+	 *
+	 * @param pool     The pool rollouts are played on.
+	 * @param rollouts The most rollouts played per move.
+	 * @param budget   The most time spent per move.
+	 * @param unit     The unit of <code>budget</code>.
+	 */
+	public MonteCarloAI(SearchPool pool, int rollouts, long budget, TimeUnit unit) {
+		this.pool = pool;
+		this.rollouts = rollouts;
+		budgetNanos = unit.toNanos(budget);
+	}
+
+	/**
+	 * Creates a {@link MonteCarloAI} that plays as many rollouts as the
+	 * {@link Difficulty} allows, for at most one second per move.
+	 *
+	 * @param pool       The pool rollouts are played on.
+	 * @param difficulty The difficulty.
+	 */
+	public MonteCarloAI(SearchPool pool, Difficulty difficulty) {
+		this(pool, difficulty.getRollouts(), DEFAULT_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	public int getRollouts() {
+		return rollouts;
+	}
+
+	@Override
+	public CompletableFuture<GarmonBattleAction> chooseAction(GarmonBattle battle) {
+		var actor = battle.getActingFighter();
+		var targets = OpponentAI.getTargets(battle, actor);
+		List<GarmonBattleAction> moves = new ArrayList<>(targets.size() + 1);
+		for (var t : targets)
+			moves.add(new GarmonBattleAction(t));
+		moves.add(new GarmonBattleAction(ActionType.SKIP_TURN));
+		if (rollouts <= 0)
+			return CompletableFuture.completedFuture(moves.get(ThreadLocalRandom.current().nextInt(targets.size())));
+
+		// The battle may be acted in as soon as this returns, so the rollouts copy a copy of it that nothing acts in.
+		Map<GarmonFighter, GarmonFighter> copies = new HashMap<>();
+		var root = battle.copy(new Random(), copies);
+		var rootTargets = new GarmonFighter[moves.size()];
+		for (int i = 0; i < targets.size(); i++)
+			rootTargets[i] = copies.get(targets.get(i));
+		return new Search(root, copies.get(actor), rootTargets, moves).start();
+	}
+
+	private final class Search {
+		private final GarmonBattle root;
+		private final GarmonFighter actor;
+		/**
+		 * The target of each move, in the root battle, or <code>null</code> for
+		 * skipping the turn.
+		 */
+		private final GarmonFighter[] targets;
+		private final List<GarmonBattleAction> moves;
+		private final AtomicLongArray visits, scores;
+		private final AtomicInteger remaining = new AtomicInteger(rollouts), running = new AtomicInteger();
+		private final CompletableFuture<GarmonBattleAction> result = new CompletableFuture<>();
+		private final long deadline = System.nanoTime() + budgetNanos;
+
+		private Search(GarmonBattle root, GarmonFighter actor, GarmonFighter[] targets,
+				List<GarmonBattleAction> moves) {
+			this.root = root;
+			this.actor = actor;
+			this.targets = targets;
+			this.moves = moves;
+			visits = new AtomicLongArray(moves.size());
+			scores = new AtomicLongArray(moves.size());
+		}
+
+		private CompletableFuture<GarmonBattleAction> start() {
+			var timeout = pool.getTimer().schedule(budgetNanos, TimeUnit.NANOSECONDS, this::finish);
+			result.whenComplete((t, e) -> timeout.cancel());
+			int workers = Math.max(1, Math.min(pool.getThreadCount(), rollouts));
+			running.set(workers);
+			for (int i = 0; i < workers; i++)
+				if (!pool.tryExecute(this::work))
+					workerDone();
+			return result;
+		}
+
+		private void work() {
+			try {
+				var rand = ThreadLocalRandom.current();
+				while (!result.isDone() && deadline - System.nanoTime() > 0 && remaining.getAndDecrement() > 0) {
+					int m = select();
+					// Counting the visit before the rollout is played keeps other workers from all piling onto
+					// the same move meanwhile.
+					visits.incrementAndGet(m);
+					scores.addAndGet(m, Math.round(rollout(m, rand) * SCALE));
+				}
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			} finally {
+				workerDone();
+			}
+		}
+
+		private void workerDone() {
+			if (running.decrementAndGet() == 0)
+				finish();
+		}
+
+		private void finish() {
+			if (!result.isDone())
+				result.complete(best());
+		}
+
+		/**
+		 * Picks the move with the highest UCB1 bound, trying every move once first.
+		 */
+		private int select() {
+			long total = 0;
+			for (int i = 0; i < moves.size(); i++) {
+				long v = visits.get(i);
+				if (v == 0)
+					return i;
+				total += v;
+			}
+			double log = Math.log(total), best = Double.NEGATIVE_INFINITY;
+			int choice = 0;
+			for (int i = 0; i < moves.size(); i++) {
+				double v = visits.get(i),
+						bound = scores.get(i) / (SCALE * v) + EXPLORATION * Math.sqrt(log / v);
+				if (bound > best) {
+					best = bound;
+					choice = i;
+				}
+			}
+			return choice;
+		}
+
+		/**
+		 * Returns the move that was tried the most, or a random attack if no rollout
+		 * was played at all.
+		 */
+		private GarmonBattleAction best() {
+			int choice = -1;
+			long most = 0;
+			for (int i = 0; i < moves.size(); i++)
+				if (visits.get(i) > most) {
+					most = visits.get(i);
+					choice = i;
+				}
+			return choice < 0 ? moves.get(ThreadLocalRandom.current().nextInt(moves.size() - 1)) : moves.get(choice);
+		}
+
+		/**
+		 * Plays the specified move in a copy of the battle, then plays the copy out
+		 * with random attacks, and returns how well it went for the actor's team: 1 for
+		 * a win, 0 for a loss, and the team's share of the health left for a draw or a
+		 * rollout that went on too long.
+		 */
+		private double rollout(int move, Random rand) {
+			Map<GarmonFighter, GarmonFighter> copies = new HashMap<>();
+			var battle = root.copy(rand, copies);
+			var team = battle.getFighterTeam(copies.get(actor));
+			var target = targets[move];
+			var act = battle.act(target == null ? new GarmonBattleAction(ActionType.SKIP_TURN)
+					: new GarmonBattleAction(copies.get(target)));
+			for (int turn = 0; !act.isBattleOver() && turn < MAX_ROLLOUT_TURNS; turn++)
+				act = battle.act(OpponentAI.randomAttack(battle, rand));
+			if (battle.getState() == State.STOPPED && !battle.isDraw())
+				return battle.getWinningTeam() == team ? 1 : 0;
+			return healthShare(battle, team);
+		}
+
+		private double healthShare(GarmonBattle battle, GarmonTeam team) {
+			double ours = 0, total = 0;
+			for (var t : battle.getTeamsUnmodifiable())
+				for (var f : t) {
+					total += f.getHealthLong();
+					if (t == team)
+						ours += f.getHealthLong();
+				}
+			return total == 0 ? .5 : ours / total;
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package gartham.c10ver.games.rpg.fighting.battles.ai;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import gartham.c10ver.games.rpg.fighting.battles.api.Battle.State;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattle;
+import gartham.c10ver.games.rpg.fighting.battles.sim.Lineup;
+
+/**
+ * <p>
+ * Plays battles between a {@link MonteCarloAI} and {@link OpponentAI#RANDOM}
+ * (switching sides every battle, so that neither gets to move first more often)
+ * and checks that:
+ * </p>
+ * <ul>
+ * <li>the search AI clearly wins more of them than it loses (this needs a
+ * matchup where choosing targets matters; the default one is two even teams of
+ * three),</li>
+ * <li>a harder difficulty wins at least about as often as an easier one,
+ * and</li>
+ * <li>no move takes much longer than the time budget, even when the rollout
+ * budget is far too large to finish in time.</li>
+ * </ul>
+ *
+ * <pre>
+ * MonteCarloAICheck [battles=200] [threads=2] [budget=50] [matchup=nymph:5,nymph:5,nymph:5/nymph:5,nymph:5,nymph:5]
+ * </pre>
+ * <p>
+ * <code>budget</code> is the time budget per move, in milliseconds. Exits with
+ * status <code>1</code> if any check fails.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class MonteCarloAICheck {
+
+	private MonteCarloAICheck() {
+	}
+
+	/**
+	 * How far past its budget a move may be delivered, in milliseconds, to allow
+	 * for the timer's resolution and scheduling delays.
+	 */
+	private static final long SLACK_MILLIS = 25;
+
+	private static long slowest;
+
+	/**
+	 * Plays the battles and returns the fraction the first AI won.
+	 */
+	private static double play(OpponentAI first, OpponentAI second, Lineup a, Lineup b, int battles)
+			throws InterruptedException, ExecutionException {
+		int wins = 0;
+		for (int i = 0; i < battles; i++) {
+			boolean swap = i % 2 == 1;
+			var teamA = a.create();
+			var teamB = b.create();
+			var battle = new GarmonBattle(new Random(i), teamA, teamB);
+			battle.start();
+			var firstTeam = swap ? teamB : teamA;
+			while (battle.getState() == State.RUNNING) {
+				var ai = battle.getFighterTeam(battle.getActingFighter()) == firstTeam ? first : second;
+				long start = System.nanoTime();
+				var action = ai.chooseAction(battle).get();
+				slowest = Math.max(slowest, System.nanoTime() - start);
+				battle.act(action);
+			}
+			if (battle.getWinningTeam() == firstTeam)
+				wins++;
+		}
+		return (double) wins / battles;
+	}
+
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		int battles = 200, threads = 2;
+		long budget = 50;
+		String matchup = "nymph:5,nymph:5,nymph:5/nymph:5,nymph:5,nymph:5";
+		for (var a : args)
+			if (a.startsWith("battles="))
+				battles = Integer.parseInt(a.substring(8));
+			else if (a.startsWith("threads="))
+				threads = Integer.parseInt(a.substring(8));
+			else if (a.startsWith("budget="))
+				budget = Long.parseLong(a.substring(7));
+			else if (a.startsWith("matchup="))
+				matchup = a.substring(8);
+		var sides = matchup.split("/");
+		var a = Lineup.parse(sides[0]);
+		var b = Lineup.parse(sides[1]);
+
+		var pool = new SearchPool("AI Check", threads);
+		boolean ok = true;
+		try {
+			double easy = play(new MonteCarloAI(pool, Difficulty.EASY.getRollouts(), budget, TimeUnit.MILLISECONDS),
+					OpponentAI.RANDOM, a, b, battles);
+			double hard = play(new MonteCarloAI(pool, Difficulty.HARD.getRollouts(), budget, TimeUnit.MILLISECONDS),
+					OpponentAI.RANDOM, a, b, battles);
+			System.out.printf("%s  vs  %s%n", a.getName(), b.getName());
+			System.out.printf("  EASY vs random: %.1f%% won.%n", easy * 100);
+			System.out.printf("  HARD vs random: %.1f%% won.%n", hard * 100);
+			if (hard <= .55) {
+				System.err.println("The search AI did not beat random play.");
+				ok = false;
+			}
+			// Leave room for noise: with a couple hundred battles, win rates wobble by a few percent.
+			if (hard < easy - .1) {
+				System.err.println("The harder difficulty did noticeably worse than the easier one.");
+				ok = false;
+			}
+
+			slowest = 0;
+			play(new MonteCarloAI(pool, Integer.MAX_VALUE, budget, TimeUnit.MILLISECONDS), OpponentAI.RANDOM, a, b,
+					Math.max(1, battles / 20));
+			long ms = TimeUnit.NANOSECONDS.toMillis(slowest);
+			System.out.printf("  Slowest move with an unbounded rollout budget: %d ms (budget %d ms).%n", ms, budget);
+			if (ms > budget + SLACK_MILLIS) {
+				System.err.println("A move took longer than the time budget.");
+				ok = false;
+			}
+		} finally {
+			pool.shutdown();
+		}
+		System.out.println(ok ? "All checks passed." : "Some checks failed.");
+		System.exit(ok ? 0 : 1);
+	}
+
+}
@@ -0,0 +1,78 @@
+package gartham.c10ver.games.rpg.fighting.battles.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattle;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattleAction;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonFighter;
+
+/**
+ * <p>
+ * Decides what the bot's fighters do on their turns.
+ * </p>
+ * <p>
+ * {@link #chooseAction(GarmonBattle)} is called on whatever thread the battle
+ * is being run on (often a JDA thread), so implementations that think for a
+ * while must do so elsewhere and complete the returned future when they're
+ * done. Implementations may read the battle during the call, but not after it
+ * returns, since the battle may be acted in as soon as the action is chosen.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+@FunctionalInterface
+public interface OpponentAI {
+
+	/**
+	 * Attacks a random opponent that's still standing; this is how the bot has
+	 * always played.
+	 */
+	OpponentAI RANDOM = battle -> CompletableFuture
+			.completedFuture(randomAttack(battle, ThreadLocalRandom.current()));
+
+	/**
+	 * Chooses the action that the specified battle's
+	 * {@link GarmonBattle#getActingFighter() acting fighter} will take.
+	 *
+	 * @param battle The battle.
+	 * @return A future of the chosen action.
+	 */
+	CompletableFuture<GarmonBattleAction> chooseAction(GarmonBattle battle);
+
+	/**
+	 * Returns the opponents of the specified fighter that haven't fainted.
+	 *
+	 * @param battle  The battle.
+	 * @param fighter The fighter.
+	 * @return The fighter's standing opponents.
+	 */
+	static List<GarmonFighter> getTargets(GarmonBattle battle, GarmonFighter fighter) {
+		var team = battle.getFighterTeam(fighter);
+		List<GarmonFighter> targets = new ArrayList<>();
+		for (var t : battle.getRemainingTeamsUnmodifiable())
+			if (t != team)
+				for (var f : t)
+					if (!f.isFainted())
+						targets.add(f);
+		return targets;
+	}
+
+	/**
+	 * Returns an attack on a random standing opponent of the specified battle's
+	 * acting fighter.
+	 *
+	 * @param battle The battle.
+	 * @param rand   The source of randomness.
+	 * @return The attack.
+	 */
+	static GarmonBattleAction randomAttack(GarmonBattle battle, Random rand) {
+		var targets = getTargets(battle, battle.getActingFighter());
+		return new GarmonBattleAction(targets.get(rand.nextInt(targets.size())));
+	}
+
+}
@@ -0,0 +1,88 @@
+package gartham.c10ver.games.rpg.fighting.battles.ai;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gartham.c10ver.utils.TimingWheel;
+
+/**
+ * <p>
+ * The threads that {@link MonteCarloAI}s play their rollouts on, and the timer
+ * that ends their searches. The pool has a fixed number of threads and a
+ * bounded queue, so however many battles are being thought about at once, the
+ * bot never spends more than that many threads on thinking. Work that doesn't
+ * fit is {@link #tryExecute(Runnable) turned away} rather than queued without
+ * bound; searches just play fewer rollouts when that happens.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class SearchPool {
+
+	private final ThreadPoolExecutor executor;
+	private final TimingWheel timer;
+	private final int threads;
+
+	/**
+	 * Creates a {@link SearchPool}.
+	 *
+	 * @param name     The name of the pool's threads.
+	 * @param threads  The number of threads rollouts are played on.
+	 * @param capacity The number of tasks that may wait for a thread.
+	 */
+	public SearchPool(String name, int threads, int capacity) {
+		this.threads = threads;
+		var count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(capacity), r -> {
+					var t = new Thread(r, name + " #" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		timer = new TimingWheel(5, TimeUnit.MILLISECONDS, name + " Timer");
+	}
+
+	/**
+	 * Creates a {@link SearchPool} whose queue holds four tasks per thread.
+	 *
+	 * @param name    The name of the pool's threads.
+	 * @param threads The number of threads rollouts are played on.
+	 */
+	public SearchPool(String name, int threads) {
+		this(name, threads, threads * 4);
+	}
+
+	/**
+	 * Runs the specified task on the pool, if there's room for it.
+	 *
+	 * @param task The task.
+	 * @return <code>true</code> if the task was accepted, <code>false</code> if
+	 *         the pool is full or shut down.
+	 */
+	public boolean tryExecute(Runnable task) {
+		try {
+			executor.execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	public TimingWheel getTimer() {
+		return timer;
+	}
+
+	public int getThreadCount() {
+		return threads;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+		timer.shutdown();
+	}
+
+}
@@ -1,6 +1,8 @@
 package gartham.c10ver.games.rpg.fighting.battles.api;
 
-import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -10,6 +12,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import gartham.c10ver.games.rpg.fighting.fighters.Fighter;
@@ -50,13 +53,122 @@ import gartham.c10ver.games.rpg.fighting.fighters.Fighter;
  */
 public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends ActionResult> {
 
-	private final Map<F, Integer> ticksTillTurn = new HashMap<>();
-	private final List<F> battleQueue = new ArrayList<>();
+	/**
+	 * A {@link Fighter}'s place in the battle queue. The turn is stored as an
+	 * absolute tick, so that time passing (see {@link Battle#shiftQueue()}) only
+	 * moves {@link Battle#now} instead of touching every {@link Fighter}.
+	 */
+	private final class Slot {
+		private final F fighter;
+		private final T team;
+		private long turn;
+		/**
+		 * When the slot was last scheduled, for breaking ties between
+		 * {@link Fighter}s whose turns come at the same tick and who have the same
+		 * speed.
+		 */
+		private long seq;
+		/**
+		 * The slot's index in the {@link Battle#heap}, or <code>-1</code> if the
+		 * {@link Fighter} has been removed from the battle queue.
+		 */
+		private int index = -1;
+
+		private Slot(F fighter, T team) {
+			this.fighter = fighter;
+			this.team = team;
+		}
+	}
+
+	/**
+	 * Every {@link Fighter}'s {@link Slot}, including the ones that have been
+	 * removed from the battle queue.
+	 */
+	private final Map<F, Slot> slots = new HashMap<>();
+	/**
+	 * The battle queue, as a binary min-heap of {@link Slot}s ordered by turn. Each
+	 * slot knows its index, so a {@link Fighter} can be rescheduled or removed
+	 * without searching for it.
+	 */
+	private final List<Slot> heap = new ArrayList<>();
+	/**
+	 * Every {@link Fighter}, sorted in descending order by speed.
+	 */
+	private final List<F> fighters = new ArrayList<>();
+	private long now, nextSeq;
+	/**
+	 * Incremented whenever the order of the battle queue changes, so that the
+	 * sorted view of it is only rebuilt when needed.
+	 */
+	private long version;
+	private List<F> ordered;
+	private long orderedVersion = -1;
 	private final Set<T> teams, remainingTeams = new HashSet<>();
 	private State state = State.UNSTARTED;
 
-	private final Map<F, Integer> ticksTillTurnUnmodifiable = Collections.unmodifiableMap(ticksTillTurn);
-	private final List<F> battleQueueUnmodifiable = Collections.unmodifiableList(battleQueue);
+	private final Map<F, Integer> ticksTillTurnUnmodifiable = new AbstractMap<>() {
+
+		@Override
+		public Integer get(Object key) {
+			var s = slots.get(key);
+			return s == null ? null : ticks(s);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return slots.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return slots.size();
+		}
+
+		@Override
+		public Set<Entry<F, Integer>> entrySet() {
+			return new AbstractSet<>() {
+
+				@Override
+				public Iterator<Entry<F, Integer>> iterator() {
+					var i = slots.values().iterator();
+					return new Iterator<>() {
+
+						@Override
+						public boolean hasNext() {
+							return i.hasNext();
+						}
+
+						@Override
+						public Entry<F, Integer> next() {
+							var s = i.next();
+							return new SimpleImmutableEntry<>(s.fighter, ticks(s));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return slots.size();
+				}
+			};
+		}
+	};
+	/**
+	 * The battle queue in order. Getting the acting {@link Fighter} is constant
+	 * time; anything else sorts a copy of the queue, once per change to it.
+	 */
+	private final List<F> battleQueueUnmodifiable = new AbstractList<>() {
+
+		@Override
+		public F get(int index) {
+			return index == 0 && !heap.isEmpty() ? heap.get(0).fighter : ordered().get(index);
+		}
+
+		@Override
+		public int size() {
+			return heap.size();
+		}
+	};
 	private final Set<T> teamsUnmodifiable, remainingTeamsUnmodifiable = Collections.unmodifiableSet(remainingTeams);
 
 	public final Map<F, Integer> getTicksTillTurnUnmodifiable() {
@@ -108,9 +220,7 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 		remainingTeams.clear();
 		remainingTeams.addAll(teams);
 
-		assignInitialTicks(battleQueue);
-
-		Collections.sort(battleQueue, (o1, o2) -> Integer.compare(ticksTillTurn.get(o1), ticksTillTurn.get(o2)));
+		assignInitialTicks(Collections.unmodifiableList(fighters));
 	}
 
 	/**
@@ -125,25 +235,136 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 	 * <p>
 	 * This method is <b>only</b> tasked with setting the number of ticks for each
 	 * {@link Fighter} through the {@link #setTicks(Fighter, int)} method. The
-	 * provided {@link List} is unmodifiable, as the {@link #battleQueue battle
-	 * queue} used by {@link Battle} is sorted according to ticks immediately after
-	 * this method is called by {@link #start()}.
+	 * provided {@link List} is unmodifiable; the battle queue reorders itself as
+	 * ticks are set.
 	 */
 	protected void assignInitialTicks(List<F> queue) {
 		// Assign initial ticks.
-		var max = battleQueue.get(0).getSpeed();
+		long max = queue.get(0).getSpeedLong();
 
 		for (F f : queue)
-			ticksTillTurn.put(f, new BigDecimal(max.subtract(f.getSpeed()))
-					.multiply(BigDecimal.valueOf(Math.random() / 5 + 0.9)).intValue());
+			setTicks(f, (int) ((max - f.getSpeedLong()) * (random() / 5 + 0.9)));
+	}
+
+	/**
+	 * Returns a random number in <code>[0, 1)</code>, for use by
+	 * {@link #assignInitialTicks(List)}. By default, this is
+	 * {@link Math#random()}; subclasses that take their randomness from a seeded
+	 * source override this so that a whole {@link Battle} can be replayed.
+	 * 
+	 * @return A random number in <code>[0, 1)</code>.
+	 */
+	protected double random() {
+		return Math.random();
 	}
 
+	/**
+	 * Sets the number of ticks until the specified {@link Fighter}'s turn, and
+	 * moves it to its new place in the battle queue. This takes logarithmic time.
+	 * 
+	 * @param fighter The {@link Fighter}.
+	 * @param ticks   The number of ticks until its turn.
+	 */
 	protected final void setTicks(F fighter, int ticks) {
-		ticksTillTurn.put(fighter, ticks);
+		var s = slots.get(fighter);
+		s.turn = now + ticks;
+		s.seq = nextSeq++;
+		if (s.index >= 0) {
+			siftUp(s.index);
+			siftDown(s.index);
+			version++;
+		}
 	}
 
 	protected final int getTicks(F fighter) {
-		return ticksTillTurn.get(fighter);
+		return ticks(slots.get(fighter));
+	}
+
+	private int ticks(Slot s) {
+		return (int) (s.turn - now);
+	}
+
+	/**
+	 * The battle queue's order: by turn, then faster {@link Fighter}s first, then
+	 * whoever was scheduled first.
+	 */
+	private int compare(Slot a, Slot b) {
+		if (a.turn != b.turn)
+			return Long.compare(a.turn, b.turn);
+		int c = b.fighter.compareTo(a.fighter);
+		return c != 0 ? c : Long.compare(a.seq, b.seq);
+	}
+
+	private void siftUp(int i) {
+		var s = heap.get(i);
+		while (i > 0) {
+			int parent = i - 1 >>> 1;
+			var p = heap.get(parent);
+			if (compare(s, p) >= 0)
+				break;
+			heap.set(i, p);
+			p.index = i;
+			i = parent;
+		}
+		heap.set(i, s);
+		s.index = i;
+	}
+
+	private void siftDown(int i) {
+		var s = heap.get(i);
+		int size = heap.size();
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && compare(heap.get(child + 1), heap.get(child)) < 0)
+				child++;
+			var c = heap.get(child);
+			if (compare(c, s) >= 0)
+				break;
+			heap.set(i, c);
+			c.index = i;
+			i = child;
+		}
+		heap.set(i, s);
+		s.index = i;
+	}
+
+	private void enqueue(Slot s) {
+		heap.add(s);
+		siftUp(heap.size() - 1);
+		version++;
+	}
+
+	private void dequeue(Slot s) {
+		int i = s.index;
+		if (i < 0)
+			return;
+		s.index = -1;
+		var last = heap.remove(heap.size() - 1);
+		if (last != s) {
+			heap.set(i, last);
+			last.index = i;
+			siftUp(i);
+			siftDown(last.index);
+		}
+		version++;
+	}
+
+	/**
+	 * Returns the battle queue in order, sorting a copy of the heap if it has
+	 * changed since the last call.
+	 */
+	private List<F> ordered() {
+		if (orderedVersion != version) {
+			var l = new ArrayList<>(heap);
+			l.sort(this::compare);
+			ordered = new ArrayList<>(l.size());
+			for (var s : l)
+				ordered.add(s.fighter);
+			orderedVersion = version;
+		}
+		return ordered;
 	}
 
 	/**
@@ -157,15 +378,12 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 			throw new IllegalStateException("Battles must be in a running state for actions to be taken.");
 		var fighter = getActingFighter();
 		var t = handleAction(action, fighter);
-		ticksTillTurn.put(fighter, ticksTillTurn.get(fighter) + t.getTicks());// We get the ticks for our fighter
-																				// because the
-		// action taken my have modified its ticks via
-		// side-effect.
+		// We get the ticks for our fighter because the action taken may have modified its ticks via side-effect.
+		setTicks(fighter, getTicks(fighter) + t.getTicks());
 		if (state == State.STOPPED)
 			return new ActionCompletion<>(true, fighter, t);
 
-		// Finally we re-sort the battle queue.
-		sortQueue();
+		// Setting the ticks moved the fighter to its new place in the queue; all that's left is to advance time.
 		shiftQueue();
 		return new ActionCompletion<>(false, fighter, t);
 
@@ -182,52 +400,93 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 	 *                fighter). At the beginning of this method call, (as per normal
 	 *                {@link Battle} behavior), this argument should be exactly the
 	 *                same as the {@link Fighter} in the front (position
-	 *                <code>0</code>) of the {@link #battleQueue battle queue}.
+	 *                <code>0</code>) of the {@link #getBattleQueueUnmodifiable() battle queue}.
 	 * @return An {@link ActionResult} object containing the number of ticks that
 	 *         the action took as well as any other information used by this battle.
 	 */
 	protected abstract R handleAction(A action, F fighter);
 
 	/**
-	 * Sorts the battle queue according to ticks. This is automatically done at the
-	 * conclusion of every turn, specifically after the ticks to the {@link Fighter}
-	 * that has just performed its action have been applied to it.
+	 * Returns a {@link Comparator} that orders {@link Fighter}s of this
+	 * {@link Battle} the way the battle queue does.
+	 * 
+	 * @return The {@link Comparator}.
 	 */
-	protected final void sortQueue() {
-		Collections.sort(battleQueue, sortingComparator());
-	}
-
 	protected final Comparator<F> sortingComparator() {
-		return (o1, o2) -> {
-			int tickcomp = Integer.compare(ticksTillTurn.get(o1), ticksTillTurn.get(o2));
-			return tickcomp == 0 ? o1.compareTo(o2) : tickcomp;
-		};
+		return (o1, o2) -> compare(slots.get(o1), slots.get(o2));
 	}
 
+	/**
+	 * Advances time to the acting {@link Fighter}'s turn, so that its ticks become
+	 * <code>0</code> and every other {@link Fighter}'s ticks go down by the same
+	 * amount. This takes constant time.
+	 */
 	protected final void shiftQueue() {
-		var ticks = getTicks(getActingFighter());
-		if (ticks != 0)
-			for (var e : ticksTillTurn.entrySet())
-				e.setValue(e.getValue() - ticks);
+		now += getTicks(getActingFighter());
 	}
 
 	@SafeVarargs
 	public Battle(T... teams) {
-		teamsUnmodifiable = Collections.unmodifiableSet(this.teams = new HashSet<>());
-		for (var t : teams) {
-			this.teams.add(t);
-			for (var f : t)
-				battleQueue.add(-Collections.binarySearch(battleQueue, f, Comparator.<F>naturalOrder().reversed()) - 1,
-						f);
-		}
+		this(List.of(teams));
 	}
 
 	public Battle(Collection<T> teams) {
 		teamsUnmodifiable = Collections.unmodifiableSet(this.teams = new HashSet<>(teams));
 		for (var t : teams)
 			for (var f : t)
-				battleQueue.add(-Collections.binarySearch(battleQueue, f, Comparator.<F>naturalOrder().reversed()) - 1,
-						f);
+				if (!slots.containsKey(f)) {
+					slots.put(f, new Slot(f, t));
+					fighters.add(f);
+				}
+		fighters.sort(Comparator.<F>naturalOrder().reversed());
+		for (var f : fighters) {
+			var s = slots.get(f);
+			s.seq = nextSeq++;
+			enqueue(s);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Creates a copy of the specified {@link Battle}, in exactly the same state
+	 * (battle queue, ticks, remaining teams), but fought by copies of its
+	 * {@link Fighter}s and {@link Team}s. This lets a copy be played forward (e.g.
+	 * to look ahead at how an action might turn out) without touching the
+	 * original.
+	 * </p>
+	 * <p>
+	 * The maps must have a copy of every {@link Fighter} and {@link Team} in the
+	 * original, and each copied {@link Team} must contain the copies of the
+	 * original {@link Team}'s {@link Fighter}s. The original is only read, so it
+	 * may be copied from several threads at once, as long as nothing is changing
+	 * it.
+	 * </p>
+	 * 
+	 * @param other         The {@link Battle} to copy.
+	 * @param fighterCopies The copy of each {@link Fighter}.
+	 * @param teamCopies    The copy of each {@link Team}.
+	 */
+	protected Battle(Battle<A, F, T, R> other, Map<F, F> fighterCopies, Map<T, T> teamCopies) {
+		teams = new HashSet<>();
+		for (var t : other.teams)
+			teams.add(teamCopies.get(t));
+		teamsUnmodifiable = Collections.unmodifiableSet(teams);
+		for (var t : other.remainingTeams)
+			remainingTeams.add(teamCopies.get(t));
+		for (var f : other.fighters) {
+			var o = other.slots.get(f);
+			var s = new Slot(fighterCopies.get(f), teamCopies.get(o.team));
+			s.turn = o.turn;
+			s.seq = o.seq;
+			s.index = o.index;
+			slots.put(s.fighter, s);
+			fighters.add(s.fighter);
+		}
+		for (var o : other.heap)
+			heap.add(slots.get(fighterCopies.get(o.fighter)));
+		now = other.now;
+		nextSeq = other.nextSeq;
+		state = other.state;
 	}
 
 	public void stop() {
@@ -235,7 +494,7 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 	}
 
 	public final F getActingFighter() {
-		return battleQueue.get(0);
+		return heap.get(0).fighter;
 	}
 
 	/**
@@ -245,10 +504,8 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 	 * @return The {@link Team} that the provided {@link Fighter} belongs to.
 	 */
 	public final T getTeam(F f0) {
-		for (var t : teams)
-			if (t.contains(f0))
-				return t;
-		return null;
+		var s = slots.get(f0);
+		return s == null ? null : s.team;
 	}
 
 	/**
@@ -304,10 +561,21 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 	 *         {@link Fighter} is found for some reason.
 	 */
 	public final F getNextNthOpponent(int n, T targ) {
-		for (var f : battleQueue)
-			if (!targ.contains(f))
-				if (n-- == 0)
-					return f;
+		// Walks the heap in order, visiting only the slots up to the one being looked for (and their children).
+		if (heap.isEmpty())
+			return null;
+		var frontier = new PriorityQueue<Slot>(this::compare);
+		frontier.add(heap.get(0));
+		while (!frontier.isEmpty()) {
+			var s = frontier.poll();
+			if (!targ.contains(s.fighter) && n-- == 0)
+				return s.fighter;
+			int child = 2 * s.index + 1;
+			if (child < heap.size())
+				frontier.add(heap.get(child));
+			if (child + 1 < heap.size())
+				frontier.add(heap.get(child + 1));
+		}
 		return null;
 	}
 
@@ -318,14 +586,28 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 	 * @return The number of {@link Fighter}s in this {@link Battle}.
 	 */
 	public final int getFighterCount() {
-		return battleQueue.size();
+		return heap.size();
 	}
 
+	/**
+	 * Returns the {@link Fighter}s of the specified {@link Team} that are still in
+	 * the battle queue and haven't fainted, in battle queue order. This takes time
+	 * in the size of the {@link Team}, not of the {@link Battle}.
+	 * 
+	 * @param team The {@link Team}.
+	 * @return The remaining {@link Fighter}s of the {@link Team}.
+	 */
 	public List<F> getRemainingFighters(T team) {
-		List<F> fighters = new ArrayList<>();
-		for (F f : battleQueue)
-			if (!f.isFainted() && team.contains(f))
-				fighters.add(f);
+		List<Slot> remaining = new ArrayList<>();
+		for (F f : team) {
+			var s = slots.get(f);
+			if (s != null && s.index >= 0 && !f.isFainted())
+				remaining.add(s);
+		}
+		remaining.sort(this::compare);
+		List<F> fighters = new ArrayList<>(remaining.size());
+		for (var s : remaining)
+			fighters.add(s.fighter);
 		return fighters;
 	}
 
@@ -338,9 +620,11 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 	 * @param team The {@link Team} to surrender.
 	 */
 	protected final void surrender(T team) {
-		for (Iterator<F> iterator = battleQueue.iterator(); iterator.hasNext();)
-			if (team.contains(iterator.next()))
-				iterator.remove();
+		for (F f : team) {
+			var s = slots.get(f);
+			if (s != null)
+				dequeue(s);
+		}
 		teamLose(team);
 	}
 
@@ -386,7 +670,7 @@ public abstract class Battle<A, F extends Fighter, T extends Team<F>, R extends
 	 * @param fighter The {@link Fighter} to remove.
 	 */
 	protected final void remove(F fighter) {
-		battleQueue.remove(fighter);
+		dequeue(slots.get(fighter));
 		T team = getTeam(fighter);
 		for (F f : team)
 			if (!f.isFainted())
@@ -2,8 +2,8 @@ package gartham.c10ver.games.rpg.fighting.battles.api;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -20,14 +20,14 @@ public class Team<F extends Fighter> implements Iterable<F> {
 		for (F f : members)
 			if (f == null)
 				throw null;
-		this.members = new HashSet<>(members);
+		this.members = new LinkedHashSet<>(members);
 	}
 
 	@SafeVarargs
 	public Team(F... members) {
 		if (members.length == 0)
 			throw new IllegalArgumentException();
-		this.members = new HashSet<>();
+		this.members = new LinkedHashSet<>();
 		for (F f : members)
 			if (f == null)
 				throw null;
@@ -36,7 +36,7 @@ public class Team<F extends Fighter> implements Iterable<F> {
 	}
 
 	public Team(Iterable<? extends F> members) {
-		this.members = new HashSet<>();
+		this.members = new LinkedHashSet<>();
 		for (F f : members)
 			if (f == null)
 				throw null;
@@ -52,7 +52,7 @@ public class Team<F extends Fighter> implements Iterable<F> {
 
 	/**
 	 * Returns a read-only view of the members of this {@link Team}. The view is in
-	 * no particular order.
+	 * the order the members were given in.
 	 * 
 	 * @return {@link Collections#unmodifiableList(List)} of the members of this
 	 *         {@link Team}.
@@ -18,7 +18,7 @@ public class GarmonActionMessage extends DetailedActionMessage<DetailedAction> {
 		super.buildEmbed(eb);
 		eb.setTitle(creature.getName() + "'s Turn").setThumbnail(creature.getHeadshot());
 		eb.setDescription("**" + creature.getName() + "**\nHealth: " + creature.getHealthString()
-				+ RPGUtils.calcHealthbar(creature.getHealth(), creature.getMaxHealth()));
+				+ RPGUtils.calcHealthbar(creature.getHealthLong(), creature.getMaxHealthLong()));
 	}
 
 }
@@ -8,21 +8,29 @@ import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattleAction.ActionTy
 public class GarmonActionResult extends ActionResult {
 
 	private final ActionType type;
-	private final BigInteger damage;
+	private final long damage;
 	private final GarmonFighter target;
 
-	public GarmonActionResult(int ticks, ActionType type, BigInteger damage, GarmonFighter target) {
+	public GarmonActionResult(int ticks, ActionType type, long damage, GarmonFighter target) {
 		super(ticks);
 		this.type = type;
 		this.damage = damage;
 		this.target = target;
 	}
 
+	public GarmonActionResult(int ticks, ActionType type, BigInteger damage, GarmonFighter target) {
+		this(ticks, type, damage.longValueExact(), target);
+	}
+
 	public ActionType getType() {
 		return type;
 	}
 
 	public BigInteger getDamage() {
+		return BigInteger.valueOf(damage);
+	}
+
+	public long getDamageLong() {
 		return damage;
 	}
 
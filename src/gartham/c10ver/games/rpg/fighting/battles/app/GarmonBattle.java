@@ -1,11 +1,13 @@
 package gartham.c10ver.games.rpg.fighting.battles.app;
 
 import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import gartham.c10ver.games.rpg.fighting.battles.api.Battle;
@@ -16,19 +18,80 @@ public class GarmonBattle extends Battle<GarmonBattleAction, GarmonFighter, Garm
 		return getTeam(fighter);
 	}
 
-	private static final Random rand = new Random();
+	private static final Random RANDOM = new Random();
+
+	private final Random rand;
 
 	public GarmonBattle(Collection<GarmonTeam> teams) {
-		super(teams);
+		this(RANDOM, teams);
 	}
 
 	@SafeVarargs
 	public GarmonBattle(GarmonTeam... teams) {
+		this(RANDOM, teams);
+	}
+
+	/**
+	 * Creates a {@link GarmonBattle} that takes all of its randomness (initial
+	 * ticks and attack rolls) from the specified {@link Random}, so that a battle
+	 * made with a seeded {@link Random} plays out the same way every time the same
+	 * actions are taken.
+	 * 
+	 * @param rand  The source of randomness.
+	 * @param teams The teams fighting.
+	 */
+	public GarmonBattle(Random rand, Collection<GarmonTeam> teams) {
+		super(teams);
+		this.rand = rand;
+	}
+
+	@SafeVarargs
+	public GarmonBattle(Random rand, GarmonTeam... teams) {
 		super(teams);
+		this.rand = rand;
 	}
 
-	private static final BigInteger max(BigInteger first, BigInteger second) {
-		return first.compareTo(second) > 0 ? first : second;
+	private GarmonBattle(GarmonBattle other, Random rand, Map<GarmonFighter, GarmonFighter> fighterCopies,
+			Map<GarmonTeam, GarmonTeam> teamCopies) {
+		super(other, fighterCopies, teamCopies);
+		this.rand = rand;
+	}
+
+	/**
+	 * Returns a copy of this {@link GarmonBattle}, in the same state, fought by
+	 * {@link GarmonFighter#copy() copies} of its fighters, that takes its
+	 * randomness from the specified {@link Random}. Acting in the copy doesn't
+	 * affect this battle. This battle must not be acted in while it's being
+	 * copied.
+	 * 
+	 * @param rand          The copy's source of randomness.
+	 * @param fighterCopies A map that the copy of each of this battle's fighters
+	 *                      is put into, keyed by the original, so that actions
+	 *                      targeting fighters of this battle can be translated
+	 *                      into actions in the copy.
+	 * @return The copy.
+	 */
+	public GarmonBattle copy(Random rand, Map<GarmonFighter, GarmonFighter> fighterCopies) {
+		Map<GarmonTeam, GarmonTeam> teamCopies = new HashMap<>();
+		for (var t : getTeamsUnmodifiable()) {
+			List<GarmonFighter> members = new ArrayList<>();
+			for (var f : t) {
+				var c = f.copy();
+				fighterCopies.put(f, c);
+				members.add(c);
+			}
+			teamCopies.put(t, new GarmonTeam(t.getName(), members));
+		}
+		return new GarmonBattle(this, rand, fighterCopies, teamCopies);
+	}
+
+	public Random getRandom() {
+		return rand;
+	}
+
+	@Override
+	protected double random() {
+		return rand.nextDouble();
 	}
 
 	public int getFighterTicks(GarmonFighter fighter) {
@@ -39,11 +102,11 @@ public class GarmonBattle extends Battle<GarmonBattleAction, GarmonFighter, Garm
 	protected GarmonActionResult handleAction(GarmonBattleAction action, GarmonFighter fighter) {
 		switch (action.getType()) {
 		case ATTACK:
-			BigInteger attack = fighter.getAttack();
+			long base = fighter.getAttackLong(), attack = base;
 			for (int i = 2; i < 13; i++)
 				if (rand.nextInt(i) == 0)
-					attack = attack.add(fighter.getAttack().divide(BigInteger.valueOf(i + 1)));
-			BigInteger dmg = max(BigInteger.ZERO, attack.subtract(action.getTarget().getDefense()));
+					attack = Math.addExact(attack, base / (i + 1));
+			long dmg = Math.max(0, Math.subtractExact(attack, action.getTarget().getDefenseLong()));
 			action.getTarget().damage(dmg);
 			if (action.getTarget().isFainted())
 				remove(action.getTarget());
@@ -52,15 +115,14 @@ public class GarmonBattle extends Battle<GarmonBattleAction, GarmonFighter, Garm
 		case SKIP_TURN:
 			// Set ticks to be equal to the next OPPONENT in line + 1.
 			// We need some way to get the next opponent.
-			return new GarmonActionResult(getTicks(getNextNthOpponent(0, fighter)) + 1, action.getType(),
-					BigInteger.ZERO, null);
+			return new GarmonActionResult(getTicks(getNextNthOpponent(0, fighter)) + 1, action.getType(), 0, null);
 
 		case SPECIAL_ATTACK:
 			var att = action.getSpecialAttack();
-			dmg = max(BigInteger.ZERO,
-					att.getPower().multiply(new BigDecimal(fighter.getAttack()))
-							.subtract(new BigDecimal(action.getTarget().getDefense())).setScale(0, RoundingMode.HALF_UP)
-							.toBigInteger());
+			dmg = Math.max(0,
+					att.getPower().multiply(BigDecimal.valueOf(fighter.getAttackLong()))
+							.subtract(BigDecimal.valueOf(action.getTarget().getDefenseLong()))
+							.setScale(0, RoundingMode.HALF_UP).longValueExact());
 			action.getTarget().damage(dmg);
 			if (action.getTarget().isFainted())
 				remove(action.getTarget());
@@ -68,7 +130,7 @@ public class GarmonBattle extends Battle<GarmonBattleAction, GarmonFighter, Garm
 
 		default:
 			surrender(getTeam(fighter));
-			return new GarmonActionResult(100, action.getType(), BigInteger.ZERO, null);
+			return new GarmonActionResult(100, action.getType(), 0, null);
 		}
 	}
 
@@ -1,6 +1,7 @@
 package gartham.c10ver.games.rpg.fighting.battles.app;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -9,6 +10,9 @@ import gartham.c10ver.Clover;
 import gartham.c10ver.actions.DetailedAction;
 import gartham.c10ver.actions.DetailedActionMessage;
 import gartham.c10ver.games.rpg.GarmonUtils;
+import gartham.c10ver.games.rpg.fighting.battles.ai.Difficulty;
+import gartham.c10ver.games.rpg.fighting.battles.ai.MonteCarloAI;
+import gartham.c10ver.games.rpg.fighting.battles.ai.OpponentAI;
 import gartham.c10ver.games.rpg.fighting.battles.api.ActionCompletion;
 import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattleAction.ActionType;
 import net.dv8tion.jda.api.entities.TextChannel;
@@ -21,15 +25,32 @@ public final class GarmonBattleManager {
 	private final User player;
 
 	private final TextChannel chan;
+	private final OpponentAI ai;
 
+	/**
+	 * Creates a {@link GarmonBattleManager} whose opponents are played by the
+	 * specified {@link OpponentAI}.
+	 */
 	public GarmonBattleManager(GarmonBattle battle, GarmonTeam opponentTeam, GarmonTeam playerTeam, Clover clover,
-			User player, TextChannel chan) {
+			User player, TextChannel chan, OpponentAI ai) {
 		this.battle = battle;
 		this.opponentTeam = opponentTeam;
 		this.playerTeam = playerTeam;
 		this.clover = clover;
 		this.player = player;
 		this.chan = chan;
+		this.ai = ai;
+	}
+
+	/**
+	 * Creates a {@link GarmonBattleManager} whose opponents are played by a
+	 * {@link MonteCarloAI} of {@link Difficulty#NORMAL normal} difficulty, on
+	 * Clover's {@link Clover#getSearchPool() search pool}.
+	 */
+	public GarmonBattleManager(GarmonBattle battle, GarmonTeam opponentTeam, GarmonTeam playerTeam, Clover clover,
+			User player, TextChannel chan) {
+		this(battle, opponentTeam, playerTeam, clover, player, chan,
+				new MonteCarloAI(clover.getSearchPool(), Difficulty.NORMAL));
 	}
 
 	public void start() {
@@ -46,16 +67,24 @@ public final class GarmonBattleManager {
 		if (playerTeam.contains(actor)) {
 			userTurnMessage().send(clover, chan, player);
 		} else {
-			var c = (Consumer<Object>) t -> {
-				List<GarmonFighter> list = battle.getRemainingFighters(playerTeam);
-				var act = battle.act(new GarmonBattleAction(list.get((int) (Math.random() * list.size()))));
+			// The AI thinks while the bot is "typing"; whichever takes longer decides when the move is made.
+			var typed = new CompletableFuture<Void>();
+			var c = (Consumer<Object>) t -> typed.complete(null);
+			chan.sendTyping().queueAfter((int) (Math.random() * 2400 + 1200), TimeUnit.MILLISECONDS, c, c);
+			ai.chooseAction(battle).exceptionally(e -> {
+				e.printStackTrace();
+				return OpponentAI.randomAttack(battle, ThreadLocalRandom.current());
+			}).thenAcceptBoth(typed, (action, t) -> {
+				var act = battle.act(action);
 				sendAttackMessage(act);
 				if (act.isBattleOver())
 					printBattleOver();
 				else
 					next();
-			};
-			chan.sendTyping().queueAfter((int) (Math.random() * 2400 + 1200), TimeUnit.MILLISECONDS, c, c);
+			}).exceptionally(e -> {
+				e.printStackTrace();
+				return null;
+			});
 		}
 	}
 
@@ -88,9 +117,10 @@ public final class GarmonBattleManager {
 		GarmonFighter fighter = act.getFighter();
 		whm.setUsername(fighter.getName());
 		whm.setAvatarUrl(fighter.getHeadshot());
-		whm.setContent("*Attacks " + act.getResult().getTarget().getName() + " for \u2694 `"
-				+ act.getResult().getDamage() + "`.*");
-		GarmonUtils.queueWithClient(chan, t -> t.send(whm.build()));
+		whm.setContent(act.getResult().getType() == ActionType.SKIP_TURN ? "*Skips their turn.*"
+				: "*Attacks " + act.getResult().getTarget().getName() + " for \u2694 `"
+						+ act.getResult().getDamageLong() + "`.*");
+		GarmonUtils.send(whm.build(), chan);
 	}
 
 	private DetailedAction attack(DetailedActionMessage<DetailedAction> source) {
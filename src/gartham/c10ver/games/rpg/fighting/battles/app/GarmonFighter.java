@@ -18,6 +18,14 @@ public class GarmonFighter extends SimpleFighter {
 		this.headshot = headshot;
 	}
 
+	public GarmonFighter(String name, String emoji, String headshot, long speed, long maxHealth, long health,
+			long attack, long defense) {
+		super(speed, maxHealth, health, attack, defense);
+		this.name = name;
+		this.emoji = emoji;
+		this.headshot = headshot;
+	}
+
 	/**
 	 * Makes a {@link GarmonFighter} with the specified parameters and the default,
 	 * clover logo emoji.
@@ -37,6 +45,16 @@ public class GarmonFighter extends SimpleFighter {
 		this(name, "<:clover:869763513495748609>", headshot, speed, maxHealth, health, attack, defense);
 	}
 
+	/**
+	 * Returns a new {@link GarmonFighter} with the same name, images and current
+	 * stats as this one.
+	 * 
+	 * @return The copy.
+	 */
+	public GarmonFighter copy() {
+		return new GarmonFighter(name, emoji, headshot, speed, maxHealth, health, attack, defense);
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -59,15 +77,27 @@ public class GarmonFighter extends SimpleFighter {
 				creature.getHp(), creature.getHp(), creature.getAttack(), creature.getDefense());
 	}
 
+	public void modDef(long amount) {
+		setDefense(Math.addExact(defense, amount));
+	}
+
 	public void modDef(BigInteger amount) {
-		setDefense(getDefense().add(amount));
+		modDef(stat(amount));
+	}
+
+	public void modAtt(long amount) {
+		setAttack(Math.addExact(attack, amount));
 	}
 
 	public void modAtt(BigInteger amount) {
-		setAttack(getAttack().add(amount));
+		modAtt(stat(amount));
+	}
+
+	public void modMaxHealth(long amount) {
+		setMaxHealth(Math.addExact(maxHealth, amount));
 	}
 
 	public void modMaxHealth(BigInteger amount) {
-		setMaxHealth(getMaxHealth().add(amount));
+		modMaxHealth(stat(amount));
 	}
 }
@@ -0,0 +1,78 @@
+package gartham.c10ver.games.rpg.fighting.battles.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Simulates a number of battles for each of a list of matchups, and prints how
+ * each matchup went: win rates, the distribution of turn counts, and
+ * histograms of the damage each side's hits did.
+ * </p>
+ *
+ * <pre>
+ * BattleSimulation [battles=100000] [threads=&lt;cores&gt;] [seed=1] [max-turns=10000] [matchup...]
+ * </pre>
+ * <p>
+ * Each matchup is a list of {@link Lineup#parse(String) lineups} separated by
+ * <code>/</code>, e.g. <code>nymph:5,nymph:5/nymph:9</code> for two level 5
+ * nymphs against a level 9 one. With no matchups, a few nymph matchups are
+ * simulated.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class BattleSimulation {
+
+	private BattleSimulation() {
+	}
+
+	private static final String[] DEFAULT_MATCHUPS = { "nymph:5/nymph:5", "nymph:5/nymph:6", "nymph:5,nymph:5/nymph:9",
+			"nymph:20/nymph:1,nymph:1,nymph:1,nymph:1" };
+
+	public static void main(String[] args) {
+		long battles = 100000, seed = 1;
+		int threads = Runtime.getRuntime().availableProcessors(), maxTurns = 10000;
+		List<String> matchups = new ArrayList<>();
+		for (var a : args)
+			if (a.startsWith("battles="))
+				battles = Long.parseLong(a.substring(8));
+			else if (a.startsWith("threads="))
+				threads = Integer.parseInt(a.substring(8));
+			else if (a.startsWith("seed="))
+				seed = Long.parseLong(a.substring(5));
+			else if (a.startsWith("max-turns="))
+				maxTurns = Integer.parseInt(a.substring(10));
+			else
+				matchups.add(a);
+		if (matchups.isEmpty())
+			matchups = List.of(DEFAULT_MATCHUPS);
+
+		var pool = new ForkJoinPool(threads);
+		try {
+			for (var m : matchups) {
+				List<Lineup> lineups = new ArrayList<>();
+				for (var l : m.split("/"))
+					lineups.add(Lineup.parse(l));
+				var sim = new BattleSimulator(seed, maxTurns, lineups);
+
+				long start = System.nanoTime();
+				var stats = sim.simulate(pool, battles);
+				long time = System.nanoTime() - start;
+
+				System.out.println(String.join("  vs  ", sim.getTeamNames()));
+				System.out.printf("  %,d battles, %,d turns in %,d ms, threads: %d (%,.0f battles/s)%n",
+						stats.getBattleCount(), stats.getTurnCount(), TimeUnit.NANOSECONDS.toMillis(time), threads,
+						stats.getBattleCount() * 1e9 / time);
+				stats.print(System.out, sim.getTeamNames());
+				System.out.println();
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
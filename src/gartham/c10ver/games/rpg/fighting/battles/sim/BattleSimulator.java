@@ -0,0 +1,175 @@
+package gartham.c10ver.games.rpg.fighting.battles.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import gartham.c10ver.games.rpg.fighting.battles.api.Battle.State;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattle;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattleAction;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonFighter;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonTeam;
+
+/**
+ * <p>
+ * Plays {@link GarmonBattle}s between a set of {@link Lineup}s without Discord,
+ * to see how a matchup fares over many battles. Every fighter, on every side,
+ * plays like the bot's opponents do: each turn it attacks an opponent that is
+ * still standing, picked at random.
+ * </p>
+ * <p>
+ * Battle <code>i</code> takes all of its randomness from a {@link Random}
+ * seeded from the simulator's seed and <code>i</code> alone, so a run gives the
+ * same results however it's split up across threads, and any one battle can be
+ * replayed with {@link #simulate(long, MatchupStats)}. Battles that run past
+ * the turn limit (e.g. because nobody can get through anybody's defense) are
+ * stopped and counted as {@link MatchupStats#getUnfinishedCount() unfinished}.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class BattleSimulator {
+
+	/**
+	 * The number of battles a single fork/join task plays before it stops
+	 * splitting.
+	 */
+	private static final long BATTLES_PER_TASK = 2048;
+
+	private final List<Lineup> lineups;
+	private final long seed;
+	private final int maxTurns;
+
+	/**
+	 * Creates a {@link BattleSimulator}.
+	 *
+	 * @param seed     The seed every battle's randomness is derived from.
+	 * @param maxTurns The number of turns after which a battle is stopped.
+	 * @param lineups  The sides fighting; at least two.
+	 */
+	public BattleSimulator(long seed, int maxTurns, List<Lineup> lineups) {
+		if (lineups.size() < 2)
+			throw new IllegalArgumentException("A battle needs at least two sides.");
+		this.lineups = List.copyOf(lineups);
+		this.seed = seed;
+		this.maxTurns = maxTurns;
+	}
+
+	public BattleSimulator(long seed, int maxTurns, Lineup... lineups) {
+		this(seed, maxTurns, List.of(lineups));
+	}
+
+	public List<Lineup> getLineups() {
+		return lineups;
+	}
+
+	/**
+	 * Returns the name of each side, in order, for
+	 * {@link MatchupStats#print(java.io.PrintStream, List)}.
+	 *
+	 * @return The names of the sides.
+	 */
+	public List<String> getTeamNames() {
+		List<String> names = new ArrayList<>(lineups.size());
+		for (var l : lineups)
+			names.add(l.getName());
+		return names;
+	}
+
+	/**
+	 * Scrambles a seed with SplitMix64's finalizer, so that consecutive battles
+	 * don't get similar {@link Random}s.
+	 */
+	private static long mix(long z) {
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+
+	/**
+	 * Plays battle number <code>index</code> and records its outcome in the
+	 * specified {@link MatchupStats}.
+	 *
+	 * @param index The number of the battle.
+	 * @param stats The {@link MatchupStats} to record the battle in.
+	 */
+	public void simulate(long index, MatchupStats stats) {
+		var rand = new Random(mix(seed + index * 0x9E3779B97F4A7C15L));
+		var teams = new GarmonTeam[lineups.size()];
+		for (int i = 0; i < teams.length; i++)
+			teams[i] = lineups.get(i).create();
+		var battle = new GarmonBattle(rand, teams);
+		battle.start();
+
+		List<GarmonFighter> targets = new ArrayList<>();
+		int turns = 0;
+		while (battle.getState() == State.RUNNING) {
+			if (turns == maxTurns) {
+				battle.stop();
+				stats.unfinished(turns);
+				return;
+			}
+			int side = indexOf(teams, battle.getFighterTeam(battle.getActingFighter()));
+			targets.clear();
+			for (int i = 0; i < teams.length; i++)
+				if (i != side)
+					for (var f : teams[i])
+						if (!f.isFainted())
+							targets.add(f);
+			var completion = battle.act(new GarmonBattleAction(targets.get(rand.nextInt(targets.size()))));
+			turns++;
+			stats.hit(side, completion.getResult().getDamageLong());
+		}
+		stats.finished(battle.isDraw() ? -1 : indexOf(teams, battle.getWinningTeam()), turns);
+	}
+
+	private static int indexOf(GarmonTeam[] teams, GarmonTeam team) {
+		for (int i = 0; i < teams.length; i++)
+			if (teams[i] == team)
+				return i;
+		throw new IllegalStateException("The team is not in the battle.");
+	}
+
+	/**
+	 * Plays battles <code>0</code> through <code>battles - 1</code> on the
+	 * specified {@link ForkJoinPool} and returns their combined outcome.
+	 *
+	 * @param pool    The pool to play the battles on.
+	 * @param battles The number of battles to play.
+	 * @return The combined {@link MatchupStats}.
+	 */
+	public MatchupStats simulate(ForkJoinPool pool, long battles) {
+		return pool.invoke(new Batch(0, battles));
+	}
+
+	private final class Batch extends RecursiveTask<MatchupStats> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long from, to;
+
+		private Batch(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected MatchupStats compute() {
+			if (to - from <= BATTLES_PER_TASK) {
+				var stats = new MatchupStats(lineups.size());
+				for (long i = from; i < to; i++)
+					simulate(i, stats);
+				return stats;
+			}
+			long mid = from + (to - from) / 2;
+			var left = new Batch(from, mid);
+			left.fork();
+			var right = new Batch(mid, to).compute();
+			return left.join().merge(right);
+		}
+	}
+
+}
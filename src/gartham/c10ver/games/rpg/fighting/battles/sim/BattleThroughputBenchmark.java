@@ -0,0 +1,91 @@
+package gartham.c10ver.games.rpg.fighting.battles.sim;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <p>
+ * Measures how many battles per second the battle engine plays, on one thread
+ * and on all of them, so that changes to {@link
+ * gartham.c10ver.games.rpg.fighting.battles.api.Battle} or
+ * {@link gartham.c10ver.games.rpg.fighting.battles.app.GarmonBattle} that slow
+ * battles down show up. The workload is a fixed, seeded matchup, run a few
+ * times to warm up and then a few more times on each pool to be measured; the
+ * median of the measured runs is reported.
+ * </p>
+ *
+ * <pre>
+ * BattleThroughputBenchmark [battles=200000] [rounds=5] [warmup=3] [threads=&lt;cores&gt;] [min=0] [matchup]
+ * </pre>
+ * <p>
+ * If <code>min</code> is given, exits with status <code>1</code> when the
+ * parallel throughput falls below that many battles per second.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class BattleThroughputBenchmark {
+
+	private BattleThroughputBenchmark() {
+	}
+
+	private static double run(BattleSimulator sim, ForkJoinPool pool, long battles, int rounds) {
+		double[] rates = new double[rounds];
+		for (int i = 0; i < rounds; i++) {
+			long start = System.nanoTime();
+			sim.simulate(pool, battles);
+			rates[i] = battles * 1e9 / (System.nanoTime() - start);
+		}
+		Arrays.sort(rates);
+		return rates[rounds / 2];
+	}
+
+	public static void main(String[] args) {
+		long battles = 200000;
+		int rounds = 5, warmup = 3, threads = Runtime.getRuntime().availableProcessors();
+		double min = 0;
+		String matchup = "nymph:10,nymph:8,nymph:8/nymph:12,nymph:9";
+		for (var a : args)
+			if (a.startsWith("battles="))
+				battles = Long.parseLong(a.substring(8));
+			else if (a.startsWith("rounds="))
+				rounds = Integer.parseInt(a.substring(7));
+			else if (a.startsWith("warmup="))
+				warmup = Integer.parseInt(a.substring(7));
+			else if (a.startsWith("threads="))
+				threads = Integer.parseInt(a.substring(8));
+			else if (a.startsWith("min="))
+				min = Double.parseDouble(a.substring(4));
+			else
+				matchup = a;
+
+		var parts = matchup.split("/");
+		var lineups = new Lineup[parts.length];
+		for (int i = 0; i < parts.length; i++)
+			lineups[i] = Lineup.parse(parts[i]);
+		var sim = new BattleSimulator(1, 10000, lineups);
+		var stats = sim.simulate(ForkJoinPool.commonPool(), Math.min(battles, 10000));
+		System.out.printf("%s: %.1f turns per battle.%n", String.join("  vs  ", sim.getTeamNames()),
+				(double) stats.getTurnCount() / stats.getBattleCount());
+
+		var single = new ForkJoinPool(1);
+		var parallel = new ForkJoinPool(threads);
+		try {
+			for (int i = 0; i < warmup; i++)
+				sim.simulate(parallel, battles);
+			double one = run(sim, single, battles, rounds);
+			System.out.printf("  Threads: %3d  %,12.0f battles/s%n", 1, one);
+			double all = run(sim, parallel, battles, rounds);
+			System.out.printf("  Threads: %3d  %,12.0f battles/s (%.1fx)%n", threads, all, all / one);
+			if (all < min) {
+				System.err.printf("Throughput is below the minimum of %,.0f battles/s.%n", min);
+				System.exit(1);
+			}
+		} finally {
+			single.shutdown();
+			parallel.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package gartham.c10ver.games.rpg.fighting.battles.sim;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gartham.c10ver.games.rpg.creatures.Creature;
+import gartham.c10ver.games.rpg.creatures.Nymph;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonFighter;
+import gartham.c10ver.games.rpg.fighting.battles.app.GarmonTeam;
+
+/**
+ * <p>
+ * The fighters one side of a simulated battle starts with. A {@link Lineup}
+ * keeps a prototype of each fighter and {@link #create() makes a fresh team}
+ * from them for every battle, since fighters are changed by fighting.
+ * </p>
+ * <p>
+ * A {@link Lineup} can be {@link #parse(String) parsed} from a comma separated
+ * list of fighters, each of which is either a creature type and a level (e.g.
+ * <code>nymph:5</code>), or raw stats in the form
+ * <code>stats:speed:hp:attack:defense</code> (e.g.
+ * <code>stats:12:60:9:4</code>).
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class Lineup {
+
+	private final String name;
+	private final List<GarmonFighter> fighters;
+
+	public Lineup(String name, List<GarmonFighter> fighters) {
+		if (fighters.isEmpty())
+			throw new IllegalArgumentException("A lineup needs at least one fighter.");
+		this.name = name;
+		this.fighters = Collections.unmodifiableList(new ArrayList<>(fighters));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<GarmonFighter> getFighters() {
+		return fighters;
+	}
+
+	/**
+	 * Makes a new {@link GarmonTeam} of fresh copies of this {@link Lineup}'s
+	 * fighters, at full health.
+	 *
+	 * @return The new {@link GarmonTeam}.
+	 */
+	public GarmonTeam create() {
+		var members = new GarmonFighter[fighters.size()];
+		for (int i = 0; i < members.length; i++) {
+			var p = fighters.get(i);
+			members[i] = new GarmonFighter(p.getName(), p.getEmoji(), p.getHeadshot(), p.getSpeedLong(),
+					p.getMaxHealthLong(), p.getMaxHealthLong(), p.getAttackLong(), p.getDefenseLong());
+		}
+		return new GarmonTeam(name, members);
+	}
+
+	private static Creature creature(String type) {
+		return switch (type.toLowerCase()) {
+		case Nymph.TYPE -> new Nymph();
+		default -> throw new IllegalArgumentException("Unknown creature type: " + type);
+		};
+	}
+
+	/**
+	 * Parses a {@link Lineup} from the format described in the {@link Lineup class
+	 * documentation}.
+	 *
+	 * @param spec The comma separated fighters.
+	 * @return The {@link Lineup}.
+	 * @throws IllegalArgumentException If <code>spec</code> is malformed.
+	 */
+	public static Lineup parse(String spec) throws IllegalArgumentException {
+		List<GarmonFighter> fighters = new ArrayList<>();
+		var name = new StringBuilder();
+		for (var f : spec.split(",")) {
+			var parts = f.trim().split(":");
+			GarmonFighter fighter;
+			try {
+				if (parts.length == 5 && parts[0].equalsIgnoreCase("stats")) {
+					long hp = Long.parseLong(parts[2]);
+					fighter = new GarmonFighter("Fighter", null, null, Long.parseLong(parts[1]), hp, hp,
+							Long.parseLong(parts[3]), Long.parseLong(parts[4]));
+				} else if (parts.length == 2) {
+					var c = creature(parts[0]);
+					c.setLevel(new BigInteger(parts[1]));
+					fighter = new GarmonFighter("L" + parts[1], c);
+				} else
+					throw new IllegalArgumentException("Malformed fighter: " + f);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Malformed fighter: " + f, e);
+			}
+			if (name.length() != 0)
+				name.append(" + ");
+			name.append(fighter.getName());
+			fighters.add(fighter);
+		}
+		return new Lineup(name.toString(), fighters);
+	}
+
+}
@@ -0,0 +1,207 @@
+package gartham.c10ver.games.rpg.fighting.battles.sim;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * The outcome of a batch of simulated battles of one matchup: how often each
+ * side won, how many turns the battles took, and how much damage each side's
+ * hits did. Each worker of a {@link BattleSimulator} fills its own
+ * {@link MatchupStats}, and the results are {@link #merge(MatchupStats)
+ * merged} at the end, so none of this is thread-safe.
+ * </p>
+ * <p>
+ * Damage is bucketed by powers of two: bucket <code>0</code> counts hits that
+ * did no damage, and bucket <code>b</code> counts hits that did between
+ * <code>2<sup>b-1</sup></code> and <code>2<sup>b</sup> - 1</code>.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class MatchupStats {
+
+	private static final int DAMAGE_BUCKETS = 64, BAR_WIDTH = 40, TURN_ROWS = 20;
+
+	private final int teams;
+	private long battles, draws, unfinished, turns;
+	private final long[] wins, hits, damage;
+	private final long[][] damageBuckets;
+	private long[] turnCounts = new long[64];
+
+	public MatchupStats(int teams) {
+		this.teams = teams;
+		wins = new long[teams];
+		hits = new long[teams];
+		damage = new long[teams];
+		damageBuckets = new long[teams][DAMAGE_BUCKETS];
+	}
+
+	void hit(int team, long dmg) {
+		hits[team]++;
+		damageBuckets[team][Long.SIZE - Long.numberOfLeadingZeros(dmg)]++;
+		damage[team] = saturatedAdd(damage[team], dmg);
+	}
+
+	void finished(int winner, int turns) {
+		battles++;
+		if (winner < 0)
+			draws++;
+		else
+			wins[winner]++;
+		this.turns += turns;
+		if (turns >= turnCounts.length)
+			turnCounts = Arrays.copyOf(turnCounts, Math.max(turnCounts.length * 2, turns + 1));
+		turnCounts[turns]++;
+	}
+
+	void unfinished(int turns) {
+		battles++;
+		unfinished++;
+		this.turns += turns;
+	}
+
+	private static long saturatedAdd(long a, long b) {
+		long r = a + b;
+		return r < a ? Long.MAX_VALUE : r;
+	}
+
+	MatchupStats merge(MatchupStats other) {
+		battles += other.battles;
+		draws += other.draws;
+		unfinished += other.unfinished;
+		turns += other.turns;
+		for (int i = 0; i < teams; i++) {
+			wins[i] += other.wins[i];
+			hits[i] += other.hits[i];
+			damage[i] = saturatedAdd(damage[i], other.damage[i]);
+			for (int b = 0; b < DAMAGE_BUCKETS; b++)
+				damageBuckets[i][b] += other.damageBuckets[i][b];
+		}
+		if (other.turnCounts.length > turnCounts.length)
+			turnCounts = Arrays.copyOf(turnCounts, other.turnCounts.length);
+		for (int i = 0; i < other.turnCounts.length; i++)
+			turnCounts[i] += other.turnCounts[i];
+		return this;
+	}
+
+	public long getBattleCount() {
+		return battles;
+	}
+
+	public long getWinCount(int team) {
+		return wins[team];
+	}
+
+	public long getDrawCount() {
+		return draws;
+	}
+
+	/**
+	 * Returns the number of battles that were stopped for running past the
+	 * simulator's turn limit (e.g. because neither side could damage the other).
+	 * These are not counted in the turn distribution.
+	 *
+	 * @return The number of unfinished battles.
+	 */
+	public long getUnfinishedCount() {
+		return unfinished;
+	}
+
+	/**
+	 * Returns the total number of turns taken in all battles, including unfinished
+	 * ones.
+	 *
+	 * @return The total number of turns.
+	 */
+	public long getTurnCount() {
+		return turns;
+	}
+
+	public double getWinRate(int team) {
+		return battles == 0 ? 0 : (double) wins[team] / battles;
+	}
+
+	/**
+	 * Returns the smallest number of turns that at least the specified fraction of
+	 * finished battles took no more than.
+	 *
+	 * @param p The fraction, in <code>[0, 1]</code>.
+	 * @return The percentile, or <code>0</code> if no battle finished.
+	 */
+	public int getTurnPercentile(double p) {
+		long finished = battles - unfinished, need = Math.max(1, (long) Math.ceil(p * finished)), seen = 0;
+		for (int i = 0; i < turnCounts.length; i++)
+			if ((seen += turnCounts[i]) >= need)
+				return i;
+		return 0;
+	}
+
+	private static String bar(long count, long max) {
+		return "#".repeat((int) (max == 0 ? 0 : (count * BAR_WIDTH + max - 1) / max));
+	}
+
+	private static String percent(long count, long total) {
+		return String.format("%6.2f%%", total == 0 ? 0 : count * 100d / total);
+	}
+
+	/**
+	 * Prints a human readable report of these stats.
+	 *
+	 * @param out       The stream to print to.
+	 * @param teamNames The name of each side, in order.
+	 */
+	public void print(PrintStream out, List<String> teamNames) {
+		for (int i = 0; i < teams; i++)
+			out.printf("  %s  wins  %s%n", percent(wins[i], battles), teamNames.get(i));
+		out.printf("  %s  draws%n", percent(draws, battles));
+		if (unfinished != 0)
+			out.printf("  %s  unfinished (turn limit reached)%n", percent(unfinished, battles));
+
+		long finished = battles - unfinished;
+		if (finished != 0) {
+			int min = 0, max = 0;
+			while (turnCounts[min] == 0)
+				min++;
+			for (int i = min; i < turnCounts.length; i++)
+				if (turnCounts[i] != 0)
+					max = i;
+			long finishedTurns = 0;
+			for (int i = min; i <= max; i++)
+				finishedTurns += turnCounts[i] * i;
+			out.printf("  Turns: mean %.2f, min %d, p50 %d, p90 %d, p99 %d, max %d%n",
+					(double) finishedTurns / finished, min, getTurnPercentile(.5), getTurnPercentile(.9),
+					getTurnPercentile(.99), max);
+
+			int width = (max - min) / TURN_ROWS + 1;
+			long[] rows = new long[(max - min) / width + 1];
+			for (int i = min; i <= max; i++)
+				rows[(i - min) / width] += turnCounts[i];
+			long top = Arrays.stream(rows).max().getAsLong();
+			for (int r = 0; r < rows.length; r++) {
+				int lo = min + r * width, hi = Math.min(max, lo + width - 1);
+				out.printf("  %11s %s %s%n", lo == hi ? Integer.toString(lo) : lo + "-" + hi,
+						percent(rows[r], finished), bar(rows[r], top));
+			}
+		}
+
+		for (int i = 0; i < teams; i++) {
+			out.printf("  Damage per hit by %s: %,d hits, mean %.2f%n", teamNames.get(i), hits[i],
+					hits[i] == 0 ? 0 : (double) damage[i] / hits[i]);
+			int lo = DAMAGE_BUCKETS, hi = -1;
+			for (int b = 0; b < DAMAGE_BUCKETS; b++)
+				if (damageBuckets[i][b] != 0) {
+					lo = Math.min(lo, b);
+					hi = b;
+				}
+			long top = Arrays.stream(damageBuckets[i]).max().getAsLong();
+			for (int b = lo; b <= hi; b++)
+				out.printf("  %11s %s %s%n",
+						b == 0 ? "0" : b == 1 ? "1" : (1L << b - 1) + "-" + ((1L << b) - 1),
+						percent(damageBuckets[i][b], hits[i]), bar(damageBuckets[i][b], top));
+		}
+	}
+
+}
@@ -36,19 +36,19 @@ public class CustomFighter extends SimpleFighter {
 	}
 
 	public void setMaxHealth(BigInteger maxHealth) {
-		this.maxHealth = maxHealth;
+		this.maxHealth = stat(maxHealth);
 	}
 
 	public void setHealth(BigInteger health) {
-		this.health = health;
+		this.health = stat(health);
 	}
 
 	public void setAttack(BigInteger attack) {
-		this.attack = attack;
+		this.attack = stat(attack);
 	}
 
 	public void setDefense(BigInteger defense) {
-		this.defense = defense;
+		this.defense = stat(defense);
 	}
 
 	public void setFullImage(String fullImage) {
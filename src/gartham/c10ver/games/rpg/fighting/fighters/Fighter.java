@@ -22,6 +22,43 @@ public interface Fighter extends Comparable<Fighter> {
 
 	BigInteger getDefense();
 
+	/**
+	 * <p>
+	 * Returns this {@link Fighter}'s {@link #getSpeed() speed} as a
+	 * <code>long</code>. Battles are resolved with these primitive accessors so
+	 * that a turn doesn't allocate; the {@link BigInteger} ones remain for
+	 * display and for anything built on {@link gartham.c10ver.games.rpg.creatures.Creature
+	 * Creature}s.
+	 * </p>
+	 * <p>
+	 * {@link Fighter}s that store their stats as <code>long</code>s (such as
+	 * {@link SimpleFighter}) override these; by default they convert the
+	 * {@link BigInteger} stat.
+	 * </p>
+	 * 
+	 * @return This {@link Fighter}'s speed.
+	 * @throws ArithmeticException If the speed doesn't fit in a <code>long</code>.
+	 */
+	default long getSpeedLong() {
+		return getSpeed().longValueExact();
+	}
+
+	default long getMaxHealthLong() {
+		return getMaxHealth().longValueExact();
+	}
+
+	default long getHealthLong() {
+		return getHealth().longValueExact();
+	}
+
+	default long getAttackLong() {
+		return getAttack().longValueExact();
+	}
+
+	default long getDefenseLong() {
+		return getDefense().longValueExact();
+	}
+
 	/**
 	 * Returns whether this {@link Fighter}'s {@link #getHealth() health} is
 	 * {@link BigInteger#ZERO zero} or not.
@@ -30,7 +67,7 @@ public interface Fighter extends Comparable<Fighter> {
 	 *         health} is zero, <code>false</code> otherwise.
 	 */
 	default boolean isFainted() {
-		return getHealth().equals(BigInteger.ZERO);
+		return getHealth().signum() == 0;
 	}
 
 	@Override
@@ -2,34 +2,75 @@ package gartham.c10ver.games.rpg.fighting.fighters;
 
 import java.math.BigInteger;
 
+/**
+ * <p>
+ * A {@link Fighter} whose stats are stored as <code>long</code>s, so that
+ * fighting (damaging, healing, and reading stats during a turn) doesn't
+ * allocate. The {@link BigInteger} constructors, setters and getters bridge to
+ * code that works with {@link BigInteger} stats, like
+ * {@link gartham.c10ver.games.rpg.creatures.Creature Creature}s; a stat that
+ * doesn't fit in a <code>long</code> is rejected with an
+ * {@link ArithmeticException} instead of silently wrapping, as is any
+ * arithmetic on stats that would overflow.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
 public class SimpleFighter implements Fighter {
 
-	protected BigInteger speed;
-	protected BigInteger maxHealth;
-	protected BigInteger health;
-	protected BigInteger attack;
-	protected BigInteger defense;
+	protected long speed;
+	protected long maxHealth;
+	protected long health;
+	protected long attack;
+	protected long defense;
 
-	protected void setMaxHealth(BigInteger maxHealth) {
+	/**
+	 * Converts a {@link BigInteger} stat to a <code>long</code>.
+	 *
+	 * @param value The stat.
+	 * @return The stat, as a <code>long</code>.
+	 * @throws ArithmeticException If the stat doesn't fit in a <code>long</code>.
+	 */
+	protected static long stat(BigInteger value) throws ArithmeticException {
+		return value.longValueExact();
+	}
+
+	protected void setMaxHealth(long maxHealth) {
 		this.maxHealth = maxHealth;
-		if (health.compareTo(maxHealth) > 0)
+		if (health > maxHealth)
 			health = maxHealth;
 	}
 
-	protected void setHealth(BigInteger health) {
+	protected void setMaxHealth(BigInteger maxHealth) {
+		setMaxHealth(stat(maxHealth));
+	}
+
+	protected void setHealth(long health) {
 		this.health = health;
 	}
 
-	protected void setAttack(BigInteger attack) {
+	protected void setHealth(BigInteger health) {
+		setHealth(stat(health));
+	}
+
+	protected void setAttack(long attack) {
 		this.attack = attack;
 	}
 
-	protected void setDefense(BigInteger defense) {
+	protected void setAttack(BigInteger attack) {
+		setAttack(stat(attack));
+	}
+
+	protected void setDefense(long defense) {
 		this.defense = defense;
 	}
 
-	public SimpleFighter(BigInteger speed, BigInteger maxHealth, BigInteger health, BigInteger attack,
-			BigInteger defense) {
+	protected void setDefense(BigInteger defense) {
+		setDefense(stat(defense));
+	}
+
+	public SimpleFighter(long speed, long maxHealth, long health, long attack, long defense) {
 		this.speed = speed;
 		this.maxHealth = maxHealth;
 		this.health = health;
@@ -37,63 +78,135 @@ public class SimpleFighter implements Fighter {
 		this.defense = defense;
 	}
 
+	/**
+	 * Creates a {@link SimpleFighter} from {@link BigInteger} stats.
+	 *
+	 * @throws ArithmeticException If any of the stats doesn't fit in a
+	 *                             <code>long</code>.
+	 */
+	public SimpleFighter(BigInteger speed, BigInteger maxHealth, BigInteger health, BigInteger attack,
+			BigInteger defense) throws ArithmeticException {
+		this(stat(speed), stat(maxHealth), stat(health), stat(attack), stat(defense));
+	}
+
 	/**
 	 * Returns this {@link CustomFighter}'s speed. The speed of a
 	 * {@link CustomFighter} canonically determines how many ticks it begins a
 	 * battle with. (A speed higher than other {@link CustomFighter}s' results in a
 	 * lower initial tick).
-	 * 
+	 *
 	 * @return This {@link CustomFighter}'s speed.
 	 */
 	@Override
 	public BigInteger getSpeed() {
-		return speed;
+		return BigInteger.valueOf(speed);
 	}
 
 	@Override
 	public BigInteger getMaxHealth() {
-		return maxHealth;
+		return BigInteger.valueOf(maxHealth);
 	}
 
 	@Override
 	public BigInteger getHealth() {
-		return health;
+		return BigInteger.valueOf(health);
 	}
 
 	@Override
 	public BigInteger getAttack() {
-		return attack;
+		return BigInteger.valueOf(attack);
 	}
 
 	@Override
 	public BigInteger getDefense() {
+		return BigInteger.valueOf(defense);
+	}
+
+	@Override
+	public long getSpeedLong() {
+		return speed;
+	}
+
+	@Override
+	public long getMaxHealthLong() {
+		return maxHealth;
+	}
+
+	@Override
+	public long getHealthLong() {
+		return health;
+	}
+
+	@Override
+	public long getAttackLong() {
+		return attack;
+	}
+
+	@Override
+	public long getDefenseLong() {
 		return defense;
 	}
 
+	@Override
+	public boolean isFainted() {
+		return health == 0;
+	}
+
+	@Override
+	public int compareTo(Fighter o) {
+		return o instanceof SimpleFighter ? Long.compare(speed, ((SimpleFighter) o).speed)
+				: Fighter.super.compareTo(o);
+	}
+
 	public void heal(BigInteger amount) {
-		if (amount.equals(BigInteger.ZERO))
-			return;
-		else if (amount.compareTo(BigInteger.ZERO) < 0)
-			damage(amount.negate());
-		else {
-			health = health.add(amount);
-			if (health.compareTo(maxHealth) >= 0)
-				health = maxHealth;
-		}
+		if (amount.bitLength() < Long.SIZE)
+			heal(amount.longValue());
+		else if (amount.signum() > 0)
+			health = maxHealth;
+		else
+			health = 0;
 	}
 
 	public void heal(long amount) {
-		heal(BigInteger.valueOf(amount));
+		if (amount == 0)
+			return;
+		else if (amount < 0)
+			damage(amount == Long.MIN_VALUE ? Long.MAX_VALUE : -amount);
+		else {
+			long h = health + amount;
+			// An overflowing sum is past any max health.
+			health = h < health || h >= maxHealth ? maxHealth : h;
+		}
 	}
 
+	/**
+	 * Damages this fighter by the specified amount and returns <code>true</code> if
+	 * the fighter fainted (i.e. this fighter's health dropped below 1) as a result.
+	 *
+	 * @param amount The amount of damage to do. If zero, this method returns
+	 *               {@link #isFainted()}. If negative, calls
+	 *               <code>{@link #heal(long) heal(-amount)}</code> and then returns
+	 *               <code>false</code>.
+	 * @return If this fighter is fainted after processing of this method.
+	 */
 	public boolean damage(long amount) {
-		return damage(BigInteger.valueOf(amount));
+		if (amount == 0)
+			return isFainted();
+		else if (amount < 0) {
+			heal(amount == Long.MIN_VALUE ? Long.MAX_VALUE : -amount);
+			return false;
+		}
+		if ((health -= amount) < 0) {
+			health = 0;
+			return true;
+		}
+		return health == 0;
 	}
 
 	/**
 	 * Damages this fighter by the specified amount and returns <code>true</code> if
 	 * the fighter fainted (i.e. this fighter's health dropped below 1) as a result.
-	 * 
+	 *
 	 * @param amount The amount of damage to do. If zero, this method returns
 	 *               {@link #isFainted()}. If negative, calls
 	 *               <code>{@link #heal(BigInteger) heal(-amount)}</code> and then
@@ -101,26 +214,27 @@ public class SimpleFighter implements Fighter {
 	 * @return If this fighter is fainted after processing of this method.
 	 */
 	public boolean damage(BigInteger amount) {
-		if (amount.equals(BigInteger.ZERO))
-			return isFainted();
-		else if (amount.compareTo(BigInteger.ZERO) < 0) {
-			heal(amount.negate());
+		if (amount.bitLength() < Long.SIZE)
+			return damage(amount.longValue());
+		else if (amount.signum() < 0) {
+			health = maxHealth;
 			return false;
 		}
-		if ((health = health.subtract(amount)).compareTo(BigInteger.ZERO) < 0) {
-			health = BigInteger.ZERO;
-			return true;
-		}
-		return health.equals(BigInteger.ZERO);
+		health = 0;
+		return true;
 	}
 
 	public String getHealthString() {
 		return health == maxHealth ? "FULL" : isFainted() ? "FAINTED" : health + " / " + maxHealth;
 	}
 
-	public Fighter setSpeed(BigInteger speed) {
+	public Fighter setSpeed(long speed) {
 		this.speed = speed;
 		return this;
 	}
 
-}
\ No newline at end of file
+	public Fighter setSpeed(BigInteger speed) {
+		return setSpeed(stat(speed));
+	}
+
+}
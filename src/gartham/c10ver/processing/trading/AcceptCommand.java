@@ -2,11 +2,7 @@ package gartham.c10ver.processing.trading;
 
 import gartham.c10ver.commands.CommandInvocation;
 import gartham.c10ver.commands.MatchBasedCommand;
-import gartham.c10ver.economy.items.Item;
-import gartham.c10ver.economy.items.UserInventory;
-import gartham.c10ver.economy.items.UserInventory.UserEntry;
-import gartham.c10ver.economy.items.utils.ItemList;
-import gartham.c10ver.economy.users.User;
+import gartham.c10ver.economy.TradeCommit;
 import net.dv8tion.jda.api.EmbedBuilder;
 
 public class AcceptCommand extends MatchBasedCommand {
@@ -18,9 +14,15 @@ public class AcceptCommand extends MatchBasedCommand {
 		this.trade = trade;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
-	public void exec(CommandInvocation inv) {// TODO Synchronize
+	public void exec(CommandInvocation inv) {
+		// Both participants accepting at once must not commit the trade twice.
+		synchronized (trade) {
+			accept(inv);
+		}
+	}
+
+	private void accept(CommandInvocation inv) {
 		var person = trade.getParticipant(inv.event.getAuthor());
 		if (inv.args.length == 0)
 			if (!person.isFinished()) {
@@ -29,52 +31,34 @@ public class AcceptCommand extends MatchBasedCommand {
 				if (other.isFinished()) {
 
 					// Do the actual tradeoff.
-
-					ItemList invokerList = person.getItems(), otherList = other.getItems();
-					UserInventory takeInv = person.getEcouser().getInventory(),
-							recivInv = other.getEcouser().getInventory();
-					for (var e : invokerList.getItems()) {// For each item specified to trade, pull it out of the
-															// inventory.
-						var entry = takeInv.get(e.getItem().getItemType());
-						if (entry == null) {
-							inv.event.getChannel().sendMessage(
-									"The trade could not be completed as requested because of an error. (User did not have items to trade.)")
-									.queue();
-							return;
-						}
-
-						if (!((UserEntry<Item>) entry).has(e.getItem(), e.getCount())) {
-							inv.event.getChannel().sendMessage(
-									"The trade could not be completed as requested because of an error. (User did not have enough items to complete the trade.)")
-									.queue();
-							return;
-						}
-
-					}
-
-					for (var e : otherList.getItems()) {
-						var entry = recivInv.get(e.getItem().getItemType());
-						if (entry == null) {
-							inv.event.getChannel().sendMessage(
-									"The trade could not be completed as requested because of an error. (User did not have items to trade.)")
-									.queue();
-							return;
-						}
-						if (!((UserEntry<Item>) entry).has(e.getItem(), e.getCount())) {
-							inv.event.getChannel().sendMessage(
-									"The trade could not be completed as requested because of an error. (User did not have enough items to complete the trade.)")
-									.queue();
-							return;
-						}
+					var commit = new TradeCommit(person.getEcouser().getEconomy());
+					for (var t : new TradeParticipant[] { person, other }) {
+						var recipient = t == person ? other : person;
+						commit.pay(t.getEcouser(), recipient.getEcouser(), t.getCloves());
+						for (var e : t.getItems().getItems())
+							commit.give(t.getEcouser(), recipient.getEcouser(), e.getItem(), e.getCount());
 					}
 
-					for (var e : invokerList.getItems()) {
-						takeInv.remove(e.getItem(), e.getCount());
-						recivInv.add(e.getItem(), e.getCount());
+					TradeCommit.Result result;
+					try {
+						result = commit.commit();
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+						inv.event.getChannel().sendMessage(
+								"The trade could not be completed as requested because of an error. Nothing was traded.")
+								.queue();
+						return;
 					}
-					for (var e : otherList.getItems()) {
-						recivInv.remove(e.getItem(), e.getCount());
-						takeInv.add(e.getItem(), e.getCount());
+					if (result == TradeCommit.Result.NOT_ENOUGH_CLOVES) {
+						inv.event.getChannel().sendMessage(
+								"The trade could not be completed as requested because of an error. (User did not have enough cloves to complete the trade.)")
+								.queue();
+						return;
+					} else if (result == TradeCommit.Result.NOT_ENOUGH_ITEMS) {
+						inv.event.getChannel().sendMessage(
+								"The trade could not be completed as requested because of an error. (User did not have enough items to complete the trade.)")
+								.queue();
+						return;
 					}
 
 					trade.end();
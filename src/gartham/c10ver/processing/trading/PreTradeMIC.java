@@ -1,7 +1,5 @@
 package gartham.c10ver.processing.trading;
 
-import java.time.Instant;
-
 import gartham.c10ver.commands.InputProcessor;
 import gartham.c10ver.commands.consumers.InputConsumer;
 import gartham.c10ver.commands.consumers.MessageInputConsumer;
@@ -19,13 +17,10 @@ public class PreTradeMIC implements MessageInputConsumer {
 				.queue();
 	}
 
-	private Instant recipientTS = Instant.now();
-
 	@Override
 	public boolean consume(MessageReceivedEvent event, InputProcessor<? extends MessageReceivedEvent> processor,
 			InputConsumer<MessageReceivedEvent> consumer) {
 
-		var channel = trade.getInitialChannel();
 		var c = event.getMessage().getContentRaw();
 
 		if (trade.isRecipient(event.getAuthor())) {
@@ -53,12 +48,6 @@ public class PreTradeMIC implements MessageInputConsumer {
 			}
 		}
 
-		if (Instant.now().isAfter(recipientTS.plusSeconds(30))) {
-			channel.sendMessage(trade.getRecip().getEcouser().getUser().getAsTag()
-					+ " didn't reply within 30 seconds to the confirmation, so the trade has been cancelled.").queue();
-			trade.end();
-		}
-		recipientTS = Instant.now();
 		return false;
 	}
 
@@ -22,9 +22,15 @@ public class Trade {
 		this.recip = recip;
 		this.manager = manager;
 		this.initialChannel = initialChannel;
-		tradeMIC = new TradeMIC(this);
+		// Both consumers are removed by the message processor's expiry timer when they time out.
+		tradeMIC = new TradeMIC(this).withActivityTTL(120000, this::end);
 		manager.getClover().getEventHandler().getMessageProcessor()
-				.registerInputConsumer(preTradeMIC = new PreTradeMIC(this));
+				.registerInputConsumer(preTradeMIC = new PreTradeMIC(this).withTTL(30000, () -> {
+					initialChannel.sendMessage(getRecipientUser().getAsTag()
+							+ " didn't reply within 30 seconds to the confirmation, so the trade has been cancelled.")
+							.queue();
+					end();
+				}));
 	}
 
 	public TradeParticipant getParticipant(User user) {
@@ -50,7 +56,7 @@ public class Trade {
 		accepted = true;
 		var processor = manager.getClover().getEventHandler().getMessageProcessor();
 		processor.removeInputConsumer(preTradeMIC);
-		processor.registerInputConsumer(tradeMIC);
+		processor.registerChannelConsumer(tradeMIC, initialChannel.getId());
 	}
 
 	public TradeParticipant getRequester() {
@@ -1,7 +1,5 @@
 package gartham.c10ver.processing.trading;
 
-import java.time.Instant;
-
 import gartham.c10ver.commands.InputProcessor;
 import gartham.c10ver.commands.SimpleCommandProcessor;
 import gartham.c10ver.commands.consumers.InputConsumer;
@@ -15,7 +13,6 @@ public class TradeMIC implements MessageInputConsumer {
 	private final SimpleCommandProcessor processor = new SimpleCommandProcessor();
 
 	private final Trade trade;
-	private Instant lastUse = Instant.now();
 
 	public TradeMIC(Trade trade) {
 		this.trade = trade;
@@ -42,13 +39,8 @@ public class TradeMIC implements MessageInputConsumer {
 		if (event.getChannel().equals(trade.getInitialChannel()) && (event.getAuthor().equals(trade.getRecipientUser())
 				|| event.getAuthor().equals(trade.getRequesterUser()))) {
 			this.processor.run(parser.parse(null, txt, event));
-			lastUse = Instant.now();
 			return true;
 		}
-
-		if (Instant.now().isAfter(lastUse.plusSeconds(120)))
-			trade.end();
-		lastUse = Instant.now();
 		return false;
 	}
 
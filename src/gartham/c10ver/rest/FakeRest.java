@@ -0,0 +1,155 @@
+package gartham.c10ver.rest;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * A local stand-in for Discord's REST API, for exercising code built on
+ * {@link RestPipeline} offline. Each call made through {@link #call(Object)}
+ * completes on a timer thread after a random latency, and can be made to fail
+ * (with an {@link IOException}, which {@link RestPipeline#isTransient(Throwable)}
+ * retries) or to hang forever (so that only a timeout ends it), with the
+ * configured probabilities.
+ * </p>
+ * <p>
+ * A {@link FakeRest} counts the calls made to it, and how many were running at
+ * once, so tests can check that a pipeline's concurrency limit holds. Hung calls
+ * stop counting as running once they're cancelled.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class FakeRest {
+
+	private final ScheduledExecutorService timer;
+	private final long minLatencyMillis, maxLatencyMillis;
+	private final double failureChance, hangChance;
+	private final AtomicLong calls = new AtomicLong(), failures = new AtomicLong(), hangs = new AtomicLong();
+	private final AtomicInteger running = new AtomicInteger(), peakRunning = new AtomicInteger();
+
+	/**
+	 * Creates a {@link FakeRest}.
+	 *
+	 * @param minLatencyMillis The least time a call takes.
+	 * @param maxLatencyMillis The most time a call that doesn't hang takes.
+	 * @param failureChance    The probability that a call fails.
+	 * @param hangChance       The probability that a call never completes.
+	 */
+	public FakeRest(long minLatencyMillis, long maxLatencyMillis, double failureChance, double hangChance) {
+		this.minLatencyMillis = minLatencyMillis;
+		this.maxLatencyMillis = maxLatencyMillis;
+		this.failureChance = failureChance;
+		this.hangChance = hangChance;
+		var t = new ScheduledThreadPoolExecutor(1, r -> {
+			var th = new Thread(r, "Fake REST");
+			th.setDaemon(true);
+			return th;
+		});
+		t.setRemoveOnCancelPolicy(true);
+		timer = t;
+	}
+
+	/**
+	 * Starts a call that completes with the specified result, unless it fails or
+	 * hangs.
+	 *
+	 * @param <T>    The type of the result.
+	 * @param result The result.
+	 * @return A {@link CompletableFuture} of the result.
+	 */
+	public <T> CompletableFuture<T> call(T result) {
+		calls.incrementAndGet();
+		peakRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+		// A call stops running before its future completes, since whatever is waiting on the future may start
+		// another call straight away.
+		var stopped = new AtomicBoolean();
+		Runnable stop = () -> {
+			if (stopped.compareAndSet(false, true))
+				running.decrementAndGet();
+		};
+		var future = new CompletableFuture<T>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				stop.run();
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		var r = ThreadLocalRandom.current();
+		double roll = r.nextDouble();
+		if (roll < hangChance) {
+			hangs.incrementAndGet();
+			return future;
+		}
+		boolean fail = roll < hangChance + failureChance;
+		long latency = minLatencyMillis + (maxLatencyMillis > minLatencyMillis
+				? r.nextLong(maxLatencyMillis - minLatencyMillis + 1)
+				: 0);
+		timer.schedule(() -> {
+			stop.run();
+			if (fail) {
+				failures.incrementAndGet();
+				future.completeExceptionally(new IOException("Simulated network failure."));
+			} else
+				future.complete(result);
+		}, latency, TimeUnit.MILLISECONDS);
+		return future;
+	}
+
+	/**
+	 * Returns a supplier that starts a new call each time it's invoked, in the form
+	 * {@link RestPipeline#submit(Supplier)} takes.
+	 *
+	 * @param <T>    The type of the result.
+	 * @param result The result.
+	 * @return The supplier.
+	 */
+	public <T> Supplier<CompletableFuture<T>> action(T result) {
+		return () -> call(result);
+	}
+
+	public long getCallCount() {
+		return calls.get();
+	}
+
+	public long getFailureCount() {
+		return failures.get();
+	}
+
+	public long getHangCount() {
+		return hangs.get();
+	}
+
+	/**
+	 * Returns the number of calls that have started and not yet completed or been
+	 * cancelled.
+	 *
+	 * @return The number of running calls.
+	 */
+	public int getRunningCount() {
+		return running.get();
+	}
+
+	/**
+	 * Returns the largest number of calls that have been running at once.
+	 *
+	 * @return The peak number of running calls.
+	 */
+	public int getPeakRunningCount() {
+		return peakRunning.get();
+	}
+
+	public void shutdown() {
+		timer.shutdownNow();
+	}
+
+}
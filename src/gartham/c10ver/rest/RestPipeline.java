@@ -0,0 +1,307 @@
+package gartham.c10ver.rest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import gartham.c10ver.utils.TimingWheel;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.RestAction;
+
+/**
+ * <p>
+ * Runs REST calls (usually JDA {@link RestAction}s) asynchronously, with a
+ * timeout on each attempt, retries with exponential backoff for transient
+ * failures, and a limit on how many calls may be in flight at once. Calls past
+ * the limit wait in a queue without holding a thread. Nothing here ever blocks:
+ * {@link #submit(Supplier)} returns a {@link CompletableFuture} straight away,
+ * and callers chain onto it instead of calling <code>complete()</code>.
+ * </p>
+ * <p>
+ * An attempt that times out is cancelled and counts as a transient failure. By
+ * default, timeouts, I/O failures and Discord server errors are transient, and
+ * everything else (missing permissions, unknown members, ...) fails the call
+ * right away.
+ * </p>
+ * <p>
+ * Only idempotent calls (retrievals, opening a private channel, ...) are ever
+ * retried or timed out. Calls that create something are
+ * {@link #submit(RestAction, boolean) submitted} as non-idempotent: they are
+ * attempted once and left to run to completion, since an attempt that failed
+ * transiently or was cancelled may still have been carried out by Discord, and
+ * retrying it (or treating it as failed) could create a duplicate.
+ * </p>
+ * <p>
+ * Like {@link gartham.c10ver.data.autosave.WriteBehindSaver}, a
+ * {@link RestPipeline} can be {@link #setGlobal(RestPipeline) installed
+ * globally}, for code that has no other way to reach one; {@link #queue(RestAction)}
+ * uses the global pipeline, or submits the action directly if there is none.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class RestPipeline {
+
+	private static volatile RestPipeline global;
+
+	public static RestPipeline getGlobal() {
+		return global;
+	}
+
+	public static void setGlobal(RestPipeline pipeline) {
+		global = pipeline;
+	}
+
+	/**
+	 * Submits the specified {@link RestAction} through the global
+	 * {@link RestPipeline}, or directly if there is none.
+	 *
+	 * @param <T>    The type of the action's result.
+	 * @param action The {@link RestAction}.
+	 * @return A {@link CompletableFuture} of the action's result.
+	 */
+	public static <T> CompletableFuture<T> queue(RestAction<T> action) {
+		return queue(action, true);
+	}
+
+	/**
+	 * Submits the specified {@link RestAction} through the global
+	 * {@link RestPipeline}, or directly if there is none.
+	 *
+	 * @param <T>        The type of the action's result.
+	 * @param action     The {@link RestAction}.
+	 * @param idempotent Whether the action may be retried and timed out.
+	 * @return A {@link CompletableFuture} of the action's result.
+	 */
+	public static <T> CompletableFuture<T> queue(RestAction<T> action, boolean idempotent) {
+		var p = global;
+		return p == null ? action.submit() : p.submit(action, idempotent);
+	}
+
+	/**
+	 * Returns whether the specified failure is worth retrying: timeouts, I/O
+	 * failures, and Discord server errors.
+	 *
+	 * @param failure The failure.
+	 * @return <code>true</code> if the failure is transient.
+	 */
+	public static boolean isTransient(Throwable failure) {
+		failure = unwrap(failure);
+		return failure instanceof TimeoutException || failure instanceof IOException
+				|| failure instanceof UncheckedIOException
+				|| failure instanceof ErrorResponseException && ((ErrorResponseException) failure).isServerError();
+	}
+
+	private static Throwable unwrap(Throwable failure) {
+		while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+				&& failure.getCause() != null)
+			failure = failure.getCause();
+		return failure;
+	}
+
+	private static final long BASE_BACKOFF_MILLIS = 250;
+
+	private final TimingWheel timer;
+	private final int maxConcurrent, retries;
+	private final long timeoutNanos;
+	private final Predicate<? super Throwable> retryable;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Creates a {@link RestPipeline} that allows at most
+	 * <code>maxConcurrent</code> calls in flight, times each attempt out after ten
+	 * seconds, and retries {@link #isTransient(Throwable) transient} failures up to
+	 * twice.
+	 *
+	 * @param name          The name of the pipeline's timer thread.
+	 * @param maxConcurrent The maximum number of calls in flight at once.
+	 */
+	public RestPipeline(String name, int maxConcurrent) {
+		this(name, maxConcurrent, 10, TimeUnit.SECONDS, 2, RestPipeline::isTransient);
+	}
+
+	/**
+	 * Creates a {@link RestPipeline}.
+	 *
+	 * @param name          The name of the pipeline's timer thread.
+	 * @param maxConcurrent The maximum number of calls in flight at once.
+	 * @param timeout       How long each attempt may take.
+	 * @param unit          The unit of <code>timeout</code>.
+	 * @param retries       How many times a call is retried after a transient
+	 *                      failure.
+	 * @param retryable     Decides which failures are transient.
+	 */
+	public RestPipeline(String name, int maxConcurrent, long timeout, TimeUnit unit, int retries,
+			Predicate<? super Throwable> retryable) {
+		if (maxConcurrent <= 0)
+			throw new IllegalArgumentException("At least one call must be allowed in flight.");
+		this.maxConcurrent = maxConcurrent;
+		this.retries = retries;
+		this.retryable = retryable;
+		timeoutNanos = unit.toNanos(timeout);
+		timer = new TimingWheel(10, TimeUnit.MILLISECONDS, name + " Timer");
+	}
+
+	/**
+	 * Submits an idempotent {@link RestAction}.
+	 *
+	 * @param <T>    The type of the action's result.
+	 * @param action The {@link RestAction}.
+	 * @return A {@link CompletableFuture} of the action's result.
+	 */
+	public <T> CompletableFuture<T> submit(RestAction<T> action) {
+		return submit(action, true);
+	}
+
+	/**
+	 * Submits a {@link RestAction}.
+	 *
+	 * @param <T>        The type of the action's result.
+	 * @param action     The {@link RestAction}.
+	 * @param idempotent Whether the action may be retried and timed out.
+	 * @return A {@link CompletableFuture} of the action's result.
+	 */
+	public <T> CompletableFuture<T> submit(RestAction<T> action, boolean idempotent) {
+		return submit(action::submit, idempotent);
+	}
+
+	/**
+	 * Submits an idempotent call. The supplier is invoked once per attempt, and
+	 * must start the call and return a stage that completes with its result; it
+	 * must not block.
+	 *
+	 * @param <T>  The type of the result.
+	 * @param call Starts an attempt of the call.
+	 * @return A {@link CompletableFuture} that completes with the call's result,
+	 *         or with the failure of its last attempt.
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<? extends CompletionStage<T>> call) {
+		return submit(call, true);
+	}
+
+	/**
+	 * Submits a call. The supplier is invoked once per attempt, and must start the
+	 * call and return a stage that completes with its result; it must not block.
+	 * A call that isn't <code>idempotent</code> is attempted exactly once, and is
+	 * never timed out.
+	 *
+	 * @param <T>        The type of the result.
+	 * @param call       Starts an attempt of the call.
+	 * @param idempotent Whether the call may be retried and timed out.
+	 * @return A {@link CompletableFuture} that completes with the call's result,
+	 *         or with the failure of its last attempt.
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<? extends CompletionStage<T>> call, boolean idempotent) {
+		var result = new CompletableFuture<T>();
+		attempt(call, 0, idempotent, result);
+		return result;
+	}
+
+	private <T> void attempt(Supplier<? extends CompletionStage<T>> call, int attempt, boolean idempotent,
+			CompletableFuture<T> result) {
+		acquire(() -> {
+			CompletableFuture<T> future;
+			try {
+				future = call.get().toCompletableFuture();
+			} catch (RuntimeException e) {
+				future = CompletableFuture.failedFuture(e);
+			}
+			// A call that times out is cancelled, so that it's no longer running by the time its slot is released.
+			var f = future;
+			var timedOut = new AtomicBoolean();
+			var timeout = idempotent ? timer.schedule(timeoutNanos, TimeUnit.NANOSECONDS, () -> {
+				timedOut.set(true);
+				f.cancel(true);
+			}) : null;
+			f.whenComplete((t, e) -> {
+				if (timeout != null)
+					timeout.cancel();
+				release();
+				if (e == null) {
+					result.complete(t);
+					return;
+				}
+				var failure = timedOut.get() ? new TimeoutException("REST call timed out.") : unwrap(e);
+				if (idempotent && attempt < retries && retryable.test(failure))
+					timer.schedule(BASE_BACKOFF_MILLIS << attempt, TimeUnit.MILLISECONDS,
+							() -> attempt(call, attempt + 1, idempotent, result));
+				else
+					result.completeExceptionally(failure);
+			});
+		});
+	}
+
+	private void acquire(Runnable start) {
+		while (true) {
+			int n = inFlight.get();
+			if (n >= maxConcurrent) {
+				waiting.add(start);
+				// A call may have finished between the check and the add; make sure the
+				// queued call isn't stranded.
+				if (inFlight.get() < maxConcurrent)
+					drain();
+				return;
+			}
+			if (inFlight.compareAndSet(n, n + 1))
+				break;
+		}
+		start.run();
+	}
+
+	private void release() {
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	private void drain() {
+		while (!waiting.isEmpty()) {
+			int n = inFlight.get();
+			if (n >= maxConcurrent)
+				return;
+			if (!inFlight.compareAndSet(n, n + 1))
+				continue;
+			var next = waiting.poll();
+			if (next == null) {
+				inFlight.decrementAndGet();
+				continue;
+			}
+			next.run();
+		}
+	}
+
+	/**
+	 * Returns the number of calls currently in flight.
+	 *
+	 * @return The number of calls in flight.
+	 */
+	public int getInFlightCount() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Returns the number of calls waiting for a slot.
+	 *
+	 * @return The number of waiting calls.
+	 */
+	public int getWaitingCount() {
+		return waiting.size();
+	}
+
+	public void shutdown() {
+		timer.shutdown();
+	}
+
+}
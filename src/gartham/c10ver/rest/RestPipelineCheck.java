@@ -0,0 +1,120 @@
+package gartham.c10ver.rest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Runs a burst of calls through a {@link RestPipeline} against a
+ * {@link FakeRest} that is slow, fails some calls, and hangs on others, once
+ * without retries and once with them, and checks that:
+ * </p>
+ * <ul>
+ * <li>every call completes (hung calls time out instead of waiting forever),</li>
+ * <li>the fake never sees more calls at once than the pipeline allows,</li>
+ * <li>no call is left running afterwards (timed out calls are cancelled),
+ * and</li>
+ * <li>retrying makes more calls succeed.</li>
+ * </ul>
+ *
+ * <pre>
+ * RestPipelineCheck [calls=2000] [concurrency=16] [failure=0.1] [hang=0.02]
+ * </pre>
+ * <p>
+ * Exits with status <code>1</code> if any check fails.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class RestPipelineCheck {
+
+	private RestPipelineCheck() {
+	}
+
+	private static final long TIMEOUT_MILLIS = 200;
+
+	/**
+	 * Runs the calls through a new pipeline and returns how many succeeded, or
+	 * <code>-1</code> if a check failed.
+	 */
+	private static int run(String name, int calls, int concurrency, int retries, double failure, double hang)
+			throws InterruptedException {
+		var fake = new FakeRest(5, 40, failure, hang);
+		var pipeline = new RestPipeline(name, concurrency, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, retries,
+				RestPipeline::isTransient);
+		AtomicInteger succeeded = new AtomicInteger(), failed = new AtomicInteger();
+		@SuppressWarnings("unchecked")
+		CompletableFuture<Integer>[] futures = new CompletableFuture[calls];
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++)
+			futures[i] = pipeline.submit(fake.action(i)).whenComplete((t, e) -> {
+				if (e == null)
+					succeeded.incrementAndGet();
+				else
+					failed.incrementAndGet();
+			});
+
+		boolean ok = true;
+		try {
+			CompletableFuture.allOf(futures).exceptionally(e -> null).get(1, TimeUnit.MINUTES);
+		} catch (ExecutionException | TimeoutException e) {
+			System.err.println(name + ": not every call completed within a minute.");
+			ok = false;
+		}
+		long time = System.nanoTime() - start;
+		// Completion handlers may still be finishing up on the timer threads.
+		for (int i = 0; i < 100 && fake.getRunningCount() != 0; i++)
+			Thread.sleep(10);
+
+		System.out.printf(
+				"%s: %,d calls (%,d attempts, %,d failed, %,d hung) in %,d ms: %,d succeeded, %,d failed, "
+						+ "peak %d in flight.%n",
+				name, calls, fake.getCallCount(), fake.getFailureCount(), fake.getHangCount(),
+				TimeUnit.NANOSECONDS.toMillis(time), succeeded.get(), failed.get(), fake.getPeakRunningCount());
+		if (succeeded.get() + failed.get() != calls) {
+			System.err.println(name + ": " + (calls - succeeded.get() - failed.get()) + " calls never completed.");
+			ok = false;
+		}
+		if (fake.getPeakRunningCount() > concurrency) {
+			System.err.println(name + ": " + fake.getPeakRunningCount() + " calls ran at once, but only "
+					+ concurrency + " are allowed.");
+			ok = false;
+		}
+		if (fake.getRunningCount() != 0) {
+			System.err.println(name + ": " + fake.getRunningCount() + " calls were left running.");
+			ok = false;
+		}
+		pipeline.shutdown();
+		fake.shutdown();
+		return ok ? succeeded.get() : -1;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int calls = 2000, concurrency = 16;
+		double failure = 0.1, hang = 0.02;
+		for (var a : args)
+			if (a.startsWith("calls="))
+				calls = Integer.parseInt(a.substring(6));
+			else if (a.startsWith("concurrency="))
+				concurrency = Integer.parseInt(a.substring(12));
+			else if (a.startsWith("failure="))
+				failure = Double.parseDouble(a.substring(8));
+			else if (a.startsWith("hang="))
+				hang = Double.parseDouble(a.substring(5));
+
+		int once = run("No retries", calls, concurrency, 0, failure, hang);
+		int retried = run("3 retries", calls, concurrency, 3, failure, hang);
+		boolean ok = once >= 0 && retried >= 0;
+		if (ok && failure + hang > 0 && retried <= once) {
+			System.err.println("Retrying did not make more calls succeed.");
+			ok = false;
+		}
+		System.out.println(ok ? "All checks passed." : "Some checks failed.");
+		System.exit(ok ? 0 : 1);
+	}
+
+}
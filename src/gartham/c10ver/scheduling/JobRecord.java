@@ -0,0 +1,68 @@
+package gartham.c10ver.scheduling;
+
+import java.time.Instant;
+
+import org.alixia.javalibrary.json.JSONObject;
+import org.alixia.javalibrary.json.JSONValue;
+
+import gartham.c10ver.data.PropertyObject;
+
+/**
+ * A single line of a {@link Scheduler}'s job journal: either a durable job
+ * being scheduled (with its handler type, due time and data), or the job with
+ * the record's key being finished or cancelled.
+ *
+ * @author Gartham
+ *
+ */
+class JobRecord extends PropertyObject {
+
+	private final Property<String> key = stringProperty("key");
+	private final Property<String> type = stringProperty("type");
+	private final Property<Instant> time = instantProperty("time");
+	private final Property<String> data = stringProperty("data");
+	private final Property<Boolean> removed = booleanProperty("rm", false);
+
+	JobRecord(JSONValue json) {
+		load((JSONObject) json);
+	}
+
+	private JobRecord(String key) {
+		this.key.set(key);
+	}
+
+	static JobRecord scheduled(String key, String type, Instant time, String data) {
+		var r = new JobRecord(key);
+		r.type.set(type);
+		r.time.set(time);
+		r.data.set(data);
+		return r;
+	}
+
+	static JobRecord removed(String key) {
+		var r = new JobRecord(key);
+		r.removed.set(true);
+		return r;
+	}
+
+	String getKey() {
+		return key.get();
+	}
+
+	String getType() {
+		return type.get();
+	}
+
+	Instant getTime() {
+		return time.get();
+	}
+
+	String getData() {
+		return data.get();
+	}
+
+	boolean isRemoval() {
+		return removed.get();
+	}
+
+}
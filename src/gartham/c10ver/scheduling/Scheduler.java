@@ -0,0 +1,401 @@
+package gartham.c10ver.scheduling;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.alixia.javalibrary.json.JSONParser;
+import org.alixia.javalibrary.streams.CharacterStream;
+
+import gartham.c10ver.utils.TimingWheel;
+
+/**
+ * <p>
+ * Runs keyed jobs at specific times, on a small, fixed pool of worker threads.
+ * Scheduling a job under a key that already has a job replaces (and cancels)
+ * that job, and any job can be {@link #cancel(String) cancelled} by its key.
+ * </p>
+ * <p>
+ * There are two kinds of jobs:
+ * </p>
+ * <ul>
+ * <li><b>Transient</b> jobs are plain {@link Runnable}s, and are lost when the
+ * bot stops. These are for things that are recreated on startup anyway (like
+ * recurring upkeep) or that don't outlive the bot (like game timers).</li>
+ * <li><b>Durable</b> jobs are a handler type and a string of data. They are
+ * recorded in an append-only journal file before they are scheduled, and are
+ * rescheduled by {@link #restore()} when the bot starts back up, at which point
+ * they are given to the {@link #registerHandler(String, BiConsumer) handler}
+ * registered for their type. A durable job that came due while the bot was down
+ * runs as soon as it is restored. A durable job is only removed from the
+ * journal once it has finished running, so a job interrupted by a crash runs
+ * again on the next start.</li>
+ * </ul>
+ * <p>
+ * The journal is rewritten with only the live jobs on {@link #restore()} and
+ * whenever it has accumulated more dead records than live ones.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class Scheduler {
+
+	private static final class Job {
+		private final String key, type, data;
+		private final Instant time;
+		private final Runnable task;
+		private final long period;
+		private TimingWheel.Timeout timeout;
+
+		private Job(String key, Instant time, Runnable task, long period) {
+			this.key = key;
+			this.time = time;
+			this.task = task;
+			this.period = period;
+			type = data = null;
+		}
+
+		private Job(String key, Instant time, String type, String data) {
+			this.key = key;
+			this.time = time;
+			this.type = type;
+			this.data = data;
+			task = null;
+			period = 0;
+		}
+
+		private boolean isDurable() {
+			return type != null;
+		}
+	}
+
+	private final File journalFile;
+	private final TimingWheel wheel = new TimingWheel(100, TimeUnit.MILLISECONDS, "Scheduler Timer");
+	private final ExecutorService workers;
+	private final Map<String, BiConsumer<String, String>> handlers = new HashMap<>();
+	private final Map<String, Job> jobs = new HashMap<>();
+	/**
+	 * The durable jobs read from the journal that haven't been {@link #restore()
+	 * restored} yet.
+	 */
+	private final Map<String, Job> unrestored = new LinkedHashMap<>();
+	private BufferedWriter journal;
+	private int durableCount, deadRecords;
+	private boolean restored, closed;
+
+	/**
+	 * Creates a {@link Scheduler} and reads its journal. Durable jobs in the journal
+	 * are not scheduled until {@link #restore()} is called, so that their handlers
+	 * can be registered first.
+	 *
+	 * @param journalFile The job journal.
+	 * @param workers     The number of worker threads.
+	 */
+	public Scheduler(File journalFile, int workers) {
+		this.journalFile = journalFile;
+		var count = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(workers, r -> {
+			var t = new Thread(r, "Scheduler Worker #" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		read();
+		try {
+			openJournal(true);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to open the job journal.", e);
+		}
+	}
+
+	private void read() {
+		if (!journalFile.isFile())
+			return;
+		try (var reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile)))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank())
+					continue;
+				JobRecord r;
+				try {
+					r = new JobRecord(new JSONParser().parse(CharacterStream.from(new StringReader(line))));
+				} catch (Exception e) {
+					System.err.println("Stopped reading the job journal at an unreadable record.");
+					e.printStackTrace();
+					break;
+				}
+				if (r.isRemoval())
+					unrestored.remove(r.getKey());
+				else
+					unrestored.put(r.getKey(), new Job(r.getKey(), r.getTime(), r.getType(), r.getData()));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read the job journal.", e);
+		}
+	}
+
+	private void openJournal(boolean append) throws IOException {
+		if (journal != null)
+			journal.close();
+		if (journalFile.getAbsoluteFile().getParentFile() != null)
+			journalFile.getAbsoluteFile().getParentFile().mkdirs();
+		journal = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, append)));
+	}
+
+	private void write(JobRecord record) {
+		if (closed)
+			return;
+		try {
+			journal.write(record.toJSON().toString());
+			journal.newLine();
+			journal.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to write to the job journal.", e);
+		}
+	}
+
+	/**
+	 * Rewrites the journal so that it only contains the live durable jobs. The new
+	 * journal is written next to the old one and moved over it.
+	 */
+	private void compact() {
+		if (closed)
+			return;
+		File temp = new File(journalFile.getPath() + ".tmp");
+		try {
+			journal.close();
+			try (var w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp)))) {
+				for (var j : unrestored.values())
+					writeScheduled(w, j);
+				for (var j : jobs.values())
+					if (j.isDurable())
+						writeScheduled(w, j);
+			}
+			Files.move(temp.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			deadRecords = 0;
+		} catch (IOException e) {
+			System.err.println("Failed to compact the job journal.");
+			e.printStackTrace();
+		} finally {
+			try {
+				openJournal(true);
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to reopen the job journal.", e);
+			}
+		}
+	}
+
+	private static void writeScheduled(BufferedWriter w, Job j) throws IOException {
+		w.write(JobRecord.scheduled(j.key, j.type, j.time, j.data).toJSON().toString());
+		w.newLine();
+	}
+
+	/**
+	 * Registers the handler that runs durable jobs of the specified type. The
+	 * handler is given the job's key and data.
+	 *
+	 * @param type    The job type.
+	 * @param handler The handler.
+	 */
+	public synchronized void registerHandler(String type, BiConsumer<String, String> handler) {
+		handlers.put(type, handler);
+	}
+
+	/**
+	 * Schedules every durable job read from the journal whose type has a handler.
+	 * Jobs whose type has no handler are kept in the journal (and reported), so
+	 * that they are not lost if their handler is only missing temporarily.
+	 */
+	public synchronized void restore() {
+		if (restored)
+			return;
+		restored = true;
+		for (var i = unrestored.values().iterator(); i.hasNext();) {
+			var j = i.next();
+			if (handlers.containsKey(j.type)) {
+				i.remove();
+				jobs.put(j.key, j);
+				durableCount++;
+				arm(j);
+			} else
+				System.err.println("No handler for scheduled job " + j.key + " of type " + j.type + "; keeping it.");
+		}
+		compact();
+	}
+
+	private void arm(Job job) {
+		job.timeout = wheel.schedule(Math.max(0, job.time.toEpochMilli() - System.currentTimeMillis()),
+				TimeUnit.MILLISECONDS, () -> workers.execute(() -> run(job)));
+	}
+
+	private void run(Job job) {
+		synchronized (this) {
+			if (jobs.get(job.key) != job)
+				return;// Cancelled or replaced.
+			if (job.period > 0) {
+				// Fixed rate; a run that was delayed by more than a period is skipped, not repeated.
+				long now = System.currentTimeMillis(), next = job.time.toEpochMilli() + job.period;
+				if (next <= now)
+					next += (now - next) / job.period * job.period + job.period;
+				var n = new Job(job.key, Instant.ofEpochMilli(next), job.task, job.period);
+				jobs.put(job.key, n);
+				arm(n);
+			} else if (!job.isDurable())
+				jobs.remove(job.key);
+		}
+		try {
+			if (job.isDurable()) {
+				BiConsumer<String, String> handler;
+				synchronized (this) {
+					handler = handlers.get(job.type);
+				}
+				handler.accept(job.key, job.data);
+			} else
+				job.task.run();
+		} catch (Throwable e) {
+			System.err.println("Scheduled job " + job.key + " failed.");
+			e.printStackTrace();
+		}
+		if (job.isDurable())
+			synchronized (this) {
+				if (jobs.get(job.key) == job)
+					remove(job);
+			}
+	}
+
+	private void remove(Job job) {
+		jobs.remove(job.key);
+		if (job.timeout != null)
+			job.timeout.cancel();
+		if (job.isDurable()) {
+			durableCount--;
+			write(JobRecord.removed(job.key));
+			deadRecords += 2;
+			if (deadRecords > 64 && deadRecords > durableCount)
+				compact();
+		}
+	}
+
+	private void put(Job job) {
+		if (closed)
+			throw new IllegalStateException("The scheduler has been closed.");
+		var old = jobs.get(job.key);
+		if (old != null)
+			remove(old);
+		if (unrestored.remove(job.key) != null)
+			deadRecords++;
+		if (job.isDurable()) {
+			write(JobRecord.scheduled(job.key, job.type, job.time, job.data));
+			durableCount++;
+		}
+		jobs.put(job.key, job);
+		arm(job);
+	}
+
+	/**
+	 * Schedules a transient job.
+	 *
+	 * @param key  The job's key.
+	 * @param time When the job should run.
+	 * @param task The job.
+	 */
+	public synchronized void schedule(String key, Instant time, Runnable task) {
+		put(new Job(key, time, task, 0));
+	}
+
+	/**
+	 * Schedules a transient job that runs at <code>first</code>, and then every
+	 * <code>period</code> after that, until it is cancelled.
+	 *
+	 * @param key    The job's key.
+	 * @param first  When the job should first run.
+	 * @param period The time between runs.
+	 * @param unit   The unit of <code>period</code>.
+	 * @param task   The job.
+	 */
+	public synchronized void scheduleAtFixedRate(String key, Instant first, long period, TimeUnit unit,
+			Runnable task) {
+		if (period <= 0)
+			throw new IllegalArgumentException("Period must be positive.");
+		put(new Job(key, first, task, unit.toMillis(period)));
+	}
+
+	/**
+	 * Schedules a durable job. When it comes due, it is given to the handler
+	 * registered for <code>type</code>.
+	 *
+	 * @param key  The job's key.
+	 * @param time When the job should run.
+	 * @param type The job's type.
+	 * @param data The job's data, or <code>null</code>.
+	 */
+	public synchronized void schedule(String key, Instant time, String type, String data) {
+		if (!handlers.containsKey(type))
+			throw new IllegalArgumentException("No handler is registered for job type: " + type);
+		put(new Job(key, time, type, data));
+	}
+
+	/**
+	 * Cancels the job with the specified key.
+	 *
+	 * @param key The job's key.
+	 * @return <code>true</code> if there was a job to cancel.
+	 */
+	public synchronized boolean cancel(String key) {
+		var j = jobs.get(key);
+		if (j == null)
+			return false;
+		remove(j);
+		return true;
+	}
+
+	public synchronized boolean isScheduled(String key) {
+		return jobs.containsKey(key);
+	}
+
+	/**
+	 * Returns the number of jobs that are scheduled, not counting durable jobs in
+	 * the journal that haven't been {@link #restore() restored} yet.
+	 *
+	 * @return The number of scheduled jobs.
+	 */
+	public synchronized int getScheduledCount() {
+		return jobs.size();
+	}
+
+	/**
+	 * Stops running jobs and closes the journal. Durable jobs that have not run
+	 * yet stay in the journal, to be {@link #restore() restored} on the next start.
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		wheel.shutdown();
+		workers.shutdown();
+		try {
+			journal.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+package gartham.c10ver.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * Shares directory <code>fsync</code>s between concurrent atomic writes. After
+ * a file is renamed into place, the rename itself is only durable once its
+ * parent directory has been synced. Rather than syncing the directory once per
+ * write, callers of {@link #sync(Path)} join the currently open batch; the
+ * first caller to join a batch becomes its leader and, once any in-progress
+ * batch has finished, syncs every directory in its batch exactly once on behalf
+ * of everyone who joined it.
+ * </p>
+ * <p>
+ * A single thread that performs many writes in a row (such as the
+ * {@link gartham.c10ver.data.autosave.WriteBehindSaver}'s flusher) can
+ * {@link #batch(Runnable) batch} them instead, deferring every directory sync
+ * made by that thread to the end of the batch.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class GroupCommit {
+
+	private static final class Batch {
+		private final Set<Path> dirs = new HashSet<>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private IOException failure;
+		private int joined;
+	}
+
+	private final ThreadLocal<Set<Path>> deferred = new ThreadLocal<>();
+	private final long windowNanos;
+	private Batch open;
+	private boolean syncing;
+	private long syncs, requests;
+
+	/**
+	 * @param windowNanos The amount of time a batch leader waits for other writes
+	 *                    to join its batch before syncing. The leader only waits
+	 *                    when there is contention (another batch is being synced,
+	 *                    or someone has already joined its batch), so a lone
+	 *                    write is never delayed. May be <code>0</code>, in which
+	 *                    case batches form only from writes that arrive while a
+	 *                    previous batch is being synced.
+	 */
+	public GroupCommit(long windowNanos) {
+		if (windowNanos < 0)
+			throw new IllegalArgumentException("Illegal window: " + windowNanos);
+		this.windowNanos = windowNanos;
+	}
+
+	public GroupCommit() {
+		this(0);
+	}
+
+	/**
+	 * Durably syncs the specified directory, sharing the sync with any other
+	 * threads requesting one at around the same time. Returns once a sync of the
+	 * directory that began after this call has completed.
+	 *
+	 * @param dir The directory to sync.
+	 * @throws IOException If syncing any directory in the batch fails.
+	 */
+	public void sync(Path dir) throws IOException {
+		var d = deferred.get();
+		if (d != null) {
+			d.add(dir);
+			return;
+		}
+
+		Batch b;
+		boolean leader;
+		synchronized (this) {
+			requests++;
+			leader = open == null;
+			if (leader)
+				open = new Batch();
+			b = open;
+			b.dirs.add(dir);
+			b.joined++;
+		}
+
+		if (!leader) {
+			try {
+				b.done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a directory sync.");
+			}
+		} else {
+			boolean contended;
+			synchronized (this) {
+				contended = syncing || b.joined > 1;
+			}
+			if (contended && windowNanos > 0)
+				LockSupport.parkNanos(windowNanos);
+			synchronized (this) {
+				while (syncing)
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// The batch still has to be synced for everyone who joined it.
+						Thread.currentThread().interrupt();
+					}
+				syncing = true;
+				open = null;// Closes the batch.
+				syncs += b.dirs.size();
+			}
+			try {
+				for (var p : b.dirs)
+					try {
+						forceDirectory(p);
+					} catch (IOException e) {
+						if (b.failure == null)
+							b.failure = e;
+						else
+							b.failure.addSuppressed(e);
+					}
+			} finally {
+				synchronized (this) {
+					syncing = false;
+					notifyAll();
+				}
+				b.done.countDown();
+			}
+		}
+
+		if (b.failure != null)
+			throw new IOException("Failed to sync directory: " + dir, b.failure);
+	}
+
+	/**
+	 * Runs the specified {@link Runnable} with every {@link #sync(Path)} made by
+	 * the current thread deferred until it completes, then syncs each distinct
+	 * directory once. Batches may be nested; only the outermost one syncs.
+	 *
+	 * @param writes The writes to perform.
+	 */
+	public void batch(Runnable writes) {
+		if (deferred.get() != null) {
+			writes.run();
+			return;
+		}
+		var dirs = new LinkedHashSet<Path>();
+		deferred.set(dirs);
+		try {
+			writes.run();
+		} finally {
+			deferred.remove();
+			for (var p : dirs)
+				try {
+					sync(p);
+				} catch (IOException e) {
+					System.err.println("Failed to sync a directory after a batch of writes: " + p);
+					e.printStackTrace();
+				}
+		}
+	}
+
+	/**
+	 * Returns the number of directory syncs actually performed.
+	 *
+	 * @return The number of syncs.
+	 */
+	public synchronized long getSyncCount() {
+		return syncs;
+	}
+
+	/**
+	 * Returns the number of syncs that were requested through {@link #sync(Path)}
+	 * (excluding those that were deferred by a {@link #batch(Runnable) batch}).
+	 *
+	 * @return The number of requests.
+	 */
+	public synchronized long getRequestCount() {
+		return requests;
+	}
+
+	private static void forceDirectory(Path dir) throws IOException {
+		try (var fc = FileChannel.open(dir, StandardOpenOption.READ)) {
+			fc.force(true);
+		} catch (IOException e) {
+			// Some platforms (Windows) do not allow opening or syncing directories.
+			if (!System.getProperty("os.name", "").startsWith("Windows"))
+				throw e;
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package gartham.c10ver.utils;
+
+import java.math.BigInteger;
+
+/**
+ * <p>
+ * An immutable arbitrary-precision integer that is stored as a <code>long</code>
+ * while it fits in one, and only falls back to a {@link BigInteger} once it
+ * doesn't. Arithmetic on values that fit in a <code>long</code> (which is
+ * almost all of them) costs one small allocation for the result, rather than a
+ * {@link BigInteger} and its backing array.
+ * </p>
+ * <p>
+ * Values are always kept in their smallest form, so two {@link HybridInteger}s
+ * are {@link #equals(Object) equal} exactly when their values are, and
+ * {@link #toString()} gives the same decimal string as {@link BigInteger}, which
+ * keeps anything saved through it identical to what a {@link BigInteger} would
+ * save.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class HybridInteger extends Number implements Comparable<HybridInteger> {
+
+	private static final long serialVersionUID = 1L;
+	private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE),
+			LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+	private static final HybridInteger[] SMALL = new HybridInteger[256];
+	static {
+		for (int i = 0; i < SMALL.length; i++)
+			SMALL[i] = new HybridInteger(i, null);
+	}
+
+	public static final HybridInteger ZERO = SMALL[0], ONE = SMALL[1];
+
+	private final long value;
+	/**
+	 * The value, if it doesn't fit in a <code>long</code>; <code>null</code>
+	 * otherwise.
+	 */
+	private final BigInteger big;
+
+	private HybridInteger(long value, BigInteger big) {
+		this.value = value;
+		this.big = big;
+	}
+
+	public static HybridInteger valueOf(long value) {
+		return value >= 0 && value < SMALL.length ? SMALL[(int) value] : new HybridInteger(value, null);
+	}
+
+	public static HybridInteger valueOf(BigInteger value) {
+		return value.bitLength() < 64 ? valueOf(value.longValue()) : new HybridInteger(0, value);
+	}
+
+	/**
+	 * Parses a decimal integer, as written by {@link #toString()} (or by
+	 * {@link BigInteger#toString()}).
+	 *
+	 * @param value The string.
+	 * @return The {@link HybridInteger}.
+	 * @throws NumberFormatException If the string is not an integer.
+	 */
+	public static HybridInteger parse(String value) throws NumberFormatException {
+		try {
+			return valueOf(Long.parseLong(value));
+		} catch (NumberFormatException e) {
+			return valueOf(new BigInteger(value));
+		}
+	}
+
+	/**
+	 * Returns whether this value fits in a <code>long</code>, (in which case
+	 * {@link #longValue()} returns it exactly).
+	 *
+	 * @return <code>true</code> if the value fits in a <code>long</code>.
+	 */
+	public boolean isLong() {
+		return big == null;
+	}
+
+	public BigInteger toBigInteger() {
+		return big == null ? BigInteger.valueOf(value) : big;
+	}
+
+	public HybridInteger add(long other) {
+		if (big == null) {
+			long r = value + other;
+			if (((value ^ r) & (other ^ r)) >= 0)// No overflow.
+				return valueOf(r);
+		}
+		return valueOf(toBigInteger().add(BigInteger.valueOf(other)));
+	}
+
+	public HybridInteger add(HybridInteger other) {
+		return other.big == null ? add(other.value) : valueOf(toBigInteger().add(other.big));
+	}
+
+	public HybridInteger add(BigInteger other) {
+		return other.bitLength() < 64 ? add(other.longValue()) : valueOf(toBigInteger().add(other));
+	}
+
+	public HybridInteger subtract(long other) {
+		if (big == null) {
+			long r = value - other;
+			if (((value ^ other) & (value ^ r)) >= 0)// No overflow.
+				return valueOf(r);
+		}
+		return valueOf(toBigInteger().subtract(BigInteger.valueOf(other)));
+	}
+
+	public HybridInteger subtract(HybridInteger other) {
+		return other.big == null ? subtract(other.value) : valueOf(toBigInteger().subtract(other.big));
+	}
+
+	public HybridInteger subtract(BigInteger other) {
+		return other.bitLength() < 64 ? subtract(other.longValue())
+				: valueOf(toBigInteger().subtract(other));
+	}
+
+	public HybridInteger negate() {
+		return big == null && value != Long.MIN_VALUE ? valueOf(-value) : valueOf(toBigInteger().negate());
+	}
+
+	public HybridInteger abs() {
+		return signum() < 0 ? negate() : this;
+	}
+
+	public int signum() {
+		return big == null ? Long.signum(value) : big.signum();
+	}
+
+	/**
+	 * Returns the index of the rightmost one bit, like
+	 * {@link BigInteger#getLowestSetBit()}.
+	 *
+	 * @return The index of the lowest set bit, or <code>-1</code> if this is zero.
+	 */
+	public int getLowestSetBit() {
+		return big == null ? value == 0 ? -1 : Long.numberOfTrailingZeros(value) : big.getLowestSetBit();
+	}
+
+	@Override
+	public int compareTo(HybridInteger o) {
+		if (big == null && o.big == null)
+			return Long.compare(value, o.value);
+		// A value that doesn't fit in a long is beyond every value that does.
+		if (big == null)
+			return -o.big.signum();
+		if (o.big == null)
+			return big.signum();
+		return big.compareTo(o.big);
+	}
+
+	public int compareTo(long other) {
+		return big == null ? Long.compare(value, other) : big.signum();
+	}
+
+	public int compareTo(BigInteger other) {
+		if (big != null)
+			return big.compareTo(other);
+		return other.compareTo(LONG_MIN) < 0 ? 1
+				: other.compareTo(LONG_MAX) > 0 ? -1 : Long.compare(value, other.longValue());
+	}
+
+	@Override
+	public int intValue() {
+		return big == null ? (int) value : big.intValue();
+	}
+
+	@Override
+	public long longValue() {
+		return big == null ? value : big.longValue();
+	}
+
+	@Override
+	public float floatValue() {
+		return big == null ? value : big.floatValue();
+	}
+
+	@Override
+	public double doubleValue() {
+		return big == null ? value : big.doubleValue();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof HybridInteger))
+			return false;
+		var o = (HybridInteger) obj;
+		return big == null ? o.big == null && value == o.value : big.equals(o.big);
+	}
+
+	@Override
+	public int hashCode() {
+		return big == null ? Long.hashCode(value) : big.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return big == null ? Long.toString(value) : big.toString();
+	}
+
+}
@@ -0,0 +1,259 @@
+package gartham.c10ver.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Runs tasks on a fixed number of serial <i>lanes</i>. Each task is submitted
+ * with a key, and every task with the same key goes to the same lane, so tasks
+ * with the same key run one at a time, in the order they were submitted, while
+ * tasks with keys on different lanes run in parallel.
+ * </p>
+ * <p>
+ * Each lane has a bounded queue. What happens when a task is submitted to a
+ * lane whose queue is full is decided by the executor's {@link Overflow}
+ * policy. Each lane's current and peak queue depth, and the number of tasks
+ * dropped, can be read at any time.
+ * </p>
+ * <p>
+ * Each lane runs on its own thread, made by the executor's
+ * {@link ThreadFactory}. {@link #virtualThreadFactory()} returns a factory for
+ * virtual threads if the running JVM supports them, which makes large numbers
+ * of lanes cheap. A task that throws does not affect the tasks after it.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class LaneExecutor {
+
+	/**
+	 * What to do with a task submitted to a lane whose queue is full.
+	 */
+	public enum Overflow {
+		/**
+		 * Wait for room in the lane's queue. Nothing is lost or reordered, but the
+		 * submitting thread is held up by the busy lane, so this shouldn't be used
+		 * when the submitting thread must never stall (e.g. JDA's event thread).
+		 */
+		BLOCK,
+		/**
+		 * Drop the submitted task.
+		 */
+		DROP_NEWEST,
+		/**
+		 * Drop the oldest task in the lane's queue to make room for the submitted
+		 * one.
+		 */
+		DROP_OLDEST;
+	}
+
+	private static final Runnable STOP = () -> {
+	};
+
+	private final class Lane implements Runnable {
+		private final BlockingQueue<Runnable> queue;
+		private final AtomicInteger peak = new AtomicInteger();
+		private final Thread thread;
+
+		private Lane(int capacity, ThreadFactory factory) {
+			queue = new ArrayBlockingQueue<>(capacity);
+			thread = factory.newThread(this);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Runnable task;
+				try {
+					task = queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (task == STOP)
+					return;
+				try {
+					task.run();
+				} catch (Throwable e) {
+					System.err.println("A task on " + Thread.currentThread().getName() + " failed.");
+					e.printStackTrace();
+				}
+			}
+		}
+
+		private boolean enqueue(Runnable task) {
+			boolean added;
+			switch (overflow) {
+			case BLOCK:
+				try {
+					queue.put(task);
+					added = true;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					added = false;
+				}
+				break;
+			case DROP_OLDEST:
+				while (!(added = queue.offer(task)))
+					if (queue.poll() != null)
+						dropped.incrementAndGet();
+				break;
+			default:
+				added = queue.offer(task);
+			}
+			if (!added) {
+				dropped.incrementAndGet();
+				return false;
+			}
+			peak.accumulateAndGet(queue.size(), Math::max);
+			return true;
+		}
+	}
+
+	private final Lane[] lanes;
+	private final Overflow overflow;
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean closed;
+
+	/**
+	 * Creates and starts a {@link LaneExecutor}.
+	 *
+	 * @param name          The name of the executor; lane threads are named after
+	 *                      it.
+	 * @param lanes         The number of lanes.
+	 * @param queueCapacity The capacity of each lane's queue.
+	 * @param overflow      What to do when a lane's queue is full.
+	 * @param factory       Makes the lane threads, or <code>null</code> to use
+	 *                      daemon platform threads.
+	 */
+	public LaneExecutor(String name, int lanes, int queueCapacity, Overflow overflow, ThreadFactory factory) {
+		if (lanes <= 0)
+			throw new IllegalArgumentException("There must be at least one lane.");
+		this.overflow = overflow;
+		this.lanes = new Lane[lanes];
+		ThreadFactory f = factory != null ? factory : r -> {
+			var t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		};
+		for (int i = 0; i < lanes; i++) {
+			this.lanes[i] = new Lane(queueCapacity, f);
+			this.lanes[i].thread.setName(name + " Lane " + i);
+		}
+		for (var l : this.lanes)
+			l.thread.start();
+	}
+
+	/**
+	 * Returns a {@link ThreadFactory} that makes virtual threads, or
+	 * <code>null</code> if the running JVM doesn't support them.
+	 *
+	 * @return The factory, or <code>null</code>.
+	 */
+	public static ThreadFactory virtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) builder.getClass().getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private Lane lane(Object key) {
+		int h = key == null ? 0 : key.hashCode();
+		return lanes[Math.floorMod(h ^ (h >>> 16), lanes.length)];
+	}
+
+	/**
+	 * Queues the specified task on the lane of the specified key. Tasks submitted
+	 * after {@link #close(long, TimeUnit)} are dropped.
+	 *
+	 * @param key  The key, which decides the lane. Tasks with equal keys run in
+	 *             order.
+	 * @param task The task.
+	 * @return <code>true</code> if the task was queued, <code>false</code> if it
+	 *         was dropped.
+	 */
+	public boolean execute(Object key, Runnable task) {
+		if (closed) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		return lane(key).enqueue(task);
+	}
+
+	public int getLaneCount() {
+		return lanes.length;
+	}
+
+	/**
+	 * Returns the number of tasks waiting in each lane's queue.
+	 *
+	 * @return The queue depth of each lane, by lane index.
+	 */
+	public int[] getQueueDepths() {
+		int[] depths = new int[lanes.length];
+		for (int i = 0; i < depths.length; i++)
+			depths[i] = lanes[i].queue.size();
+		return depths;
+	}
+
+	/**
+	 * Returns the largest number of tasks that have been waiting in each lane's
+	 * queue at once.
+	 *
+	 * @return The peak queue depth of each lane, by lane index.
+	 */
+	public int[] getPeakQueueDepths() {
+		int[] peaks = new int[lanes.length];
+		for (int i = 0; i < peaks.length; i++)
+			peaks[i] = lanes[i].peak.get();
+		return peaks;
+	}
+
+	/**
+	 * Returns the number of tasks that were dropped, either because of the
+	 * {@link Overflow} policy or because they were submitted after
+	 * {@link #close(long, TimeUnit)}.
+	 *
+	 * @return The number of dropped tasks.
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	public Overflow getOverflow() {
+		return overflow;
+	}
+
+	/**
+	 * Stops accepting tasks, lets every lane finish the tasks already queued on it,
+	 * and waits up to the specified amount of time for them to do so.
+	 *
+	 * @param timeout The maximum time to wait.
+	 * @param unit    The unit of <code>timeout</code>.
+	 * @return <code>true</code> if every lane finished in time.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+		closed = true;
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (var l : lanes)
+			if (!l.queue.offer(STOP, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+				return false;
+		for (var l : lanes) {
+			long left = deadline - System.nanoTime();
+			if (left > 0)
+				l.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+			if (l.thread.isAlive())
+				return false;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,183 @@
+package gartham.c10ver.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ * Draws the <i>combined</i> outcome of many independent random trials without
+ * running each trial, so that things like opening a few hundred thousand crates
+ * take (close to) constant time.
+ * </p>
+ * <p>
+ * Small trial counts are simulated exactly. Larger ones are drawn from the
+ * distribution of the total instead: sparse binomials by skipping between
+ * successes (which is still exact), and everything else from the normal
+ * approximation of the total, rounded and clamped to the range the total can
+ * actually take. At the trial counts where the approximation kicks in, its
+ * error is far smaller than the spread of the result itself.
+ * </p>
+ * <p>
+ * The <code>BigInteger</code> overloads take trial counts (and give totals)
+ * that don't fit in a <code>long</code>. They use the <code>long</code> versions
+ * whenever the result is sure to fit, and the normal approximation, worked out
+ * with <code>BigDecimal</code>s, otherwise.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public final class Sampling {
+
+	/**
+	 * Trial counts below this are simulated one trial at a time.
+	 */
+	private static final long EXACT_LIMIT = 64;
+	/**
+	 * Binomials whose expected number of successes is below this are sampled by
+	 * skipping from one success to the next.
+	 */
+	private static final double SPARSE_LIMIT = 30;
+
+	private Sampling() {
+	}
+
+	/**
+	 * Returns the number of successes in <code>n</code> independent trials that
+	 * each succeed with probability <code>p</code>.
+	 *
+	 * @param n The number of trials.
+	 * @param p The probability of each trial succeeding.
+	 * @return The number of successes, between <code>0</code> and <code>n</code>.
+	 */
+	public static long binomial(long n, double p) {
+		return binomial(n, p, ThreadLocalRandom.current());
+	}
+
+	public static long binomial(long n, double p, Random random) {
+		if (n <= 0 || p <= 0)
+			return 0;
+		if (p >= 1)
+			return n;
+		if (p > 0.5)
+			return n - binomial(n, 1 - p, random);
+
+		if (n < EXACT_LIMIT) {
+			long k = 0;
+			for (long i = 0; i < n; i++)
+				if (random.nextDouble() < p)
+					k++;
+			return k;
+		}
+
+		double mean = n * p;
+		if (mean < SPARSE_LIMIT) {
+			// The gap between successes is geometric, so jump straight from one to the next.
+			double logq = Math.log1p(-p);
+			long k = 0;
+			for (long pos = 0;; k++) {
+				pos += (long) (Math.log(1 - random.nextDouble()) / logq) + 1;
+				if (pos > n || pos <= 0)
+					return k;
+			}
+		}
+
+		return approximate(mean, Math.sqrt(mean * (1 - p)), 0, n, random);
+	}
+
+	/**
+	 * Returns the number of successes in <code>n</code> independent trials that
+	 * each succeed with probability <code>p</code>.
+	 *
+	 * @param n The number of trials.
+	 * @param p The probability of each trial succeeding.
+	 * @return The number of successes, between <code>0</code> and <code>n</code>.
+	 */
+	public static BigInteger binomial(BigInteger n, double p) {
+		return binomial(n, p, ThreadLocalRandom.current());
+	}
+
+	public static BigInteger binomial(BigInteger n, double p, Random random) {
+		if (n.bitLength() < Long.SIZE)
+			return BigInteger.valueOf(binomial(n.longValue(), p, random));
+		if (p <= 0)
+			return BigInteger.ZERO;
+		if (p >= 1)
+			return n;
+		return approximate(new BigDecimal(n).multiply(BigDecimal.valueOf(p)), Math.sqrt(n.doubleValue() * p * (1 - p)),
+				BigInteger.ZERO, n, random);
+	}
+
+	/**
+	 * Returns the sum of <code>n</code> independent integers, each drawn uniformly
+	 * from <code>[origin, bound)</code>.
+	 *
+	 * @param n      The number of integers to sum.
+	 * @param origin The smallest value each integer can take.
+	 * @param bound  One more than the largest value each integer can take.
+	 * @return The sum.
+	 */
+	public static long uniformSum(long n, long origin, long bound) {
+		return uniformSum(n, origin, bound, ThreadLocalRandom.current());
+	}
+
+	public static long uniformSum(long n, long origin, long bound, Random random) {
+		if (bound <= origin)
+			throw new IllegalArgumentException("Bound must be greater than origin.");
+		if (n <= 0)
+			return 0;
+		long range = bound - origin;
+		if (n < EXACT_LIMIT) {
+			long sum = 0;
+			for (long i = 0; i < n; i++)
+				sum += origin + (long) (random.nextDouble() * range);
+			return sum;
+		}
+
+		double mean = n * (origin + (range - 1) / 2d), var = n * ((double) range * range - 1) / 12;
+		return approximate(mean, Math.sqrt(var), Math.multiplyExact(n, origin), Math.multiplyExact(n, bound - 1),
+				random);
+	}
+
+	/**
+	 * Returns the sum of <code>n</code> independent integers, each drawn uniformly
+	 * from <code>[origin, bound)</code>.
+	 *
+	 * @param n      The number of integers to sum.
+	 * @param origin The smallest value each integer can take.
+	 * @param bound  One more than the largest value each integer can take.
+	 * @return The sum.
+	 */
+	public static BigInteger uniformSum(BigInteger n, long origin, long bound) {
+		return uniformSum(n, origin, bound, ThreadLocalRandom.current());
+	}
+
+	public static BigInteger uniformSum(BigInteger n, long origin, long bound, Random random) {
+		if (bound <= origin)
+			throw new IllegalArgumentException("Bound must be greater than origin.");
+		if (n.signum() <= 0)
+			return BigInteger.ZERO;
+		BigInteger min = n.multiply(BigInteger.valueOf(origin)), max = n.multiply(BigInteger.valueOf(bound - 1));
+		if (n.bitLength() < Long.SIZE && min.bitLength() < Long.SIZE && max.bitLength() < Long.SIZE)
+			return BigInteger.valueOf(uniformSum(n.longValue(), origin, bound, random));
+
+		double range = (double) bound - origin;
+		var mean = new BigDecimal(n).multiply(BigDecimal.valueOf(origin + (range - 1) / 2));
+		return approximate(mean, Math.sqrt(n.doubleValue() * (range * range - 1) / 12), min, max, random);
+	}
+
+	private static BigInteger approximate(BigDecimal mean, double sd, BigInteger min, BigInteger max, Random random) {
+		var x = mean.add(BigDecimal.valueOf(sd * random.nextGaussian())).setScale(0, RoundingMode.HALF_UP)
+				.toBigInteger();
+		return x.max(min).min(max);
+	}
+
+	private static long approximate(double mean, double sd, long min, long max, Random random) {
+		long x = Math.round(mean + sd * random.nextGaussian());
+		return x < min ? min : x > max ? max : x;
+	}
+
+}
@@ -0,0 +1,119 @@
+package gartham.c10ver.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * A fixed set of {@link ReentrantLock}s that keys are hashed onto, so that a lock
+ * can be taken per key (e.g. per user) without keeping a lock object around for
+ * every key that has ever been seen. Two keys that hash onto the same stripe
+ * share a lock, which only costs some concurrency.
+ * </p>
+ * <p>
+ * Operations that need the locks of several keys at once should go through
+ * {@link #call(Supplier, Object...)} or {@link #run(Runnable, Object...)}, which
+ * always take stripes in ascending order (and each stripe only once), so two
+ * such operations can never deadlock with each other, no matter what order
+ * their keys are given in. Since the locks are reentrant, an operation that
+ * holds a key's lock can freely call code that takes that key's lock again.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class StripedLock {
+
+	private final ReentrantLock[] stripes;
+
+	/**
+	 * Creates a {@link StripedLock} with at least the specified number of stripes.
+	 * The number of stripes is rounded up to a power of two.
+	 *
+	 * @param stripes The minimum number of stripes.
+	 */
+	public StripedLock(int stripes) {
+		if (stripes <= 0)
+			throw new IllegalArgumentException("There must be at least one stripe.");
+		int size = Integer.highestOneBit(stripes);
+		if (size < stripes)
+			size <<= 1;
+		this.stripes = new ReentrantLock[size];
+		for (int i = 0; i < size; i++)
+			this.stripes[i] = new ReentrantLock();
+	}
+
+	private int stripe(Object key) {
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & (stripes.length - 1);
+	}
+
+	/**
+	 * Returns the lock of the specified key. To take the locks of more than one key,
+	 * use {@link #call(Supplier, Object...)} or {@link #run(Runnable, Object...)}
+	 * instead.
+	 *
+	 * @param key The key.
+	 * @return The key's {@link Lock}.
+	 */
+	public Lock get(Object key) {
+		return stripes[stripe(key)];
+	}
+
+	/**
+	 * Returns the distinct stripes of the specified keys, in ascending order.
+	 */
+	private int[] stripes(Object... keys) {
+		int[] s = new int[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			s[i] = stripe(keys[i]);
+		Arrays.sort(s);
+		int n = 0;
+		for (int i = 0; i < s.length; i++)
+			if (n == 0 || s[n - 1] != s[i])
+				s[n++] = s[i];
+		return n == s.length ? s : Arrays.copyOf(s, n);
+	}
+
+	/**
+	 * Runs the specified action while holding the locks of all of the specified
+	 * keys, and returns its result.
+	 *
+	 * @param <T>    The type of the result.
+	 * @param action The action.
+	 * @param keys   The keys whose locks must be held.
+	 * @return The action's result.
+	 */
+	public <T> T call(Supplier<T> action, Object... keys) {
+		int[] s = stripes(keys);
+		int locked = 0;
+		try {
+			for (; locked < s.length; locked++)
+				stripes[s[locked]].lock();
+			return action.get();
+		} finally {
+			while (locked > 0)
+				stripes[s[--locked]].unlock();
+		}
+	}
+
+	public void run(Runnable action, Object... keys) {
+		call(() -> {
+			action.run();
+			return null;
+		}, keys);
+	}
+
+	/**
+	 * Returns whether the current thread holds the lock of the specified key.
+	 *
+	 * @param key The key.
+	 * @return <code>true</code> if the key's lock is held by the current thread.
+	 */
+	public boolean isHeldByCurrentThread(Object key) {
+		return stripes[stripe(key)].isHeldByCurrentThread();
+	}
+
+}
@@ -0,0 +1,185 @@
+package gartham.c10ver.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * A hierarchical timing wheel: runs tasks after a delay, with a resolution of
+ * one tick. Scheduling and cancelling a task take constant time, no matter how
+ * many tasks are pending, and each tick only touches the tasks that are due (or
+ * that are being moved down to a finer wheel).
+ * </p>
+ * <p>
+ * There are {@value #LEVELS} wheels of {@value #SLOTS} slots each. The first
+ * wheel's slots are one tick wide, the second wheel's slots are {@value #SLOTS}
+ * ticks wide, and so on. A task is put in the finest wheel that can hold its
+ * deadline; whenever a coarser wheel's slot comes up, its tasks are redistributed
+ * into the finer wheels. With a 100 millisecond tick, the wheels span a little
+ * over 19 days; tasks further out than that wait in the coarsest wheel and are
+ * redistributed until they fit.
+ * </p>
+ * <p>
+ * Tasks run on the wheel's single daemon thread, so they should be short. A
+ * task that throws does not affect other tasks.
+ * </p>
+ *
+ * @author Gartham
+ *
+ */
+public class TimingWheel {
+
+	private static final int BITS = 6, SLOTS = 1 << BITS, MASK = SLOTS - 1, LEVELS = 4;
+	private static final long SPAN = 1L << BITS * LEVELS;
+
+	public final class Timeout {
+		private final long deadline;
+		private final Runnable task;
+		private volatile boolean cancelled;
+
+		private Timeout(long deadline, Runnable task) {
+			this.deadline = deadline;
+			this.task = task;
+		}
+
+		/**
+		 * Cancels this {@link Timeout}'s task, if it hasn't run yet.
+		 */
+		public void cancel() {
+			synchronized (TimingWheel.this) {
+				if (cancelled)
+					return;
+				cancelled = true;
+			}
+			pending.decrementAndGet();
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private final List<Timeout>[][] wheels = new List[LEVELS][SLOTS];
+	private final long tickNanos, start = System.nanoTime();
+	private long tick;
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicLong fired = new AtomicLong();
+	private final ScheduledExecutorService ticker;
+
+	public TimingWheel(long tickDuration, TimeUnit unit, String name) {
+		tickNanos = unit.toNanos(tickDuration);
+		for (var w : wheels)
+			for (int i = 0; i < SLOTS; i++)
+				w[i] = new ArrayList<>(0);
+		ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+			var t = new Thread(r, name);
+			t.setDaemon(true);
+			return t;
+		});
+		ticker.scheduleAtFixedRate(this::advance, tickDuration, tickDuration, unit);
+	}
+
+	/**
+	 * Schedules a task to run after the specified delay.
+	 *
+	 * @param delay The delay.
+	 * @param unit  The unit of <code>delay</code>.
+	 * @param task  The task.
+	 * @return A {@link Timeout} that can be used to cancel the task.
+	 */
+	public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+		// Round up, so that a task never runs early.
+		long ticks = (unit.toNanos(Math.max(0, delay)) + tickNanos - 1) / tickNanos;
+		synchronized (this) {
+			var t = new Timeout(tick + Math.max(1, ticks), task);
+			insert(t);
+			pending.incrementAndGet();
+			return t;
+		}
+	}
+
+	private void insert(Timeout t) {
+		long d = Math.min(t.deadline, tick + SPAN - 1), delta = d - tick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << BITS * (level + 1))
+			level++;
+		wheels[level][(int) (d >>> BITS * level & MASK)].add(t);
+	}
+
+	private void advance() {
+		long target = (System.nanoTime() - start) / tickNanos;
+		List<Timeout> due = new ArrayList<>();
+		synchronized (this) {
+			while (tick < target) {
+				tick++;
+				// Move the coarser wheels' current slots down, coarsest first.
+				for (int level = LEVELS - 1; level > 0; level--)
+					if ((tick & (1L << BITS * level) - 1) == 0)
+						cascade(level, (int) (tick >>> BITS * level & MASK));
+				var slot = wheels[0][(int) (tick & MASK)];
+				if (!slot.isEmpty()) {
+					wheels[0][(int) (tick & MASK)] = new ArrayList<>(0);
+					for (var t : slot)
+						if (t.deadline <= tick)
+							due.add(t);
+						else
+							insert(t);// Was clamped into range; not due yet.
+				}
+			}
+		}
+		for (var t : due) {
+			synchronized (this) {
+				if (t.cancelled)
+					continue;
+				t.cancelled = true;
+			}
+			pending.decrementAndGet();
+			fired.incrementAndGet();
+			try {
+				t.task.run();
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void cascade(int level, int index) {
+		var slot = wheels[level][index];
+		if (slot.isEmpty())
+			return;
+		wheels[level][index] = new ArrayList<>(0);
+		for (var t : slot)
+			if (!t.cancelled)
+				insert(t);
+	}
+
+	/**
+	 * Returns the number of tasks that are scheduled and have not yet run or been
+	 * cancelled.
+	 *
+	 * @return The number of pending tasks.
+	 */
+	public int getPendingCount() {
+		return pending.get();
+	}
+
+	/**
+	 * Returns the number of tasks that this wheel has run.
+	 *
+	 * @return The number of tasks run.
+	 */
+	public long getFiredCount() {
+		return fired.get();
+	}
+
+	public void shutdown() {
+		ticker.shutdown();
+	}
+
+}
@@ -11,12 +11,16 @@ import static gartham.c10ver.utils.Utilities.TimeUnit.YEARS;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,6 +36,8 @@ import org.alixia.javalibrary.json.JSONValue;
 import org.alixia.javalibrary.streams.CharacterStream;
 import org.alixia.javalibrary.strings.matching.Matching;
 
+import gartham.c10ver.data.storage.FlatFileBackend;
+import gartham.c10ver.data.storage.StorageBackend;
 import gartham.c10ver.economy.Rewards;
 import gartham.c10ver.economy.items.ItemBunch;
 import gartham.c10ver.economy.users.User.Receipt;
@@ -137,7 +143,43 @@ public final class Utilities {
 		return (JSONObject) load(file);
 	}
 
+	private static volatile StorageBackend storage = FlatFileBackend.INSTANCE;
+
+	public static StorageBackend getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Sets the {@link StorageBackend} that {@link #load(File)} and
+	 * {@link #save(JSONValue, File)} go through. This should be set before any
+	 * data is loaded.
+	 * 
+	 * @param storage The new {@link StorageBackend}.
+	 */
+	public static void setStorage(StorageBackend storage) {
+		Utilities.storage = storage;
+	}
+
+	/**
+	 * Loads the value stored for the specified {@link File} from the current
+	 * {@link #getStorage() storage backend}, or returns <code>null</code> if
+	 * nothing is stored for it.
+	 * 
+	 * @param file The {@link File} to load.
+	 * @return The loaded value.
+	 */
 	public static JSONValue load(File file) {
+		return storage.load(file);
+	}
+
+	/**
+	 * Reads and parses the specified file directly from the file system, or
+	 * returns <code>null</code> if it does not exist.
+	 * 
+	 * @param file The file to read.
+	 * @return The parsed value.
+	 */
+	public static JSONValue read(File file) {
 		if (!file.isFile())
 			return null;
 		try (var isr = new InputStreamReader(new FileInputStream(file))) {
@@ -195,7 +237,117 @@ public final class Utilities {
 		return m.substring(0, m.length() - nmo.length());
 	}
 
+	/**
+	 * Suffix given to the temporary files that {@link #saveAtomically(JSONValue, File)}
+	 * writes to before renaming them over their targets.
+	 */
+	public static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private static final GroupCommit GROUP_COMMIT = new GroupCommit(2_000_000);
+	private static volatile boolean atomicSaves;
+
+	public static boolean isAtomicSaves() {
+		return atomicSaves;
+	}
+
+	/**
+	 * Sets whether {@link #write(JSONValue, File)} should delegate to
+	 * {@link #saveAtomically(JSONValue, File)}.
+	 * 
+	 * @param atomicSaves <code>true</code> to make all saves atomic and durable.
+	 */
+	public static void setAtomicSaves(boolean atomicSaves) {
+		Utilities.atomicSaves = atomicSaves;
+	}
+
+	/**
+	 * Returns the {@link GroupCommit} used to share directory syncs between
+	 * {@link #saveAtomically(JSONValue, File) atomic saves}.
+	 * 
+	 * @return The {@link GroupCommit}.
+	 */
+	public static GroupCommit getGroupCommit() {
+		return GROUP_COMMIT;
+	}
+
+	/**
+	 * Returns whether the specified {@link File} is a temporary file left behind by
+	 * {@link #saveAtomically(JSONValue, File)} (e.g., because of a crash
+	 * mid-write). Such files should be ignored when loading a directory.
+	 * 
+	 * @param file The {@link File} to check.
+	 * @return <code>true</code> if the file is an atomic-save temp file.
+	 */
+	public static boolean isTempFile(File file) {
+		String name = file.getName();
+		return name.startsWith(".") && name.endsWith(TEMP_FILE_SUFFIX);
+	}
+
+	/**
+	 * <p>
+	 * Saves the specified {@link JSONValue} to the specified {@link File} such that
+	 * the {@link File} always contains either its old contents or the complete new
+	 * contents, even if the process crashes mid-write. The value is written to a
+	 * sibling temporary file, which is synced and then renamed over the target.
+	 * </p>
+	 * <p>
+	 * The parent directory is then synced (so that the rename itself is durable)
+	 * through the {@link #getGroupCommit() group commit}, which lets concurrent
+	 * saves share a single directory sync.
+	 * </p>
+	 * 
+	 * @param obj  The value to save.
+	 * @param file The {@link File} to save to.
+	 */
+	public static void saveAtomically(JSONValue obj, File file) {
+		File dir = file.getAbsoluteFile().getParentFile();
+		dir.mkdirs();
+		File tmp = null;
+		try {
+			tmp = File.createTempFile("." + file.getName() + '.', TEMP_FILE_SUFFIX, dir);
+			try (var fos = new FileOutputStream(tmp); var pw = new PrintWriter(new OutputStreamWriter(fos))) {
+				pw.println(obj.toString());
+				pw.flush();
+				if (pw.checkError())
+					throw new IOException("Failed to write to temporary file: " + tmp);
+				fos.getFD().sync();
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			tmp = null;
+			GROUP_COMMIT.sync(dir.toPath());
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to save file: " + file, e);
+		} finally {
+			if (tmp != null)
+				tmp.delete();
+		}
+	}
+
+	/**
+	 * Saves the specified value for the specified {@link File} through the current
+	 * {@link #getStorage() storage backend}.
+	 * 
+	 * @param obj  The value to save.
+	 * @param file The {@link File} to save to.
+	 */
 	public static void save(JSONValue obj, File file) {
+		storage.save(file, obj);
+	}
+
+	/**
+	 * Writes the specified value directly to the specified file on the file
+	 * system, {@link #saveAtomically(JSONValue, File) atomically} if atomic saves
+	 * are enabled.
+	 * 
+	 * @param obj  The value to write.
+	 * @param file The file to write to.
+	 */
+	public static void write(JSONValue obj, File file) {
+		if (atomicSaves) {
+			saveAtomically(obj, file);
+			return;
+		}
 		file.getParentFile().mkdirs();
 		try {
 			file.createNewFile();